@@ -3,6 +3,7 @@ package bbu.solution.logwatchai;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Entry point for the LogWatchAI Spring Boot application.
@@ -17,12 +18,15 @@ import org.springframework.scheduling.annotation.EnableAsync;
  *     <li><b>@EnableAsync</b> — Allows methods annotated with {@code @Async} to run in
  *     separate threads, improving responsiveness for tasks such as email sending
  *     or AI processing.</li>
+ *     <li><b>@EnableScheduling</b> — Runs periodic maintenance such as the sweep that
+ *     re-dispatches log entries still waiting for analysis.</li>
  *     <li><b>main()</b> — Launches the embedded server (e.g., Tomcat) and initializes
  *     the application context.</li>
  * </ul>
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class LogwatchaiApplication {
 
 	/**
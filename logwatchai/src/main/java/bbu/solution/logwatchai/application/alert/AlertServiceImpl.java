@@ -32,6 +32,18 @@ public class AlertServiceImpl implements AlertService {
         return alertRepository.save(alert);
     }
 
+    /**
+     * Persists the changes of an existing alert.
+     *
+     * @param alert the changed alert
+     * @return the updated alert
+     */
+    @Transactional
+    @Override
+    public Alert update(Alert alert) {
+        return alertRepository.save(alert);
+    }
+
     /**
      * Deactivates an alert by its ID if it exists.
      *
@@ -1,156 +1,680 @@
 package bbu.solution.logwatchai.application.analysis;
 
+import bbu.solution.logwatchai.application.analysis.strategy.AiCircuitBreakers;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiPrompts;
 import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
 import bbu.solution.logwatchai.application.analysis.strategy.AiStrategyFactory;
+import bbu.solution.logwatchai.application.analysis.strategy.LocalStatisticalStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.PromptCompactor;
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.application.budget.BudgetLevel;
+import bbu.solution.logwatchai.application.context.SourceContextWindow;
+import bbu.solution.logwatchai.application.redaction.LogRedactor;
+import bbu.solution.logwatchai.application.shadow.ShadowEvaluationServiceImpl;
 import bbu.solution.logwatchai.domain.analysis.*;
+import bbu.solution.logwatchai.domain.analysis.events.PreliminaryAnalysisEvent;
+import bbu.solution.logwatchai.domain.appconfig.AiBatchConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
 import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
 import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisResult;
+import bbu.solution.logwatchai.domain.template.LogTemplateNormalizer;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
 import bbu.solution.logwatchai.infrastructure.persistence.analysis.AIAnalysisRepository;
 import bbu.solution.logwatchai.infrastructure.persistence.analysis.AIAnalysisSpecifications;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * AIAnalysisService implementation that uses pluggable AiStrategy implementations.
- * Initially this uses a single enabled strategy (the first one found). Later we can
- * run multiple strategies in parallel and aggregate results.
+ * The enabled strategies are used in configured order: either only the first one, hedged
+ * (the next one is called when the previous one is slow or fails) or in parallel with merged
+ * results — see {@link StrategyDispatcher}. With tiered routing, every line is answered by the
+ * fast models first and only escalated to the strong models when needed — see {@link TieredRouter}.
+ * <p>
+ * The usage of every provider call is recorded in the {@link AiBudgetService}. When the budget
+ * runs low, cache misses are no longer sent to a provider but analyzed by an in-process
+ * {@link LocalStatisticalStrategy}; when it is used up, every line is.
+ * <p>
+ * A sample of the lines sent to a provider is also evaluated by the shadow candidate, see
+ * {@link ShadowEvaluationServiceImpl}; the candidate is never part of the primary tiers.
+ * <p>
+ * The log text of every prompt is masked by the {@link LogRedactor} and compacted to the
+ * configured token limit by the {@link PromptCompactor}; templates and the cache still use the
+ * complete, masked line, so no secret leaves the process or ends up in a template.
+ * <p>
+ * Every prompt also carries a summary of the lines its source logged before, taken from the
+ * {@link SourceContextWindow}, so a single call can see e.g. the warnings leading up to an error.
+ * A batch shares the summary of the lines before its earliest entry.
+ * <p>
+ * Answers of streaming strategies are read while they arrive. Once the severity and anomaly
+ * score of a line are known, a {@link PreliminaryAnalysisEvent} is published for it, at most
+ * once per line and analysis, so the decision engine can alert before the answer is complete.
  */
+@Slf4j
 @Service
 public class AIAnalysisServiceImpl implements AIAnalysisService {
 
-    private final Map<String, AiStrategy> strategies;
+    private final TieredRouter router;
     private final AIAnalysisRepository aiRepository;
+    private final AnalysisCache cache;
+    private final LogTemplateService templateService;
+    private final AiBudgetService budget;
+    private final ShadowEvaluationServiceImpl shadow;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PromptCompactor compactor;
+    private final LogRedactor redactor;
+    private final SourceContextWindow contextWindow;
+    private final AnalysisVersionStore versions;
 
-    @Autowired
-    private final ObjectMapper mapper;
+    /**
+     * Category and cause of the analysis stored when no strategy gave a usable answer.
+     */
+    private static final String FALLBACK_CATEGORY = "unknown";
+    private static final String FALLBACK_CAUSE = "no cause";
+
+    /**
+     * Lines per batch of a re-analysis, the configured batch size.
+     */
+    private final int reanalysisBatchSize;
+
+    /**
+     * Answers lines without provider calls once the budget no longer allows them.
+     */
+    private final LocalStatisticalStrategy localAnalyzer = new LocalStatisticalStrategy("budget-local", null);
 
     /**
-     * Constructs the AIAnalysisService with an OpenAI client, repository, and object mapper.
+     * Collects lines per source into shared provider requests; {@code null} if batching is disabled.
+     */
+    private final AnalysisBatcher batcher;
+
+    /**
+     * Reads the analyses from the answers of the models, repairing common mistakes.
+     */
+    private final AnalysisResponseParser parser;
+
+    /**
+     * Constructs the AIAnalysisService with an OpenAI client and repository.
      *
      * aparam configService the configuration
+     * @param analysisConfig null-safe access to the analysis tuning parameters
      * @param aiRepository the repository used to persist and retrieve AI analyses
-     * @param mapper the JSON object mapper
+     * @param cache reuses analyses of lines with an identical normalized template
+     * @param templateService provides the mined template of an entry
+     * @param budget records provider usage and decides how far the analysis degrades
+     * @param shadow compares a sample of the analyses with a candidate model
+     * @param redactor masks sensitive values before a line is sent to a provider
+     * @param contextWindow summarizes the preceding lines of a source for the prompt
+     * @param versions replaces analyses with new versions during a re-analysis
+     * @param httpTransport the shared non-blocking HTTP transport of the HTTP-based strategies
+     * @param circuitBreakers the circuit breakers of the strategies
+     * @param aiExecutor the executor that runs flushed batches
+     * @param registry the meter registry for the rate limiter, latency and hedging metrics
+     * @param eventPublisher publishes the preliminary analyses of streamed answers
      */
     @Autowired
     public AIAnalysisServiceImpl(
             AppConfigService configService,
+            AnalysisConfigProperties analysisConfig,
             AIAnalysisRepository aiRepository,
-            ObjectMapper mapper
+            AnalysisCache cache,
+            LogTemplateService templateService,
+            AiBudgetService budget,
+            ShadowEvaluationServiceImpl shadow,
+            LogRedactor redactor,
+            SourceContextWindow contextWindow,
+            AnalysisVersionStore versions,
+            AiHttpTransport httpTransport,
+            AiCircuitBreakers circuitBreakers,
+            @Qualifier("aiExecutor") Executor aiExecutor,
+            MeterRegistry registry,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.aiRepository = aiRepository;
-        this.mapper = mapper;
-        this.strategies = AiStrategyFactory.buildStrategies(configService.getConfig().getAi());
+        this.cache = cache;
+        this.templateService = templateService;
+        this.budget = budget;
+        this.shadow = shadow;
+        this.eventPublisher = eventPublisher;
+        this.compactor = new PromptCompactor(analysisConfig.getPrompt());
+        this.redactor = redactor;
+        this.contextWindow = contextWindow;
+        this.versions = versions;
+        this.parser = new AnalysisResponseParser(registry);
+        AiConfig aiConfig = configService.getConfig().getAi();
+        boolean tiered = analysisConfig.getRouting().isEnabled();
+        List<AiStrategy> fastTier = new ArrayList<>();
+        List<AiStrategy> strongTier = new ArrayList<>();
+        AiStrategyFactory.buildStrategies(withoutCandidate(aiConfig, shadow.getCandidateName()), httpTransport, circuitBreakers, registry)
+                .forEach((name, strategy) ->
+                        (tiered && "strong".equalsIgnoreCase(tierOf(aiConfig, name)) ? strongTier : fastTier).add(strategy));
+        StrategyDispatcher.UsageListener usage = (strategy, prompt, completion, sourceId) -> {
+            budget.record(strategy, prompt, completion, sourceId);
+            shadow.onUsage(strategy, prompt, completion);
+        };
+        this.router = new TieredRouter(
+                new StrategyDispatcher(fastTier, analysisConfig.getDispatch(), httpTransport, registry, usage),
+                new StrategyDispatcher(strongTier, analysisConfig.getDispatch(), httpTransport, registry, usage),
+                analysisConfig.getRouting(),
+                registry);
+
+        AiBatchConfig batch = analysisConfig.getBatch();
+        this.reanalysisBatchSize = Math.max(1, batch.getMaxSize());
+        this.batcher = batch.isEnabled() && batch.getMaxSize() > 1
+                ? new AnalysisBatcher(batch.getMaxSize(), batch.getMaxWaitMs(), entries -> produceBatch(entries, true, false), aiExecutor)
+                : null;
+
+        log.info("Initialized AI strategies: {}{}", router.describe(),
+                batcher != null ? " (batch size " + batch.getMaxSize() + ", max wait " + batch.getMaxWaitMs() + " ms)" : "");
+    }
 
-        System.out.println("Initialized AI strategies: " + strategies.keySet());
+    /**
+     * Returns the configuration without the shadow candidate, which is built by the shadow evaluation.
+     */
+    private static AiConfig withoutCandidate(AiConfig config, String candidate) {
+        if (candidate == null || config == null || config.getModels() == null) return config;
+        AiConfig primary = new AiConfig();
+        primary.setModels(config.getModels().stream()
+                .filter(entry -> entry == null || !candidate.equals(entry.getName()))
+                .toList());
+        return primary;
+    }
+
+    private static String tierOf(AiConfig config, String name) {
+        if (config == null || config.getModels() == null) return null;
+        return config.getModels().stream()
+                .filter(entry -> entry != null && name.equals(entry.getName()))
+                .map(AiModelEntry::getTier)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Flushes open batches and stops the batch timer on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) batcher.close();
     }
 
     /**
      * Performs a synchronous AI-based analysis on the provided log entry.
+     * If a line with the same template has already been analyzed by the same model after
+     * the same preceding lines, that result is reused and no provider call is made.
      *
      * @param logEntry the log entry to analyze
      * @return the persisted AIAnalysis result
      */
     @Override
     public AIAnalysis analyze(LogEntry logEntry) {
-        if (strategies.isEmpty()) return fallbackAnalysis(logEntry.getId());
+        return analyzeSingle(logEntry).join();
+    }
+
+    /**
+     * Analyzes a single line. With non-blocking strategies no thread waits for the provider;
+     * the analysis is persisted on the thread that completes the call.
+     *
+     * @param logEntry the log entry to analyze
+     * @return a future completed with the persisted AIAnalysis result
+     */
+    private CompletableFuture<AIAnalysis> analyzeSingle(LogEntry logEntry) {
+        if (router.isEmpty()) return CompletableFuture.completedFuture(fallbackAnalysis(logEntry.getId()));
+        return produceSingle(logEntry, true, false).thenApply(aiRepository::save);
+    }
+
+    /**
+     * Produces the analysis of a single line without persisting it.
+     *
+     * @param logEntry the log entry to analyze
+     * @param useCache   whether a cached analysis of the line's template is reused
+     * @param reanalysis whether the line is analyzed again; then no preliminary events are published
+     *                   and no shadow sample is taken
+     * @return a future completed with the not yet persisted analysis
+     */
+    private CompletableFuture<AIAnalysis> produceSingle(LogEntry logEntry, boolean useCache, boolean reanalysis) {
+        if (router.isEmpty()) return CompletableFuture.completedFuture(fallbackAnalysis(logEntry.getId()));
+
+        BudgetLevel level = budget.level(logEntry.getSourceId());
+        if (level == BudgetLevel.LOCAL) {
+            return CompletableFuture.completedFuture(analyzeWithoutProvider(logEntry));
+        }
+
+        String template = templateOf(logEntry);
+        String context = contextWindow.summarize(logEntry);
+        Optional<AIAnalysis> cached = useCache
+                ? cache.lookup(cacheTemplate(template, context), router.cacheKey(), logEntry.getId())
+                : Optional.empty();
+        return cached.isPresent()
+                ? CompletableFuture.completedFuture(cached.get())
+                : analyzeMiss(logEntry, template, context, level, reanalysis);
+    }
+
+    /**
+     * Analyzes a line without cached analysis: by the strategies while the budget allows it,
+     * otherwise locally.
+     */
+    private CompletableFuture<AIAnalysis> analyzeMiss(LogEntry logEntry, String template, String context,
+                                                      BudgetLevel level, boolean reanalysis) {
+        return level == BudgetLevel.NORMAL || level == BudgetLevel.TIGHTENED
+                ? analyzeUncached(logEntry, template, context, reanalysis)
+                : CompletableFuture.completedFuture(analyzeWithoutProvider(logEntry));
+    }
+
+    /**
+     * Analyzes a line with the local analyzer. The result is not cached, so the template is
+     * analyzed by a model again once the budget allows it.
+     *
+     * @param logEntry the log entry to analyze
+     * @return the not yet persisted analysis
+     */
+    private AIAnalysis analyzeWithoutProvider(LogEntry logEntry) {
+        AIAnalysis ai = parser.parseSingle(
+                localAnalyzer.getName(),
+                localAnalyzer.analyzeAsync(AiPrompts.single(logEntry.getRawText())).join().content(),
+                logEntry.getId());
+        return ai != null ? ai : fallbackAnalysis(logEntry.getId());
+    }
+
+    /**
+     * Dispatches a single line to the strategies and stores a successfully parsed result in the cache.
+     *
+     * @param logEntry the log entry to analyze
+     * @param template   the normalized template of the line
+     * @param context    the summary of the preceding lines sent with the line
+     * @param reanalysis whether the line is analyzed again; then no preliminary events are published
+     *                   and no shadow sample is taken
+     * @return a future completed with the not yet persisted analysis, or with a fallback analysis
+     *         if no strategy gave a usable answer; it never completes exceptionally
+     */
+    private CompletableFuture<AIAnalysis> analyzeUncached(LogEntry logEntry, String template, String context, boolean reanalysis) {
+        String prompt = singlePrompt(logEntry, context);
+        ShadowEvaluationServiceImpl.Sample sample = reanalysis ? null : shadow.sample(logEntry, prompt);
+        AtomicBoolean[] published = {new AtomicBoolean()};
+        return router.analyze(
+                        prompt,
+                        logEntry.getSourceId(),
+                        reanalysis ? null : preliminaryListeners(List.of(List.of(logEntry)), published, false),
+                        completion -> parser.parseSingle(completion.strategy(), completion.content(), logEntry.getId()))
+                .handle((ai, error) -> {
+                    // a hedged call that is still streaming must not report after the result
+                    published[0].set(true);
+                    if (error != null) {
+                        shadow.discard(sample);
+                        log.warn("Analysis of log {} failed: {}", logEntry.getId(), unwrap(error).getMessage());
+                        return fallbackAnalysis(logEntry.getId());
+                    }
+                    shadow.compare(sample, ai, router.cacheKey(), content -> parser.parseSingle(shadow.getCandidateName(), content, logEntry.getId()));
+                    cache.store(cacheTemplate(template, context), router.cacheKey(), ai);
+                    return ai;
+                });
+    }
+
+    /**
+     * Creates the content listeners that publish the preliminary analysis of the lines of a
+     * streamed answer.
+     *
+     * @param groups    the lines every analysis object stands for, by its index in the answer
+     * @param published one flag per group, set once it has been reported; shared by all calls of one analysis
+     * @param batch     whether the answer is a batch array, otherwise it holds the single object of group 0
+     * @return a supplier of one listener per provider call
+     */
+    private Supplier<Consumer<String>> preliminaryListeners(List<List<LogEntry>> groups, AtomicBoolean[] published, boolean batch) {
+        return () -> new EarlyFieldExtractor((index, severityText, score) -> {
+            int group = batch ? index : 0;
+            if (group < 0 || group >= groups.size() || !published[group].compareAndSet(false, true)) return;
+            Severity severity = AnalysisResponseParser.severityOf(severityText, EnumSet.noneOf(AnalysisResponseParser.Repair.class));
+            if (severity == null) return;
+            for (LogEntry line : groups.get(group)) {
+                try {
+                    eventPublisher.publishEvent(new PreliminaryAnalysisEvent(line, new AIAnalysis(
+                            line.getId(), severity, null, "Preliminary analysis, the full analysis is still running",
+                            null, null, score)));
+                } catch (RuntimeException e) {
+                    log.warn("Preliminary analysis of log {} failed: {}", line.getId(), e.getMessage());
+                }
+            }
+        });
+    }
 
-        AiStrategy strategy = strategies.values().iterator().next();
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Waits for all futures and collects their results in order.
+     */
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Builds the provider prompt of a line: redacted, compacted and with the summary of the lines before it.
+     */
+    private String singlePrompt(LogEntry entry) {
+        return singlePrompt(entry, contextWindow.summarize(entry));
+    }
+
+    /**
+     * Builds the provider prompt of a line with the given summary of the preceding lines.
+     */
+    private String singlePrompt(LogEntry entry, String context) {
+        return AiPrompts.single(compactor.compact(redactor.redact(entry.getRawText()), context), context);
+    }
+
+    /**
+     * Builds the provider prompt of a batch with the summary of the lines before the earliest entry.
+     *
+     * @param representatives the lines sent, one per template
+     * @param context         the summary of the lines before the earliest entry of the batch
+     */
+    private String batchPrompt(List<LogEntry> representatives, String context) {
+        List<String> logs = representatives.stream().map(LogEntry::getRawText).map(redactor::redact).toList();
+        return AiPrompts.batch(compactor.compactBatch(logs, context), context);
+    }
+
+    /**
+     * Returns the text an analysis is cached under. An answer to a prompt with preceding lines
+     * depends on them as well, so the summary becomes part of the key; lines of the same template
+     * share an analysis only if they were analyzed in the same context.
+     */
+    private static String cacheTemplate(String template, String context) {
+        return context.isEmpty() ? template : template + "\n\nPreceding lines:\n" + context;
+    }
+
+    /**
+     * Returns the template an analysis is shared by. For mined entries this is the current text of
+     * their template, which changes whenever the template is generalized — so analysis runs once
+     * per new or changed template. Entries without a mined template fall back to the normalized line.
+     */
+    private String templateOf(LogEntry entry) {
+        return templateService.getCurrentTemplate(entry.getTemplateId())
+                .orElseGet(() -> LogTemplateNormalizer.normalize(redactor.redact(entry.getRawText())));
+    }
+
+    /**
+     * Queues the entry for micro-batched analysis. Without batching the entry is analyzed right away.
+     * The analysis is not persisted; the caller stores it with the {@link AnalysisCommitter}.
+     *
+     * @param logEntry the log entry to analyze
+     * @return a future completed with the not yet persisted AIAnalysis
+     */
+    @Override
+    public CompletableFuture<AIAnalysis> analyzeBatched(LogEntry logEntry) {
+        if (batcher != null) return batcher.submit(logEntry);
         try {
-            String prompt = buildPrompt(logEntry.getRawText());
-            AIAnalysis ai = parseAndBuildAIAnalysis(strategy.analyze(prompt), logEntry.getId());
-            return aiRepository.save(ai);
+            return produceSingle(logEntry, true, false);
         } catch (Exception ex) {
-            ex.printStackTrace();
-            return aiRepository.save(fallbackAnalysis(logEntry.getId()));
+            return CompletableFuture.failedFuture(ex);
         }
     }
 
-    private AIAnalysis fallbackAnalysis(UUID logEntryId) {
-        return new AIAnalysis(logEntryId, Severity.INFO, "unknown", "no summary", "no cause", "no recommendation", 0.0);
+    /**
+     * Analyzes several log lines with a single provider request.
+     *
+     * <p>Lines whose template is already cached are answered from the cache. The remaining lines are
+     * grouped by template, so every template is sent only once even if it occurs several times in
+     * the batch.</p>
+     *
+     * <p>I send one prompt that lists every remaining template's first line with its index and asks
+     * for a JSON array keyed by that index. Every well-formed array item becomes the analysis of all
+     * lines with that template. Lines whose item is missing, duplicated or malformed fall back to a
+     * regular single-line call, so one bad item never costs the whole batch.</p>
+     *
+     * <p>With tiered routing the batch goes to the fast tier, and every item that calls for a
+     * deeper analysis is escalated to the strong tier on its own.</p>
+     *
+     * @param entries the log entries to analyze
+     * @return the persisted analyses, one per entry and in the same order
+     */
+    @Override
+    public List<AIAnalysis> analyzeBatch(List<LogEntry> entries) {
+        return analyzeBatchAsync(entries).join();
     }
 
     /**
-     * Builds the prompt sent to the AI model for log analysis.
+     * Non-blocking form of {@link #analyzeBatch(List)}.
      *
-     * @param rawLog the raw log string
-     * @return the full prompt text
+     * @param entries the log entries to analyze
+     * @return a future completed with the persisted analyses, one per entry and in the same order
      */
-    private String buildPrompt(String rawLog) {
-        return """
-                Analyze the following log line and return a JSON object exactly with fields:
-                ["severity","category","summarizedIssue","likelyCause","recommendation","anomalyScore"]
-                where severity is one of INFO/WARN/ERROR/DEBUG, anomalyScore is a number between 0.0 and 1.0.
+    private CompletableFuture<List<AIAnalysis>> analyzeBatchAsync(List<LogEntry> entries) {
+        if (router.isEmpty()) return allOf(entries.stream().map(this::analyzeSingle).toList());
+        return produceBatch(entries, true, false).thenApply(aiRepository::saveAll);
+    }
 
-                Log:
-                """ + rawLog + "\n\nReturn JSON only.";
+    /**
+     * Produces the analyses of a batch of lines of one source without persisting them, see
+     * {@link #analyzeBatch(List)}.
+     *
+     * @param entries  the log entries to analyze
+     * @param useCache   whether cached analyses of the lines' templates are reused
+     * @param reanalysis whether the lines are analyzed again; then no preliminary events are published
+     *                   and no shadow samples are taken
+     * @return a future completed with the not yet persisted analyses, one per entry and in the same order
+     */
+    private CompletableFuture<List<AIAnalysis>> produceBatch(List<LogEntry> entries, boolean useCache, boolean reanalysis) {
+        // a batch holds the lines of one source
+        BudgetLevel level = router.isEmpty() ? BudgetLevel.NORMAL : budget.level(entries.getFirst().getSourceId());
+        if (entries.size() == 1 || router.isEmpty() || level == BudgetLevel.LOCAL) {
+            return allOf(entries.stream().map(entry -> produceSingle(entry, useCache, reanalysis)).toList());
+        }
+
+        String model = router.cacheKey();
+        String context = contextWindow.summarize(entries);
+        AIAnalysis[] results = new AIAnalysis[entries.size()];
+
+        // template -> indices of the lines with that template that still need an analysis
+        Map<String, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            LogEntry entry = entries.get(i);
+            String template = templateOf(entry);
+            List<Integer> group = misses.get(template);
+            if (group != null) {
+                group.add(i);
+                continue;
+            }
+            Optional<AIAnalysis> cached = useCache
+                    ? cache.lookup(cacheTemplate(template, context), model, entry.getId())
+                    : Optional.empty();
+            if (cached.isPresent()) {
+                results[i] = cached.get();
+            } else {
+                misses.put(template, new ArrayList<>(List.of(i)));
+            }
+        }
+
+        List<String> templates = new ArrayList<>(misses.keySet());
+        List<LogEntry> representatives = templates.stream()
+                .map(t -> entries.get(misses.get(t).getFirst()))
+                .toList();
+
+        List<List<LogEntry>> groups = templates.stream()
+                .map(t -> misses.get(t).stream().map(entries::get).toList())
+                .toList();
+        AtomicBoolean[] published = new AtomicBoolean[groups.size()];
+        Arrays.setAll(published, i -> new AtomicBoolean());
+
+        CompletableFuture<Map<Integer, AIAnalysis>> parsed = representatives.size() < 2 || level == BudgetLevel.CACHE_ONLY
+                ? CompletableFuture.completedFuture(Map.of())
+                : router.first().dispatch(
+                                batchPrompt(representatives, context),
+                                entries.getFirst().getSourceId(),
+                                reanalysis ? null : preliminaryListeners(groups, published, true),
+                                completion -> {
+                                    Map<Integer, AIAnalysis> byIndex = parseBatchResponse(completion, representatives);
+                                    return byIndex.isEmpty() ? null : byIndex;
+                                },
+                                AnalysisConsensus::mergeByIndex)
+                        .exceptionally(ex -> {
+                            log.warn("Batch analysis of {} lines failed, falling back to single-line calls: {}",
+                                    representatives.size(), unwrap(ex).getMessage());
+                            return Map.of();
+                        });
+
+        return parsed.thenCompose(byIndex -> {
+            for (AtomicBoolean flag : published) flag.set(true);
+            List<CompletableFuture<AIAnalysis>> perTemplate = new ArrayList<>(templates.size());
+            for (int t = 0; t < templates.size(); t++) {
+                AIAnalysis ai = byIndex.get(t);
+                if (ai != null) {
+                    LogEntry representative = representatives.get(t);
+                    String template = templates.get(t);
+                    perTemplate.add(router.review(
+                                    singlePrompt(representative, context),
+                                    representative.getSourceId(),
+                                    completion -> parser.parseSingle(completion.strategy(), completion.content(), representative.getId()),
+                                    ai)
+                            .thenApply(reviewed -> {
+                                cache.store(cacheTemplate(template, context), model, reviewed);
+                                return reviewed;
+                            }));
+                } else {
+                    perTemplate.add(analyzeMiss(representatives.get(t), templates.get(t), context, level, reanalysis));
+                }
+            }
+
+            return allOf(perTemplate).thenApply(analyses -> {
+                for (int t = 0; t < templates.size(); t++) {
+                    AIAnalysis ai = analyses.get(t);
+                    LogEntry representative = representatives.get(t);
+                    for (int index : misses.get(templates.get(t))) {
+                        LogEntry entry = entries.get(index);
+                        results[index] = entry == representative ? ai : ai.copyFor(entry.getId());
+                    }
+                }
+                return Arrays.asList(results);
+            });
+        });
     }
 
     /**
-     * Parses the model response JSON and builds the AIAnalysis domain object.
-     * Falls back to a minimal analysis if parsing fails.
+     * Analyzes already analyzed entries again and replaces their analyses with new versions.
+     *
+     * <p>The entries take the regular path: per source, in batches of the configured size, through
+     * the cache (unless disabled), the rate limits and the budget. Since a local analysis would
+     * only make a stored result worse, I refuse to run while the budget of one of the sources
+     * no longer allows provider calls. Entries that only got a fallback analysis keep their
+     * analysis. No events are published and no alerts raised for the new versions.</p>
      *
-     * @param rawResponse the raw JSON response from the AI model
-     * @param logEntryId the ID of the analyzed log entry
-     * @return the constructed AIAnalysis object
+     * @param entries    the entries to analyze again
+     * @param campaignId the re-analysis campaign the new versions belong to
+     * @param useCache   whether cached analyses of the current model are reused
+     * @return a future completed with the counts of the chunk; it fails if the budget does not allow provider calls
      */
-    private AIAnalysis parseAndBuildAIAnalysis(String rawResponse, UUID logEntryId) {
-        try {
-            // --- 1) RAW CLEANING  ---
-            rawResponse = cleanLLMResponse(rawResponse);
-
-            // --- 2) JSON PARSING ---
-            var node = mapper.readTree(rawResponse);
-
-            String severity = node.path("severity").asText(null);
-            String category = node.path("category").asText(null);
-            String summarized = node.path("summarizedIssue").asText(null);
-            String likelyCause = node.path("likelyCause").asText(null);
-            String recommendation = node.path("recommendation").asText(null);
-            double score = node.path("anomalyScore").asDouble(0.0);
-
-            return new AIAnalysis(
-                    logEntryId,
-                    severity != null ? SeverityUtil.valueOfOrNull(severity) : Severity.INFO,
-                    category,
-                    summarized,
-                    likelyCause,
-                    recommendation,
-                    score
-            );
-
-        } catch (Exception e) {
-            System.err.println("Failed to parse AI response: " + rawResponse);
-            e.printStackTrace();
-            return fallbackAnalysis(logEntryId);
+    @Override
+    public CompletableFuture<ReanalysisResult> reanalyze(List<LogEntry> entries, UUID campaignId, boolean useCache) {
+        if (entries.isEmpty()) return CompletableFuture.completedFuture(new ReanalysisResult(0, 0, 0));
+        if (router.isEmpty()) return CompletableFuture.failedFuture(new IllegalStateException("No AI strategy is configured"));
+
+        Map<UUID, List<LogEntry>> bySource = new LinkedHashMap<>();
+        for (LogEntry entry : entries) bySource.computeIfAbsent(entry.getSourceId(), id -> new ArrayList<>()).add(entry);
+        for (UUID sourceId : bySource.keySet()) {
+            BudgetLevel level = budget.level(sourceId);
+            if (level != BudgetLevel.NORMAL && level != BudgetLevel.TIGHTENED) {
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "The AI budget of source " + sourceId + " is at level " + level + ", waiting until it allows provider calls again"));
+            }
+        }
+
+        List<CompletableFuture<List<AIAnalysis>>> chunks = new ArrayList<>();
+        for (List<LogEntry> group : bySource.values()) {
+            for (int from = 0; from < group.size(); from += reanalysisBatchSize) {
+                chunks.add(produceBatch(group.subList(from, Math.min(group.size(), from + reanalysisBatchSize)), useCache, true));
+            }
         }
+        return allOf(chunks).thenApply(produced -> {
+            List<AIAnalysis> usable = produced.stream()
+                    .flatMap(List::stream)
+                    .filter(ai -> !isFallback(ai))
+                    .toList();
+            int changed = versions.replace(usable, campaignId);
+            return new ReanalysisResult(usable.size(), entries.size() - usable.size(), changed);
+        });
     }
+
     /**
-     * remove Markdown-Codeblocks, ```json, ``` and lonely Backticks.
-     */
-    private String cleanLLMResponse(String raw) {
-        if (raw == null) return null;
-        String cleaned = raw.trim();
-        cleaned = cleaned
-                .replace("```json", "")
-                .replace("```JSON", "")
-                .replace("```", "")
-                .replace("`", "")
-                .trim();
-        // "json\n{...}"
-        if (cleaned.startsWith("json\n")) {
-            cleaned = cleaned.substring(5).trim();
+     * Produces the local analysis of a line the pre-triage considered routine.
+     * The triage score becomes the anomaly score, so such lines stay below the anomaly mark.
+     *
+     * @param logEntry the log entry
+     * @param triage the triage result of the entry
+     * @return the not yet persisted AIAnalysis result
+     */
+    @Override
+    public AIAnalysis analyzeLocally(LogEntry logEntry, TriageResult triage) {
+        return new AIAnalysis(
+                logEntry.getId(),
+                triage.severity(),
+                "triage",
+                "Routine log line, not sent to an AI model",
+                triage.reason(),
+                "no action required",
+                triage.score()
+        );
+    }
+
+    @Override
+    public String promptFor(LogEntry logEntry) {
+        return singlePrompt(logEntry);
+    }
+
+    @Override
+    public AIAnalysis fromCompletion(LogEntry logEntry, String strategy, String content) {
+        return parser.parseSingle(strategy, content, logEntry.getId());
+    }
+
+    private AIAnalysis fallbackAnalysis(UUID logEntryId) {
+        return new AIAnalysis(logEntryId, Severity.INFO, FALLBACK_CATEGORY, "no summary", FALLBACK_CAUSE, "no recommendation", 0.0);
+    }
+
+    private static boolean isFallback(AIAnalysis ai) {
+        return FALLBACK_CATEGORY.equals(ai.getCategory()) && FALLBACK_CAUSE.equals(ai.getLikelyCause());
+    }
+
+    /**
+     * Parses a batch response into analyses keyed by line index.
+     * Items without a valid, unique index or without a severity are skipped; their lines
+     * are analyzed again individually by the caller.
+     *
+     * @param completion the answer of the model
+     * @param entries the log entries of the batch
+     * @return the analyses that could be mapped, keyed by line index
+     */
+    private Map<Integer, AIAnalysis> parseBatchResponse(AiCompletion completion, List<LogEntry> entries) {
+        Map<Integer, AIAnalysis> parsed = new HashMap<>();
+        Set<Integer> duplicates = new HashSet<>();
+        for (AnalysisResponseParser.Fields item : parser.parseBatch(completion.strategy(), completion.content())) {
+            int index = item.index;
+            if (index < 0 || index >= entries.size()) continue;
+            if (parsed.put(index, item.toAnalysis(entries.get(index).getId())) != null) {
+                duplicates.add(index);
+            }
         }
-        return cleaned;
+        duplicates.forEach(parsed::remove);
+        return parsed;
     }
+
     /**
      * Retrieves an AIAnalysis entry by its ID.
      *
@@ -0,0 +1,163 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects log entries per source into micro-batches and hands each batch to a single analysis call.
+ *
+ * <p>A batch is flushed as soon as it reaches {@code maxSize} entries, or when its first entry has
+ * waited {@code maxWait} milliseconds, whichever comes first. Flushing happens on the given executor,
+ * never on the thread that submitted the entry.</p>
+ *
+ * <p>The batch function returns a future of exactly one analysis per entry, in the same order as the input.
+ * It is started on the executor but may complete on any thread, e.g. when the provider call is non-blocking.</p>
+ */
+public class AnalysisBatcher implements AutoCloseable {
+
+    private final int maxSize;
+    private final long maxWaitMs;
+    private final Function<List<LogEntry>, CompletableFuture<List<AIAnalysis>>> batchFunction;
+    private final Executor executor;
+
+    /**
+     * Single timer thread that only flushes due batches; the analysis itself runs on {@link #executor}.
+     */
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("analysis-batcher-"));
+
+    /** Open batches keyed by log source. Guarded by {@code this}. */
+    private final Map<UUID, PendingBatch> open = new HashMap<>();
+
+    /**
+     * Creates a new batcher.
+     *
+     * @param maxSize       maximum entries per batch
+     * @param maxWaitMs     maximum wait of the first entry before the batch is flushed
+     * @param batchFunction analyzes a batch and returns a future of one result per entry, in input order
+     * @param executor      executor that starts the batch function
+     */
+    public AnalysisBatcher(int maxSize,
+                           long maxWaitMs,
+                           Function<List<LogEntry>, CompletableFuture<List<AIAnalysis>>> batchFunction,
+                           Executor executor) {
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.batchFunction = batchFunction;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds an entry to the open batch of its source.
+     *
+     * @param entry the entry to analyze
+     * @return a future completed with the entry's analysis once its batch has been processed
+     */
+    public CompletableFuture<AIAnalysis> submit(LogEntry entry) {
+        CompletableFuture<AIAnalysis> future = new CompletableFuture<>();
+        PendingBatch full = null;
+
+        synchronized (this) {
+            PendingBatch batch = open.computeIfAbsent(entry.getSourceId(), this::openBatch);
+            batch.entries.add(entry);
+            batch.futures.add(future);
+
+            if (batch.entries.size() >= maxSize) {
+                open.remove(entry.getSourceId());
+                full = batch;
+            }
+        }
+
+        if (full != null) dispatch(full);
+        return future;
+    }
+
+    /**
+     * Opens a new batch for the given source and schedules its deadline flush.
+     */
+    private PendingBatch openBatch(UUID sourceId) {
+        PendingBatch batch = new PendingBatch();
+        batch.deadline = timer.schedule(() -> flushIfOpen(sourceId, batch), maxWaitMs, TimeUnit.MILLISECONDS);
+        return batch;
+    }
+
+    /**
+     * Flushes the batch on its deadline unless it has already been flushed because it was full.
+     */
+    private void flushIfOpen(UUID sourceId, PendingBatch batch) {
+        synchronized (this) {
+            if (open.get(sourceId) != batch) return;
+            open.remove(sourceId);
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * Runs the batch function on the executor and completes all futures of the batch.
+     * If the executor rejects the work, every future fails so the callers can release their entries.
+     */
+    private void dispatch(PendingBatch batch) {
+        batch.deadline.cancel(false);
+        try {
+            executor.execute(() -> run(batch));
+        } catch (RuntimeException rejected) {
+            batch.futures.forEach(f -> f.completeExceptionally(rejected));
+        }
+    }
+
+    private void run(PendingBatch batch) {
+        CompletableFuture<List<AIAnalysis>> results;
+        try {
+            results = batchFunction.apply(batch.entries);
+        } catch (Exception e) {
+            results = CompletableFuture.failedFuture(e);
+        }
+
+        results.whenComplete((analyses, error) -> {
+            if (error != null) {
+                batch.futures.forEach(f -> f.completeExceptionally(error));
+                return;
+            }
+            for (int i = 0; i < batch.futures.size(); i++) {
+                batch.futures.get(i).complete(analyses.get(i));
+            }
+        });
+    }
+
+    /**
+     * Stops the timer. Batches that are still open are flushed immediately.
+     */
+    @Override
+    public void close() {
+        List<PendingBatch> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(open.values());
+            open.clear();
+        }
+        remaining.forEach(this::dispatch);
+        timer.shutdownNow();
+    }
+
+    /**
+     * Entries and their result futures that share one provider request.
+     */
+    private static final class PendingBatch {
+        private final List<LogEntry> entries = new ArrayList<>();
+        private final List<CompletableFuture<AIAnalysis>> futures = new ArrayList<>();
+        private ScheduledFuture<?> deadline;
+    }
+}
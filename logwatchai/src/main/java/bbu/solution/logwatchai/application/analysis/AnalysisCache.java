@@ -0,0 +1,196 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.AnalysisCacheEntry;
+import bbu.solution.logwatchai.domain.appconfig.AiCacheConfig;
+import bbu.solution.logwatchai.domain.template.LogTemplateNormalizer;
+import bbu.solution.logwatchai.infrastructure.persistence.analysis.AnalysisCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Two-level cache of analyses keyed by (normalized template hash, model).
+ *
+ * <p>The first level is a bounded, access-ordered in-memory LRU map. The second level is the
+ * {@code analysis_cache} table, which survives restarts and is shared between instances.
+ * Both levels honour the configured time-to-live.</p>
+ *
+ * <p>I publish the following metrics:</p>
+ * <ul>
+ *     <li>{@code logwatchai.analysis.cache.lookups} tagged with {@code result=memory|database|miss}</li>
+ *     <li>{@code logwatchai.analysis.cache.hit.ratio} — share of lookups served from either level</li>
+ *     <li>{@code logwatchai.analysis.cache.size} — number of templates in memory</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class AnalysisCache {
+
+    private final AnalysisCacheRepository repository;
+    private final boolean enabled;
+    private final Duration ttl;
+
+    /** In-memory LRU level. Guarded by itself. */
+    private final Map<String, AnalysisCacheEntry> memory;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    /**
+     * Creates the cache.
+     *
+     * @param repository persistent cache level
+     * @param analysisConfig provides the cache configuration
+     * @param registry the meter registry for hit-rate metrics
+     */
+    public AnalysisCache(AnalysisCacheRepository repository,
+                         AnalysisConfigProperties analysisConfig,
+                         MeterRegistry registry) {
+        AiCacheConfig config = analysisConfig.getCache();
+        this.repository = repository;
+        this.enabled = config.isEnabled();
+        this.ttl = Duration.ofMinutes(config.getTtlMinutes());
+
+        int maxEntries = Math.max(1, config.getMaxEntries());
+        this.memory = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AnalysisCacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.memoryHits = lookups(registry, "memory");
+        this.databaseHits = lookups(registry, "database");
+        this.misses = lookups(registry, "miss");
+        Gauge.builder("logwatchai.analysis.cache.hit.ratio", this, AnalysisCache::hitRatio)
+                .description("Share of analysis lookups served from the template cache")
+                .register(registry);
+        Gauge.builder("logwatchai.analysis.cache.size", memory, m -> { synchronized (m) { return m.size(); } })
+                .description("Number of templates held in the in-memory analysis cache")
+                .register(registry);
+    }
+
+    private static Counter lookups(MeterRegistry registry, String result) {
+        return Counter.builder("logwatchai.analysis.cache.lookups")
+                .description("Template cache lookups by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * @return whether the cache is active at all
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Looks up a reusable analysis for the given template and model.
+     *
+     * @param template the normalized template of the line
+     * @param model the strategy and model key
+     * @param logEntryId the entry the returned copy should belong to
+     * @return a fresh, not yet persisted analysis copy, or empty on a miss
+     */
+    public Optional<AIAnalysis> lookup(String template, String model, UUID logEntryId) {
+        if (!enabled) return Optional.empty();
+
+        Instant now = Instant.now();
+        String hash = LogTemplateNormalizer.hash(template);
+        String key = key(hash, model);
+
+        AnalysisCacheEntry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry != null && entry.isExpired(now)) {
+                memory.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            memoryHits.increment();
+            return Optional.of(entry.toAnalysis(logEntryId));
+        }
+
+        try {
+            entry = repository.findByTemplateHashAndModel(hash, model)
+                    .filter(e -> !e.isExpired(now))
+                    .orElse(null);
+        } catch (DataAccessException e) {
+            log.warn("Analysis cache lookup failed, treating as miss: {}", e.getMessage());
+        }
+        if (entry != null) {
+            synchronized (memory) {
+                memory.put(key, entry);
+            }
+            databaseHits.increment();
+            return Optional.of(entry.toAnalysis(logEntryId));
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores a freshly produced analysis for reuse by further lines with the same template.
+     *
+     * @param template the normalized template of the analyzed line
+     * @param model the strategy and model key
+     * @param analysis the analysis to reuse
+     */
+    public void store(String template, String model, AIAnalysis analysis) {
+        if (!enabled) return;
+
+        String hash = LogTemplateNormalizer.hash(template);
+        AnalysisCacheEntry entry = new AnalysisCacheEntry(hash, model, template, analysis, Instant.now().plus(ttl));
+        synchronized (memory) {
+            memory.put(key(hash, model), entry);
+        }
+
+        try {
+            repository.findByTemplateHashAndModel(hash, model).ifPresent(repository::delete);
+            repository.save(entry);
+        } catch (DataIntegrityViolationException race) {
+            // another worker stored the same template concurrently; its result is just as good
+            log.debug("Template {} already cached for {}", hash, model);
+        } catch (DataAccessException e) {
+            // the in-memory level still serves this instance
+            log.warn("Could not persist analysis cache entry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Removes expired entries from the database once per hour.
+     */
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 3_600_000)
+    public void purgeExpired() {
+        int removed = repository.deleteExpired(Instant.now());
+        if (removed > 0) {
+            log.info("Purged {} expired analysis cache entries", removed);
+        }
+    }
+
+    private double hitRatio() {
+        double hits = memoryHits.count() + databaseHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    private static String key(String hash, String model) {
+        return hash + '|' + model;
+    }
+}
@@ -0,0 +1,342 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.appconfig.AiCommitConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes finished analyses of claimed log entries behind the analysis.
+ *
+ * <p>Storing one line used to cost an ORM insert of its analysis and an UPDATE of its entry,
+ * each a round trip of its own. I collect the analyses instead and write them on a single writer
+ * thread as JDBC batches: one batched UPDATE that completes the entries, then one batched INSERT
+ * into {@code ai_analysis}, both in one short transaction. A batch is written as soon as it
+ * holds {@code maxBatch} analyses, or when its first analysis has waited {@code maxWaitMs}.</p>
+ *
+ * <p>The UPDATE only completes an entry that is still CLAIMED or DEFERRED. A slow analysis may
+ * finish after its claim was released as stale, or after another worker claimed or completed the
+ * entry; its analysis is then not inserted, and its future fails with a {@link ClaimLostException}.</p>
+ *
+ * <p>If a batch fails, I write its analyses one by one, so a single bad row, e.g. an entry that
+ * was deleted meanwhile, only fails itself. The futures of a batch are completed on the given
+ * executor, so the work that follows, like the decision engine, never delays the next batch.</p>
+ *
+ * <p>Metrics: {@code logwatchai.analysis.commit} (time per transaction),
+ * {@code logwatchai.analysis.commit.batch} (analyses per batch),
+ * {@code logwatchai.analysis.commit.failures} (analyses that could not be stored) and
+ * {@code logwatchai.analysis.commit.lost} (analyses dropped because their claim was lost).</p>
+ */
+@Slf4j
+@Component
+public class AnalysisCommitter {
+
+    private static final String INSERT_ANALYSIS = """
+        INSERT INTO ai_analysis
+            (id, log_entry_id, severity, category, summarized_issue, likely_cause,
+             recommendation, anomaly_score, analyzed_at, version, campaign_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String COMPLETE_ENTRY = """
+        UPDATE log_entries
+           SET analysis_state = 'DONE',
+               analyzed = TRUE,
+               has_anomaly = ?,
+               claimed_at = NULL
+         WHERE id = ?
+           AND analysis_state IN ('CLAIMED', 'DEFERRED')
+        """;
+
+    /** Instants are stored in UTC, as Hibernate does. */
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final Executor callbacks;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxWaitMs;
+
+    private final Timer commitTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter failures;
+    private final Counter lost;
+
+    /** Single thread that writes the batches; writes never overlap. */
+    private final ScheduledExecutorService writer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("analysis-committer-"));
+
+    /** Guarded by {@code this}. */
+    private List<PendingCommit> open = new ArrayList<>();
+    private ScheduledFuture<?> deadline;
+
+    /**
+     * Creates the committer from the application configuration.
+     *
+     * @param analysisConfig     null-safe access to the commit configuration
+     * @param jdbc               executes the batched statements
+     * @param transactionManager opens the transaction of a batch
+     * @param aiExecutor         completes the futures of a written batch
+     * @param registry           the meter registry for the commit metrics
+     */
+    @Autowired
+    public AnalysisCommitter(AnalysisConfigProperties analysisConfig,
+                             JdbcTemplate jdbc,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier("aiExecutor") Executor aiExecutor,
+                             MeterRegistry registry) {
+        this(analysisConfig.getCommit(), jdbc, new TransactionTemplate(transactionManager), aiExecutor, registry);
+    }
+
+    /**
+     * @param config       the commit configuration
+     * @param jdbc         executes the batched statements
+     * @param transactions runs a batch in one transaction
+     * @param callbacks    completes the futures of a written batch
+     * @param registry     the meter registry for the commit metrics
+     */
+    public AnalysisCommitter(AiCommitConfig config, JdbcTemplate jdbc, TransactionTemplate transactions,
+                             Executor callbacks, MeterRegistry registry) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+        this.callbacks = callbacks;
+        this.enabled = config.isEnabled() && config.getMaxBatch() > 1;
+        this.maxBatch = Math.max(1, config.getMaxBatch());
+        this.maxWaitMs = Math.max(0, config.getMaxWaitMs());
+        this.commitTimer = Timer.builder("logwatchai.analysis.commit")
+                .description("Time to write one batch of analyses")
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("logwatchai.analysis.commit.batch")
+                .description("Analyses written per transaction")
+                .register(registry);
+        this.failures = Counter.builder("logwatchai.analysis.commit.failures")
+                .description("Analyses that could not be stored")
+                .register(registry);
+        this.lost = Counter.builder("logwatchai.analysis.commit.lost")
+                .description("Analyses not stored because their entry was no longer claimed")
+                .register(registry);
+    }
+
+    /**
+     * Stores the analysis of a claimed entry and completes the entry: DONE, analyzed, and
+     * flagged as anomaly if the analysis says so.
+     *
+     * @param analysis the not yet persisted analysis; it gets its id here
+     * @return a future completed once the analysis is committed; it fails if it could not be stored,
+     *         with a {@link ClaimLostException} if the entry is no longer claimed
+     */
+    public CompletableFuture<Void> commit(AIAnalysis analysis) {
+        PendingCommit commit = new PendingCommit(analysis, new CompletableFuture<>());
+        if (!enabled) {
+            write(List.of(commit));
+            return commit.done();
+        }
+
+        List<PendingCommit> full = null;
+        synchronized (this) {
+            open.add(commit);
+            if (open.size() >= maxBatch) {
+                full = takeOpen();
+            } else if (open.size() == 1) {
+                deadline = writer.schedule(this::flushDue, maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) submit(full);
+        return commit.done();
+    }
+
+    /**
+     * Writes the open batch on its deadline unless it has already been written because it was full.
+     */
+    private void flushDue() {
+        List<PendingCommit> due;
+        synchronized (this) {
+            if (open.isEmpty()) return;
+            due = takeOpen();
+        }
+        write(due);
+    }
+
+    /** Must hold the lock. */
+    private List<PendingCommit> takeOpen() {
+        List<PendingCommit> taken = open;
+        open = new ArrayList<>();
+        if (deadline != null) deadline.cancel(false);
+        deadline = null;
+        return taken;
+    }
+
+    private void submit(List<PendingCommit> batch) {
+        try {
+            writer.execute(() -> write(batch));
+        } catch (RejectedExecutionException rejected) {
+            batch.forEach(commit -> commit.done().completeExceptionally(rejected));
+        }
+    }
+
+    /**
+     * Writes a batch; if that fails, every analysis on its own.
+     */
+    private void write(List<PendingCommit> batch) {
+        batchSizes.record(batch.size());
+        List<PendingCommit> stored = tryWrite(batch);
+        if (stored != null) {
+            finish(batch, stored);
+            return;
+        }
+        for (PendingCommit commit : batch) {
+            List<PendingCommit> single = batch.size() > 1 ? tryWrite(List.of(commit)) : null;
+            if (single != null) {
+                finish(List.of(commit), single);
+            } else {
+                failures.increment();
+                complete(List.of(commit), new IllegalStateException(
+                        "Analysis of log " + commit.analysis().getLogEntryId() + " could not be stored"));
+            }
+        }
+    }
+
+    /**
+     * Completes the entries that are still claimed and inserts their analyses in one transaction.
+     *
+     * @return the commits whose analysis was stored, or null if the transaction failed
+     */
+    private List<PendingCommit> tryWrite(List<PendingCommit> batch) {
+        try {
+            return commitTimer.record(() -> transactions.execute(status -> {
+                int[][] counts = jdbc.batchUpdate(COMPLETE_ENTRY, batch, batch.size(), (ps, commit) -> {
+                    ps.setBoolean(1, commit.analysis().getAnomalyScore() > LogEntry.ANOMALY_THRESHOLD);
+                    ps.setBytes(2, UuidBytes.toBytes(commit.analysis().getLogEntryId()));
+                });
+                List<PendingCommit> claimed = claimed(batch, counts);
+                if (!claimed.isEmpty()) {
+                    jdbc.batchUpdate(INSERT_ANALYSIS, claimed, claimed.size(), (ps, commit) -> bindAnalysis(ps, commit.analysis()));
+                }
+                return claimed;
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Writing {} analyses failed: {}", batch.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the commits whose entry the UPDATE completed. A driver that does not report the
+     * count of a batched row ({@link Statement#SUCCESS_NO_INFO}) is taken at its word.
+     */
+    private static List<PendingCommit> claimed(List<PendingCommit> batch, int[][] counts) {
+        List<PendingCommit> claimed = new ArrayList<>(batch.size());
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) claimed.add(batch.get(i));
+                i++;
+            }
+        }
+        return claimed;
+    }
+
+    private static void bindAnalysis(PreparedStatement ps, AIAnalysis a) throws SQLException {
+        ps.setBytes(1, UuidBytes.toBytes(a.assignId()));
+        ps.setBytes(2, UuidBytes.toBytes(a.getLogEntryId()));
+        ps.setString(3, a.getSeverity().name());
+        ps.setString(4, a.getCategory());
+        ps.setString(5, a.getSummarizedIssue());
+        ps.setString(6, a.getLikelyCause());
+        ps.setString(7, a.getRecommendation());
+        ps.setDouble(8, a.getAnomalyScore());
+        ps.setTimestamp(9, Timestamp.from(a.getAnalyzedAt()), Calendar.getInstance(UTC));
+        ps.setInt(10, a.getVersion());
+        if (a.getCampaignId() != null) {
+            ps.setBytes(11, UuidBytes.toBytes(a.getCampaignId()));
+        } else {
+            ps.setNull(11, Types.BINARY);
+        }
+    }
+
+    /**
+     * Completes the stored commits and fails the others because their claim was lost.
+     */
+    private void finish(List<PendingCommit> commits, List<PendingCommit> stored) {
+        complete(stored, null);
+        if (stored.size() == commits.size()) return;
+        Set<PendingCommit> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(stored);
+        for (PendingCommit commit : commits) {
+            if (kept.contains(commit)) continue;
+            lost.increment();
+            log.info("Analysis of log {} dropped, the entry is no longer claimed", commit.analysis().getLogEntryId());
+            complete(List.of(commit), new ClaimLostException(commit.analysis().getLogEntryId()));
+        }
+    }
+
+    private void complete(List<PendingCommit> commits, Throwable error) {
+        Runnable completion = () -> commits.forEach(commit -> {
+            if (error == null) commit.done().complete(null);
+            else commit.done().completeExceptionally(error);
+        });
+        try {
+            callbacks.execute(completion);
+        } catch (RejectedExecutionException rejected) {
+            completion.run();
+        }
+    }
+
+    /**
+     * Writes the open batch and stops the writer thread.
+     */
+    @PreDestroy
+    public void close() {
+        List<PendingCommit> remaining;
+        synchronized (this) {
+            remaining = takeOpen();
+        }
+        if (!remaining.isEmpty()) submit(remaining);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) writer.shutdownNow();
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An analysis waiting to be written and the future of its caller.
+     */
+    private record PendingCommit(AIAnalysis analysis, CompletableFuture<Void> done) {}
+}
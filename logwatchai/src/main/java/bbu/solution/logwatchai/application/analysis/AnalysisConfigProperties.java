@@ -0,0 +1,182 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.appconfig.AiBatchConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiBudgetConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiCacheConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiDispatchConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiCommitConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiContextConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiDeferredConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiPromptConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiReanalysisConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiRedactionConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiRoutingConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiSchedulingConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiShadowConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides null-safe access to the analysis related parts of the {@link AiConfig} block.
+ *
+ * <p>I act as an adapter so that the analysis pipeline can read its tuning parameters
+ * without dealing with missing configuration sections. Whenever a section is absent,
+ * I return a fresh instance carrying the built-in defaults.</p>
+ */
+@Component
+public class AnalysisConfigProperties {
+
+    private final AppConfigService appConfigService;
+
+    /**
+     * Creates the configuration accessor.
+     *
+     * @param appConfigService the service used to obtain the current {@link AppConfig}
+     */
+    public AnalysisConfigProperties(AppConfigService appConfigService) {
+        this.appConfigService = appConfigService;
+    }
+
+    /**
+     * Returns the {@link AiConfig} section, or an empty one if it is not configured.
+     *
+     * @return the active {@link AiConfig}, never {@code null}
+     */
+    public AiConfig getAi() {
+        AppConfig cfg = appConfigService.getConfig();
+        if (cfg == null || cfg.getAi() == null) return new AiConfig();
+        return cfg.getAi();
+    }
+
+    /**
+     * Returns the micro-batching configuration.
+     *
+     * @return the active {@link AiBatchConfig}, never {@code null}
+     */
+    public AiBatchConfig getBatch() {
+        AiBatchConfig batch = getAi().getBatch();
+        return batch == null ? new AiBatchConfig() : batch;
+    }
+
+    /**
+     * Returns the template analysis cache configuration.
+     *
+     * @return the active {@link AiCacheConfig}, never {@code null}
+     */
+    public AiCacheConfig getCache() {
+        AiCacheConfig cache = getAi().getCache();
+        return cache == null ? new AiCacheConfig() : cache;
+    }
+
+    /**
+     * Returns the multi-model dispatch configuration.
+     *
+     * @return the active {@link AiDispatchConfig}, never {@code null}
+     */
+    public AiDispatchConfig getDispatch() {
+        AiDispatchConfig dispatch = getAi().getDispatch();
+        return dispatch == null ? new AiDispatchConfig() : dispatch;
+    }
+
+    /**
+     * Returns the priority scheduling configuration.
+     *
+     * @return the active {@link AiSchedulingConfig}, never {@code null}
+     */
+    public AiSchedulingConfig getScheduling() {
+        AiSchedulingConfig scheduling = getAi().getScheduling();
+        return scheduling == null ? new AiSchedulingConfig() : scheduling;
+    }
+
+    /**
+     * Returns the token and cost budget configuration.
+     *
+     * @return the active {@link AiBudgetConfig}, never {@code null}
+     */
+    public AiBudgetConfig getBudget() {
+        AiBudgetConfig budget = getAi().getBudget();
+        return budget == null ? new AiBudgetConfig() : budget;
+    }
+
+    /**
+     * Returns the tiered routing configuration.
+     *
+     * @return the active {@link AiRoutingConfig}, never {@code null}
+     */
+    public AiRoutingConfig getRouting() {
+        AiRoutingConfig routing = getAi().getRouting();
+        return routing == null ? new AiRoutingConfig() : routing;
+    }
+
+    /**
+     * Returns the shadow evaluation configuration.
+     *
+     * @return the active {@link AiShadowConfig}, never {@code null}
+     */
+    public AiShadowConfig getShadow() {
+        AiShadowConfig shadow = getAi().getShadow();
+        return shadow == null ? new AiShadowConfig() : shadow;
+    }
+
+    /**
+     * Returns the prompt size configuration.
+     *
+     * @return the active {@link AiPromptConfig}, never {@code null}
+     */
+    public AiPromptConfig getPrompt() {
+        AiPromptConfig prompt = getAi().getPrompt();
+        return prompt == null ? new AiPromptConfig() : prompt;
+    }
+
+    /**
+     * Returns the redaction configuration.
+     *
+     * @return the active {@link AiRedactionConfig}, never {@code null}
+     */
+    public AiRedactionConfig getRedaction() {
+        AiRedactionConfig redaction = getAi().getRedaction();
+        return redaction == null ? new AiRedactionConfig() : redaction;
+    }
+
+    /**
+     * Returns the context window configuration.
+     *
+     * @return the active {@link AiContextConfig}, never {@code null}
+     */
+    public AiContextConfig getContext() {
+        AiContextConfig context = getAi().getContext();
+        return context == null ? new AiContextConfig() : context;
+    }
+
+    /**
+     * Returns the re-analysis configuration.
+     *
+     * @return the active {@link AiReanalysisConfig}, never {@code null}
+     */
+    public AiReanalysisConfig getReanalysis() {
+        AiReanalysisConfig reanalysis = getAi().getReanalysis();
+        return reanalysis == null ? new AiReanalysisConfig() : reanalysis;
+    }
+
+    /**
+     * Returns the commit configuration.
+     *
+     * @return the active {@link AiCommitConfig}, never {@code null}
+     */
+    public AiCommitConfig getCommit() {
+        AiCommitConfig commit = getAi().getCommit();
+        return commit == null ? new AiCommitConfig() : commit;
+    }
+
+    /**
+     * Returns the deferred analysis configuration.
+     *
+     * @return the active {@link AiDeferredConfig}, never {@code null}
+     */
+    public AiDeferredConfig getDeferred() {
+        AiDeferredConfig deferred = getAi().getDeferred();
+        return deferred == null ? new AiDeferredConfig() : deferred;
+    }
+}
@@ -0,0 +1,85 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the analyses several models produced for the same line.
+ * <p>
+ * The severity is decided by majority; a tie goes to the more severe value, because
+ * under-reporting an incident is worse than a false alarm. The anomaly score is the mean of all
+ * scores. The descriptive fields are taken from the first analysis (in configured model order)
+ * that agrees with the merged severity, so text and severity never contradict each other.
+ * </p>
+ */
+final class AnalysisConsensus {
+
+    private AnalysisConsensus() {
+        // static helpers only
+    }
+
+    /**
+     * @param analyses the analyses of one line, in configured model order, not empty
+     * @return the merged, not yet persisted analysis
+     */
+    static AIAnalysis merge(List<AIAnalysis> analyses) {
+        if (analyses.size() == 1) return analyses.getFirst();
+
+        Map<Severity, Integer> votes = new EnumMap<>(Severity.class);
+        double scoreSum = 0;
+        for (AIAnalysis analysis : analyses) {
+            votes.merge(analysis.getSeverity(), 1, Integer::sum);
+            scoreSum += analysis.getAnomalyScore();
+        }
+
+        Severity severity = null;
+        int best = 0;
+        for (Map.Entry<Severity, Integer> vote : votes.entrySet()) {
+            // EnumMap iterates from least to most severe, so >= lets ties go to the more severe value
+            if (vote.getValue() >= best) {
+                severity = vote.getKey();
+                best = vote.getValue();
+            }
+        }
+
+        AIAnalysis text = analyses.getFirst();
+        for (AIAnalysis analysis : analyses) {
+            if (analysis.getSeverity() == severity) {
+                text = analysis;
+                break;
+            }
+        }
+
+        return new AIAnalysis(
+                text.getLogEntryId(),
+                severity,
+                text.getCategory(),
+                text.getSummarizedIssue(),
+                text.getLikelyCause(),
+                text.getRecommendation(),
+                scoreSum / analyses.size()
+        );
+    }
+
+    /**
+     * Merges batch results line by line. A line only one model answered keeps that answer.
+     *
+     * @param results the batch results of each model keyed by line index, in configured model order
+     * @return the merged results keyed by line index
+     */
+    static Map<Integer, AIAnalysis> mergeByIndex(List<Map<Integer, AIAnalysis>> results) {
+        Map<Integer, List<AIAnalysis>> byIndex = new LinkedHashMap<>();
+        for (Map<Integer, AIAnalysis> result : results) {
+            result.forEach((index, analysis) -> byIndex.computeIfAbsent(index, i -> new ArrayList<>()).add(analysis));
+        }
+        Map<Integer, AIAnalysis> merged = new LinkedHashMap<>();
+        byIndex.forEach((index, analyses) -> merged.put(index, merge(analyses)));
+        return merged;
+    }
+}
@@ -0,0 +1,508 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.analysis.SeverityUtil;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reads analyses from the answers of a model, tolerating what models commonly get wrong.
+ *
+ * <p>I scan the answer once for the first opening brace or bracket and read the JSON value
+ * there with a streaming parser, mapping its fields directly onto the analysis without building a
+ * tree. Everything around the value, like a Markdown fence or a sentence of prose, is ignored.
+ * If the value at a brace is not JSON, e.g. a placeholder in the prose, I continue with the next
+ * one.</p>
+ *
+ * <p>Answers that are almost right are repaired instead of rejected, so a line does not end up
+ * with the INFO fallback and escape alerting, and no provider call is repeated:</p>
+ * <ul>
+ *     <li>lenient syntax: single quotes, unquoted keys, comments and trailing commas;</li>
+ *     <li>a truncated answer keeps the fields read so far, if its severity is among them;</li>
+ *     <li>keys in another spelling, e.g. {@code anomaly_score} or {@code summary};</li>
+ *     <li>severity synonyms, e.g. "severe" or "moderate";</li>
+ *     <li>scores as strings and percentages, e.g. "0.8", "85%" or 85;</li>
+ *     <li>lists where a text is expected, e.g. several recommendations;</li>
+ *     <li>a single analysis wrapped into an array, and a batch wrapped into an object.</li>
+ * </ul>
+ *
+ * <p>An answer without a severity is unusable. Metrics, tagged with the strategy:
+ * {@code logwatchai.analysis.parse} (answers by result: clean, repaired, failed) and
+ * {@code logwatchai.analysis.parse.repairs} (answers by kind of repair).</p>
+ */
+@Slf4j
+class AnalysisResponseParser {
+
+    /** Strict JSON; most answers are read with it. */
+    private static final JsonFactory STRICT = new JsonFactory();
+
+    /** Used only for answers that are no valid JSON. */
+    private static final JsonFactory LENIENT = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES,
+                    JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES,
+                    JsonReadFeature.ALLOW_JAVA_COMMENTS,
+                    JsonReadFeature.ALLOW_YAML_COMMENTS,
+                    JsonReadFeature.ALLOW_TRAILING_COMMA,
+                    JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS,
+                    JsonReadFeature.ALLOW_LEADING_PLUS_SIGN_FOR_NUMBERS,
+                    JsonReadFeature.ALLOW_LEADING_DECIMAL_POINT_FOR_NUMBERS,
+                    JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build();
+
+    /** Braces that do not start the answer are tried at most this often. */
+    private static final int MAX_CANDIDATES = 8;
+
+    /** Severity words models use besides the ones {@link SeverityUtil} knows. */
+    private static final Map<String, Severity> SEVERITY_SYNONYMS = Map.ofEntries(
+            Map.entry("TRACE", Severity.INFO),
+            Map.entry("INFORMATIONAL", Severity.INFO),
+            Map.entry("INFORMATION", Severity.INFO),
+            Map.entry("NONE", Severity.INFO),
+            Map.entry("OK", Severity.INFO),
+            Map.entry("NORMAL", Severity.INFO),
+            Map.entry("MINOR", Severity.LOW),
+            Map.entry("MODERATE", Severity.MEDIUM),
+            Map.entry("MED", Severity.MEDIUM),
+            Map.entry("ERR", Severity.HIGH),
+            Map.entry("MAJOR", Severity.HIGH),
+            Map.entry("SEVERE", Severity.HIGH),
+            Map.entry("CRIT", Severity.CRITICAL),
+            Map.entry("ALERT", Severity.CRITICAL),
+            Map.entry("EMERGENCY", Severity.CRITICAL),
+            Map.entry("BLOCKER", Severity.CRITICAL));
+
+    /** Severities by number, for models that rate from 1 to 5. */
+    private static final Severity[] SEVERITY_SCALE = {Severity.INFO, Severity.LOW, Severity.MEDIUM, Severity.HIGH, Severity.CRITICAL};
+
+    /**
+     * Kinds of repair, as tagged in the metrics.
+     */
+    enum Repair {
+        EXTRACTED, SYNTAX, TRUNCATED, KEY, SEVERITY, SCORE, VALUE, UNWRAPPED;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final MeterRegistry registry;
+
+    /**
+     * @param registry the meter registry for the parse metrics
+     */
+    AnalysisResponseParser(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Reads the analysis of a single line.
+     *
+     * @param strategy   the strategy that answered, for the metrics; may be null
+     * @param content    the answer of the model
+     * @param logEntryId the analyzed log entry
+     * @return the not yet persisted analysis, or {@code null} if the answer is unusable
+     */
+    AIAnalysis parseSingle(String strategy, String content, UUID logEntryId) {
+        Fields fields = extract(strategy, content, this::readSingle);
+        return fields != null ? fields.toAnalysis(logEntryId) : null;
+    }
+
+    /**
+     * Reads the analyses of a batch answer: the objects of its array, each with the index of its line.
+     * Objects without a severity are left out.
+     *
+     * @param strategy the strategy that answered, for the metrics; may be null
+     * @param content  the answer of the model
+     * @return the objects with a severity, in the order of the answer; empty if the answer is unusable
+     */
+    List<Fields> parseBatch(String strategy, String content) {
+        List<Fields> items = extract(strategy, content, this::readBatch);
+        return items != null ? items : List.of();
+    }
+
+    @FunctionalInterface
+    private interface ValueReader<T> {
+        /**
+         * @return the value, or {@code null} if it is unusable
+         */
+        T read(JsonParser parser, Set<Repair> repairs) throws IOException;
+    }
+
+    /**
+     * Reads the first usable JSON value of the answer and records the outcome.
+     */
+    private <T> T extract(String strategy, String content, ValueReader<T> reader) {
+        if (content != null) {
+            int from = 0;
+            for (int candidate = 0; candidate < MAX_CANDIDATES; candidate++) {
+                int start = nextStart(content, from);
+                if (start < 0) break;
+
+                Set<Repair> repairs = EnumSet.noneOf(Repair.class);
+                T value = readAt(content, start, reader, repairs);
+                if (value != null) {
+                    if (!content.substring(0, start).isBlank()) repairs.add(Repair.EXTRACTED);
+                    record(strategy, repairs);
+                    return value;
+                }
+                from = start + 1;
+            }
+        }
+        // the answer may quote the log line, so its content is only logged at debug level
+        log.warn("Unusable AI response from {}", strategy != null ? strategy : "unknown strategy");
+        if (log.isDebugEnabled()) log.debug("Unusable AI response: {}", abbreviate(content));
+        result(strategy, "failed").increment();
+        return null;
+    }
+
+    private static int nextStart(String content, int from) {
+        for (int i = from; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '{' || c == '[') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the value at the given position, strictly first and leniently if that fails.
+     */
+    private static <T> T readAt(String content, int start, ValueReader<T> reader, Set<Repair> repairs) {
+        String value = content.substring(start);
+        try {
+            return read(STRICT, value, reader, repairs);
+        } catch (JsonParseException strictFailure) {
+            repairs.clear();
+            repairs.add(Repair.SYNTAX);
+            try {
+                return read(LENIENT, value, reader, repairs);
+            } catch (IOException lenientFailure) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static <T> T read(JsonFactory factory, String value, ValueReader<T> reader, Set<Repair> repairs) throws IOException {
+        try (JsonParser parser = factory.createParser(value)) {
+            parser.nextToken();
+            T result = reader.read(parser, repairs);
+            if (result != null) {
+                long end = parser.currentLocation().getCharOffset();
+                if (end >= 0 && end < value.length() && !value.substring((int) end).isBlank()) {
+                    repairs.add(Repair.EXTRACTED);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads a single analysis object; of an array, its first object.
+     */
+    private Fields readSingle(JsonParser parser, Set<Repair> repairs) throws IOException {
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            repairs.add(Repair.UNWRAPPED);
+        }
+        Fields fields = new Fields();
+        try {
+            readFields(parser, fields, repairs);
+        } catch (JsonEOFException e) {
+            repairs.add(Repair.TRUNCATED);
+        }
+        return fields.severity != null ? fields : null;
+    }
+
+    /**
+     * Reads the objects of a batch array. Of an object, I read the first array of analysis objects
+     * it contains, e.g. {@code {"results": [...]}}, or the object itself if it is one analysis.
+     */
+    private List<Fields> readBatch(JsonParser parser, Set<Repair> repairs) throws IOException {
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            List<Fields> items = readItems(parser, repairs);
+            return items.isEmpty() ? null : items;
+        }
+
+        Fields single = new Fields();
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && canonicalKey(name) == null) {
+                    List<Fields> items = readItems(parser, repairs);
+                    if (!items.isEmpty()) {
+                        repairs.add(Repair.UNWRAPPED);
+                        return items;
+                    }
+                } else {
+                    applyField(name, parser, single, repairs);
+                }
+            }
+            if (token == null) repairs.add(Repair.TRUNCATED);
+        } catch (JsonEOFException e) {
+            repairs.add(Repair.TRUNCATED);
+        }
+        if (single.severity == null) return null;
+        repairs.add(Repair.UNWRAPPED);
+        return List.of(single);
+    }
+
+    private List<Fields> readItems(JsonParser parser, Set<Repair> repairs) throws IOException {
+        List<Fields> items = new ArrayList<>();
+        Fields item = null;
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    repairs.add(Repair.TRUNCATED);
+                    break;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                item = new Fields();
+                readFields(parser, item, repairs);
+                if (item.severity != null) items.add(item);
+                item = null;
+            }
+        } catch (JsonEOFException e) {
+            repairs.add(Repair.TRUNCATED);
+            if (item != null && item.severity != null) items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Reads the fields of the object the parser is at, up to its end.
+     */
+    private void readFields(JsonParser parser, Fields fields, Set<Repair> repairs) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            applyField(name, parser, fields, repairs);
+        }
+        if (token == null) throw new JsonEOFException(parser, null, "Unexpected end of the analysis object");
+    }
+
+    /**
+     * Maps the value the parser is at onto the field of the given key; values of unknown keys are skipped.
+     */
+    private void applyField(String name, JsonParser parser, Fields fields, Set<Repair> repairs) throws IOException {
+        String key = canonicalKey(name);
+        if (key == null) {
+            parser.skipChildren();
+            return;
+        }
+        if (!key.equals(name)) repairs.add(Repair.KEY);
+        switch (key) {
+            case "severity" -> fields.severity = severity(parser, repairs);
+            case "anomalyScore" -> fields.anomalyScore = score(parser, repairs);
+            case "index" -> fields.index = index(parser, repairs);
+            case "category" -> fields.category = text(parser, repairs);
+            case "summarizedIssue" -> fields.summarizedIssue = text(parser, repairs);
+            case "likelyCause" -> fields.likelyCause = text(parser, repairs);
+            case "recommendation" -> fields.recommendation = text(parser, repairs);
+            default -> parser.skipChildren();
+        }
+    }
+
+    /**
+     * Maps a key in any common spelling to the field it stands for.
+     *
+     * @return the name of the field, or null for an unknown key
+     */
+    static String canonicalKey(String name) {
+        if (name == null) return null;
+        String normalized = name.replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case "severity", "severitylevel", "level" -> "severity";
+            case "anomalyscore", "anomaly", "score", "anomalyprobability", "probability" -> "anomalyScore";
+            case "index", "idx", "line", "lineindex" -> "index";
+            case "category", "type" -> "category";
+            case "summarizedissue", "summary", "issue", "summarizedissues" -> "summarizedIssue";
+            case "likelycause", "cause", "rootcause", "probablecause" -> "likelyCause";
+            case "recommendation", "recommendations", "recommendedaction", "fix", "action", "mitigation" -> "recommendation";
+            default -> null;
+        };
+    }
+
+    private static Severity severity(JsonParser parser, Set<Repair> repairs) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            int level = parser.getIntValue();
+            repairs.add(Repair.SEVERITY);
+            return SEVERITY_SCALE[Math.clamp(level - 1, 0, SEVERITY_SCALE.length - 1)];
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        return severityOf(parser.getText(), repairs);
+    }
+
+    /**
+     * Maps a severity word; words unknown even as synonyms become {@link Severity#UNKNOWN_CRITICAL},
+     * so an odd answer is looked at rather than ignored.
+     */
+    static Severity severityOf(String text, Set<Repair> repairs) {
+        String normalized = text.trim().toUpperCase(Locale.ROOT);
+        if (normalized.isEmpty()) return null;
+        Severity known = SeverityUtil.valueOfOrNull(normalized);
+        if (known != Severity.UNKNOWN_CRITICAL || normalized.equals(Severity.UNKNOWN_CRITICAL.name())) return known;
+
+        // e.g. "**High**", "high." or "Severe - disk full"
+        String word = normalized.replaceAll("[^A-Z].*$", "");
+        String letters = normalized.replaceAll("[^A-Z]", "");
+        for (String candidate : List.of(letters, word)) {
+            Severity coerced = SEVERITY_SYNONYMS.get(candidate);
+            if (coerced == null) coerced = SeverityUtil.valueOfOrNull(candidate);
+            if (coerced != Severity.UNKNOWN_CRITICAL) {
+                repairs.add(Repair.SEVERITY);
+                return coerced;
+            }
+        }
+        return Severity.UNKNOWN_CRITICAL;
+    }
+
+    private static double score(JsonParser parser, Set<Repair> repairs) throws IOException {
+        JsonToken token = parser.currentToken();
+        double score;
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            score = parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            repairs.add(Repair.SCORE);
+            String text = parser.getText().trim();
+            boolean percent = text.endsWith("%");
+            try {
+                score = Double.parseDouble(text.replace("%", "").replace(',', '.').trim());
+            } catch (NumberFormatException e) {
+                return 0.0;
+            }
+            if (percent) return finite(score / 100.0);
+        } else {
+            parser.skipChildren();
+            return 0.0;
+        }
+        if (score > 1.0 && score <= 100.0) {
+            // a percentage without its sign
+            repairs.add(Repair.SCORE);
+            score /= 100.0;
+        }
+        return finite(score);
+    }
+
+    private static double finite(double score) {
+        return Double.isFinite(score) ? score : 0.0;
+    }
+
+    private static int index(JsonParser parser, Set<Repair> repairs) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) return parser.getIntValue();
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                int index = Integer.parseInt(parser.getText().trim());
+                repairs.add(Repair.VALUE);
+                return index;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        parser.skipChildren();
+        return -1;
+    }
+
+    /**
+     * Reads a text; scalars are converted and the texts of a list are joined.
+     */
+    private static String text(JsonParser parser, Set<Repair> repairs) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) return parser.getText();
+        if (token == JsonToken.VALUE_NULL) return null;
+        repairs.add(Repair.VALUE);
+        if (token.isScalarValue()) return parser.getText();
+        if (token == JsonToken.START_ARRAY) {
+            List<String> parts = new ArrayList<>();
+            JsonToken item;
+            while ((item = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (item == null) throw new JsonEOFException(parser, null, "Unexpected end of a list");
+                if (item.isScalarValue() && item != JsonToken.VALUE_NULL) parts.add(parser.getText());
+                else parser.skipChildren();
+            }
+            return parts.isEmpty() ? null : String.join("; ", parts);
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private void record(String strategy, Set<Repair> repairs) {
+        result(strategy, repairs.isEmpty() ? "clean" : "repaired").increment();
+        for (Repair repair : repairs) {
+            Counter.builder("logwatchai.analysis.parse.repairs")
+                    .description("Model answers that needed a repair, by kind")
+                    .tag("strategy", tagOf(strategy))
+                    .tag("repair", repair.tag())
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    private Counter result(String strategy, String result) {
+        return Counter.builder("logwatchai.analysis.parse")
+                .description("Model answers read as analyses, by result")
+                .tag("strategy", tagOf(strategy))
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static String tagOf(String strategy) {
+        return strategy != null ? strategy : "unknown";
+    }
+
+    private static String abbreviate(String content) {
+        if (content == null) return "null";
+        return content.length() <= 300 ? content : content.substring(0, 300) + "...";
+    }
+
+    /**
+     * The fields of one analysis object as read from an answer.
+     */
+    static final class Fields {
+
+        /** The index of the line in a batch answer, -1 if missing. */
+        int index = -1;
+        Severity severity;
+        String category;
+        String summarizedIssue;
+        String likelyCause;
+        String recommendation;
+        double anomalyScore;
+
+        /**
+         * @param logEntryId the analyzed log entry
+         * @return a new, not yet persisted analysis with my fields
+         */
+        AIAnalysis toAnalysis(UUID logEntryId) {
+            return new AIAnalysis(logEntryId, severity, category, summarizedIssue, likelyCause, recommendation, anomalyScore);
+        }
+    }
+}
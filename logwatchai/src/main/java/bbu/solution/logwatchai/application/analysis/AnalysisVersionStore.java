@@ -0,0 +1,80 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysisVersion;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.analysis.AIAnalysisRepository;
+import bbu.solution.logwatchai.infrastructure.persistence.analysis.AIAnalysisVersionRepository;
+import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Replaces the current analyses of log entries with new versions.
+ *
+ * <p>{@code ai_analysis} holds exactly one analysis per entry. I move the current one to
+ * {@code ai_analysis_versions}, under its own id and version, and store the new one with the
+ * next version number, all in one short transaction per chunk. The anomaly flag of the entries
+ * follows the new analyses.</p>
+ */
+@Component
+public class AnalysisVersionStore {
+
+    private final AIAnalysisRepository analysisRepository;
+    private final AIAnalysisVersionRepository versionRepository;
+    private final LogEntryRepository logEntryRepository;
+
+    /**
+     * @param analysisRepository the repository of the current analyses
+     * @param versionRepository  the repository of the replaced analyses
+     * @param logEntryRepository the repository of the log entries
+     */
+    public AnalysisVersionStore(AIAnalysisRepository analysisRepository,
+                                AIAnalysisVersionRepository versionRepository,
+                                LogEntryRepository logEntryRepository) {
+        this.analysisRepository = analysisRepository;
+        this.versionRepository = versionRepository;
+        this.logEntryRepository = logEntryRepository;
+    }
+
+    /**
+     * Stores new analyses as the current ones of their entries.
+     *
+     * @param analyses   the new, not yet persisted analyses, at most one per entry
+     * @param campaignId the re-analysis campaign that produced them, or null
+     * @return the number of entries whose severity changed
+     */
+    @Transactional
+    public int replace(List<AIAnalysis> analyses, UUID campaignId) {
+        if (analyses.isEmpty()) return 0;
+
+        Map<UUID, AIAnalysis> previous = new HashMap<>();
+        for (AIAnalysis current : analysisRepository.findByLogEntryIdIn(analyses.stream().map(AIAnalysis::getLogEntryId).toList())) {
+            previous.put(current.getLogEntryId(), current);
+        }
+        Instant now = Instant.now();
+        versionRepository.saveAll(previous.values().stream().map(current -> new AIAnalysisVersion(current, now)).toList());
+        // the bulk delete runs right away, so the unique entry id is free before the new rows are flushed
+        analysisRepository.deleteAllInBatch(previous.values());
+
+        int changed = 0;
+        for (AIAnalysis analysis : analyses) {
+            AIAnalysis before = previous.get(analysis.getLogEntryId());
+            analysis.supersede(before, campaignId);
+            if (before != null && before.getSeverity() != analysis.getSeverity()) changed++;
+        }
+        analysisRepository.saveAll(analyses);
+        for (AIAnalysis analysis : analyses) {
+            logEntryRepository.updateAnomaly(UuidBytes.toBytes(analysis.getLogEntryId()),
+                    analysis.getAnomalyScore() > LogEntry.ANOMALY_THRESHOLD);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,30 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import java.util.UUID;
+
+/**
+ * Signals that an analysis was not stored because its entry is no longer claimed for it.
+ * <p>
+ * The claim was released as stale, or the entry was claimed again or completed by another
+ * worker, while the analysis was running. The entry belongs to that worker or to the sweep now,
+ * so the caller must neither store the analysis nor hand the entry back.
+ */
+public class ClaimLostException extends RuntimeException {
+
+    private final UUID logEntryId;
+
+    /**
+     * @param logEntryId the entry whose claim was lost
+     */
+    public ClaimLostException(UUID logEntryId) {
+        super("Log " + logEntryId + " is no longer claimed for this analysis");
+        this.logEntryId = logEntryId;
+    }
+
+    /**
+     * @return the entry whose claim was lost
+     */
+    public UUID getLogEntryId() {
+        return logEntryId;
+    }
+}
@@ -0,0 +1,196 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import java.util.function.Consumer;
+
+/**
+ * Reads the severity and anomaly score of an analysis while the answer is still streaming in.
+ *
+ * <p>I am fed the pieces of the answer in order and scan them once, character by character,
+ * without buffering the answer. Everything before the first opening brace or bracket is skipped,
+ * so a Markdown fence or a short preamble does not matter. I only look at the fields of the
+ * analysis objects themselves: the root object of a single-line answer, or every object of the
+ * root array of a batch answer. Nested values are skipped.</p>
+ *
+ * <p>As soon as an object has a severity and an anomaly score, I report them once for that
+ * object. In a batch answer I wait for the index of the object as well, or for the end of the
+ * object if it has none. Since the prompts ask for severity and anomalyScore first, this usually
+ * happens after a few dozen characters.</p>
+ *
+ * <p>I am not thread-safe; every provider call gets its own instance.</p>
+ */
+class EarlyFieldExtractor implements Consumer<String> {
+
+    /**
+     * Receives the early fields of one analysis object.
+     */
+    @FunctionalInterface
+    interface Listener {
+        /**
+         * @param index        the index of the object in a batch answer, -1 for a single-line answer or if missing
+         * @param severity     the severity as written by the model
+         * @param anomalyScore the anomaly score
+         */
+        void onFields(int index, String severity, double anomalyScore);
+    }
+
+    private final Listener listener;
+
+    /** Depth of the analysis objects: 1 below an object root, 2 below an array root; 0 before the root. */
+    private int analysisDepth;
+    private int depth;
+    private boolean done;
+
+    private boolean inString;
+    private boolean escaped;
+    private final StringBuilder text = new StringBuilder();
+
+    /** The last string at the analysis depth that may be a key. */
+    private String key;
+    private boolean expectingValue;
+    private final StringBuilder scalar = new StringBuilder();
+
+    private String severity;
+    private Double score;
+    private Integer index;
+    private boolean reported;
+
+    /**
+     * @param listener receives the severity and anomaly score of every analysis object
+     */
+    EarlyFieldExtractor(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        if (chunk == null) return;
+        for (int i = 0; i < chunk.length() && !done; i++) {
+            next(chunk.charAt(i));
+        }
+    }
+
+    private void next(char c) {
+        if (analysisDepth == 0) {
+            if (c == '{' || c == '[') {
+                analysisDepth = c == '{' ? 1 : 2;
+                depth = 1;
+                if (c == '{') startObject();
+            }
+            return;
+        }
+
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+                if (depth == analysisDepth) text.append(c);
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+                if (depth == analysisDepth) endString();
+            } else if (depth == analysisDepth) {
+                text.append(c);
+            }
+            return;
+        }
+
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                text.setLength(0);
+            }
+            case '{', '[' -> {
+                if (depth == analysisDepth) expectingValue = false;
+                depth++;
+                if (c == '{' && depth == analysisDepth) startObject();
+            }
+            case '}', ']' -> {
+                if (depth == analysisDepth) {
+                    endScalar();
+                    if (c == '}') endObject();
+                }
+                depth--;
+                if (depth == 0) done = true;
+            }
+            case ':' -> {
+                if (depth == analysisDepth) expectingValue = key != null;
+            }
+            case ',' -> {
+                if (depth == analysisDepth) {
+                    endScalar();
+                    key = null;
+                }
+            }
+            default -> {
+                if (depth == analysisDepth && expectingValue && !Character.isWhitespace(c)) scalar.append(c);
+            }
+        }
+    }
+
+    private void startObject() {
+        key = null;
+        expectingValue = false;
+        scalar.setLength(0);
+        severity = null;
+        score = null;
+        index = null;
+        reported = false;
+    }
+
+    private void endString() {
+        if (expectingValue) {
+            value(text.toString());
+            expectingValue = false;
+        } else {
+            key = text.toString();
+        }
+    }
+
+    private void endScalar() {
+        if (expectingValue && !scalar.isEmpty()) value(scalar.toString());
+        expectingValue = false;
+        scalar.setLength(0);
+    }
+
+    private void endObject() {
+        // a batch item without index is still reported, the caller decides what to do with it
+        if (!reported && severity != null && score != null) report();
+    }
+
+    private void value(String value) {
+        if (key == null) return;
+        switch (key) {
+            case "severity" -> severity = value.trim();
+            case "anomalyScore" -> score = parseScore(value);
+            case "index" -> index = parseIndex(value);
+            default -> { }
+        }
+        key = null;
+        if (!reported && severity != null && score != null && (analysisDepth == 1 || index != null)) report();
+    }
+
+    private void report() {
+        reported = true;
+        listener.onFields(index == null ? -1 : index, severity, score);
+    }
+
+    private static Double parseScore(String value) {
+        String trimmed = value.trim();
+        boolean percent = trimmed.endsWith("%");
+        if (percent) trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        try {
+            double score = Double.parseDouble(trimmed);
+            return percent ? score / 100.0 : score;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseIndex(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
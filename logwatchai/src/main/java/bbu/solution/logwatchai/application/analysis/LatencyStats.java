@@ -0,0 +1,61 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding window of the latest response times of one strategy.
+ * <p>
+ * I keep a fixed number of samples, so the quantiles follow changes of the provider within
+ * a few hundred calls and memory stays constant. Quantiles are computed on demand by sorting
+ * a copy of the window, which is cheap for this size compared to a provider call.
+ * </p>
+ */
+final class LatencyStats {
+
+    private final long[] samples;
+    private int size;
+    private int next;
+
+    /**
+     * @param window number of samples kept
+     */
+    LatencyStats(int window) {
+        this.samples = new long[Math.max(1, window)];
+    }
+
+    /**
+     * Records one response time.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    /**
+     * @return the number of samples in the window
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the given quantile of the window.
+     *
+     * @param quantile between 0.0 and 1.0, e.g. 0.95
+     * @return the latency in milliseconds, or -1 if nothing was recorded yet
+     */
+    long quantileMillis(double quantile) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) return -1;
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(Math.min(Math.max(quantile, 0.0), 1.0) * copy.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(copy[Math.max(0, index)]);
+    }
+}
@@ -0,0 +1,386 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.AsyncAiStrategy;
+import bbu.solution.logwatchai.domain.appconfig.AiDispatchConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Sends a prompt to the enabled strategies according to the configured dispatch mode.
+ *
+ * <ul>
+ *     <li>{@code single}: the first strategy in configured order is called. The next one is only
+ *         called if it fails or gives an unusable answer — e.g. right away while its circuit
+ *         breaker is open.</li>
+ *     <li>{@code hedge}: the first strategy is called. If it has not produced a valid answer within
+ *         its p95 latency (configurable quantile), the next strategy is called as well, and so on.
+ *         A failed or invalid answer starts the next strategy right away. The first valid answer wins.</li>
+ *     <li>{@code consensus}: the strategies are called in parallel and all valid answers are merged.</li>
+ * </ul>
+ *
+ * <p>I measure the latency of every call per strategy. Hedge delays are derived from these
+ * measurements and clamped to the configured bounds, so a slow provider only delays a call by
+ * its own usual latency and never by its worst one.</p>
+ *
+ * <p>An answer is valid if the caller's parser maps it to a non-null value. Every completed call,
+ * valid or not, is reported to the usage listener, since the provider has charged for it.</p>
+ *
+ * <p>A caller that wants to read an answer while it streams in passes a supplier of content
+ * listeners; every started call gets a listener of its own, so hedged calls never interleave.</p>
+ */
+@Slf4j
+class StrategyDispatcher {
+
+    /**
+     * Notified of every completed provider call.
+     */
+    @FunctionalInterface
+    interface UsageListener {
+        void onCompletion(AiStrategy strategy, String prompt, AiCompletion completion, UUID sourceId);
+    }
+
+    /** Latencies kept per strategy. */
+    private static final int LATENCY_WINDOW = 512;
+
+    /** Samples needed before the measured quantile replaces the initial hedge delay. */
+    private static final int MIN_SAMPLES = 20;
+
+    private enum Mode { SINGLE, HEDGE, CONSENSUS }
+
+    private final List<AiStrategy> strategies;
+    private final Mode mode;
+    private final AiDispatchConfig config;
+    private final AiHttpTransport transport;
+    private final String cacheKey;
+    private final UsageListener usageListener;
+
+    private final Map<String, LatencyStats> latencies = new LinkedHashMap<>();
+    private final Map<String, Timer> timers = new LinkedHashMap<>();
+    private final Map<String, Counter> hedges = new LinkedHashMap<>();
+    private final Map<String, Counter> wins = new LinkedHashMap<>();
+
+    /**
+     * @param strategies the enabled strategies in configured order
+     * @param config     the dispatch configuration
+     * @param transport  provides the timer that starts hedged calls
+     * @param registry   the meter registry for latency and hedging metrics
+     */
+    StrategyDispatcher(List<AiStrategy> strategies,
+                       AiDispatchConfig config,
+                       AiHttpTransport transport,
+                       MeterRegistry registry) {
+        this(strategies, config, transport, registry, (strategy, prompt, completion, sourceId) -> { });
+    }
+
+    /**
+     * @param strategies    the enabled strategies in configured order
+     * @param config        the dispatch configuration
+     * @param transport     provides the timer that starts hedged calls
+     * @param registry      the meter registry for latency and hedging metrics
+     * @param usageListener notified of every completed provider call
+     */
+    StrategyDispatcher(List<AiStrategy> strategies,
+                       AiDispatchConfig config,
+                       AiHttpTransport transport,
+                       MeterRegistry registry,
+                       UsageListener usageListener) {
+        this.config = config;
+        this.usageListener = usageListener;
+        this.transport = transport;
+        this.mode = parseMode(config.getMode());
+        this.strategies = mode == Mode.CONSENSUS
+                ? List.copyOf(strategies.subList(0, Math.min(strategies.size(), Math.max(1, config.getMaxConsensusModels()))))
+                : List.copyOf(strategies);
+
+        for (AiStrategy strategy : this.strategies) {
+            String name = strategy.getName();
+            latencies.put(name, new LatencyStats(LATENCY_WINDOW));
+            timers.put(name, Timer.builder("logwatchai.ai.latency")
+                    .description("Latency of successful provider calls")
+                    .tag("strategy", name)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry));
+            hedges.put(name, Counter.builder("logwatchai.ai.hedges")
+                    .description("Hedged calls started because an earlier strategy was slow or failed")
+                    .tag("strategy", name)
+                    .register(registry));
+            wins.put(name, Counter.builder("logwatchai.ai.dispatch.wins")
+                    .description("Valid answers used per strategy")
+                    .tag("strategy", name)
+                    .register(registry));
+        }
+
+        // results of different producers must never be mixed; a single strategy keeps its own key
+        this.cacheKey = mode == Mode.SINGLE
+                ? key(this.strategies.isEmpty() ? null : this.strategies.getFirst())
+                : mode.name().toLowerCase(Locale.ROOT) + ":" + this.strategies.stream()
+                        .map(StrategyDispatcher::key)
+                        .collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return true if no strategy is enabled
+     */
+    boolean isEmpty() {
+        return strategies.isEmpty();
+    }
+
+    /**
+     * @return identifies the producer of the dispatched answers in the analysis cache
+     */
+    String cacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * @return a short description for the startup log
+     */
+    String describe() {
+        return mode.name().toLowerCase(Locale.ROOT) + " " + strategies.stream().map(AiStrategy::getName).toList();
+    }
+
+    /**
+     * Sends the prompt according to the dispatch mode.
+     *
+     * @param prompt the prompt text
+     * @param parser maps a response to a result, or to {@code null} if the response is not usable
+     * @param merger merges the valid results of several strategies in consensus mode
+     * @return a future completed with the result, or failed if no strategy gave a valid answer
+     */
+    <T> CompletableFuture<T> dispatch(String prompt,
+                                      Function<AiCompletion, T> parser,
+                                      Function<List<T>, T> merger) {
+        return dispatch(prompt, null, parser, merger);
+    }
+
+    /**
+     * Sends the prompt according to the dispatch mode.
+     *
+     * @param prompt   the prompt text
+     * @param sourceId the log source the prompt belongs to, reported to the usage listener
+     * @param parser   maps a response to a result, or to {@code null} if the response is not usable
+     * @param merger   merges the valid results of several strategies in consensus mode
+     * @return a future completed with the result, or failed if no strategy gave a valid answer
+     */
+    <T> CompletableFuture<T> dispatch(String prompt,
+                                      UUID sourceId,
+                                      Function<AiCompletion, T> parser,
+                                      Function<List<T>, T> merger) {
+        return dispatch(prompt, sourceId, null, parser, merger);
+    }
+
+    /**
+     * Sends the prompt according to the dispatch mode and streams the answers of strategies that
+     * support it to the listeners.
+     *
+     * @param prompt    the prompt text
+     * @param sourceId  the log source the prompt belongs to, reported to the usage listener
+     * @param listeners creates the content listener of each started call; {@code null} for none
+     * @param parser    maps a response to a result, or to {@code null} if the response is not usable
+     * @param merger    merges the valid results of several strategies in consensus mode
+     * @return a future completed with the result, or failed if no strategy gave a valid answer
+     */
+    <T> CompletableFuture<T> dispatch(String prompt,
+                                      UUID sourceId,
+                                      Supplier<Consumer<String>> listeners,
+                                      Function<AiCompletion, T> parser,
+                                      Function<List<T>, T> merger) {
+        if (strategies.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No AI strategy enabled"));
+        }
+        return switch (mode) {
+            case SINGLE -> new Hedge<>(prompt, sourceId, listeners, parser, false).start();
+            case HEDGE -> new Hedge<>(prompt, sourceId, listeners, parser, true).start();
+            case CONSENSUS -> consensus(prompt, sourceId, listeners, parser, merger);
+        };
+    }
+
+    /**
+     * Calls one strategy, records its latency and usage and validates the answer.
+     */
+    private <T> CompletableFuture<T> call(AiStrategy strategy,
+                                          String prompt,
+                                          UUID sourceId,
+                                          Supplier<Consumer<String>> listeners,
+                                          Function<AiCompletion, T> parser) {
+        long start = System.nanoTime();
+        return invoke(strategy, prompt, listeners == null ? null : listeners.get()).thenApply(completion -> {
+            long elapsed = System.nanoTime() - start;
+            latencies.get(strategy.getName()).record(elapsed);
+            timers.get(strategy.getName()).record(elapsed, TimeUnit.NANOSECONDS);
+            try {
+                usageListener.onCompletion(strategy, prompt, completion, sourceId);
+            } catch (RuntimeException e) {
+                log.warn("Could not record usage of {}", strategy.getName(), e);
+            }
+
+            T result = parser.apply(completion.withStrategy(strategy.getName()));
+            if (result == null) {
+                throw new CompletionException(new IllegalArgumentException(
+                        "Unusable response from " + strategy.getName()));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Starts a provider call. Async strategies return right away; blocking strategies are called
+     * on the current thread, which is always an analysis worker.
+     */
+    private static CompletableFuture<AiCompletion> invoke(AiStrategy strategy, String prompt, Consumer<String> onContent) {
+        try {
+            if (strategy instanceof AsyncAiStrategy async) {
+                return onContent == null ? async.analyzeAsync(prompt) : async.analyzeStreaming(prompt, onContent);
+            }
+            return CompletableFuture.completedFuture(AiCompletion.of(strategy.analyze(prompt)));
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private <T> CompletableFuture<T> consensus(String prompt,
+                                               UUID sourceId,
+                                               Supplier<Consumer<String>> listeners,
+                                               Function<AiCompletion, T> parser,
+                                               Function<List<T>, T> merger) {
+        List<CompletableFuture<T>> calls = new ArrayList<>(strategies.size());
+        for (AiStrategy strategy : strategies) {
+            calls.add(call(strategy, prompt, sourceId, listeners, parser).handle((result, error) -> {
+                if (error != null) {
+                    log.warn("Consensus call to {} failed", strategy.getName(), unwrap(error));
+                    return null;
+                }
+                wins.get(strategy.getName()).increment();
+                return result;
+            }));
+        }
+
+        return CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<T> valid = new ArrayList<>();
+            for (CompletableFuture<T> call : calls) {
+                T result = call.join();
+                if (result != null) valid.add(result);
+            }
+            if (valid.isEmpty()) {
+                throw new CompletionException(new IllegalStateException("No strategy returned a valid answer"));
+            }
+            return valid.size() == 1 ? valid.getFirst() : merger.apply(valid);
+        });
+    }
+
+    /**
+     * Delay after which the next strategy is started if the given one has not answered yet.
+     */
+    private long hedgeDelayMs(AiStrategy strategy) {
+        LatencyStats stats = latencies.get(strategy.getName());
+        long delay = stats.size() < MIN_SAMPLES
+                ? config.getInitialHedgeDelayMs()
+                : stats.quantileMillis(config.getHedgeQuantile());
+        return Math.min(Math.max(delay, config.getMinHedgeDelayMs()), Math.max(config.getMinHedgeDelayMs(), config.getMaxHedgeDelayMs()));
+    }
+
+    private static String key(AiStrategy strategy) {
+        return strategy == null ? "none" : strategy.getName() + ":" + strategy.getModel();
+    }
+
+    private static Mode parseMode(String mode) {
+        if (mode == null) return Mode.SINGLE;
+        try {
+            return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown AI dispatch mode '{}', using single", mode);
+            return Mode.SINGLE;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * One dispatch with fail-over. Strategies are started in configured order, each right after its
+     * predecessor failed and, when hedging, also after the hedge delay of its predecessor.
+     */
+    private final class Hedge<T> {
+        private final String prompt;
+        private final UUID sourceId;
+        private final Supplier<Consumer<String>> listeners;
+        private final Function<AiCompletion, T> parser;
+        private final boolean hedging;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /** Guarded by this. */
+        private int started;
+        private int failed;
+
+        private Hedge(String prompt,
+                      UUID sourceId,
+                      Supplier<Consumer<String>> listeners,
+                      Function<AiCompletion, T> parser,
+                      boolean hedging) {
+            this.prompt = prompt;
+            this.sourceId = sourceId;
+            this.listeners = listeners;
+            this.parser = parser;
+            this.hedging = hedging;
+        }
+
+        private CompletableFuture<T> start() {
+            launch(0);
+            return result;
+        }
+
+        /**
+         * Starts the strategy at the given position unless the dispatch is done or it was already started.
+         */
+        private void launch(int position) {
+            synchronized (this) {
+                if (result.isDone() || position != started || position >= strategies.size()) return;
+                started++;
+            }
+            AiStrategy strategy = strategies.get(position);
+            if (position > 0) hedges.get(strategy.getName()).increment();
+
+            if (hedging && position + 1 < strategies.size()) {
+                transport.schedule(() -> launch(position + 1), hedgeDelayMs(strategy));
+            }
+
+            call(strategy, prompt, sourceId, listeners, parser).whenComplete((value, error) -> {
+                if (error == null) {
+                    if (result.complete(value)) wins.get(strategy.getName()).increment();
+                    return;
+                }
+                boolean exhausted;
+                synchronized (this) {
+                    failed++;
+                    exhausted = failed == strategies.size();
+                }
+                if (exhausted) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    // do not wait for the hedge delay if this strategy already gave up
+                    launch(position + 1);
+                }
+            });
+        }
+    }
+}
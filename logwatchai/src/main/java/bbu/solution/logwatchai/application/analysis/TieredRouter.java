@@ -0,0 +1,203 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.analysis.SeverityUtil;
+import bbu.solution.logwatchai.domain.appconfig.AiRoutingConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routes a line through two model tiers: the fast tier answers every line, the strong tier only
+ * the lines whose fast answer calls for a deeper analysis.
+ *
+ * <p>A line is escalated if the fast answer reports at least the configured severity or anomaly
+ * score, or if the fast tier gives no usable answer. If the strong tier fails, the fast answer
+ * is kept. Without strong models I behave exactly like the fast dispatcher alone.</p>
+ *
+ * <p>I count every decision in {@code logwatchai.ai.routing.decisions} by route and reason and
+ * measure the latency of each tier in {@code logwatchai.ai.routing.latency}.</p>
+ */
+@Slf4j
+class TieredRouter {
+
+    private final StrategyDispatcher fast;
+    private final StrategyDispatcher strong;
+    private final AiRoutingConfig config;
+    private final Severity escalateSeverity;
+
+    private final Timer fastLatency;
+    private final Timer strongLatency;
+    private final MeterRegistry registry;
+
+    /**
+     * @param fast     the dispatcher of the fast tier
+     * @param strong   the dispatcher of the strong tier, empty if routing is disabled
+     * @param config   the escalation rules
+     * @param registry the meter registry for routing metrics
+     */
+    TieredRouter(StrategyDispatcher fast, StrategyDispatcher strong, AiRoutingConfig config, MeterRegistry registry) {
+        this.fast = fast;
+        this.strong = strong;
+        this.config = config;
+        this.registry = registry;
+        Severity severity = SeverityUtil.valueOfOrNull(config.getEscalateSeverity());
+        this.escalateSeverity = severity == null ? Severity.HIGH : severity;
+
+        this.fastLatency = latencyTimer("fast");
+        this.strongLatency = latencyTimer("strong");
+    }
+
+    /**
+     * @return true if no tier has an enabled strategy
+     */
+    boolean isEmpty() {
+        return fast.isEmpty() && strong.isEmpty();
+    }
+
+    /**
+     * @return true if lines can be escalated to a strong tier
+     */
+    boolean isTiered() {
+        return !fast.isEmpty() && !strong.isEmpty();
+    }
+
+    /**
+     * @return the dispatcher that answers every line first
+     */
+    StrategyDispatcher first() {
+        return fast.isEmpty() ? strong : fast;
+    }
+
+    /**
+     * @return identifies the producer of routed answers in the analysis cache
+     */
+    String cacheKey() {
+        return isTiered() ? "tiered:" + fast.cacheKey() + ">" + strong.cacheKey() : first().cacheKey();
+    }
+
+    /**
+     * @return a short description for the startup log
+     */
+    String describe() {
+        return isTiered() ? "fast " + fast.describe() + ", strong " + strong.describe() : first().describe();
+    }
+
+    /**
+     * Analyzes a prompt with the fast tier and escalates it if needed.
+     *
+     * @param prompt   the prompt text
+     * @param sourceId the log source of the line
+     * @param parser   maps a response to an analysis, or to {@code null} if it is not usable
+     * @return a future completed with the analysis, or failed if no tier gave a usable answer
+     */
+    CompletableFuture<AIAnalysis> analyze(String prompt, UUID sourceId, Function<AiCompletion, AIAnalysis> parser) {
+        return analyze(prompt, sourceId, null, parser);
+    }
+
+    /**
+     * Analyzes a prompt with the fast tier and escalates it if needed. The answers of streaming
+     * strategies of both tiers are passed to the listeners while they arrive.
+     *
+     * @param prompt    the prompt text
+     * @param sourceId  the log source of the line
+     * @param listeners creates the content listener of each provider call; {@code null} for none
+     * @param parser    maps a response to an analysis, or to {@code null} if it is not usable
+     * @return a future completed with the analysis, or failed if no tier gave a usable answer
+     */
+    CompletableFuture<AIAnalysis> analyze(String prompt,
+                                          UUID sourceId,
+                                          Supplier<Consumer<String>> listeners,
+                                          Function<AiCompletion, AIAnalysis> parser) {
+        if (!isTiered()) return first().dispatch(prompt, sourceId, listeners, parser, AnalysisConsensus::merge);
+
+        long start = System.nanoTime();
+        return fast.dispatch(prompt, sourceId, listeners, parser, AnalysisConsensus::merge)
+                .handle((ai, error) -> {
+                    fastLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (error == null) return review(prompt, sourceId, parser, ai);
+                    if (!config.isEscalateOnFailure()) {
+                        decision("fast", "unusable");
+                        return CompletableFuture.<AIAnalysis>failedFuture(error);
+                    }
+                    return escalate(prompt, sourceId, listeners, parser, null, "unusable");
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Escalates a line the fast tier has already answered, e.g. as part of a batch, if the
+     * answer calls for it.
+     *
+     * @param prompt   the single-line prompt of the line
+     * @param sourceId the log source of the line
+     * @param parser   maps a response to an analysis, or to {@code null} if it is not usable
+     * @param ai       the answer of the fast tier
+     * @return a future completed with the strong answer, or with the fast one if not escalated
+     */
+    CompletableFuture<AIAnalysis> review(String prompt, UUID sourceId, Function<AiCompletion, AIAnalysis> parser, AIAnalysis ai) {
+        if (!isTiered()) return CompletableFuture.completedFuture(ai);
+        String reason = escalationReason(ai);
+        if (reason == null) {
+            decision("fast", "none");
+            return CompletableFuture.completedFuture(ai);
+        }
+        return escalate(prompt, sourceId, null, parser, ai, reason);
+    }
+
+    private CompletableFuture<AIAnalysis> escalate(String prompt,
+                                                   UUID sourceId,
+                                                   Supplier<Consumer<String>> listeners,
+                                                   Function<AiCompletion, AIAnalysis> parser,
+                                                   AIAnalysis fastAnswer,
+                                                   String reason) {
+        decision("strong", reason);
+        long start = System.nanoTime();
+        return strong.dispatch(prompt, sourceId, listeners, parser, AnalysisConsensus::merge)
+                .handle((ai, error) -> {
+                    strongLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (error == null) return ai;
+                    if (fastAnswer != null) {
+                        log.warn("Escalated analysis failed, keeping the fast answer", error);
+                        return fastAnswer;
+                    }
+                    throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                });
+    }
+
+    /**
+     * @return why the fast answer is escalated, or null if it is kept
+     */
+    private String escalationReason(AIAnalysis ai) {
+        if (ai.getSeverity() != null && ai.getSeverity().ordinal() >= escalateSeverity.ordinal()) return "severity";
+        if (ai.getAnomalyScore() >= config.getEscalateScore()) return "score";
+        return null;
+    }
+
+    private void decision(String route, String reason) {
+        Counter.builder("logwatchai.ai.routing.decisions")
+                .description("Routing decisions by the tier that gives the final answer")
+                .tags("route", route, "reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    private Timer latencyTimer(String tier) {
+        return Timer.builder("logwatchai.ai.routing.latency")
+                .description("Latency of the analysis per model tier")
+                .tag("tier", tier)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
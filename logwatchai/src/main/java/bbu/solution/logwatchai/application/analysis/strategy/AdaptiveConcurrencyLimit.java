@@ -0,0 +1,63 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) limit of concurrent provider calls.
+ * <p>
+ * Every successful call raises the limit by {@code 1 / limit}, so a fully used limit grows by about
+ * one per round of calls. An overload signal (429, 5xx, timeout) halves it. Several calls usually
+ * fail together when a provider is overloaded, so I decrease at most once per cooldown period —
+ * otherwise a single burst of failures would collapse the limit to its minimum.
+ * </p>
+ * <p>I am not thread-safe; callers have to synchronize.</p>
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int max;
+    private double limit;
+    private long lastDecrease = Long.MIN_VALUE;
+
+    /**
+     * @param initial the starting limit
+     * @param max     the upper bound of the limit
+     */
+    AdaptiveConcurrencyLimit(int initial, int max) {
+        this.max = Math.max(1, max);
+        this.limit = Math.min(Math.max(1, initial), this.max);
+    }
+
+    /**
+     * @return the number of calls that may currently run at the same time, at least 1
+     */
+    int get() {
+        return (int) limit;
+    }
+
+    /**
+     * Probes upward after a successful call.
+     *
+     * @param inFlight calls still running; the limit only grows while it is actually used
+     */
+    void onSuccess(int inFlight) {
+        if (inFlight + 1 >= get()) {
+            limit = Math.min(max, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Backs off after an overload signal.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @return true if the limit was decreased, false if still in cooldown
+     */
+    boolean onOverload(long now) {
+        if (lastDecrease != Long.MIN_VALUE && now - lastDecrease < DECREASE_COOLDOWN_NANOS) return false;
+        lastDecrease = now;
+        limit = Math.max(1, limit * DECREASE_FACTOR);
+        return true;
+    }
+}
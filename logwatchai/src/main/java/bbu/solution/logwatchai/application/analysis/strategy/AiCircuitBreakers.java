@@ -0,0 +1,69 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiCircuitBreakerConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the circuit breakers of all strategies, so their state can be monitored.
+ *
+ * <p>I create one breaker per strategy name from the {@code ai.circuitBreaker} configuration and
+ * publish its state as the gauge {@code logwatchai.ai.circuit.state} (0 closed, 1 half-open, 2 open).</p>
+ */
+@Component
+public class AiCircuitBreakers {
+
+    private final AiCircuitBreakerConfig config;
+    private final MeterRegistry registry;
+    private final Map<String, CircuitBreaker> breakers = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * @param appConfigService provides the circuit breaker configuration
+     * @param registry the meter registry for the state gauges
+     */
+    public AiCircuitBreakers(AppConfigService appConfigService, MeterRegistry registry) {
+        AppConfig cfg = appConfigService.getConfig();
+        this.config = cfg == null || cfg.getAi() == null || cfg.getAi().getCircuitBreaker() == null
+                ? new AiCircuitBreakerConfig()
+                : cfg.getAi().getCircuitBreaker();
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the breaker of a strategy, creating it on first use.
+     *
+     * @param strategy the strategy name
+     * @return the breaker, or {@code null} if circuit breaking is disabled
+     */
+    public CircuitBreaker forStrategy(String strategy) {
+        if (!config.isEnabled()) return null;
+        return breakers.computeIfAbsent(strategy, name -> {
+            CircuitBreaker breaker = new CircuitBreaker(config);
+            Gauge.builder("logwatchai.ai.circuit.state", breaker, b -> switch (b.getState()) {
+                        case CLOSED -> 0;
+                        case HALF_OPEN -> 1;
+                        case OPEN -> 2;
+                    })
+                    .description("Circuit breaker state per strategy: 0 closed, 1 half-open, 2 open")
+                    .tag("strategy", name)
+                    .register(registry);
+            return breaker;
+        });
+    }
+
+    /**
+     * @return a snapshot of all breakers by strategy name
+     */
+    public Map<String, CircuitBreaker> getBreakers() {
+        synchronized (breakers) {
+            return new LinkedHashMap<>(breakers);
+        }
+    }
+}
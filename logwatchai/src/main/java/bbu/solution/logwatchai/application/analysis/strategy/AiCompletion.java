@@ -0,0 +1,48 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+/**
+ * Raw result of one provider call together with the token usage reported by the provider.
+ *
+ * @param content          the raw response text of the model (usually JSON)
+ * @param promptTokens     tokens billed for the prompt, 0 if the provider did not report usage
+ * @param completionTokens tokens billed for the completion, 0 if the provider did not report usage
+ * @param strategy         the name of the strategy that answered, or null if unknown
+ */
+public record AiCompletion(String content, int promptTokens, int completionTokens, String strategy) {
+
+    /**
+     * Creates a completion whose strategy is not known yet; the dispatcher adds it.
+     *
+     * @param content          the raw response text
+     * @param promptTokens     tokens billed for the prompt
+     * @param completionTokens tokens billed for the completion
+     */
+    public AiCompletion(String content, int promptTokens, int completionTokens) {
+        this(content, promptTokens, completionTokens, null);
+    }
+
+    /**
+     * Creates a completion without usage information, e.g. for blocking SDK-based strategies.
+     *
+     * @param content the raw response text
+     * @return the completion
+     */
+    public static AiCompletion of(String content) {
+        return new AiCompletion(content, 0, 0);
+    }
+
+    /**
+     * @param strategy the name of the strategy that answered
+     * @return this completion, attributed to the strategy
+     */
+    public AiCompletion withStrategy(String strategy) {
+        return new AiCompletion(content, promptTokens, completionTokens, strategy);
+    }
+
+    /**
+     * @return prompt and completion tokens together
+     */
+    public int totalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
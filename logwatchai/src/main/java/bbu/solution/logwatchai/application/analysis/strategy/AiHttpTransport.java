@@ -0,0 +1,270 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shared non-blocking HTTP transport for all HTTP-based AI strategies.
+ *
+ * <p>I own one HTTP/2 {@link HttpClient}, so connections to a provider are reused across all
+ * strategies and requests. Calls are sent with {@code sendAsync}; retries are scheduled on a
+ * single timer thread instead of sleeping, so an in-flight analysis never parks a thread.</p>
+ *
+ * <p>Every call has a deadline. Each attempt gets the remaining time as its request timeout,
+ * and no retry is scheduled that would start after the deadline.</p>
+ *
+ * <p>Responses complete on virtual threads, so the short database writes that follow a response
+ * may run there without tying up a pool thread.</p>
+ */
+@Slf4j
+@Component
+public class AiHttpTransport implements AutoCloseable {
+
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 8_000;
+
+    private final ExecutorService responseExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(responseExecutor)
+            .build();
+
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ai-http-retry-"));
+
+    /** Concurrency gates by endpoint authority (scheme://host:port). */
+    private final ConcurrentMap<String, EndpointGate> gates = new ConcurrentHashMap<>();
+
+    /**
+     * Sends a request and retries transient failures until it succeeds, the retries are used up
+     * or the deadline has passed.
+     *
+     * @param request    builds one attempt from the remaining time until the deadline
+     * @param maxRetries number of retries after the first attempt
+     * @param deadline   overall time budget of the call including all retries
+     * @return a future completed with the first 2xx response, or failed with {@link AiProviderException}
+     */
+    public CompletableFuture<HttpResponse<String>> send(Function<Duration, HttpRequest> request,
+                                                        int maxRetries,
+                                                        Duration deadline) {
+        return send(request, maxRetries, deadline, failure -> {});
+    }
+
+    /**
+     * Like {@link #send(Function, int, Duration)}, but reports every failed attempt that is retried,
+     * so a rate limiter can react to a 429 even if the call succeeds later.
+     *
+     * @param request    builds one attempt from the remaining time until the deadline
+     * @param maxRetries number of retries after the first attempt
+     * @param deadline   overall time budget of the call including all retries
+     * @param onRetry    called with the failure of each attempt that is retried
+     * @return a future completed with the first 2xx response, or failed with {@link AiProviderException}
+     */
+    public CompletableFuture<HttpResponse<String>> send(Function<Duration, HttpRequest> request,
+                                                        int maxRetries,
+                                                        Duration deadline,
+                                                        Consumer<AiProviderException> onRetry) {
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        attempt(request, HttpResponse.BodyHandlers.ofString(), () -> true,
+                0, Math.max(0, maxRetries), System.nanoTime() + deadline.toNanos(), onRetry, result);
+        return result;
+    }
+
+    /**
+     * Sends a request whose successful response is consumed line by line as it arrives, e.g. a
+     * stream of server-sent events. Failed attempts are retried like in
+     * {@link #send(Function, int, Duration, Consumer)}, but only as long as no line has been
+     * delivered, so the consumer never sees an answer twice.
+     *
+     * @param request    builds one attempt from the remaining time until the deadline
+     * @param maxRetries number of retries after the first attempt
+     * @param deadline   overall time budget of the call including all retries and the whole stream
+     * @param onRetry    called with the failure of each attempt that is retried
+     * @param onLine     receives the lines of the 2xx response body in order, without line breaks
+     * @return a future completed when the stream has ended; the body of the response is empty
+     */
+    public CompletableFuture<HttpResponse<String>> stream(Function<Duration, HttpRequest> request,
+                                                          int maxRetries,
+                                                          Duration deadline,
+                                                          Consumer<AiProviderException> onRetry,
+                                                          Consumer<String> onLine) {
+        AtomicBoolean delivered = new AtomicBoolean();
+        Consumer<String> lines = line -> {
+            delivered.set(true);
+            onLine.accept(line);
+        };
+        HttpResponse.BodyHandler<String> handler = info -> info.statusCode() / 100 == 2
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(new LineSubscriber(lines), s -> "", StandardCharsets.UTF_8, null)
+                : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        attempt(request, handler, () -> !delivered.get(),
+                0, Math.max(0, maxRetries), System.nanoTime() + deadline.toNanos(), onRetry, result);
+        return result;
+    }
+
+    /**
+     * Runs a task once on the shared timer thread. The task must be short and must not block.
+     *
+     * @param task    the task
+     * @param delayMs delay in milliseconds
+     * @return the scheduled task
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return timer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the concurrency gate shared by all strategies that call the given endpoint.
+     * The limit of the first caller wins.
+     *
+     * @param endpoint      any URI of the endpoint; only scheme, host and port are used
+     * @param maxConcurrent maximum concurrent requests to the endpoint
+     * @return the shared gate
+     */
+    public EndpointGate gate(URI endpoint, int maxConcurrent) {
+        String authority = endpoint.getScheme() + "://" + endpoint.getHost() + ":" + endpoint.getPort();
+        return gates.computeIfAbsent(authority, a -> new EndpointGate(maxConcurrent));
+    }
+
+    private void attempt(Function<Duration, HttpRequest> request,
+                         HttpResponse.BodyHandler<String> handler,
+                         BooleanSupplier retryAllowed,
+                         int attempt,
+                         int maxRetries,
+                         long deadlineNanos,
+                         Consumer<AiProviderException> onRetry,
+                         CompletableFuture<HttpResponse<String>> result) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            result.completeExceptionally(new AiProviderException(0, "Deadline exceeded", null, null));
+            return;
+        }
+
+        client.sendAsync(request.apply(Duration.ofNanos(remainingNanos)), handler)
+                .whenComplete((response, error) -> {
+                    if (error == null && response.statusCode() / 100 == 2) {
+                        result.complete(response);
+                        return;
+                    }
+
+                    AiProviderException failure = error != null ? fromError(error) : fromResponse(response);
+                    if (failure.isRetryable() && attempt < maxRetries && retryAllowed.getAsBoolean()) {
+                        long delayMs = backoff(attempt, failure.getRetryAfter());
+                        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) < deadlineNanos) {
+                            onRetry.accept(failure);
+                            timer.schedule(() -> attempt(request, handler, retryAllowed, attempt + 1, maxRetries, deadlineNanos, onRetry, result),
+                                    delayMs, TimeUnit.MILLISECONDS);
+                            return;
+                        }
+                    }
+                    result.completeExceptionally(failure);
+                });
+    }
+
+    /**
+     * Exponential backoff with full jitter, or the provider's Retry-After hint if it sent one.
+     */
+    private static long backoff(int attempt, Duration retryAfter) {
+        if (retryAfter != null) return retryAfter.toMillis();
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 10));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private static AiProviderException fromError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return new AiProviderException(0, cause.getClass().getSimpleName() + ": " + cause.getMessage(), null, cause);
+    }
+
+    private static AiProviderException fromResponse(HttpResponse<String> response) {
+        Duration retryAfter = response.headers().firstValue("Retry-After")
+                .flatMap(AiHttpTransport::parseSeconds)
+                .orElse(null);
+        String body = response.body() == null ? "" : response.body();
+        return new AiProviderException(
+                response.statusCode(),
+                "HTTP " + response.statusCode() + ": " + (body.length() > 300 ? body.substring(0, 300) : body),
+                retryAfter,
+                null);
+    }
+
+    private static Optional<Duration> parseSeconds(String value) {
+        try {
+            return Optional.of(Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000)));
+        } catch (NumberFormatException e) {
+            // HTTP-date values are rare for AI providers; the regular backoff applies
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Hands every line of a streamed body to a consumer; a failing consumer does not cancel the stream.
+     */
+    private static final class LineSubscriber implements Flow.Subscriber<String> {
+        private final Consumer<String> onLine;
+
+        private LineSubscriber(Consumer<String> onLine) {
+            this.onLine = onLine;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            try {
+                onLine.accept(line);
+            } catch (RuntimeException e) {
+                log.warn("Stream consumer failed", e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // the response future fails with the same error
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Stops the retry timer and the response executor.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        responseExecutor.shutdown();
+    }
+}
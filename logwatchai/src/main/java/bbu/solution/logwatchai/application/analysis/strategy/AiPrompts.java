@@ -0,0 +1,203 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt texts shared by the analysis service and the strategies.
+ * <p>
+ * Building and reading prompts live in one place, so strategies that do not talk to a language
+ * model (e.g. {@link LocalStatisticalStrategy}) can recover the log lines from any prompt.
+ * <p>
+ * The system message and the instructions in front of the log text are constants, so every
+ * request starts with a byte-identical prefix that providers can serve from their prompt cache.
+ * Nothing that varies per call may be placed before the log text. The log text itself is
+ * shortened beforehand by the {@link PromptCompactor}.
+ * <p>
+ * A prompt may carry a context section after the log text: a summary of the lines the same
+ * source logged before, so the model can tell e.g. that an error followed a run of warnings.
+ */
+public final class AiPrompts {
+
+    /**
+     * System message of every analysis request.
+     */
+    static final String SYSTEM = """
+            You are an expert log analyst.
+            Return only JSON. Every analysis object has the fields, in this order:
+            severity, anomalyScore, category, summarizedIssue, likelyCause, recommendation
+            """;
+
+    /**
+     * Upper bound of completion tokens requested per call.
+     */
+    static final int MAX_COMPLETION_TOKENS = 700;
+
+    private static final String SINGLE_INSTRUCTIONS = """
+            Analyze the following log line and return a JSON object exactly with fields, in this order:
+            ["severity","anomalyScore","category","summarizedIssue","likelyCause","recommendation"]
+            where severity is one of INFO/WARN/ERROR/DEBUG, anomalyScore is a number between 0.0 and 1.0.
+            A context section after the log, if present, lists the lines logged before it by the same source;
+            use it to explain the line, but analyze the line itself.
+
+            Log:
+            """;
+    private static final String BATCH_INSTRUCTIONS = """
+            Analyze each of the following log lines independently and return a JSON array
+            with exactly one object per line. Each object must have exactly the fields, in this order:
+            ["index","severity","anomalyScore","category","summarizedIssue","likelyCause","recommendation"]
+            where index is the number in square brackets in front of the line,
+            severity is one of INFO/WARN/ERROR/DEBUG, anomalyScore is a number between 0.0 and 1.0.
+            A context section after the logs, if present, lists the lines logged before them by the same source;
+            use it to explain the lines, but analyze the lines themselves.
+
+            Logs:
+            """;
+    private static final String BATCH_END = "\nReturn the JSON array only.";
+    private static final String CONTEXT_MARKER = "\n\nContext (earlier lines of the same source, oldest first, repeats merged):\n";
+
+    private static final String SINGLE_LOG_MARKER = "\nLog:\n";
+    private static final String SINGLE_END_MARKER = "\n\nReturn JSON only.";
+    private static final String BATCH_LOGS_MARKER = "\nLogs:\n";
+    private static final Pattern BATCH_LINE = Pattern.compile("^\\[(\\d+)] (.*)$", Pattern.MULTILINE);
+
+    private AiPrompts() {
+        // constants and static helpers only
+    }
+
+    /**
+     * Builds the prompt for a single log line.
+     *
+     * @param rawLog the raw log line
+     * @return the full prompt text
+     */
+    public static String single(String rawLog) {
+        return single(rawLog, "");
+    }
+
+    /**
+     * Builds the prompt for a single log line with the summary of the lines before it.
+     *
+     * @param rawLog  the raw log line
+     * @param context the summary of the preceding lines, empty for none
+     * @return the full prompt text
+     */
+    public static String single(String rawLog, String context) {
+        return SINGLE_INSTRUCTIONS + rawLog + contextSection(context) + SINGLE_END_MARKER;
+    }
+
+    /**
+     * Builds one prompt for several log lines. Each line is prefixed with its index in square brackets,
+     * which the model has to echo back in the "index" field of the corresponding array item.
+     *
+     * @param rawLogs the raw log lines of the batch
+     * @return the full prompt text
+     */
+    public static String batch(List<String> rawLogs) {
+        return batch(rawLogs, "");
+    }
+
+    /**
+     * Builds one prompt for several log lines of one source with the summary of the lines before them.
+     *
+     * @param rawLogs the raw log lines of the batch
+     * @param context the summary of the preceding lines, empty for none
+     * @return the full prompt text
+     */
+    public static String batch(List<String> rawLogs, String context) {
+        StringBuilder sb = new StringBuilder(BATCH_INSTRUCTIONS);
+        for (int i = 0; i < rawLogs.size(); i++) {
+            sb.append('[').append(i).append("] ").append(rawLogs.get(i)).append('\n');
+        }
+        // the context lines start with "- ", so they are never read back as batch lines
+        if (context != null && !context.isEmpty()) sb.append(CONTEXT_MARKER.substring(1)).append(context).append('\n');
+        return sb.append(BATCH_END).toString();
+    }
+
+    private static String contextSection(String context) {
+        return context == null || context.isEmpty() ? "" : CONTEXT_MARKER + context;
+    }
+
+    /**
+     * @param context the summary of the preceding lines, empty for none
+     * @return the characters the context section adds to a prompt
+     */
+    static int contextOverheadChars(String context) {
+        // a batch prompt adds a line break after the section
+        return context == null || context.isEmpty() ? 0 : CONTEXT_MARKER.length() + context.length() + 1;
+    }
+
+    /**
+     * @return the characters a single-line prompt and the system message add to the log text
+     */
+    static int singleOverheadChars() {
+        return SYSTEM.length() + SINGLE_INSTRUCTIONS.length() + SINGLE_END_MARKER.length();
+    }
+
+    /**
+     * @param lines the number of lines in the batch
+     * @return the characters a batch prompt and the system message add to the log lines
+     */
+    static int batchOverheadChars(int lines) {
+        // "[index] " and the line break of every line
+        return SYSTEM.length() + BATCH_INSTRUCTIONS.length() + BATCH_END.length()
+                + lines * (4 + String.valueOf(Math.max(0, lines - 1)).length());
+    }
+
+    /**
+     * Recovers the log lines of a prompt built by {@link #single(String)} or {@link #batch(List)}.
+     *
+     * @param prompt the prompt text
+     * @return the lines by index for a batch prompt, or a single line under index -1; empty if the
+     *         prompt has neither layout
+     */
+    public static Map<Integer, String> extractLogs(String prompt) {
+        Map<Integer, String> logs = new LinkedHashMap<>();
+        if (prompt == null) return logs;
+
+        int batchStart = prompt.indexOf(BATCH_LOGS_MARKER);
+        if (batchStart >= 0) {
+            Matcher m = BATCH_LINE.matcher(prompt);
+            m.region(batchStart + BATCH_LOGS_MARKER.length(), prompt.length());
+            while (m.find()) {
+                logs.put(Integer.parseInt(m.group(1)), m.group(2));
+            }
+            return logs;
+        }
+
+        int singleStart = prompt.indexOf(SINGLE_LOG_MARKER);
+        if (singleStart >= 0) {
+            int from = singleStart + SINGLE_LOG_MARKER.length();
+            int to = prompt.indexOf(CONTEXT_MARKER, from);
+            if (to < 0) to = prompt.lastIndexOf(SINGLE_END_MARKER);
+            logs.put(-1, prompt.substring(from, to >= from ? to : prompt.length()));
+        }
+        return logs;
+    }
+
+    /**
+     * Rough token count of a request before it is sent: about four characters per prompt token
+     * plus the completion limit. The real usage reported by the provider replaces it afterwards.
+     *
+     * @param prompt the user prompt
+     * @return the estimated tokens of the whole call
+     */
+    static int estimateTokens(String prompt) {
+        return estimatePromptTokens(prompt) + MAX_COMPLETION_TOKENS;
+    }
+
+    /**
+     * Rough prompt token count of a request including the system message, about four characters
+     * per token.
+     *
+     * @param prompt the user prompt
+     * @return the estimated prompt tokens
+     */
+    public static int estimatePromptTokens(String prompt) {
+        int promptChars = SYSTEM.length() + (prompt == null ? 0 : prompt.length());
+        return (promptChars + 3) / 4;
+    }
+}
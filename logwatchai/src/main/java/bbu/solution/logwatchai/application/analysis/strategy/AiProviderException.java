@@ -0,0 +1,59 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.time.Duration;
+
+/**
+ * Signals a failed provider call.
+ * <p>
+ * I carry the HTTP status (0 for network errors and timeouts) and, if the provider sent one,
+ * its Retry-After hint, so retry, rate limiting and fallback logic never have to inspect
+ * exception messages.
+ */
+public class AiProviderException extends RuntimeException {
+
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    /**
+     * @param statusCode the HTTP status, or 0 if no response was received
+     * @param message    a short description
+     * @param retryAfter the provider's Retry-After hint, may be null
+     * @param cause      the underlying error, may be null
+     */
+    public AiProviderException(int statusCode, String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the HTTP status, or 0 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the provider's Retry-After hint, or null
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @return true if the provider rejected the call because of its rate limit
+     */
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+
+    /**
+     * Network errors, timeouts, rate limits and server errors are transient; other
+     * client errors (bad key, bad request) will fail again.
+     *
+     * @return true if repeating the call may succeed
+     */
+    public boolean isRetryable() {
+        return statusCode == 0 || statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
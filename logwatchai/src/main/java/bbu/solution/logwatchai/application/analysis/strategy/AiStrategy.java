@@ -13,6 +13,13 @@ public interface AiStrategy {
      * @return strategy name
      */
     String getName();
+    /**
+     * Provider-specific model identifier this strategy talks to (ai.models[].model from config).
+     * Results of different models are cached separately.
+     *
+     * @return model identifier, may be null if the provider has no model choice
+     */
+    String getModel();
     /**
      * Whether this strategy is currently enabled/usable.
      *
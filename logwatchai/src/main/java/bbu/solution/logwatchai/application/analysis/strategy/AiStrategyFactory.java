@@ -2,24 +2,43 @@ package bbu.solution.logwatchai.application.analysis.strategy;
 
 import bbu.solution.logwatchai.domain.appconfig.AiConfig;
 import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Factory for building AI provider strategies based on the model "name".
  *
  * Example:
- * - name: "openai"     -> OpenAiStrategy
+ * - name: "openai"      -> OpenAiStrategy (blocking client library)
+ * - name: "openai-http" -> HttpOpenAiStrategy (non-blocking, own baseUrl, timeoutMs deadline, streaming)
+ * - name: "self-hosted", "vllm", "llamacpp", "openai-compatible"
+ *                      -> OpenAiCompatibleStrategy (own inference server, baseUrl required)
  * - name: "perplexity" -> PerplexityStrategy (stub)
+ * - name: "local"      -> LocalStatisticalStrategy (in-process, no network)
+ *
+ * Every remote strategy is wrapped into a GovernedAiStrategy that enforces the
+ * rate and concurrency limits of its model entry, and into a
+ * CircuitBreakerAiStrategy that rejects calls while the provider is failing.
+ * The local strategy needs neither.
  */
 public final class AiStrategyFactory {
 
     private AiStrategyFactory() {}
 
-    public static Map<String, AiStrategy> buildStrategies(AiConfig config) {
+    /**
+     * @return the enabled strategies by name, in the order of the configuration
+     */
+    public static Map<String, AiStrategy> buildStrategies(AiConfig config,
+                                                          AiHttpTransport transport,
+                                                          AiCircuitBreakers breakers,
+                                                          MeterRegistry registry) {
 
-        Map<String, AiStrategy> strategies = new HashMap<>();
+        Map<String, AiStrategy> strategies = new LinkedHashMap<>();
 
         if (config == null || config.getModels() == null) {
             return strategies;
@@ -31,35 +50,67 @@ public final class AiStrategyFactory {
             }
 
             String name = entry.getName().toLowerCase();
-            AiStrategy strategy = switch (name) {
-
-                case "openai", "chatgpt" -> new OpenAiStrategy(
-                        entry.getName(),
-                        entry.getModel(),
-                        entry.getKey()
-                );
-
-                case "perplexity" -> new PerplexityStrategy(
-                        entry.getName(),
-                        entry.getModel(),
-                        entry.getKey()
-                );
-
-                // Extend here for new providers:
-                // case "anthropic" -> new AnthropicStrategy(...);
-                // case "local"     -> new LocalAiStrategy(...);
-
-                default -> {
-                    System.err.println("Unknown AI strategy name: " + name);
-                    yield null;
-                }
-            };
+            if (name.equals("local")) {
+                strategies.put(entry.getName(), new LocalStatisticalStrategy(entry.getName(), entry.getModel()));
+                continue;
+            }
 
+            Function<Consumer<AiProviderException>, AiStrategy> provider = providerFor(entry, transport);
+            AsyncAiStrategy strategy = provider == null ? null : new GovernedAiStrategy(entry, provider, transport, registry);
             if (strategy != null && strategy.isEnabled()) {
+                CircuitBreaker breaker = breakers.forStrategy(entry.getName());
+                if (breaker != null) strategy = new CircuitBreakerAiStrategy(strategy, breaker);
                 strategies.put(entry.getName(), strategy);
             }
         }
 
         return strategies;
     }
+
+    /**
+     * Selects the provider of a remote model entry by its name.
+     *
+     * @return creates the provider from the retry listener of its governor; null for an unknown name
+     */
+    static Function<Consumer<AiProviderException>, AiStrategy> providerFor(AiModelEntry entry, AiHttpTransport transport) {
+        String name = entry.getName().toLowerCase();
+        return switch (name) {
+
+            case "openai", "chatgpt" -> retryListener -> new OpenAiStrategy(
+                    entry.getName(),
+                    entry.getModel(),
+                    entry.getKey(),
+                    retryListener
+            );
+
+            case "openai-http" -> retryListener -> new HttpOpenAiStrategy(
+                    entry.getName(),
+                    entry.getModel(),
+                    entry.getKey(),
+                    entry.getBaseUrl(),
+                    Duration.ofMillis(entry.getTimeoutMs()),
+                    entry.getMaxRetries(),
+                    transport,
+                    retryListener,
+                    entry.isStream()
+            );
+
+            case "self-hosted", "vllm", "llamacpp", "openai-compatible" -> retryListener ->
+                    new OpenAiCompatibleStrategy(entry, transport, retryListener);
+
+            case "perplexity" -> retryListener -> new PerplexityStrategy(
+                    entry.getName(),
+                    entry.getModel(),
+                    entry.getKey()
+            );
+
+            // Extend here for new providers:
+            // case "anthropic" -> new AnthropicStrategy(...);
+
+            default -> {
+                System.err.println("Unknown AI strategy name: " + name);
+                yield null;
+            }
+        };
+    }
 }
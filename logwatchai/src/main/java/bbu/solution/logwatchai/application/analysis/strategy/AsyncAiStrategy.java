@@ -0,0 +1,47 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Strategy contract for providers that can be called without blocking a thread.
+ * <p>
+ * The returned future completes once the provider answered, after all retries. While the call
+ * is in flight no platform thread is parked, so many concurrent analyses stay cheap.
+ * The blocking {@link #analyze(String)} is derived from it for callers that need a plain result.
+ */
+public interface AsyncAiStrategy extends AiStrategy {
+
+    /**
+     * Starts the analysis call against the underlying provider.
+     * Transient errors (rate limits, server errors, timeouts) are retried inside the implementation;
+     * the future fails with {@link AiProviderException} once no retry is left.
+     *
+     * @param prompt the prompt text to send to the provider
+     * @return a future completed with the raw provider response and its token usage
+     */
+    CompletableFuture<AiCompletion> analyzeAsync(String prompt);
+
+    /**
+     * Like {@link #analyzeAsync(String)}, but hands every piece of the answer to the listener as
+     * soon as it arrives. Strategies that do not stream call the listener never; the future is
+     * completed with the full answer either way.
+     *
+     * @param prompt    the prompt text to send to the provider
+     * @param onContent receives the pieces of the answer content in order; must not block
+     * @return a future completed with the raw provider response and its token usage
+     */
+    default CompletableFuture<AiCompletion> analyzeStreaming(String prompt, Consumer<String> onContent) {
+        return analyzeAsync(prompt);
+    }
+
+    @Override
+    default String analyze(String prompt) throws Exception {
+        try {
+            return analyzeAsync(prompt).get().content();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
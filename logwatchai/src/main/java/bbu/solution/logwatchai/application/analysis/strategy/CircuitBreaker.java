@@ -0,0 +1,142 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiCircuitBreakerConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of one strategy with a count-based sliding window.
+ *
+ * <ul>
+ *     <li>CLOSED: calls pass; the outcome of the last {@code windowSize} calls is recorded. Once at
+ *         least {@code minimumCalls} were recorded and the failure rate reaches the threshold,
+ *         I open.</li>
+ *     <li>OPEN: calls are rejected without reaching the provider. After {@code openDurationMs}
+ *         I become half-open.</li>
+ *     <li>HALF_OPEN: {@code halfOpenCalls} trial calls pass. If all of them succeed I close with
+ *         an empty window, the first failure opens me again.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+    /**
+     * State of the breaker.
+     */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    /** Ring buffer of recent outcomes, true = failure. Guarded by this. */
+    private final boolean[] window;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    /**
+     * @param config the breaker configuration
+     */
+    public CircuitBreaker(AiCircuitBreakerConfig config) {
+        this.window = new boolean[Math.max(1, config.getWindowSize())];
+        this.minimumCalls = Math.min(Math.max(1, config.getMinimumCalls()), window.length);
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getOpenDurationMs()));
+        this.halfOpenCalls = Math.max(1, config.getHalfOpenCalls());
+    }
+
+    /**
+     * Asks for permission to call the provider.
+     *
+     * @return true if the call may proceed; every granted call has to be reported with
+     *         {@link #onSuccess()} or {@link #onFailure()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) return false;
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) return false;
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) close();
+            return;
+        }
+        if (state == State.CLOSED) record(false);
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state != State.CLOSED) return;
+        record(true);
+        if (recorded >= minimumCalls && getFailureRate() >= failureRateThreshold) open();
+    }
+
+    /**
+     * @return the current state; an expired open state is reported as half-open
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) return State.HALF_OPEN;
+        return state;
+    }
+
+    /**
+     * @return the failure rate of the current window, 0.0 if nothing was recorded
+     */
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+
+    /**
+     * @return the number of calls in the current window
+     */
+    public synchronized int getRecordedCalls() {
+        return recorded;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) failures--;
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) failures++;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,64 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Puts a {@link CircuitBreaker} in front of a strategy.
+ * <p>
+ * While the breaker is open, calls fail immediately with {@link CircuitOpenException} instead of
+ * waiting for timeouts and retries of a provider that is down, so the dispatcher can move on to
+ * the next strategy at once. Every failed call counts, whatever its cause.
+ */
+public class CircuitBreakerAiStrategy implements AsyncAiStrategy {
+
+    private final AsyncAiStrategy delegate;
+    private final CircuitBreaker breaker;
+
+    /**
+     * @param delegate the guarded strategy
+     * @param breaker  the breaker of the strategy
+     */
+    public CircuitBreakerAiStrategy(AsyncAiStrategy delegate, CircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getModel() {
+        return delegate.getModel();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+        return analyzeStreaming(prompt, null);
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeStreaming(String prompt, Consumer<String> onContent) {
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException(getName()));
+        }
+
+        CompletableFuture<AiCompletion> call;
+        try {
+            call = onContent == null ? delegate.analyzeAsync(prompt) : delegate.analyzeStreaming(prompt, onContent);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.whenComplete((completion, error) -> {
+            if (error == null) breaker.onSuccess();
+            else breaker.onFailure();
+        });
+    }
+}
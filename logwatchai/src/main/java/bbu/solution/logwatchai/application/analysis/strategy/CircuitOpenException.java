@@ -0,0 +1,15 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+/**
+ * Signals that a call was rejected because the circuit breaker of its strategy is open.
+ * No request reached the provider.
+ */
+public class CircuitOpenException extends AiProviderException {
+
+    /**
+     * @param strategy the name of the rejected strategy
+     */
+    public CircuitOpenException(String strategy) {
+        super(503, "Circuit breaker of " + strategy + " is open", null, null);
+    }
+}
@@ -0,0 +1,106 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking limit of concurrent HTTP requests to one endpoint (scheme, host and port).
+ * <p>
+ * All strategies that talk to the same inference server share one gate, so together they never
+ * exceed what the server can process in parallel. Requests beyond the limit wait in a FIFO queue
+ * without holding a thread and are started as soon as a running request completes.
+ */
+public final class EndpointGate {
+
+    /**
+     * Requests handed a slot while this thread is already starting queued requests. The outer
+     * {@link #release()} starts them in its loop, so requests that complete right away do not
+     * recurse once per queued request.
+     */
+    private static final ThreadLocal<Deque<Runnable>> STARTING = new ThreadLocal<>();
+
+    private final int maxConcurrent;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    /**
+     * @param maxConcurrent maximum number of requests running at the same time
+     */
+    EndpointGate(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    /**
+     * Runs the request once a slot is free and releases the slot when it completes.
+     *
+     * @param request starts the request
+     * @return a future completed like the request
+     */
+    public <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> call;
+            try {
+                call = request.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((value, error) -> {
+                release();
+                if (error != null) result.completeExceptionally(error);
+                else result.complete(value);
+            });
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = running < maxConcurrent;
+            if (startNow) running++;
+            else waiting.add(start);
+        }
+        if (startNow) start.run();
+        return result;
+    }
+
+    /**
+     * @return the number of requests currently running
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of requests waiting for a slot
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) running--;
+        }
+        if (next == null) return;
+
+        // the slot passes directly to the next waiting request
+        Deque<Runnable> starting = STARTING.get();
+        if (starting != null) {
+            starting.add(next);
+            return;
+        }
+        starting = new ArrayDeque<>();
+        STARTING.set(starting);
+        try {
+            for (Runnable start = next; start != null; start = starting.poll()) {
+                start.run();
+            }
+        } finally {
+            STARTING.remove();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Rate limiter and concurrency governor in front of one configured model (ai.models[] entry).
+ *
+ * <p>I keep the calls of a model within what its provider really accepts:</p>
+ * <ul>
+ *     <li>two token buckets enforce the configured requests and tokens per minute; tokens are
+ *         estimated before a call and corrected with the usage the provider reports,</li>
+ *     <li>an AIMD limit bounds the concurrent calls: it grows slowly while calls succeed and is
+ *         halved on 429, 5xx and timeouts, also for attempts the strategy retries internally,</li>
+ *     <li>a 429 with Retry-After pauses all further calls of the model for that long.</li>
+ * </ul>
+ *
+ * <p>Calls that may not start yet wait in a FIFO queue, not on a thread. The queue is drained
+ * whenever a call completes or, when only the buckets block, by the transport's timer once
+ * enough budget has been refilled. A queued call fails after the model's timeout.</p>
+ */
+public class GovernedAiStrategy implements AsyncAiStrategy {
+
+    /** Pause after a 429 without Retry-After. */
+    private static final long DEFAULT_RATE_LIMIT_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Blocking delegates run on virtual threads so a waiting call never occupies a pool thread. */
+    private static final ExecutorService BLOCKING_CALLS =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-call-", 0).factory());
+
+    private final AiStrategy delegate;
+    private final AiHttpTransport transport;
+    private final long queueTimeoutNanos;
+
+    /** Requests per minute, {@code null} if unlimited. */
+    private final TokenBucket requests;
+
+    /** Tokens per minute, {@code null} if unlimited. */
+    private final TokenBucket tokens;
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final Deque<PendingCall> queue = new ArrayDeque<>();
+    private int inFlight;
+    private long pausedUntil;
+    private boolean drainScheduled;
+
+    private final Counter overloads;
+
+    /**
+     * Creates the governor and its delegate.
+     *
+     * @param entry           the model configuration with its limits
+     * @param delegateFactory creates the delegate; it receives the listener the delegate has to
+     *                        notify of every retried attempt
+     * @param transport       provides the timer that resumes the queue
+     * @param registry        the meter registry for the governor metrics
+     */
+    public GovernedAiStrategy(AiModelEntry entry,
+                              Function<Consumer<AiProviderException>, AiStrategy> delegateFactory,
+                              AiHttpTransport transport,
+                              MeterRegistry registry) {
+        long now = System.nanoTime();
+        this.delegate = delegateFactory.apply(this::onRetry);
+        this.transport = transport;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, entry.getTimeoutMs()));
+        this.requests = entry.getRequestsPerMinute() > 0 ? new TokenBucket(entry.getRequestsPerMinute(), now) : null;
+        this.tokens = entry.getTokensPerMinute() > 0 ? new TokenBucket(entry.getTokensPerMinute(), now) : null;
+        this.limit = new AdaptiveConcurrencyLimit(entry.getInitialConcurrency(), entry.getMaxConcurrency());
+        this.pausedUntil = now;
+
+        String name = entry.getName();
+        Gauge.builder("logwatchai.ai.concurrency.limit", this, GovernedAiStrategy::getConcurrencyLimit)
+                .description("Current adaptive limit of concurrent provider calls")
+                .tag("strategy", name)
+                .register(registry);
+        Gauge.builder("logwatchai.ai.inflight", this, GovernedAiStrategy::getInFlight)
+                .description("Provider calls currently running")
+                .tag("strategy", name)
+                .register(registry);
+        Gauge.builder("logwatchai.ai.queued", this, GovernedAiStrategy::getQueued)
+                .description("Provider calls waiting for the rate or concurrency limit")
+                .tag("strategy", name)
+                .register(registry);
+        this.overloads = Counter.builder("logwatchai.ai.overloads")
+                .description("Times the concurrency limit was decreased after 429, 5xx or timeouts")
+                .tag("strategy", name)
+                .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getModel() {
+        return delegate.getModel();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+        return analyzeStreaming(prompt, null);
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeStreaming(String prompt, Consumer<String> onContent) {
+        PendingCall call = new PendingCall(prompt, onContent, AiPrompts.estimateTokens(prompt), System.nanoTime() + queueTimeoutNanos);
+        synchronized (this) {
+            queue.add(call);
+        }
+        drain();
+        return call.result;
+    }
+
+    /**
+     * Starts as many queued calls as the limits allow. If only the buckets or a pause block
+     * the head of the queue, a timer resumes draining once it may start.
+     */
+    private void drain() {
+        List<PendingCall> ready = new ArrayList<>();
+        List<PendingCall> expired = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            long wait = 0;
+            while (!queue.isEmpty() && inFlight < limit.get()) {
+                PendingCall next = queue.peek();
+                if (now >= next.deadline) {
+                    expired.add(queue.poll());
+                    continue;
+                }
+                wait = waitNanos(next, now);
+                if (wait > 0) break;
+
+                queue.poll();
+                if (requests != null) requests.take(1, now);
+                if (tokens != null) tokens.take(next.estimatedTokens, now);
+                inFlight++;
+                ready.add(next);
+            }
+            if (wait > 0 && !drainScheduled) {
+                drainScheduled = true;
+                transport.schedule(this::resume, Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait) + 1));
+            }
+        }
+
+        expired.forEach(call -> call.result.completeExceptionally(
+                new AiProviderException(0, "Deadline exceeded while waiting for the rate limit", null, null)));
+        ready.forEach(this::start);
+    }
+
+    private void resume() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+
+    private long waitNanos(PendingCall call, long now) {
+        long wait = Math.max(0, pausedUntil - now);
+        if (requests != null) wait = Math.max(wait, requests.waitNanos(1, now));
+        if (tokens != null) wait = Math.max(wait, tokens.waitNanos(call.estimatedTokens, now));
+        return wait;
+    }
+
+    private void start(PendingCall call) {
+        CompletableFuture<AiCompletion> response;
+        if (delegate instanceof AsyncAiStrategy async) {
+            try {
+                response = call.onContent == null
+                        ? async.analyzeAsync(call.prompt)
+                        : async.analyzeStreaming(call.prompt, call.onContent);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+        } else {
+            response = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return AiCompletion.of(delegate.analyze(call.prompt));
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, BLOCKING_CALLS);
+        }
+
+        response.whenComplete((completion, error) -> {
+            onCompleted(call, completion, error);
+            if (error != null) call.result.completeExceptionally(unwrap(error));
+            else call.result.complete(completion);
+        });
+    }
+
+    private void onCompleted(PendingCall call, AiCompletion completion, Throwable error) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            inFlight--;
+            if (error == null) {
+                // replace the estimate by the usage the provider billed
+                if (tokens != null && completion.totalTokens() > 0) {
+                    tokens.take(completion.totalTokens() - call.estimatedTokens, now);
+                }
+                limit.onSuccess(inFlight);
+            } else if (unwrap(error) instanceof AiProviderException failure && failure.isRetryable()) {
+                onOverload(failure, now);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Called by the delegate for every attempt it retries. The retry costs another request,
+     * and a retried 429 or 5xx still means the provider is overloaded.
+     */
+    private void onRetry(AiProviderException failure) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (requests != null) requests.take(1, now);
+            if (failure.isRetryable()) onOverload(failure, now);
+        }
+    }
+
+    private void onOverload(AiProviderException failure, long now) {
+        if (limit.onOverload(now)) overloads.increment();
+        if (failure.isRateLimited()) {
+            long pause = failure.getRetryAfter() != null
+                    ? failure.getRetryAfter().toNanos()
+                    : DEFAULT_RATE_LIMIT_PAUSE_NANOS;
+            pausedUntil = Math.max(pausedUntil, now + pause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @return the current adaptive limit of concurrent calls
+     */
+    public synchronized int getConcurrencyLimit() {
+        return limit.get();
+    }
+
+    /**
+     * @return the number of calls currently running
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of calls waiting to start
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * One call waiting for or holding a slot of this governor.
+     */
+    private static final class PendingCall {
+        private final String prompt;
+        private final Consumer<String> onContent;
+        private final int estimatedTokens;
+        private final long deadline;
+        private final CompletableFuture<AiCompletion> result = new CompletableFuture<>();
+
+        private PendingCall(String prompt, Consumer<String> onContent, int estimatedTokens, long deadline) {
+            this.prompt = prompt;
+            this.onContent = onContent;
+            this.estimatedTokens = estimatedTokens;
+            this.deadline = deadline;
+        }
+    }
+}
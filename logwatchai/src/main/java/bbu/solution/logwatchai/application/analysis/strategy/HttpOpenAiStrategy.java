@@ -0,0 +1,222 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non-blocking AI strategy for the OpenAI chat completions API.
+ * <p>
+ * I talk to the API directly through the shared {@link AiHttpTransport} instead of the blocking
+ * OpenAiService. Retries for rate limits and server errors are scheduled by the transport within
+ * the configured deadline; no thread sleeps while a call waits.
+ * <p>
+ * With streaming enabled I request the answer as server-sent events and hand every content delta
+ * to the caller's listener as it arrives, so the first fields of the analysis can be used before
+ * the model has finished. The token usage is read from the last event of the stream.
+ */
+@Slf4j
+public class HttpOpenAiStrategy implements AsyncAiStrategy {
+
+    /** Default endpoint of the OpenAI API. */
+    public static final String DEFAULT_BASE_URL = "https://api.openai.com/v1";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String name;
+    private final String model;
+    private final String key;
+    private final URI endpoint;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final AiHttpTransport transport;
+    private final Consumer<AiProviderException> retryListener;
+    private final boolean stream;
+
+    /**
+     * @param name       logical name of the strategy (ai.models[].name)
+     * @param model      the model identifier, e.g. gpt-4o-mini
+     * @param key        the API key
+     * @param baseUrl    the API base URL, or null for {@link #DEFAULT_BASE_URL}
+     * @param timeout    overall deadline of one analysis call including retries
+     * @param maxRetries retries after the first attempt
+     * @param transport  the shared HTTP transport
+     * @param retryListener notified of every failed attempt that is retried, e.g. to slow down on 429
+     */
+    public HttpOpenAiStrategy(String name, String model, String key, String baseUrl,
+                              Duration timeout, int maxRetries, AiHttpTransport transport,
+                              Consumer<AiProviderException> retryListener) {
+        this(name, model, key, baseUrl, timeout, maxRetries, transport, retryListener, false);
+    }
+
+    /**
+     * @param name       logical name of the strategy (ai.models[].name)
+     * @param model      the model identifier, e.g. gpt-4o-mini
+     * @param key        the API key
+     * @param baseUrl    the API base URL, or null for {@link #DEFAULT_BASE_URL}
+     * @param timeout    overall deadline of one analysis call including retries
+     * @param maxRetries retries after the first attempt
+     * @param transport  the shared HTTP transport
+     * @param retryListener notified of every failed attempt that is retried, e.g. to slow down on 429
+     * @param stream     whether answers are requested as a stream of server-sent events
+     */
+    public HttpOpenAiStrategy(String name, String model, String key, String baseUrl,
+                              Duration timeout, int maxRetries, AiHttpTransport transport,
+                              Consumer<AiProviderException> retryListener, boolean stream) {
+        this.name = name;
+        this.model = model;
+        this.key = key;
+        this.endpoint = URI.create(stripTrailingSlash(baseUrl == null || baseUrl.isBlank() ? DEFAULT_BASE_URL : baseUrl)
+                + "/chat/completions");
+        this.timeout = timeout;
+        this.maxRetries = maxRetries;
+        this.transport = transport;
+        this.retryListener = retryListener;
+        this.stream = stream;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return key != null && !key.isBlank();
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+        if (stream) return analyzeStreaming(prompt, null);
+
+        String body;
+        try {
+            body = MAPPER.writeValueAsString(requestBody(prompt, false));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return transport.send(request(body), maxRetries, timeout, retryListener)
+                .thenApply(HttpOpenAiStrategy::toCompletion);
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeStreaming(String prompt, Consumer<String> onContent) {
+        if (!stream) return analyzeAsync(prompt);
+
+        String body;
+        try {
+            body = MAPPER.writeValueAsString(requestBody(prompt, true));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        StreamedCompletion completion = new StreamedCompletion(onContent);
+        return transport.stream(request(body), maxRetries, timeout, retryListener, completion::onLine)
+                .thenApply(response -> completion.toCompletion());
+    }
+
+    private Function<Duration, HttpRequest> request(String body) {
+        return remaining -> HttpRequest.newBuilder(endpoint)
+                .timeout(remaining)
+                .header("Authorization", "Bearer " + key)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private ObjectNode requestBody(String prompt, boolean streamed) {
+        ObjectNode body = MAPPER.createObjectNode()
+                .put("model", model)
+                .put("temperature", 0.0)
+                .put("max_tokens", AiPrompts.MAX_COMPLETION_TOKENS)
+                .put("n", 1);
+        if (streamed) {
+            body.put("stream", true);
+            body.putObject("stream_options").put("include_usage", true);
+        }
+        ArrayNode messages = body.putArray("messages");
+        messages.addObject().put("role", "system").put("content", AiPrompts.SYSTEM);
+        messages.addObject().put("role", "user").put("content", prompt);
+        return body;
+    }
+
+    /**
+     * Extracts the message content and the reported token usage of a chat completion response.
+     */
+    static AiCompletion toCompletion(HttpResponse<String> response) {
+        try {
+            JsonNode root = MAPPER.readTree(response.body());
+            JsonNode message = root.path("choices").path(0).path("message");
+            String content = message.path("content").asText("{}");
+            JsonNode usage = root.path("usage");
+            return new AiCompletion(content,
+                    usage.path("prompt_tokens").asInt(0),
+                    usage.path("completion_tokens").asInt(0));
+        } catch (JsonProcessingException e) {
+            throw new AiProviderException(response.statusCode(), "Malformed provider response", null, e);
+        }
+    }
+
+    /**
+     * Collects the content deltas and the usage of one streamed chat completion. The transport
+     * delivers the lines of one response in order and from one thread at a time.
+     */
+    private static final class StreamedCompletion {
+        private final Consumer<String> onContent;
+        private final StringBuilder content = new StringBuilder();
+        private int promptTokens;
+        private int completionTokens;
+
+        private StreamedCompletion(Consumer<String> onContent) {
+            this.onContent = onContent;
+        }
+
+        private void onLine(String line) {
+            if (!line.startsWith("data:")) return;
+            String data = line.substring(5).trim();
+            if (data.isEmpty() || "[DONE]".equals(data)) return;
+
+            JsonNode chunk;
+            try {
+                chunk = MAPPER.readTree(data);
+            } catch (JsonProcessingException e) {
+                log.debug("Skipping malformed stream event: {}", e.getOriginalMessage());
+                return;
+            }
+            JsonNode usage = chunk.path("usage");
+            if (usage.isObject()) {
+                promptTokens = usage.path("prompt_tokens").asInt(promptTokens);
+                completionTokens = usage.path("completion_tokens").asInt(completionTokens);
+            }
+            JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+            if (!delta.isTextual() || delta.asText().isEmpty()) return;
+            content.append(delta.asText());
+            if (onContent != null) onContent.accept(delta.asText());
+        }
+
+        private AiCompletion toCompletion() {
+            return new AiCompletion(content.isEmpty() ? "{}" : content.toString(), promptTokens, completionTokens);
+        }
+    }
+
+    static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,275 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.log.LogLevels;
+import bbu.solution.logwatchai.domain.template.LogTemplateNormalizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process analyzer that needs no network and no model ("local" in ai.models).
+ *
+ * <p>I read the log lines back from the prompt and answer in the same JSON format a language
+ * model would, so caching, batching, dispatch and parsing work unchanged. Per line I combine:</p>
+ * <ul>
+ *     <li>the log level,</li>
+ *     <li>keyword rules that pick the category, a minimum severity and a recommendation,</li>
+ *     <li>the rarity of the line's normalized template among the lines I have seen,</li>
+ *     <li>the deviation of the template's current rate from its smoothed baseline.</li>
+ * </ul>
+ *
+ * <p>An analysis takes microseconds and completes on the calling thread. This makes me usable
+ * in air-gapped deployments, as the last fail-over target behind remote models, and for
+ * benchmarking the pipeline without network.</p>
+ */
+public class LocalStatisticalStrategy implements AsyncAiStrategy {
+
+    /** Model identifier reported when none is configured. */
+    public static final String DEFAULT_MODEL = "statistical-v1";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final double WEIGHT_RARITY = 0.25;
+    private static final double WEIGHT_BURST = 0.2;
+    private static final int RARE_BELOW = 20;
+    private static final long RATE_WINDOW_MS = 60_000;
+    private static final double RATE_ALPHA = 0.3;
+    private static final int MAX_TRACKED_TEMPLATES = 10_000;
+    private static final int SUMMARY_LENGTH = 160;
+
+    /**
+     * Keyword rules in priority order; the first matching rule decides the category.
+     */
+    private static final List<Rule> RULES = List.of(
+            new Rule("resource", "HIGH", 0.35,
+                    "Check memory, disk and file handle limits of the host or container.",
+                    "outofmemory", "out of memory", "heap space", "no space left", "disk full", "too many open files"),
+            new Rule("security", "MEDIUM", 0.3,
+                    "Verify whether the access was legitimate and review credentials and permissions.",
+                    "unauthorized", "forbidden", "access denied", "permission denied", "authentication failed",
+                    "invalid token", "login failed", "invalid password"),
+            new Rule("database", "MEDIUM", 0.25,
+                    "Check database availability, connection pool usage and the failing statement.",
+                    "sqlexception", "deadlock", "jdbc", "connection pool", "lock wait timeout", "constraint violation",
+                    "duplicate entry"),
+            new Rule("network", "MEDIUM", 0.2,
+                    "Check reachability and health of the remote service.",
+                    "connection refused", "connection reset", "timed out", "timeout", "unreachable", "broken pipe",
+                    "unknownhost", "name resolution"),
+            new Rule("application", "LOW", 0.2,
+                    "Inspect the stack trace and the code path that raised the error.",
+                    "exception", "caused by", "nullpointer", "traceback", "panic", "segfault", "stacktrace"),
+            new Rule("performance", "LOW", 0.1,
+                    "Look for load spikes or slow dependencies.",
+                    "slow", "latency", "gc overhead", "throttl", "took ")
+    );
+
+    private final String name;
+    private final String model;
+
+    /** Per-template statistics in least-recently-seen order. Guarded by itself. */
+    private final Map<String, TemplateStats> templates = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TemplateStats> eldest) {
+            return size() > MAX_TRACKED_TEMPLATES;
+        }
+    };
+
+    /**
+     * @param name  logical name of the strategy (ai.models[].name)
+     * @param model reported model identifier, or null for {@link #DEFAULT_MODEL}
+     */
+    public LocalStatisticalStrategy(String name, String model) {
+        this.name = name;
+        this.model = model == null || model.isBlank() ? DEFAULT_MODEL : model;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+        try {
+            return CompletableFuture.completedFuture(AiCompletion.of(analyzeNow(prompt)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Analyzes all lines of the prompt.
+     *
+     * @param prompt a prompt built by {@link AiPrompts}
+     * @return a JSON object for a single-line prompt, a JSON array with indices for a batch prompt
+     */
+    String analyzeNow(String prompt) {
+        Map<Integer, String> logs = AiPrompts.extractLogs(prompt);
+        if (logs.isEmpty()) {
+            throw new AiProviderException(400, "Prompt contains no log line", null, null);
+        }
+
+        long now = System.currentTimeMillis();
+        try {
+            if (logs.containsKey(-1)) {
+                return MAPPER.writeValueAsString(assess(logs.get(-1), now));
+            }
+            ArrayNode items = MAPPER.createArrayNode();
+            logs.forEach((index, line) -> items.add(assess(line, now).put("index", index)));
+            return MAPPER.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new AiProviderException(500, "Could not write local analysis", null, e);
+        }
+    }
+
+    private ObjectNode assess(String line, long now) {
+        String level = LogLevels.parse(line);
+        String lower = line.toLowerCase(Locale.ROOT);
+        List<String> reasons = new ArrayList<>();
+        reasons.add("level " + (level == null ? "none" : level));
+
+        String severity = levelSeverity(level);
+        double score = levelScore(level);
+        String category = "general";
+        String recommendation = "INFO".equals(severity) ? "No action required." : "Review the log line in its context.";
+
+        for (Rule rule : RULES) {
+            String keyword = rule.firstMatch(lower);
+            if (keyword == null) continue;
+            category = rule.category;
+            recommendation = rule.recommendation;
+            score += rule.weight;
+            if (rank(rule.minSeverity) > rank(severity)) severity = rule.minSeverity;
+            reasons.add("keyword '" + keyword + "'");
+            break;
+        }
+
+        String template = LogTemplateNormalizer.normalize(line);
+        long seen;
+        double burst;
+        synchronized (templates) {
+            TemplateStats stats = templates.computeIfAbsent(template, t -> new TemplateStats(now));
+            seen = ++stats.seen;
+            burst = stats.burst(now);
+        }
+        if (seen < RARE_BELOW) {
+            score += WEIGHT_RARITY * (1.0 - (double) (seen - 1) / RARE_BELOW);
+            reasons.add(seen == 1 ? "new template" : "rare template (" + seen + "x)");
+        }
+        if (burst > 0) {
+            score += WEIGHT_BURST * burst;
+            reasons.add("rate burst");
+        }
+
+        return MAPPER.createObjectNode()
+                .put("severity", severity)
+                .put("anomalyScore", Math.min(Math.max(score, 0.0), 1.0))
+                .put("category", category)
+                .put("summarizedIssue", summarize(level, category, template))
+                .put("likelyCause", "Local statistical analysis: " + String.join(", ", reasons))
+                .put("recommendation", recommendation);
+    }
+
+    private static String summarize(String level, String category, String template) {
+        String text = template.length() > SUMMARY_LENGTH ? template.substring(0, SUMMARY_LENGTH) + "..." : template;
+        return (level == null ? "" : level + " ") + category + ": " + text;
+    }
+
+    private static String levelSeverity(String level) {
+        if (level == null) return "INFO";
+        return switch (level) {
+            case "FATAL" -> "CRITICAL";
+            case "ERROR" -> "HIGH";
+            case "WARN" -> "MEDIUM";
+            default -> "INFO";
+        };
+    }
+
+    private static double levelScore(String level) {
+        if (level == null) return 0.1;
+        return switch (level) {
+            case "FATAL" -> 0.6;
+            case "ERROR" -> 0.45;
+            case "WARN" -> 0.2;
+            case "INFO" -> 0.05;
+            default -> 0.0;
+        };
+    }
+
+    private static int rank(String severity) {
+        return switch (severity) {
+            case "LOW" -> 1;
+            case "MEDIUM" -> 2;
+            case "HIGH" -> 3;
+            case "CRITICAL" -> 4;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Keyword rule for one category.
+     */
+    private record Rule(String category, String minSeverity, double weight, String recommendation, String... keywords) {
+        String firstMatch(String lowerCaseLine) {
+            for (String keyword : keywords) {
+                if (lowerCaseLine.contains(keyword)) return keyword;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Occurrences of one template and its smoothed per-window rate.
+     */
+    private static final class TemplateStats {
+        private long seen;
+        private long windowStart;
+        private long windowCount;
+        private double average;
+        private boolean warm;
+
+        private TemplateStats(long now) {
+            this.windowStart = now;
+        }
+
+        /**
+         * Counts the line in the current window and returns how strongly the window exceeds the
+         * baseline: 0.0 up to twice the average, 1.0 from six times the average.
+         */
+        private double burst(long now) {
+            long elapsedWindows = (now - windowStart) / RATE_WINDOW_MS;
+            if (elapsedWindows > 0) {
+                average = RATE_ALPHA * windowCount + (1 - RATE_ALPHA) * average;
+                for (long i = 1; i < Math.min(elapsedWindows, 20); i++) {
+                    average *= (1 - RATE_ALPHA);
+                }
+                windowStart += elapsedWindows * RATE_WINDOW_MS;
+                windowCount = 0;
+                warm = true;
+            }
+            windowCount++;
+            if (!warm) return 0.0;
+            double ratio = windowCount / Math.max(1.0, average);
+            return Math.min(Math.max((ratio - 2.0) / 4.0, 0.0), 1.0);
+        }
+    }
+}
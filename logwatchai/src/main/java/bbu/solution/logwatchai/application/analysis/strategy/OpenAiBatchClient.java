@@ -0,0 +1,210 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.application.deferred.DeferredBatchClient;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Deferred batch client for the Batch API of OpenAI.
+ *
+ * <p>I upload the prompts as a JSONL file of chat completion requests, each under the id of its
+ * log entry, and create a batch from it. Polling reads the state of the batch; once it is
+ * completed, failed, expired or cancelled, I download its output file, if there is one, and
+ * return every answer under its id. Lines without an answer are simply missing.</p>
+ *
+ * <p>Every request goes through the shared {@link AiHttpTransport} with the retries and the
+ * timeout of the model entry.</p>
+ */
+@Slf4j
+public class OpenAiBatchClient implements DeferredBatchClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** States of a batch the provider is done with. */
+    private static final Set<String> FINISHED = Set.of("completed", "failed", "expired", "cancelled");
+
+    private final String name;
+    private final String model;
+    private final String key;
+    private final String baseUrl;
+    private final String completionWindow;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final AiHttpTransport transport;
+
+    /**
+     * @param entry            the model configuration; its key, model and base URL are used
+     * @param transport        the shared HTTP transport
+     * @param completionWindow the time the provider has to complete a batch, e.g. "24h"
+     */
+    public OpenAiBatchClient(AiModelEntry entry, AiHttpTransport transport, String completionWindow) {
+        this.name = entry.getName();
+        this.model = entry.getModel();
+        this.key = entry.getKey();
+        this.baseUrl = HttpOpenAiStrategy.stripTrailingSlash(entry.getBaseUrl() == null || entry.getBaseUrl().isBlank()
+                ? HttpOpenAiStrategy.DEFAULT_BASE_URL
+                : entry.getBaseUrl().trim());
+        this.completionWindow = completionWindow;
+        this.timeout = Duration.ofMillis(entry.getTimeoutMs());
+        this.maxRetries = entry.getMaxRetries();
+        this.transport = transport;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<String> submit(List<Request> requests) {
+        StringBuilder jsonl = new StringBuilder();
+        try {
+            for (Request request : requests) {
+                jsonl.append(MAPPER.writeValueAsString(requestLine(request))).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return upload(jsonl.toString())
+                .thenCompose(fileId -> {
+                    ObjectNode body = MAPPER.createObjectNode()
+                            .put("input_file_id", fileId)
+                            .put("endpoint", "/v1/chat/completions")
+                            .put("completion_window", completionWindow);
+                    return send(URI.create(baseUrl + "/batches"), "application/json", body.toString());
+                })
+                .thenApply(response -> read(response).path("id").asText());
+    }
+
+    @Override
+    public CompletableFuture<Results> poll(String providerBatchId) {
+        return get(URI.create(baseUrl + "/batches/" + providerBatchId)).thenCompose(response -> {
+            JsonNode batch = read(response);
+            String status = batch.path("status").asText();
+            if (!FINISHED.contains(status)) return CompletableFuture.completedFuture(Results.running());
+
+            String error = "completed".equals(status) ? null : "Batch " + status;
+            String outputFile = batch.path("output_file_id").asText(null);
+            if (outputFile == null || outputFile.isBlank()) {
+                return CompletableFuture.completedFuture(new Results(true, Map.of(), error != null ? error : "Batch without output"));
+            }
+            return get(URI.create(baseUrl + "/files/" + outputFile + "/content"))
+                    .thenApply(output -> new Results(true, parseOutput(output.body()), error));
+        });
+    }
+
+    private ObjectNode requestLine(Request request) {
+        ObjectNode line = MAPPER.createObjectNode()
+                .put("custom_id", request.customId())
+                .put("method", "POST")
+                .put("url", "/v1/chat/completions");
+        ObjectNode body = line.putObject("body")
+                .put("model", model)
+                .put("temperature", 0.0)
+                .put("max_tokens", AiPrompts.MAX_COMPLETION_TOKENS);
+        ArrayNode messages = body.putArray("messages");
+        messages.addObject().put("role", "system").put("content", AiPrompts.SYSTEM);
+        messages.addObject().put("role", "user").put("content", request.prompt());
+        return line;
+    }
+
+    /**
+     * Uploads the JSONL input as a multipart form with purpose "batch".
+     *
+     * @return a future completed with the id of the uploaded file
+     */
+    private CompletableFuture<String> upload(String jsonl) {
+        String boundary = "logwatchai-" + UUID.randomUUID();
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"purpose\"\r\n\r\n"
+                + "batch\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"logwatchai-batch.jsonl\"\r\n"
+                + "Content-Type: application/jsonl\r\n\r\n"
+                + jsonl + "\r\n"
+                + "--" + boundary + "--\r\n";
+        return send(URI.create(baseUrl + "/files"), "multipart/form-data; boundary=" + boundary, body)
+                .thenApply(response -> read(response).path("id").asText());
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(URI endpoint, String contentType, String body) {
+        return transport.send(remaining -> HttpRequest.newBuilder(endpoint)
+                        .timeout(remaining)
+                        .header("Authorization", "Bearer " + key)
+                        .header("Content-Type", contentType)
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                maxRetries,
+                timeout);
+    }
+
+    private CompletableFuture<HttpResponse<String>> get(URI endpoint) {
+        return transport.send(remaining -> HttpRequest.newBuilder(endpoint)
+                        .timeout(remaining)
+                        .header("Authorization", "Bearer " + key)
+                        .GET()
+                        .build(),
+                maxRetries,
+                timeout);
+    }
+
+    private static JsonNode read(HttpResponse<String> response) {
+        try {
+            return MAPPER.readTree(response.body());
+        } catch (JsonProcessingException e) {
+            throw new CompletionException(new AiProviderException(response.statusCode(), "Malformed provider response", null, e));
+        }
+    }
+
+    /**
+     * Reads the output file: one JSON object per line with the custom id and the response of its
+     * request. Lines with an error or a malformed response are skipped.
+     *
+     * @param output the content of the output file
+     * @return the answers by custom id
+     */
+    static Map<String, AiCompletion> parseOutput(String output) {
+        Map<String, AiCompletion> completions = new HashMap<>();
+        for (String line : output.split("\n")) {
+            if (line.isBlank()) continue;
+            try {
+                JsonNode result = MAPPER.readTree(line);
+                JsonNode response = result.path("response");
+                if (response.path("status_code").asInt(0) != 200) continue;
+                JsonNode body = response.path("body");
+                JsonNode content = body.path("choices").path(0).path("message").path("content");
+                if (!content.isTextual()) continue;
+                JsonNode usage = body.path("usage");
+                completions.put(result.path("custom_id").asText(), new AiCompletion(content.asText(),
+                        usage.path("prompt_tokens").asInt(0),
+                        usage.path("completion_tokens").asInt(0)));
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping malformed batch result: {}", e.getOriginalMessage());
+            }
+        }
+        return completions;
+    }
+}
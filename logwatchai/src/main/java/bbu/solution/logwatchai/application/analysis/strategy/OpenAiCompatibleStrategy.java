@@ -0,0 +1,215 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Strategy for self-hosted OpenAI-compatible inference servers (llama.cpp, vLLM and similar).
+ *
+ * <p>Unlike {@link HttpOpenAiStrategy} I am made for a server inside the network:</p>
+ * <ul>
+ *     <li>the base URL is required and the API key is optional,</li>
+ *     <li>requests use HTTP/1.1, which every such server speaks; the shared client keeps the
+ *         connections alive and reuses them, so there is no connection setup per request,</li>
+ *     <li>all entries on the same endpoint share one {@link EndpointGate}, so together they never
+ *         send more parallel requests than the server's slots ({@code endpointConcurrency}),</li>
+ *     <li>with {@code batchPrompts} enabled, prompts arriving within {@code batchWindowMs} are sent
+ *         as one request with a prompt array to the completions endpoint; the server answers with
+ *         one choice per prompt index. Without it, every prompt is a regular chat completion.</li>
+ * </ul>
+ */
+public class OpenAiCompatibleStrategy implements AsyncAiStrategy {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String name;
+    private final String model;
+    private final String key;
+    private final URI chatEndpoint;
+    private final URI completionsEndpoint;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final boolean batchPrompts;
+    private final int maxBatchPrompts;
+    private final long batchWindowMs;
+    private final AiHttpTransport transport;
+    private final EndpointGate gate;
+    private final Consumer<AiProviderException> retryListener;
+
+    /** Prompts collected for the next batch request. Guarded by this. */
+    private List<PendingPrompt> pending = new ArrayList<>();
+
+    /**
+     * @param entry         the model configuration; {@code baseUrl} is required
+     * @param transport     the shared HTTP transport
+     * @param retryListener notified of every failed attempt that is retried
+     */
+    public OpenAiCompatibleStrategy(AiModelEntry entry, AiHttpTransport transport, Consumer<AiProviderException> retryListener) {
+        this.name = entry.getName();
+        this.model = entry.getModel();
+        this.key = entry.getKey();
+        String baseUrl = entry.getBaseUrl() == null ? null : HttpOpenAiStrategy.stripTrailingSlash(entry.getBaseUrl().trim());
+        this.chatEndpoint = baseUrl == null || baseUrl.isEmpty() ? null : URI.create(baseUrl + "/chat/completions");
+        this.completionsEndpoint = baseUrl == null || baseUrl.isEmpty() ? null : URI.create(baseUrl + "/completions");
+        this.timeout = Duration.ofMillis(entry.getTimeoutMs());
+        this.maxRetries = entry.getMaxRetries();
+        this.batchPrompts = entry.isBatchPrompts() && entry.getMaxBatchPrompts() > 1;
+        this.maxBatchPrompts = Math.max(1, entry.getMaxBatchPrompts());
+        this.batchWindowMs = Math.max(1, entry.getBatchWindowMs());
+        this.transport = transport;
+        this.gate = chatEndpoint == null ? null : transport.gate(chatEndpoint, entry.getEndpointConcurrency());
+        this.retryListener = retryListener;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return chatEndpoint != null;
+    }
+
+    @Override
+    public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+        if (!batchPrompts) {
+            return gate.run(() -> post(chatEndpoint, chatBody(prompt))).thenApply(HttpOpenAiStrategy::toCompletion);
+        }
+
+        PendingPrompt added = new PendingPrompt(prompt);
+        List<PendingPrompt> full = null;
+        synchronized (this) {
+            pending.add(added);
+            if (pending.size() >= maxBatchPrompts) {
+                full = pending;
+                pending = new ArrayList<>();
+            } else if (pending.size() == 1) {
+                List<PendingPrompt> window = pending;
+                transport.schedule(() -> flushIfOpen(window), batchWindowMs);
+            }
+        }
+        if (full != null) sendBatch(full);
+        return added.result;
+    }
+
+    private void flushIfOpen(List<PendingPrompt> window) {
+        synchronized (this) {
+            if (pending != window) return;
+            pending = new ArrayList<>();
+        }
+        sendBatch(window);
+    }
+
+    /**
+     * Sends the prompts as one completions request and hands every prompt its own choice.
+     * Token usage is split evenly, since the server reports it for the whole request.
+     */
+    private void sendBatch(List<PendingPrompt> batch) {
+        List<String> prompts = batch.stream().map(p -> AiPrompts.SYSTEM + "\n" + p.prompt + "\n").toList();
+        gate.run(() -> post(completionsEndpoint, completionsBody(prompts))).whenComplete((response, error) -> {
+            if (error != null) {
+                batch.forEach(p -> p.result.completeExceptionally(error));
+                return;
+            }
+            try {
+                JsonNode root = MAPPER.readTree(response.body());
+                JsonNode usage = root.path("usage");
+                int promptTokens = usage.path("prompt_tokens").asInt(0) / batch.size();
+                int completionTokens = usage.path("completion_tokens").asInt(0) / batch.size();
+
+                String[] texts = new String[batch.size()];
+                for (JsonNode choice : root.path("choices")) {
+                    int index = choice.path("index").asInt(-1);
+                    if (index >= 0 && index < texts.length) texts[index] = choice.path("text").asText(null);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (texts[i] != null) {
+                        batch.get(i).result.complete(new AiCompletion(texts[i], promptTokens, completionTokens));
+                    } else {
+                        batch.get(i).result.completeExceptionally(
+                                new AiProviderException(response.statusCode(), "No choice for prompt " + i, null, null));
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                AiProviderException failure = new AiProviderException(response.statusCode(), "Malformed provider response", null, e);
+                batch.forEach(p -> p.result.completeExceptionally(failure));
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(URI endpoint, ObjectNode body) {
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return transport.send(remaining -> {
+                    HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .timeout(remaining)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(json));
+                    if (key != null && !key.isBlank()) request.header("Authorization", "Bearer " + key);
+                    return request.build();
+                },
+                maxRetries,
+                timeout,
+                retryListener);
+    }
+
+    private ObjectNode chatBody(String prompt) {
+        ObjectNode body = baseBody();
+        ArrayNode messages = body.putArray("messages");
+        messages.addObject().put("role", "system").put("content", AiPrompts.SYSTEM);
+        messages.addObject().put("role", "user").put("content", prompt);
+        return body;
+    }
+
+    private ObjectNode completionsBody(List<String> prompts) {
+        ObjectNode body = baseBody();
+        ArrayNode array = body.putArray("prompt");
+        prompts.forEach(array::add);
+        return body;
+    }
+
+    private ObjectNode baseBody() {
+        ObjectNode body = MAPPER.createObjectNode()
+                .put("temperature", 0.0)
+                .put("max_tokens", AiPrompts.MAX_COMPLETION_TOKENS);
+        if (model != null) body.put("model", model);
+        return body;
+    }
+
+    /**
+     * A prompt waiting for the next batch request.
+     */
+    private static final class PendingPrompt {
+        private final String prompt;
+        private final CompletableFuture<AiCompletion> result = new CompletableFuture<>();
+
+        private PendingPrompt(String prompt) {
+            this.prompt = prompt;
+        }
+    }
+}
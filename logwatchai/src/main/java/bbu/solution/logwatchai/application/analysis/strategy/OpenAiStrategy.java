@@ -6,12 +6,13 @@ import com.theokanning.openai.completion.chat.*;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * AI strategy implementation for the OpenAI (theokanning) client.
  * <p>
  * This class encapsulates creation of the OpenAiService and contains a local
- * retry loop for transient errors (rate limit). The retry/backoff logic is
+ * retry loop for transient errors (rate limit, server errors). The retry/backoff logic is
  * intentionally self-contained so each provider can have its own policy.
  */
 public class OpenAiStrategy implements AiStrategy {
@@ -21,11 +22,20 @@ public class OpenAiStrategy implements AiStrategy {
     private final String key;
 
     private final OpenAiService service;
+    private final Consumer<AiProviderException> retryListener;
 
     public OpenAiStrategy(String name, String model, String key) {
+        this(name, model, key, failure -> {});
+    }
+
+    /**
+     * @param retryListener notified of every failed attempt that is retried, e.g. to slow down on 429
+     */
+    public OpenAiStrategy(String name, String model, String key, Consumer<AiProviderException> retryListener) {
         this.name = name;
         this.model = model;
         this.key = key;
+        this.retryListener = retryListener;
 
         this.service = new OpenAiService(key, Duration.ofSeconds(60));
     }
@@ -35,6 +45,11 @@ public class OpenAiStrategy implements AiStrategy {
         return name;
     }
 
+    @Override
+    public String getModel() {
+        return model;
+    }
+
     @Override
     public boolean isEnabled() {
         return key != null && !key.isBlank();
@@ -43,11 +58,7 @@ public class OpenAiStrategy implements AiStrategy {
     @Override
     public String analyze(String prompt) throws Exception{
 
-        ChatMessage system = new ChatMessage("system", """
-            You are an expert log analyst. 
-            Return only JSON with fields:
-            severity, category, summarizedIssue, likelyCause, recommendation, anomalyScore
-            """);
+        ChatMessage system = new ChatMessage("system", AiPrompts.SYSTEM);
 
         ChatMessage user = new ChatMessage("user", prompt);
 
@@ -55,7 +66,7 @@ public class OpenAiStrategy implements AiStrategy {
                 .model(model)
                 .messages(List.of(system, user))
                 .temperature(0.0)
-                .maxTokens(700)
+                .maxTokens(AiPrompts.MAX_COMPLETION_TOKENS)
                 .n(1)
                 .build();
 
@@ -69,11 +80,12 @@ public class OpenAiStrategy implements AiStrategy {
     }
 
     /**
-     * Retry wrapper for createChatCompletion. Retries on rate-limit errors with exponential backoff.
+     * Retry wrapper for createChatCompletion. Retries rate limits and server errors with exponential
+     * backoff, decided by the HTTP status of the failure instead of its message.
      *
      * @param request the chat completion request
      * @return the ChatCompletionResult
-     * @throws OpenAiHttpException if non-retriable or max retries exceeded
+     * @throws AiProviderException if non-retriable or max retries exceeded
      */
     private ChatCompletionResult callOpenAIWithRetry(ChatCompletionRequest request) {
         int maxRetries = 5;
@@ -84,23 +96,18 @@ public class OpenAiStrategy implements AiStrategy {
             try {
                 return service.createChatCompletion(request);
             } catch (OpenAiHttpException ex) {
-                String msg = ex.getMessage();
-                if (msg != null && msg.contains("Rate limit")) {
-                    attempt++;
-                    if (attempt > maxRetries) {
-                        throw ex; // exceed retries -> bubble up
-                    }
-                    try {
-                        Thread.sleep(backoff);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interrupted during backoff", ie);
-                    }
-                    backoff *= 2;
-                    continue;
+                AiProviderException failure = new AiProviderException(ex.statusCode, ex.getMessage(), null, ex);
+                if (!failure.isRetryable() || ++attempt > maxRetries) {
+                    throw failure;
+                }
+                retryListener.accept(failure);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted during backoff", ie);
                 }
-                // not a rate-limit error -> rethrow
-                throw ex;
+                backoff *= 2;
             }
         }
     }
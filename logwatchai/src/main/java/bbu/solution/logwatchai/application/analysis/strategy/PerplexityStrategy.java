@@ -21,6 +21,11 @@ public class PerplexityStrategy implements AiStrategy {
         return name;
     }
 
+    @Override
+    public String getModel() {
+        return model;
+    }
+
     @Override
     public boolean isEnabled() {
         return key != null && !key.isBlank();
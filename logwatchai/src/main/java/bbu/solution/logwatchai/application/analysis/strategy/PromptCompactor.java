@@ -0,0 +1,237 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiPromptConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Shortens the log text of a prompt so the whole prompt fits into the configured token limit.
+ *
+ * <p>Every line is cleaned first: ANSI escape sequences and other control characters are
+ * removed, runs of blanks inside a line become one blank, and repeated stack frames (a frame
+ * repeated by recursion, or a short cycle of frames) are collapsed into one marker line. If the
+ * text still does not fit, I shorten it step by step:</p>
+ * <ol>
+ *     <li>every line longer than {@code maxLineChars} keeps its start and end,</li>
+ *     <li>a multi-line entry keeps its first {@code headLines} and last {@code tailLines} lines
+ *         and every exception line ({@code Caused by:}, {@code ...Exception: ...}) in between,</li>
+ *     <li>whatever is still too long keeps two thirds of the budget from its start and one third
+ *         from its end.</li>
+ * </ol>
+ * <p>Every cut is replaced by a short marker telling the model how much was left out.</p>
+ *
+ * <p>Token counts are estimated like {@link AiPrompts#estimatePromptTokens(String)}, about four
+ * characters per token, before the request is built.</p>
+ */
+public class PromptCompactor {
+
+    /** Log characters a line keeps in a batch, however many lines share the budget. */
+    private static final int MIN_BATCH_LINE_CHARS = 120;
+
+    /** Longest cycle of frames that is collapsed, e.g. a recursion over three methods. */
+    private static final int MAX_FRAME_CYCLE = 4;
+
+    private static final Pattern ANSI = Pattern.compile("\u001B(?:\\[[0-?]*[ -/]*[@-~]|[@-Z\\\\-_])");
+    private static final Pattern CONTROL = Pattern.compile("[\\p{Cntrl}&&[^\n\t]]");
+    private static final Pattern BLANKS = Pattern.compile("[ \t]{2,}");
+    private static final Pattern EXCEPTION_LINE = Pattern.compile(
+            "^\\s*(Caused by:|Suppressed:|[\\w$.]*(Exception|Error|Throwable)\\b(:|$))");
+
+    private final int maxPromptTokens;
+    private final int maxLineChars;
+    private final int headLines;
+    private final int tailLines;
+
+    /**
+     * @param config the prompt size limits
+     */
+    public PromptCompactor(AiPromptConfig config) {
+        this.maxPromptTokens = Math.max(1, config.getMaxPromptTokens());
+        this.maxLineChars = Math.max(80, config.getMaxLineChars());
+        this.headLines = Math.max(1, config.getHeadLines());
+        this.tailLines = Math.max(1, config.getTailLines());
+    }
+
+    /**
+     * Compacts the log text of a single-line prompt.
+     *
+     * @param rawLog the raw log entry, possibly with several lines
+     * @return the text to pass to {@link AiPrompts#single(String)}
+     */
+    public String compact(String rawLog) {
+        return compact(rawLog, "");
+    }
+
+    /**
+     * Compacts the log text of a single-line prompt that also carries a context section. The
+     * context is bounded by its own configuration and shortens the budget of the line.
+     *
+     * @param rawLog  the raw log entry, possibly with several lines
+     * @param context the summary of the preceding lines, empty for none
+     * @return the text to pass to {@link AiPrompts#single(String, String)}
+     */
+    public String compact(String rawLog, String context) {
+        return compact(rawLog, budgetChars(AiPrompts.singleOverheadChars() + AiPrompts.contextOverheadChars(context)));
+    }
+
+    /**
+     * Compacts the log lines of a batch prompt. The budget is shared evenly by the lines, and
+     * every line is flattened to one prompt line, since the batch layout has one line per entry.
+     *
+     * @param rawLogs the raw log entries
+     * @return the texts to pass to {@link AiPrompts#batch(List)}, in the same order
+     */
+    public List<String> compactBatch(List<String> rawLogs) {
+        return compactBatch(rawLogs, "");
+    }
+
+    /**
+     * Compacts the log lines of a batch prompt that also carries a context section.
+     *
+     * @param rawLogs the raw log entries
+     * @param context the summary of the preceding lines, empty for none
+     * @return the texts to pass to {@link AiPrompts#batch(List, String)}, in the same order
+     */
+    public List<String> compactBatch(List<String> rawLogs, String context) {
+        if (rawLogs.isEmpty()) return List.of();
+        int overhead = AiPrompts.batchOverheadChars(rawLogs.size()) + AiPrompts.contextOverheadChars(context);
+        int perLine = Math.max(MIN_BATCH_LINE_CHARS, budgetChars(overhead) / rawLogs.size());
+        List<String> compacted = new ArrayList<>(rawLogs.size());
+        for (String rawLog : rawLogs) {
+            // flattening lengthens the text by the separators, so the result is cut once more
+            compacted.add(cut(flatten(compact(rawLog, perLine)), perLine));
+        }
+        return compacted;
+    }
+
+    /**
+     * Compacts a log text to at most the given number of characters.
+     *
+     * @param rawLog   the raw log text
+     * @param maxChars the character budget of the text
+     * @return the compacted text
+     */
+    String compact(String rawLog, int maxChars) {
+        if (rawLog == null) return "";
+        List<String> lines = collapseRepeats(clean(rawLog));
+        String text = String.join("\n", lines);
+        if (text.length() <= maxChars) return text;
+
+        List<String> shortened = new ArrayList<>(lines.size());
+        for (String line : lines) shortened.add(cut(line, Math.min(maxLineChars, maxChars)));
+        text = String.join("\n", shortened);
+        if (text.length() <= maxChars) return text;
+
+        text = String.join("\n", keepHeadTailAndExceptions(shortened));
+        return cut(text, maxChars);
+    }
+
+    private int budgetChars(int overheadChars) {
+        return Math.max(MIN_BATCH_LINE_CHARS, maxPromptTokens * 4 - overheadChars);
+    }
+
+    private static String flatten(String text) {
+        return text.replace("\n", " | ");
+    }
+
+    /**
+     * Removes escape sequences and control characters and collapses blanks inside each line.
+     */
+    private static List<String> clean(String rawLog) {
+        String text = ANSI.matcher(rawLog.replace("\r\n", "\n").replace('\r', '\n')).replaceAll("");
+        text = CONTROL.matcher(text).replaceAll("");
+
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n", -1)) {
+            int indent = 0;
+            while (indent < line.length() && (line.charAt(indent) == ' ' || line.charAt(indent) == '\t')) indent++;
+            String body = BLANKS.matcher(line.substring(indent)).replaceAll(" ").stripTrailing();
+            lines.add(body.isEmpty() ? "" : line.substring(0, indent) + body);
+        }
+        // trailing empty lines carry nothing
+        while (lines.size() > 1 && lines.getLast().isEmpty()) lines.removeLast();
+        return lines;
+    }
+
+    /**
+     * Replaces directly repeated lines or short cycles of lines with one marker line.
+     */
+    private static List<String> collapseRepeats(List<String> lines) {
+        List<String> out = new ArrayList<>(lines.size());
+        int i = 0;
+        while (i < lines.size()) {
+            boolean collapsed = false;
+            for (int cycle = 1; cycle <= MAX_FRAME_CYCLE && !collapsed; cycle++) {
+                int repeats = 0;
+                while (repeatsTail(out, lines, i, cycle)) {
+                    i += cycle;
+                    repeats++;
+                }
+                if (repeats > 0) {
+                    out.add(indentOf(out.getLast()) + "... [previous " + (cycle == 1 ? "line" : cycle + " lines")
+                            + " repeated " + repeats + (repeats == 1 ? " more time]" : " more times]"));
+                    collapsed = true;
+                }
+            }
+            if (!collapsed) out.add(lines.get(i++));
+        }
+        return out;
+    }
+
+    private static boolean repeatsTail(List<String> out, List<String> lines, int from, int cycle) {
+        if (out.size() < cycle || from + cycle > lines.size()) return false;
+        for (int k = 0; k < cycle; k++) {
+            String line = lines.get(from + k);
+            if (line.isBlank() || !line.equals(out.get(out.size() - cycle + k))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the head and tail lines and the exception lines between them.
+     */
+    private List<String> keepHeadTailAndExceptions(List<String> lines) {
+        if (lines.size() <= headLines + tailLines) return lines;
+        List<String> kept = new ArrayList<>();
+        int omitted = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            boolean keep = i < headLines || i >= lines.size() - tailLines || EXCEPTION_LINE.matcher(line).find();
+            if (!keep) {
+                omitted++;
+                continue;
+            }
+            if (omitted > 0) {
+                kept.add("... [" + omitted + " lines omitted]");
+                omitted = 0;
+            }
+            kept.add(line);
+        }
+        return kept;
+    }
+
+    /**
+     * Keeps two thirds of the budget from the start of the text and one third from its end.
+     */
+    private static String cut(String text, int maxChars) {
+        if (text.length() <= maxChars) return text;
+        // the marker never gets longer than with the full length as count
+        int keep = Math.max(0, maxChars - marker(text.length()).length());
+        String marker = marker(text.length() - keep);
+        int head = keep * 2 / 3;
+        int tail = keep - head;
+        return text.substring(0, head) + marker + text.substring(text.length() - tail);
+    }
+
+    private static String marker(int omitted) {
+        return " ... [" + omitted + " chars omitted] ... ";
+    }
+
+    private static String indentOf(String line) {
+        int indent = 0;
+        while (indent < line.length() && (line.charAt(indent) == ' ' || line.charAt(indent) == '\t')) indent++;
+        return line.substring(0, indent);
+    }
+}
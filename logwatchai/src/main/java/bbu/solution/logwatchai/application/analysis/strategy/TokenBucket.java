@@ -0,0 +1,72 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket for one per-minute provider limit (requests or tokens).
+ * <p>
+ * The bucket holds at most one minute's worth and refills continuously. Unlike a strict bucket
+ * I allow a debt: usage that is only known after a call (real token counts, retries) is charged
+ * even if the bucket is empty, and later callers simply wait until the debt is paid back.
+ * </p>
+ * <p>I am not thread-safe; callers have to synchronize.</p>
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefill;
+
+    /**
+     * @param perMinute allowed amount per minute, must be positive
+     * @param now       current {@link System#nanoTime()}
+     */
+    TokenBucket(long perMinute, long now) {
+        this.capacity = perMinute;
+        this.refillPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.available = perMinute;
+        this.lastRefill = now;
+    }
+
+    /**
+     * Returns how long a caller has to wait until the given amount is available.
+     * Amounts above the capacity only wait for a full bucket, so they are never blocked forever.
+     *
+     * @param amount the amount to take
+     * @param now    current {@link System#nanoTime()}
+     * @return the wait in nanoseconds, 0 if the amount can be taken right away
+     */
+    long waitNanos(double amount, long now) {
+        refill(now);
+        double missing = Math.min(amount, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    /**
+     * Takes the amount, going into debt if necessary. A negative amount gives tokens back.
+     *
+     * @param amount the amount to take
+     * @param now    current {@link System#nanoTime()}
+     */
+    void take(double amount, long now) {
+        refill(now);
+        available = Math.min(capacity, available - amount);
+    }
+
+    /**
+     * @param now current {@link System#nanoTime()}
+     * @return the currently available amount, negative while in debt
+     */
+    double available(long now) {
+        refill(now);
+        return available;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
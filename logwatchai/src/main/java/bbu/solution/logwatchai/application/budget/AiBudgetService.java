@@ -0,0 +1,437 @@
+package bbu.solution.logwatchai.application.budget;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.LocalStatisticalStrategy;
+import bbu.solution.logwatchai.domain.appconfig.AiBudgetConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import bbu.solution.logwatchai.domain.budget.AiUsage;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.budget.AiUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks the tokens and the estimated cost of provider calls and decides how far the analysis
+ * has to degrade to stay within the budget.
+ *
+ * <p>Every completed provider call is recorded per day, strategy and log source. The token counts
+ * are the usage reported by the provider; if a provider reports none, I estimate four characters
+ * per token. The cost is estimated from the prices configured per model. Usage is collected in
+ * memory and added to the {@code ai_usage} table periodically; after each flush I reload the
+ * day's totals, so all instances see the usage of the others and a restart keeps the budget.</p>
+ *
+ * <p>The used share of the budget is the highest of daily tokens, daily cost and monthly cost
+ * against their limits, or of the source's daily tokens against the per-source limit. From it
+ * follows the {@link BudgetLevel}: a raised triage threshold, then cache-only analysis, then the
+ * local analyzer for everything.</p>
+ *
+ * <p>I publish {@code logwatchai.ai.usage.tokens} and {@code logwatchai.ai.usage.cost} per
+ * strategy, and {@code logwatchai.ai.budget.remaining}, {@code .used.ratio}, {@code .burn.rate}
+ * (per minute over the last ten minutes) and {@code .level}.</p>
+ */
+@Slf4j
+@Component
+public class AiBudgetService {
+
+    /** Stands for calls without a source. */
+    private static final UUID NO_SOURCE = new UUID(0, 0);
+
+    /** Minutes the burn rate is averaged over. */
+    private static final int BURN_WINDOW_MINUTES = 10;
+
+    private final AiBudgetConfig config;
+    private final Map<String, AiModelEntry> models = new HashMap<>();
+    private final AiUsageRepository repository;
+    private final MeterRegistry registry;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /** Guarded by this. */
+    private LocalDate day;
+    private long dayTokens;
+    private double dayCost;
+    private double monthCost;
+    private final Map<UUID, Long> sourceTokens = new HashMap<>();
+    private Map<UsageKey, Usage> pending = new HashMap<>();
+    private BudgetLevel lastLevel = BudgetLevel.NORMAL;
+
+    /** Per-minute buckets of the burn rate. Guarded by this. */
+    private final long[] burnMinute = new long[BURN_WINDOW_MINUTES];
+    private final long[] burnTokens = new long[BURN_WINDOW_MINUTES];
+    private final double[] burnCost = new double[BURN_WINDOW_MINUTES];
+
+    /**
+     * Creates the budget service.
+     *
+     * @param analysisConfig provides the budget configuration and the model prices
+     * @param repository persistent daily usage
+     * @param registry the meter registry for usage and budget metrics
+     */
+    public AiBudgetService(AnalysisConfigProperties analysisConfig,
+                           AiUsageRepository repository,
+                           MeterRegistry registry) {
+        this.config = analysisConfig.getBudget();
+        this.repository = repository;
+        this.registry = registry;
+        this.day = LocalDate.now(zone);
+
+        List<AiModelEntry> entries = analysisConfig.getAi().getModels();
+        if (entries != null) {
+            for (AiModelEntry entry : entries) {
+                if (entry.getName() != null) models.putIfAbsent(entry.getName(), entry);
+            }
+        }
+
+        if (config.getDailyTokenLimit() > 0) {
+            Gauge.builder("logwatchai.ai.budget.remaining", this, s -> Math.max(0, config.getDailyTokenLimit() - s.getDayTokens()))
+                    .description("Remaining AI budget")
+                    .tag("limit", "daily-tokens")
+                    .register(registry);
+        }
+        if (config.getDailyCostLimit() > 0) {
+            Gauge.builder("logwatchai.ai.budget.remaining", this, s -> Math.max(0.0, config.getDailyCostLimit() - s.getDayCost()))
+                    .description("Remaining AI budget")
+                    .tag("limit", "daily-cost")
+                    .register(registry);
+        }
+        if (config.getMonthlyCostLimit() > 0) {
+            Gauge.builder("logwatchai.ai.budget.remaining", this, s -> Math.max(0.0, config.getMonthlyCostLimit() - s.getMonthCost()))
+                    .description("Remaining AI budget")
+                    .tag("limit", "monthly-cost")
+                    .register(registry);
+        }
+        Gauge.builder("logwatchai.ai.budget.used.ratio", this, AiBudgetService::usedShare)
+                .description("Used share of the tightest AI budget limit")
+                .register(registry);
+        Gauge.builder("logwatchai.ai.budget.burn.rate", this, AiBudgetService::tokenBurnRate)
+                .description("AI usage per minute over the last ten minutes")
+                .tag("unit", "tokens")
+                .register(registry);
+        Gauge.builder("logwatchai.ai.budget.burn.rate", this, AiBudgetService::costBurnRate)
+                .description("AI usage per minute over the last ten minutes")
+                .tag("unit", "cost")
+                .register(registry);
+        Gauge.builder("logwatchai.ai.budget.level", this, s -> s.currentLevel().ordinal())
+                .description("Degradation level: 0 normal, 1 tightened triage, 2 cache only, 3 local only")
+                .register(registry);
+    }
+
+    /**
+     * Loads the usage of the current day and month.
+     */
+    @PostConstruct
+    public void warmUp() {
+        reload();
+        log.info("AI budget {}: {} tokens and {} cost used today",
+                config.isEnabled() ? "enabled" : "tracking only", getDayTokens(), String.format("%.4f", getDayCost()));
+    }
+
+    /**
+     * Records one completed provider call. Calls of the local analyzer cost nothing and are skipped.
+     *
+     * @param strategy   the strategy that answered
+     * @param prompt     the prompt sent
+     * @param completion the answer with its reported token usage
+     * @param sourceId   the log source the prompt belongs to, may be null
+     */
+    public void record(AiStrategy strategy, String prompt, AiCompletion completion, UUID sourceId) {
+        if (strategy instanceof LocalStatisticalStrategy) return;
+        record(strategy.getName(), prompt, completion, sourceId);
+    }
+
+    /**
+     * Records one completed provider call that was not made by a strategy, e.g. one line of a
+     * deferred provider batch.
+     *
+     * @param strategy   the name of the model entry that answered
+     * @param prompt     the prompt sent, or null if only the reported usage is known
+     * @param completion the answer with its reported token usage
+     * @param sourceId   the log source the prompt belongs to, may be null
+     */
+    public void record(String strategy, String prompt, AiCompletion completion, UUID sourceId) {
+        if (completion == null) return;
+
+        long promptTokens = completion.promptTokens();
+        long completionTokens = completion.completionTokens();
+        if (promptTokens + completionTokens == 0) {
+            // the provider reported no usage
+            promptTokens = prompt == null ? 0 : (prompt.length() + 3) / 4;
+            completionTokens = completion.content() == null ? 0 : (completion.content().length() + 3) / 4;
+        }
+        double cost = estimateCost(strategy, promptTokens, completionTokens);
+        long tokens = promptTokens + completionTokens;
+        UUID source = sourceId == null ? NO_SOURCE : sourceId;
+
+        synchronized (this) {
+            roll();
+            dayTokens += tokens;
+            dayCost += cost;
+            monthCost += cost;
+            sourceTokens.merge(source, tokens, Long::sum);
+            pending.computeIfAbsent(new UsageKey(day, strategy, source), k -> new Usage())
+                    .add(1, promptTokens, completionTokens, cost);
+
+            long minute = System.currentTimeMillis() / 60_000;
+            int bucket = (int) (minute % BURN_WINDOW_MINUTES);
+            if (burnMinute[bucket] != minute) {
+                burnMinute[bucket] = minute;
+                burnTokens[bucket] = 0;
+                burnCost[bucket] = 0.0;
+            }
+            burnTokens[bucket] += tokens;
+            burnCost[bucket] += cost;
+        }
+
+        Counter.builder("logwatchai.ai.usage.tokens")
+                .description("Tokens used by provider calls")
+                .tags("strategy", strategy, "type", "prompt")
+                .register(registry)
+                .increment(promptTokens);
+        Counter.builder("logwatchai.ai.usage.tokens")
+                .description("Tokens used by provider calls")
+                .tags("strategy", strategy, "type", "completion")
+                .register(registry)
+                .increment(completionTokens);
+        Counter.builder("logwatchai.ai.usage.cost")
+                .description("Estimated cost of provider calls")
+                .tag("strategy", strategy)
+                .register(registry)
+                .increment(cost);
+    }
+
+    /**
+     * Estimates the cost of a call from the prices configured for the strategy.
+     *
+     * @param strategy         the strategy name
+     * @param promptTokens     the prompt tokens
+     * @param completionTokens the completion tokens
+     * @return the estimated cost, 0 if no price is configured
+     */
+    public double estimateCost(String strategy, long promptTokens, long completionTokens) {
+        AiModelEntry model = models.get(strategy);
+        return model == null ? 0.0
+                : (promptTokens * model.getInputCostPerMillion() + completionTokens * model.getOutputCostPerMillion()) / 1_000_000.0;
+    }
+
+    /**
+     * Returns how far the analysis of a source has to degrade.
+     *
+     * @param sourceId the log source, or null for the overall level
+     * @return the current level; always {@link BudgetLevel#NORMAL} if the budget is disabled
+     */
+    public BudgetLevel level(UUID sourceId) {
+        if (!config.isEnabled()) return BudgetLevel.NORMAL;
+
+        double used;
+        BudgetLevel previous;
+        BudgetLevel overall;
+        synchronized (this) {
+            used = usedShare();
+            overall = levelOf(used);
+            previous = lastLevel;
+            lastLevel = overall;
+            if (sourceId != null && config.getSourceDailyTokenLimit() > 0) {
+                long tokens = sourceTokens.getOrDefault(sourceId, 0L);
+                used = Math.max(used, (double) tokens / config.getSourceDailyTokenLimit());
+            }
+        }
+        if (overall != previous) {
+            log.warn("AI budget level changed from {} to {} ({}% used)", previous, overall, Math.round(usedShare() * 100));
+        }
+        return levelOf(used);
+    }
+
+    /**
+     * Returns the overall level without noting it as seen, so reading it (e.g. from the level
+     * gauge) neither logs nor hides a level change.
+     *
+     * @return the current overall level; always {@link BudgetLevel#NORMAL} if the budget is disabled
+     */
+    public BudgetLevel currentLevel() {
+        return config.isEnabled() ? levelOf(usedShare()) : BudgetLevel.NORMAL;
+    }
+
+    /**
+     * Returns the triage threshold to apply for a source: the given one while the budget is
+     * available, at least the tightened one otherwise.
+     *
+     * @param sourceId  the log source
+     * @param threshold the configured threshold
+     * @return the threshold to apply
+     */
+    public double triageThreshold(UUID sourceId, double threshold) {
+        return level(sourceId) == BudgetLevel.NORMAL ? threshold : Math.max(threshold, config.getTightenedThreshold());
+    }
+
+    /**
+     * @return the used share of the tightest overall limit; 0 if no limit is set
+     */
+    public synchronized double usedShare() {
+        roll();
+        double used = 0.0;
+        if (config.getDailyTokenLimit() > 0) used = Math.max(used, (double) dayTokens / config.getDailyTokenLimit());
+        if (config.getDailyCostLimit() > 0) used = Math.max(used, dayCost / config.getDailyCostLimit());
+        if (config.getMonthlyCostLimit() > 0) used = Math.max(used, monthCost / config.getMonthlyCostLimit());
+        return used;
+    }
+
+    public synchronized long getDayTokens() { roll(); return dayTokens; }
+    public synchronized double getDayCost() { roll(); return dayCost; }
+    public synchronized double getMonthCost() { roll(); return monthCost; }
+
+    /**
+     * @return tokens per minute over the last ten minutes
+     */
+    public synchronized double tokenBurnRate() {
+        long current = System.currentTimeMillis() / 60_000;
+        long sum = 0;
+        for (int i = 0; i < BURN_WINDOW_MINUTES; i++) {
+            if (current - burnMinute[i] < BURN_WINDOW_MINUTES) sum += burnTokens[i];
+        }
+        return (double) sum / BURN_WINDOW_MINUTES;
+    }
+
+    /**
+     * @return estimated cost per minute over the last ten minutes
+     */
+    public synchronized double costBurnRate() {
+        long current = System.currentTimeMillis() / 60_000;
+        double sum = 0;
+        for (int i = 0; i < BURN_WINDOW_MINUTES; i++) {
+            if (current - burnMinute[i] < BURN_WINDOW_MINUTES) sum += burnCost[i];
+        }
+        return sum / BURN_WINDOW_MINUTES;
+    }
+
+    /**
+     * Adds the collected usage to the database and reloads the totals, which then include the
+     * usage of other instances. Updates that fail are kept and retried with the next flush.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.budget.flush-interval-ms:10000}",
+            initialDelayString = "${app.budget.flush-interval-ms:10000}")
+    public void flush() {
+        Map<UsageKey, Usage> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        for (Map.Entry<UsageKey, Usage> e : batch.entrySet()) {
+            UsageKey key = e.getKey();
+            Usage usage = e.getValue();
+            try {
+                repository.add(UuidBytes.toBytes(key.id()), key.day(), key.strategy(), UuidBytes.toBytes(key.sourceId()),
+                        usage.calls, usage.promptTokens, usage.completionTokens, usage.cost);
+            } catch (DataAccessException ex) {
+                log.warn("Could not store AI usage of {}: {}", key.strategy(), ex.getMessage());
+                synchronized (this) {
+                    pending.computeIfAbsent(key, k -> new Usage()).add(usage.calls, usage.promptTokens, usage.completionTokens, usage.cost);
+                }
+            }
+        }
+        reload();
+    }
+
+    /**
+     * Replaces the totals of the current day and month by the stored ones plus what is not flushed yet.
+     */
+    private void reload() {
+        LocalDate today = LocalDate.now(zone);
+        List<AiUsage> rows;
+        double storedMonthCost;
+        try {
+            rows = repository.findByDay(today);
+            storedMonthCost = repository.sumCost(today.withDayOfMonth(1), today);
+        } catch (DataAccessException e) {
+            log.warn("Could not load AI usage: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            roll();
+            if (!day.equals(today)) return;
+            dayTokens = 0;
+            dayCost = 0.0;
+            monthCost = storedMonthCost;
+            sourceTokens.clear();
+            for (AiUsage row : rows) {
+                dayTokens += row.getTotalTokens();
+                dayCost += row.getCost();
+                sourceTokens.merge(row.getSourceId(), row.getTotalTokens(), Long::sum);
+            }
+            for (Map.Entry<UsageKey, Usage> e : pending.entrySet()) {
+                Usage usage = e.getValue();
+                if (e.getKey().day().getMonth() == day.getMonth() && e.getKey().day().getYear() == day.getYear()) {
+                    monthCost += usage.cost;
+                }
+                if (!e.getKey().day().equals(day)) continue;
+                dayTokens += usage.promptTokens + usage.completionTokens;
+                dayCost += usage.cost;
+                sourceTokens.merge(e.getKey().sourceId(), usage.promptTokens + usage.completionTokens, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Starts new totals when the day or month has changed. Called while holding the lock.
+     */
+    private void roll() {
+        LocalDate today = LocalDate.now(zone);
+        if (today.equals(day)) return;
+        if (today.getMonth() != day.getMonth() || today.getYear() != day.getYear()) monthCost = 0.0;
+        day = today;
+        dayTokens = 0;
+        dayCost = 0.0;
+        sourceTokens.clear();
+    }
+
+    private BudgetLevel levelOf(double used) {
+        if (used >= config.getLocalAt()) return BudgetLevel.LOCAL;
+        if (used >= config.getCacheOnlyAt()) return BudgetLevel.CACHE_ONLY;
+        if (used >= config.getTightenAt()) return BudgetLevel.TIGHTENED;
+        return BudgetLevel.NORMAL;
+    }
+
+    /**
+     * Identifies one row of the usage table.
+     */
+    private record UsageKey(LocalDate day, String strategy, UUID sourceId) {
+        UUID id() {
+            return UUID.nameUUIDFromBytes((day + "|" + strategy + "|" + sourceId).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Usage not yet added to the database.
+     */
+    private static final class Usage {
+        private long calls;
+        private long promptTokens;
+        private long completionTokens;
+        private double cost;
+
+        private void add(long calls, long promptTokens, long completionTokens, double cost) {
+            this.calls += calls;
+            this.promptTokens += promptTokens;
+            this.completionTokens += completionTokens;
+            this.cost += cost;
+        }
+    }
+}
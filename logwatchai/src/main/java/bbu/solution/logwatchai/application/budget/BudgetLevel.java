@@ -0,0 +1,19 @@
+package bbu.solution.logwatchai.application.budget;
+
+/**
+ * Degradation steps of the analysis as the AI budget is used up.
+ */
+public enum BudgetLevel {
+
+    /** Budget available; the analysis works as configured. */
+    NORMAL,
+
+    /** The triage threshold is raised, so fewer lines reach a provider. */
+    TIGHTENED,
+
+    /** No new provider calls; cached analyses are reused, all other lines are analyzed locally. */
+    CACHE_ONLY,
+
+    /** Budget used up; every line is answered by the local analyzer. */
+    LOCAL
+}
@@ -0,0 +1,212 @@
+package bbu.solution.logwatchai.application.context;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.domain.appconfig.AiContextConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.template.LogTemplateNormalizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the last lines of every source in memory, so the prompt of a line can tell the model what
+ * the source logged right before it.
+ *
+ * <p>Every source has a ring buffer of at most {@code events} lines and {@code maxBytesPerSource}
+ * bytes; the oldest line is dropped first. A line is stored compactly: only its first line, cut to
+ * {@code maxLineChars}, as UTF-8 bytes, next to its ingestion time and a key of its template. The
+ * stored text is the redacted line, so the window never holds a secret. At most
+ * {@code maxSources} sources have a window, which bounds the memory of the whole window.</p>
+ *
+ * <p>The summary of a window merges the lines of one template into a single line with a count,
+ * and lists the merged lines by their last occurrence, oldest first. Only lines ingested before
+ * the analyzed line are part of it, even if the analysis runs later.</p>
+ *
+ * <p>The window is local to this instance and starts empty after a restart.</p>
+ */
+@Component
+public class SourceContextWindow {
+
+    private final boolean enabled;
+    private final int events;
+    private final int maxBytes;
+    private final int maxLineChars;
+    private final int maxSummaryLines;
+
+    /** Windows by source, the least recently written first. */
+    private final Map<UUID, Ring> windows;
+
+    /**
+     * @param config null-safe access to the context window configuration
+     */
+    @Autowired
+    public SourceContextWindow(AnalysisConfigProperties config) {
+        this(config.getContext());
+    }
+
+    /**
+     * @param config the context window configuration
+     */
+    public SourceContextWindow(AiContextConfig config) {
+        this.enabled = config.isEnabled() && config.getEvents() > 0 && config.getMaxSummaryLines() > 0;
+        this.events = Math.max(1, config.getEvents());
+        this.maxLineChars = Math.max(20, config.getMaxLineChars());
+        this.maxBytes = Math.max(maxLineChars * 4, config.getMaxBytesPerSource());
+        this.maxSummaryLines = config.getMaxSummaryLines();
+        int maxSources = Math.max(1, config.getMaxSources());
+        this.windows = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Ring> eldest) {
+                return size() > maxSources;
+            }
+        };
+    }
+
+    /**
+     * Adds a stored line to the window of its source.
+     *
+     * @param entry        the stored log entry, with its level and template assigned
+     * @param redactedText the raw text of the entry as masked by the
+     *                     {@link bbu.solution.logwatchai.application.redaction.LogRedactor}
+     */
+    public void record(LogEntry entry, String redactedText) {
+        if (!enabled || entry.getSourceId() == null || redactedText == null) return;
+        String text = firstLine(redactedText);
+        if (text.isBlank()) return;
+        long key = entry.getTemplateId() != null
+                ? entry.getTemplateId().getMostSignificantBits() * 31 + entry.getTemplateId().getLeastSignificantBits()
+                : LogTemplateNormalizer.normalize(text).hashCode();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        Ring ring;
+        synchronized (windows) {
+            // re-inserting moves the source to the end, so the least recently written one is dropped
+            ring = windows.remove(entry.getSourceId());
+            if (ring == null) ring = new Ring(events);
+            windows.put(entry.getSourceId(), ring);
+        }
+        ring.add(nanos(entry.getIngestionTime()), key, bytes, maxBytes);
+    }
+
+    /**
+     * Summarizes the lines the source of an entry logged before it.
+     *
+     * @param entry the analyzed log entry
+     * @return one line per distinct preceding line, empty if there are none
+     */
+    public String summarize(LogEntry entry) {
+        return summarize(List.of(entry));
+    }
+
+    /**
+     * Summarizes the lines a source logged before the earliest of the given entries.
+     *
+     * @param entries the analyzed log entries, all of one source
+     * @return one line per distinct preceding line, empty if there are none
+     */
+    public String summarize(Collection<LogEntry> entries) {
+        if (!enabled || entries.isEmpty()) return "";
+        UUID sourceId = entries.iterator().next().getSourceId();
+        if (sourceId == null) return "";
+        long before = entries.stream()
+                .mapToLong(entry -> nanos(entry.getIngestionTime()))
+                .min()
+                .orElse(Long.MAX_VALUE);
+
+        Ring ring;
+        synchronized (windows) {
+            ring = windows.get(sourceId);
+        }
+        return ring == null ? "" : ring.summarize(before, maxSummaryLines);
+    }
+
+    private String firstLine(String text) {
+        int end = text.indexOf('\n');
+        String line = (end < 0 ? text : text.substring(0, end)).strip();
+        return line.length() <= maxLineChars ? line : line.substring(0, maxLineChars) + " ...";
+    }
+
+    private static long nanos(Instant time) {
+        // entries without ingestion time count as just ingested
+        Instant t = time != null ? time : Instant.now();
+        return t.getEpochSecond() * 1_000_000_000L + t.getNano();
+    }
+
+    /**
+     * The lines of one source in insertion order, the oldest at {@code head}.
+     */
+    private static final class Ring {
+        private final long[] times;
+        private final long[] keys;
+        private final byte[][] texts;
+        private int head;
+        private int size;
+        private int bytes;
+
+        private Ring(int capacity) {
+            times = new long[capacity];
+            keys = new long[capacity];
+            texts = new byte[capacity][];
+        }
+
+        private synchronized void add(long time, long key, byte[] text, int maxBytes) {
+            while (size > 0 && (size == texts.length || bytes + text.length > maxBytes)) {
+                bytes -= texts[head].length;
+                texts[head] = null;
+                head = (head + 1) % texts.length;
+                size--;
+            }
+            int slot = (head + size) % texts.length;
+            times[slot] = time;
+            keys[slot] = key;
+            texts[slot] = text;
+            bytes += text.length;
+            size++;
+        }
+
+        private synchronized String summarize(long before, int maxLines) {
+            Map<Long, Group> groups = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) % texts.length;
+                if (times[slot] >= before) continue;
+                Group group = groups.computeIfAbsent(keys[slot], k -> new Group());
+                group.count++;
+                group.last = i;
+                group.text = texts[slot];
+            }
+            if (groups.isEmpty()) return "";
+
+            List<Group> ordered = new ArrayList<>(groups.values());
+            ordered.sort(Comparator.comparingInt(group -> group.last));
+            StringBuilder sb = new StringBuilder();
+            int omitted = 0;
+            for (int i = 0; i < ordered.size() - maxLines; i++) omitted += ordered.get(i).count;
+            if (omitted > 0) sb.append("- ... ").append(omitted).append(" earlier lines omitted\n");
+            for (Group group : ordered.subList(Math.max(0, ordered.size() - maxLines), ordered.size())) {
+                sb.append("- ");
+                if (group.count > 1) sb.append(group.count).append("x ");
+                sb.append(new String(group.text, StandardCharsets.UTF_8)).append('\n');
+            }
+            sb.setLength(sb.length() - 1);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The lines of one template within a summary; the text is the latest of them.
+     */
+    private static final class Group {
+        private int count;
+        private int last;
+        private byte[] text;
+    }
+}
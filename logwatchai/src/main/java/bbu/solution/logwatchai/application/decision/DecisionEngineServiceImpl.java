@@ -5,6 +5,7 @@ import bbu.solution.logwatchai.domain.alert.Alert;
 import bbu.solution.logwatchai.domain.alert.AlertService;
 import bbu.solution.logwatchai.domain.alert.events.AlertCreatedEvent;
 import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.events.PreliminaryAnalysisEvent;
 import bbu.solution.logwatchai.domain.decision.DecisionOutcome;
 import bbu.solution.logwatchai.domain.decision.DecisionEngineService;
 import bbu.solution.logwatchai.domain.log.LogEntry;
@@ -12,9 +13,15 @@ import bbu.solution.logwatchai.domain.rule.Rule;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Slf4j
 @Service
@@ -22,13 +29,37 @@ import java.util.List;
 /**
  * Decision engine implementation that evaluates AI analyses against configured rules,
  * creates alerts when rules are triggered, persists them and (optionally) sends notification emails.
+ *
+ * <p>For streamed analyses I already alert on the preliminary severity and anomaly score. The
+ * complete analysis then updates that alert instead of creating a second one, or deactivates it
+ * if no rule triggers on the complete analysis.</p>
  */
 public class DecisionEngineServiceImpl implements DecisionEngineService {
 
+    /** Preliminary alerts remembered until their complete analysis arrives. */
+    private static final int MAX_PRELIMINARY_ALERTS = 10_000;
+
+    /** Number of locks the log entries are spread over. */
+    private static final int ENTRY_LOCKS = 64;
+
     private final RuleEvaluator ruleEvaluator;
     private final AlertService alertService;
     private final ApplicationEventPublisher eventPublisher;
 
+    /** Log entry ID -> ID of its preliminary alert, oldest entries are dropped first. */
+    private final Map<UUID, UUID> preliminaryAlerts = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, UUID> eldest) {
+            return size() > MAX_PRELIMINARY_ALERTS;
+        }
+    });
+
+    /**
+     * Serializes the creation of a preliminary alert with the evaluation of the complete analysis
+     * of the same log entry, so the complete analysis never misses an alert that is being created.
+     */
+    private final Object[] entryLocks = newLocks();
+
 //    private final ConfigLoader configLoader;
 //    private final EmailService emailService;
 
@@ -52,6 +83,11 @@ public class DecisionEngineServiceImpl implements DecisionEngineService {
     public DecisionOutcome evaluate(LogEntry entry, AIAnalysis analysis) {
         // 1. I execute all rules against the completed AI analysis
         List<Rule> triggeredRules = ruleEvaluator.evaluate(analysis);
+        // a preliminary alert of this entry is completed instead of creating another one
+        Optional<Alert> preliminary = takePreliminaryAlert(entry.getId());
+        if (preliminary.isPresent()) {
+            return completePreliminary(preliminary.get(), analysis, triggeredRules);
+        }
         // 2. If no rule is triggered → then I generate no alert
         if (triggeredRules.isEmpty()) {
             return DecisionOutcome.builder()
@@ -78,4 +114,78 @@ public class DecisionEngineServiceImpl implements DecisionEngineService {
                 .alert(savedAlert)
                 .build();
     }
+
+    /**
+     * Alerts on the preliminary severity and anomaly score of a streamed analysis.
+     * Only rules without text fragments are evaluated, and only one preliminary alert is
+     * created per log entry.
+     *
+     * @param event the preliminary analysis of a log entry
+     */
+    @EventListener
+    public void onPreliminaryAnalysis(PreliminaryAnalysisEvent event) {
+        LogEntry entry = event.entry();
+        if (entry.getId() == null || preliminaryAlerts.containsKey(entry.getId())) return;
+
+        List<Rule> triggeredRules = ruleEvaluator.evaluatePreliminary(event.analysis());
+        if (triggeredRules.isEmpty()) return;
+
+        Alert alert = Alert.builder()
+                .severity(event.analysis().getSeverity())
+                .message(event.analysis().getSummarizedIssue())
+                .ruleNames(triggeredRules.stream().map(Rule::getName).toList())
+                .sourceId(entry.getSourceId())
+                .logEntryId(entry.getId())
+                .build();
+        Alert savedAlert;
+        synchronized (lockOf(entry.getId())) {
+            if (preliminaryAlerts.containsKey(entry.getId())) return;
+            savedAlert = alertService.create(alert);
+            preliminaryAlerts.put(entry.getId(), savedAlert.getId());
+        }
+        log.info("Preliminary alert {} for log entry {} ({}, score {})",
+                savedAlert.getId(), entry.getId(), alert.getSeverity(), event.analysis().getAnomalyScore());
+        eventPublisher.publishEvent(new AlertCreatedEvent(savedAlert));
+    }
+
+    private Optional<Alert> takePreliminaryAlert(UUID logEntryId) {
+        if (logEntryId == null) return Optional.empty();
+        UUID alertId;
+        synchronized (lockOf(logEntryId)) {
+            alertId = preliminaryAlerts.remove(logEntryId);
+        }
+        return alertId == null ? Optional.empty() : alertService.getAlertById(alertId);
+    }
+
+    private Object lockOf(UUID logEntryId) {
+        return entryLocks[Math.floorMod(logEntryId.hashCode(), ENTRY_LOCKS)];
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[ENTRY_LOCKS];
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+        return locks;
+    }
+
+    /**
+     * Replaces the preliminary content of an alert with the complete analysis, or deactivates the
+     * alert if the complete analysis no longer triggers a rule.
+     */
+    private DecisionOutcome completePreliminary(Alert alert, AIAnalysis analysis, List<Rule> triggeredRules) {
+        if (triggeredRules.isEmpty()) {
+            alertService.deactivate(alert.getId());
+            log.info("Preliminary alert {} withdrawn by the complete analysis", alert.getId());
+            return DecisionOutcome.builder()
+                    .triggeredRules(List.of())
+                    .alert(null)
+                    .build();
+        }
+        alert.setSeverity(analysis.getSeverity());
+        alert.setMessage(analysis.getSummarizedIssue());
+        alert.setRuleNames(triggeredRules.stream().map(Rule::getName).toList());
+        return DecisionOutcome.builder()
+                .triggeredRules(triggeredRules)
+                .alert(alertService.update(alert))
+                .build();
+    }
 }
@@ -0,0 +1,498 @@
+package bbu.solution.logwatchai.application.deferred;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisCommitter;
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.application.analysis.ClaimLostException;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.OpenAiBatchClient;
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.application.budget.BudgetLevel;
+import bbu.solution.logwatchai.application.scheduling.AnalysisLane;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysisService;
+import bbu.solution.logwatchai.domain.appconfig.AiDeferredConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import bbu.solution.logwatchai.domain.decision.DecisionEngineService;
+import bbu.solution.logwatchai.domain.deferred.DeferredBatch;
+import bbu.solution.logwatchai.domain.deferred.DeferredBatchStatus;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.deferred.DeferredBatchRepository;
+import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzes escalated low-priority lines in offline provider batches instead of in real time.
+ *
+ * <p>Lines of the configured scheduling lanes do not need an answer within seconds. I collect
+ * them and send them to the batch endpoint of the provider, which answers within hours at a
+ * lower price, so the real-time capacity and rate limits stay with the lines that can raise
+ * alerts. A batch is sent as soon as it holds {@code maxBatch} lines, or when its first line has
+ * waited {@code maxWaitMs}.</p>
+ *
+ * <p>The lines stay PENDING while I collect them. On sending, a batch is recorded and its lines
+ * move to DEFERRED with a reference to it, but only those that are still PENDING, so a line that
+ * was analyzed in real time meanwhile is left out. If the batch cannot be submitted, its lines
+ * return to PENDING. A line collected when the instance stops is still PENDING and is picked up
+ * by the sweep.</p>
+ *
+ * <p>Every minute I poll the submitted batches. Submitting and polling do not block the thread
+ * that started them, so a slow batch endpoint never holds up the other scheduled tasks; a batch
+ * whose last poll is still running is skipped. The results of a finished batch are reconciled
+ * into analyses and written by the {@link AnalysisCommitter}; afterwards the decision engine
+ * evaluates them like any other analysis. Lines without a usable answer, e.g. of an expired
+ * batch, are analyzed in real time instead. Marking the batch as finished is a conditional
+ * UPDATE, so only one instance reconciles it.</p>
+ *
+ * <p>Lines are only deferred while the budget is not exhausted; in the degraded modes they take
+ * the regular path, which answers them from the cache or locally.</p>
+ *
+ * <p>Metric: {@code logwatchai.analysis.deferred.lines}, tagged with the result
+ * (deferred, answered, fallback, failed).</p>
+ */
+@Slf4j
+@Component
+public class DeferredAnalysisLane {
+
+    private static final String DEFER_ENTRY = """
+        UPDATE log_entries
+           SET analysis_state = 'DEFERRED',
+               deferred_batch_id = ?
+         WHERE id = ?
+           AND analysis_state = 'PENDING'
+        """;
+
+    /** An open batch not submitted within this time is considered abandoned by a crashed instance. */
+    private static final Duration ABANDONED_AFTER = Duration.ofMinutes(10);
+
+    /** Length of the last_error column. */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final DeferredBatchClient client;
+    private final DeferredBatchRepository batchRepository;
+    private final LogEntryRepository logEntryRepository;
+    private final JdbcTemplate jdbc;
+    private final AIAnalysisService aiAnalysisService;
+    private final AnalysisCommitter committer;
+    private final DecisionEngineService decisionEngineService;
+    private final AiBudgetService budget;
+
+    private final boolean enabled;
+    private final Set<AnalysisLane> lanes;
+    private final int maxBatch;
+    private final long maxWaitMs;
+
+    private final Counter deferred;
+    private final Counter answered;
+    private final Counter fallback;
+    private final Counter failed;
+
+    /** Single thread that records the batches and sends them; it does not wait for the provider. */
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("deferred-analysis-"));
+
+    /** Batches whose poll or reconciliation is still running. */
+    private final Set<UUID> reconciling = ConcurrentHashMap.newKeySet();
+
+    /** Lines collected for the next batch by id, so a line offered twice is sent once. Guarded by {@code this}. */
+    private Map<UUID, LogEntry> open = new LinkedHashMap<>();
+    private ScheduledFuture<?> deadline;
+
+    /**
+     * Creates the lane from the application configuration.
+     *
+     * @param analysisConfig        null-safe access to the deferred configuration and the model entries
+     * @param transport             the shared HTTP transport for the batch endpoint
+     * @param batchRepository       records the batches
+     * @param logEntryRepository    moves the lines between PENDING and DEFERRED
+     * @param jdbc                  defers the lines of a batch in one round trip
+     * @param aiAnalysisService     builds the prompts and parses the answers
+     * @param committer             writes the reconciled analyses
+     * @param decisionEngineService evaluates the reconciled analyses
+     * @param budget                records the usage of the batches and tells when to stop deferring
+     * @param registry              the meter registry for the lane metrics
+     */
+    @Autowired
+    public DeferredAnalysisLane(AnalysisConfigProperties analysisConfig,
+                                AiHttpTransport transport,
+                                DeferredBatchRepository batchRepository,
+                                LogEntryRepository logEntryRepository,
+                                JdbcTemplate jdbc,
+                                AIAnalysisService aiAnalysisService,
+                                AnalysisCommitter committer,
+                                DecisionEngineService decisionEngineService,
+                                AiBudgetService budget,
+                                MeterRegistry registry) {
+        this(analysisConfig.getDeferred(), clientFor(analysisConfig, transport), batchRepository, logEntryRepository,
+                jdbc, aiAnalysisService, committer, decisionEngineService, budget, registry);
+    }
+
+    /**
+     * @param config                the deferred configuration
+     * @param client                the batch endpoint
+     * @param batchRepository       records the batches
+     * @param logEntryRepository    moves the lines between PENDING and DEFERRED
+     * @param jdbc                  defers the lines of a batch in one round trip
+     * @param aiAnalysisService     builds the prompts and parses the answers
+     * @param committer             writes the reconciled analyses
+     * @param decisionEngineService evaluates the reconciled analyses
+     * @param budget                records the usage of the batches and tells when to stop deferring
+     * @param registry              the meter registry for the lane metrics
+     */
+    public DeferredAnalysisLane(AiDeferredConfig config,
+                                DeferredBatchClient client,
+                                DeferredBatchRepository batchRepository,
+                                LogEntryRepository logEntryRepository,
+                                JdbcTemplate jdbc,
+                                AIAnalysisService aiAnalysisService,
+                                AnalysisCommitter committer,
+                                DecisionEngineService decisionEngineService,
+                                AiBudgetService budget,
+                                MeterRegistry registry) {
+        this.client = client;
+        this.batchRepository = batchRepository;
+        this.logEntryRepository = logEntryRepository;
+        this.jdbc = jdbc;
+        this.aiAnalysisService = aiAnalysisService;
+        this.committer = committer;
+        this.decisionEngineService = decisionEngineService;
+        this.budget = budget;
+        this.enabled = config.isEnabled();
+        this.lanes = lanesOf(config.getLanes());
+        this.maxBatch = Math.max(1, config.getMaxBatch());
+        this.maxWaitMs = Math.max(0, config.getMaxWaitMs());
+        this.deferred = lineCounter(registry, "deferred");
+        this.answered = lineCounter(registry, "answered");
+        this.fallback = lineCounter(registry, "fallback");
+        this.failed = lineCounter(registry, "failed");
+    }
+
+    /**
+     * Picks the batch endpoint: the configured model entry if it speaks the OpenAI API, the local
+     * analyzer otherwise.
+     */
+    static DeferredBatchClient clientFor(AnalysisConfigProperties analysisConfig, AiHttpTransport transport) {
+        AiDeferredConfig config = analysisConfig.getDeferred();
+        List<AiModelEntry> models = analysisConfig.getAi().getModels();
+        AiModelEntry entry = models == null || config.getProvider() == null ? null : models.stream()
+                .filter(model -> model != null && config.getProvider().equalsIgnoreCase(model.getName()))
+                .findFirst()
+                .orElse(null);
+
+        String name = entry == null ? "" : entry.getName().toLowerCase(Locale.ROOT);
+        if (name.equals("openai") || name.equals("openai-http") || name.equals("chatgpt")) {
+            return new OpenAiBatchClient(entry, transport, config.getCompletionWindow());
+        }
+        if (config.isEnabled()) {
+            log.warn("No model entry '{}' with a batch endpoint; deferred lines are answered by the local analyzer",
+                    config.getProvider());
+        }
+        return new LocalDeferredBatchClient();
+    }
+
+    private static Set<AnalysisLane> lanesOf(List<String> names) {
+        Set<AnalysisLane> lanes = EnumSet.noneOf(AnalysisLane.class);
+        if (names == null) return lanes;
+        for (String name : names) {
+            try {
+                lanes.add(AnalysisLane.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                log.warn("Ignoring unknown analysis lane '{}' in the deferred configuration", name);
+            }
+        }
+        return lanes;
+    }
+
+    private static Counter lineCounter(MeterRegistry registry, String result) {
+        return Counter.builder("logwatchai.analysis.deferred.lines")
+                .description("Lines analyzed in offline provider batches")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Takes a line for the next batch if it does not need a real-time answer.
+     *
+     * @param entry  the pending log entry
+     * @param triage the triage result of the entry
+     * @param lane   the scheduling lane of the entry
+     * @return true if I took the line; false if it is analyzed in real time
+     */
+    public boolean offer(LogEntry entry, TriageResult triage, AnalysisLane lane) {
+        if (!enabled || !triage.escalate() || !lanes.contains(lane) || timer.isShutdown()) return false;
+        BudgetLevel level = budget.level(entry.getSourceId());
+        if (level != BudgetLevel.NORMAL && level != BudgetLevel.TIGHTENED) return false;
+
+        List<LogEntry> full = null;
+        synchronized (this) {
+            open.putIfAbsent(entry.getId(), entry);
+            if (open.size() >= maxBatch) {
+                full = takeOpen();
+            } else if (deadline == null) {
+                deadline = timer.schedule(this::flushDue, maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            List<LogEntry> batch = full;
+            try {
+                timer.execute(() -> flush(batch));
+            } catch (RejectedExecutionException rejected) {
+                // shutting down; the lines are still PENDING and the sweep picks them up
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends the open batch on its deadline unless it has already been sent because it was full.
+     */
+    private void flushDue() {
+        List<LogEntry> due;
+        synchronized (this) {
+            if (open.isEmpty()) return;
+            due = takeOpen();
+        }
+        flush(due);
+    }
+
+    /** Must hold the lock. */
+    private List<LogEntry> takeOpen() {
+        List<LogEntry> taken = new ArrayList<>(open.values());
+        open = new LinkedHashMap<>();
+        if (deadline != null) deadline.cancel(false);
+        deadline = null;
+        return taken;
+    }
+
+    /**
+     * Records a batch, defers its lines that are still PENDING and submits their prompts. The
+     * batch is marked as submitted once the provider has accepted it.
+     */
+    private void flush(List<LogEntry> entries) {
+        DeferredBatch batch;
+        try {
+            batch = batchRepository.save(new DeferredBatch(client.getName(), Instant.now()));
+        } catch (RuntimeException e) {
+            log.warn("Could not record a deferred batch of {} lines: {}", entries.size(), e.getMessage());
+            return;
+        }
+        byte[] batchId = UuidBytes.toBytes(batch.getId());
+
+        try {
+            jdbc.batchUpdate(DEFER_ENTRY, entries, entries.size(), (ps, entry) -> {
+                ps.setBytes(1, batchId);
+                ps.setBytes(2, UuidBytes.toBytes(entry.getId()));
+            });
+            // the update counts of a batch are not reliable on every driver, so I read back what was deferred
+            List<LogEntry> lines = logEntryRepository.findDeferred(batchId);
+            if (lines.isEmpty()) {
+                batchRepository.finish(batchId, DeferredBatchStatus.COMPLETED.name(), 0, null, Instant.now());
+                return;
+            }
+
+            List<DeferredBatchClient.Request> requests = lines.stream()
+                    .map(line -> new DeferredBatchClient.Request(line.getId().toString(), aiAnalysisService.promptFor(line)))
+                    .toList();
+            client.submit(requests).whenComplete((providerBatchId, error) -> {
+                if (error != null) {
+                    submissionFailed(batch, batchId, error);
+                    return;
+                }
+                try {
+                    batchRepository.submitted(batchId, providerBatchId, requests.size(), Instant.now());
+                    deferred.increment(requests.size());
+                    log.info("Deferred {} lines to batch {} of {}", requests.size(), providerBatchId, client.getName());
+                } catch (RuntimeException e) {
+                    submissionFailed(batch, batchId, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            submissionFailed(batch, batchId, e);
+        }
+    }
+
+    /**
+     * Returns the lines of a batch that could not be submitted to PENDING.
+     */
+    private void submissionFailed(DeferredBatch batch, byte[] batchId, Throwable error) {
+        String message = errorText(unwrap(error));
+        log.warn("Deferred batch {} could not be submitted, its lines are analyzed in real time: {}", batch.getId(), message);
+        logEntryRepository.releaseDeferred(batchId);
+        batchRepository.finish(batchId, DeferredBatchStatus.FAILED.name(), 0, message, Instant.now());
+    }
+
+    /**
+     * Releases abandoned batches and reconciles the results of every finished one.
+     */
+    @Scheduled(fixedDelayString = "${app.deferred.poll-interval-ms:60000}",
+            initialDelayString = "${app.deferred.poll-interval-ms:60000}")
+    public void reconcile() {
+        Instant now = Instant.now();
+        for (DeferredBatch batch : batchRepository.findAbandoned(now.minus(ABANDONED_AFTER))) {
+            byte[] batchId = UuidBytes.toBytes(batch.getId());
+            int released = logEntryRepository.releaseDeferred(batchId);
+            batchRepository.finish(batchId, DeferredBatchStatus.FAILED.name(), 0, "Abandoned before submission", now);
+            log.warn("Released {} lines of abandoned deferred batch {}", released, batch.getId());
+        }
+
+        for (DeferredBatch batch : batchRepository.findByStatusOrderByCreatedAt(DeferredBatchStatus.SUBMITTED)) {
+            if (!reconciling.add(batch.getId())) continue;
+            CompletableFuture<Void> reconciled;
+            try {
+                reconciled = reconcile(batch);
+            } catch (Exception e) {
+                reconciled = CompletableFuture.failedFuture(e);
+            }
+            reconciled.whenComplete((done, error) -> {
+                reconciling.remove(batch.getId());
+                if (error != null) {
+                    log.warn("Deferred batch {} could not be reconciled: {}", batch.getId(), errorText(unwrap(error)));
+                }
+            });
+        }
+    }
+
+    /**
+     * Polls a batch and reconciles its results once it is finished.
+     *
+     * @return a future completed when the poll and the reconciliation are done
+     */
+    private CompletableFuture<Void> reconcile(DeferredBatch batch) {
+        byte[] batchId = UuidBytes.toBytes(batch.getId());
+        if (!client.getName().equals(batch.getProvider())) {
+            // the provider was reconfigured; its results cannot be fetched anymore
+            int released = logEntryRepository.releaseDeferred(batchId);
+            batchRepository.finish(batchId, DeferredBatchStatus.FAILED.name(), 0,
+                    "Provider " + batch.getProvider() + " is no longer configured", Instant.now());
+            log.warn("Released {} lines of deferred batch {} of the former provider {}", released, batch.getId(), batch.getProvider());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return client.poll(batch.getProviderBatchId()).thenAccept(results -> reconcile(batch, batchId, results));
+    }
+
+    private void reconcile(DeferredBatch batch, byte[] batchId, DeferredBatchClient.Results results) {
+        if (!results.finished()) return;
+
+        List<LogEntry> entries = logEntryRepository.findDeferred(batchId);
+        Map<LogEntry, AiCompletion> completions = new HashMap<>();
+        Map<LogEntry, AIAnalysis> analyses = new HashMap<>();
+        for (LogEntry entry : entries) {
+            AiCompletion completion = results.completions().get(entry.getId().toString());
+            if (completion == null) continue;
+            completions.put(entry, completion);
+            AIAnalysis ai = aiAnalysisService.fromCompletion(entry, client.getName(), completion.content());
+            if (ai != null) analyses.put(entry, ai);
+        }
+
+        String status = results.error() != null && analyses.isEmpty()
+                ? DeferredBatchStatus.FAILED.name()
+                : DeferredBatchStatus.COMPLETED.name();
+        if (batchRepository.finish(batchId, status, analyses.size(), errorText(results.error()), Instant.now()) == 0) {
+            // another instance reconciles this batch
+            return;
+        }
+        if (!client.isLocal()) {
+            completions.forEach((entry, completion) -> budget.record(client.getName(), null, completion, entry.getSourceId()));
+        }
+
+        log.info("Reconciling deferred batch {}: {} of {} lines answered", batch.getId(), analyses.size(), entries.size());
+        for (LogEntry entry : entries) {
+            AIAnalysis ai = analyses.get(entry);
+            (ai != null ? answered : fallback).increment();
+            complete(entry, ai);
+        }
+    }
+
+    /**
+     * Stores the analysis of a deferred line; a line without one is analyzed in real time first.
+     */
+    private void complete(LogEntry entry, AIAnalysis answer) {
+        CompletableFuture<AIAnalysis> analysis;
+        try {
+            analysis = answer != null ? CompletableFuture.completedFuture(answer) : aiAnalysisService.analyzeBatched(entry);
+        } catch (Exception e) {
+            analysis = CompletableFuture.failedFuture(e);
+        }
+        analysis
+                .thenCompose(ai -> committer.commit(ai).thenApply(stored -> ai))
+                .whenComplete((ai, error) -> {
+                    if (error != null && unwrap(error) instanceof ClaimLostException) {
+                        // the line was released as stale or completed by another worker meanwhile
+                        return;
+                    }
+                    if (error != null) {
+                        failed.increment();
+                        log.warn("Deferred line {} could not be completed and is analyzed again: {}", entry.getId(), unwrap(error).getMessage());
+                        logEntryRepository.releaseDeferredEntry(UuidBytes.toBytes(entry.getId()));
+                        return;
+                    }
+                    try {
+                        entry.markAsAnalyzed(ai);
+                        decisionEngineService.evaluate(entry, ai);
+                    } catch (Exception e) {
+                        log.warn("Decision evaluation failed for deferred line {}: {}", entry.getId(), e.getMessage());
+                    }
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String errorText(Throwable error) {
+        return errorText(String.valueOf(error.getMessage()));
+    }
+
+    private static String errorText(String message) {
+        if (message == null) return null;
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Stops the timer. Collected lines are still PENDING and are picked up by the sweep.
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (this) {
+            takeOpen();
+        }
+        timer.shutdown();
+        try {
+            if (!timer.awaitTermination(10, TimeUnit.SECONDS)) timer.shutdownNow();
+        } catch (InterruptedException e) {
+            timer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
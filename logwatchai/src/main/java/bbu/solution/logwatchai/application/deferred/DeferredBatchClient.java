@@ -0,0 +1,65 @@
+package bbu.solution.logwatchai.application.deferred;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Contract of a provider endpoint that answers many prompts offline, e.g. a batch API that
+ * returns its results hours later at a lower price.
+ */
+public interface DeferredBatchClient {
+
+    /**
+     * @return the name the batches of this client are recorded with
+     */
+    String getName();
+
+    /**
+     * @return true if the answers are produced in-process and cost nothing
+     */
+    boolean isLocal();
+
+    /**
+     * Hands the prompts to the provider.
+     *
+     * @param requests the prompts, each with the id its answer is returned under
+     * @return a future completed with the id the provider assigned to the batch
+     */
+    CompletableFuture<String> submit(List<Request> requests);
+
+    /**
+     * Asks the provider for the results of a batch.
+     *
+     * @param providerBatchId the id returned by {@link #submit(List)}
+     * @return a future completed with the results; unfinished while the provider is still working
+     */
+    CompletableFuture<Results> poll(String providerBatchId);
+
+    /**
+     * One prompt of a batch.
+     *
+     * @param customId the id the answer is returned under
+     * @param prompt   the prompt
+     */
+    record Request(String customId, String prompt) {}
+
+    /**
+     * The state and the answers of a batch.
+     *
+     * @param finished    whether the provider is done; a failed or expired batch is done as well
+     * @param completions the answers by custom id; prompts without an answer are missing
+     * @param error       why the batch failed or expired, or null
+     */
+    record Results(boolean finished, Map<String, AiCompletion> completions, String error) {
+
+        /**
+         * @return the results of a batch the provider is still working on
+         */
+        public static Results running() {
+            return new Results(false, Map.of(), null);
+        }
+    }
+}
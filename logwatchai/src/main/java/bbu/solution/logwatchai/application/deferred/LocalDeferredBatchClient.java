@@ -0,0 +1,60 @@
+package bbu.solution.logwatchai.application.deferred;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.LocalStatisticalStrategy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers deferred batches with the in-process {@link LocalStatisticalStrategy}. Used when no
+ * provider with a batch endpoint is configured, and in tests.
+ *
+ * <p>The answers are produced on submission and kept in memory until they are polled; a batch
+ * whose answers were lost with a restart is reported as finished without answers, so its lines
+ * are analyzed in real time.</p>
+ */
+public class LocalDeferredBatchClient implements DeferredBatchClient {
+
+    private final LocalStatisticalStrategy analyzer = new LocalStatisticalStrategy("local", null);
+
+    /** Answers by batch id until they are polled. */
+    private final Map<String, Map<String, AiCompletion>> results = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<String> submit(List<Request> requests) {
+        Map<String, AiCompletion> answers = new HashMap<>();
+        for (Request request : requests) {
+            try {
+                answers.put(request.customId(), analyzer.analyzeAsync(request.prompt()).join());
+            } catch (RuntimeException e) {
+                // like a provider, I leave a prompt I cannot answer out of the results
+            }
+        }
+        String id = "local-" + UUID.randomUUID();
+        results.put(id, answers);
+        return CompletableFuture.completedFuture(id);
+    }
+
+    @Override
+    public CompletableFuture<Results> poll(String providerBatchId) {
+        Map<String, AiCompletion> answers = results.remove(providerBatchId);
+        return CompletableFuture.completedFuture(answers != null
+                ? new Results(true, answers, null)
+                : new Results(true, Map.of(), "The answers of the local batch were lost with a restart"));
+    }
+}
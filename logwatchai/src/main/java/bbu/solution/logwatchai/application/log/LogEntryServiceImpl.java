@@ -1,33 +1,68 @@
 package bbu.solution.logwatchai.application.log;
 
+import bbu.solution.logwatchai.application.analysis.AnalysisCommitter;
+import bbu.solution.logwatchai.application.analysis.ClaimLostException;
+import bbu.solution.logwatchai.application.context.SourceContextWindow;
+import bbu.solution.logwatchai.application.deferred.DeferredAnalysisLane;
+import bbu.solution.logwatchai.application.redaction.LogRedactor;
+import bbu.solution.logwatchai.application.scheduling.AnalysisScheduler;
+import bbu.solution.logwatchai.application.triage.TriageScorer;
 import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
 import bbu.solution.logwatchai.domain.analysis.AIAnalysisService;
 import bbu.solution.logwatchai.domain.decision.DecisionEngineService;
+import bbu.solution.logwatchai.domain.log.AnalysisState;
 import bbu.solution.logwatchai.domain.log.LogEntry;
 import bbu.solution.logwatchai.domain.log.LogEntryService;
 import bbu.solution.logwatchai.domain.log.LogFilter;
+import bbu.solution.logwatchai.domain.log.LogLevels;
 import bbu.solution.logwatchai.domain.logsource.LogSource;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
 import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+@Slf4j
 @Service
 public class LogEntryServiceImpl implements LogEntryService {
 
     private final LogEntryRepository logEntryRepository;
     private final AIAnalysisService aiAnalysisService;
     private final DecisionEngineService decisionEngineService;
+    private final LogTemplateService logTemplateService;
+    private final TriageScorer triageScorer;
+    private final AnalysisScheduler analysisScheduler;
+    private final LogRedactor redactor;
+    private final SourceContextWindow contextWindow;
+    private final AnalysisCommitter committer;
+    private final DeferredAnalysisLane deferredLane;
+
+    /** Claims older than this are considered abandoned by a crashed worker. */
+    private static final Duration STALE_CLAIM_AFTER = Duration.ofMinutes(10);
+
+    /** Fresh entries are left to their own async submission before the sweep picks them up. */
+    private static final Duration PENDING_GRACE = Duration.ofMinutes(1);
+
+    /** Maximum number of pending entries dispatched per sweep. */
+    private static final int SWEEP_BATCH_SIZE = 200;
 
     /**
      * Constructs a new LogEntryServiceImpl.
@@ -35,47 +70,151 @@ public class LogEntryServiceImpl implements LogEntryService {
      * @param logEntryRepository    the repository used to persist and query log entries
      * @param aiAnalysisService     service responsible for performing AI analyses on log entries
      * @param decisionEngineService service responsible for applying decision rules and generating alerts
+     * @param logTemplateService    service assigning every new line to its mined template
+     * @param triageScorer          local pre-triage deciding which lines reach an AI model
+     * @param analysisScheduler     orders waiting analyses by priority and runs them on the aiExecutor
+     * @param redactor              masks sensitive values before a line is mined into a template
+     * @param contextWindow         keeps the last lines of every source for the prompts of later lines
+     * @param committer             writes the analyses and the state of their entries in batches
+     * @param deferredLane          takes low-priority lines for offline provider batches
      */
-    public LogEntryServiceImpl(LogEntryRepository logEntryRepository, AIAnalysisService aiAnalysisService, DecisionEngineService decisionEngineService) {
+    public LogEntryServiceImpl(LogEntryRepository logEntryRepository, AIAnalysisService aiAnalysisService, DecisionEngineService decisionEngineService,
+                               LogTemplateService logTemplateService, TriageScorer triageScorer, AnalysisScheduler analysisScheduler,
+                               LogRedactor redactor, SourceContextWindow contextWindow, AnalysisCommitter committer,
+                               DeferredAnalysisLane deferredLane) {
         this.logEntryRepository = logEntryRepository;
         this.aiAnalysisService = aiAnalysisService;
         this.decisionEngineService = decisionEngineService;
+        this.logTemplateService = logTemplateService;
+        this.triageScorer = triageScorer;
+        this.analysisScheduler = analysisScheduler;
+        this.redactor = redactor;
+        this.contextWindow = contextWindow;
+        this.committer = committer;
+        this.deferredLane = deferredLane;
     }
 
     /**
      * Asynchronously performs AI analysis for the provided LogEntry.
-     *
-     * Steps executed:
-     * 1. I reload the latest entity to avoid working on a stale detached instance.
-     * 2. I skip analysis if another thread already processed this entry.
-     * 3. I call the AI analysis service to produce an AIAnalysis object.
-     * 4. I mark the entry as analyzed and persist the updated entity.
-     * 5. I invoke the decision engine to evaluate the analysis and possibly create alerts.
-     *
-     * Any exceptions are caught and printed to stderr to avoid crashing the async executor.
+     * <p>
+     * I score the entry with the local pre-triage and hand it to the {@link AnalysisScheduler},
+     * which puts it into a priority lane by level, triage score and source. The analysis itself
+     * runs later on the aiExecutor, see {@link #analyzeScheduled(LogEntry, TriageResult)}.
+     * <p>
+     * Only a line that was just stored and is still PENDING is submitted. Re-reading a file returns
+     * the rows already stored; they are analyzed, in flight, or left to the sweep, and submitting
+     * them again would count them twice in the triage state and take queue capacity from new lines.
+     * <p>
+     * Inside a transaction, such as {@link #ingestFileUpdate(LogSource, Path)}, I submit the entry
+     * only after the commit. Before that the claim of the analysis would wait on the lock of the
+     * uncommitted insert and hold an aiExecutor thread and a pooled connection until the whole
+     * file is stored.
      *
      * @param entry the log entry to analyze asynchronously
      */
-    @Async("aiExecutor")
     @Override
-    @Transactional
     public void analyzeAsync(LogEntry entry) {
-        synchronized (entry.getId().toString().intern()) {
-            LogEntry current = logEntryRepository.findById(entry.getId()).orElse(null);
-            if (current == null || current.isAnalyzed()) return;
-            try {
-                AIAnalysis ai = aiAnalysisService.analyze(current);
-
-                // Mark LogEntry as analyzed and persist
-                current.markAsAnalyzed(ai);
-                logEntryRepository.save(current);
-
-                // Trigger DecisionEngine
-                decisionEngineService.evaluate(current, ai);
-            } catch (Exception e) {
-                System.err.println("Error during async analysis for log " + entry.getId());
-                e.printStackTrace();
-            }
+        if (!entry.isNewlyIngested() || entry.getAnalysisState() != AnalysisState.PENDING) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(entry);
+                }
+            });
+            return;
+        }
+        submit(entry);
+    }
+
+    /**
+     * Triages the entry and queues it in its lane. Escalated lines of a low-priority lane may be
+     * taken by the {@link DeferredAnalysisLane} instead and are answered by an offline provider batch.
+     *
+     * @param entry the log entry to analyze
+     * @return false if the scheduler is full; the entry then stays PENDING for the sweep
+     */
+    private boolean submit(LogEntry entry) {
+        TriageResult triage;
+        try {
+            triage = triageScorer.score(entry);
+        } catch (Exception e) {
+            log.warn("Triage failed for log {}: {}", entry.getId(), e.getMessage());
+            return false;
+        }
+        if (deferredLane.offer(entry, triage, analysisScheduler.laneOf(entry, triage.score()))) return true;
+        return analysisScheduler.submit(entry, triage.score(), () -> analyzeScheduled(entry, triage));
+    }
+
+    /**
+     * Performs the analysis of an entry once the scheduler has picked it.
+     *
+     * Steps executed:
+     * 1. I atomically claim the entry in the database (PENDING → CLAIMED). If the claim fails,
+     *    another worker — possibly in another instance — already owns or finished it, and I stop.
+     * 2. Routine lines get a local analysis right away; only lines at or above the triage threshold
+     *    are queued for micro-batched AI analysis. The slow provider call runs later for the whole
+     *    batch, without an open transaction and without holding a pooled connection.
+     * 3. Once the analysis is available, the {@link AnalysisCommitter} stores it and completes the
+     *    entry, batched with the analyses of other entries, instead of saving both entities here.
+     * 4. After the commit I invoke the decision engine to evaluate the analysis and possibly create alerts.
+     *
+     * If the analysis could not be produced or stored, I hand the entry back to PENDING so the background
+     * sweep retries it, unless the claim was lost meanwhile and the entry belongs to another worker. Any exceptions are caught and logged to avoid crashing the async executor.
+     *
+     * @param entry  the log entry to analyze
+     * @param triage the triage result of the entry
+     * @return a future completed when the entry is finished, which frees its scheduler slot
+     */
+    private CompletableFuture<Void> analyzeScheduled(LogEntry entry, TriageResult triage) {
+        byte[] id = UuidBytes.toBytes(entry.getId());
+        if (logEntryRepository.claimForAnalysis(id, Instant.now()) == 0) return CompletableFuture.completedFuture(null);
+        triageScorer.recordDecision(triage);
+
+        CompletableFuture<AIAnalysis> analysis;
+        try {
+            analysis = triage.escalate()
+                    ? aiAnalysisService.analyzeBatched(entry)
+                    : CompletableFuture.completedFuture(aiAnalysisService.analyzeLocally(entry, triage));
+        } catch (Exception e) {
+            analysis = CompletableFuture.failedFuture(e);
+        }
+        return analysis
+                .thenCompose(ai -> committer.commit(ai).thenApply(stored -> ai))
+                .handle((ai, error) -> {
+                    completeAnalysis(entry, id, ai, error);
+                    return null;
+                });
+    }
+
+    /**
+     * Finishes a claimed entry once its analysis has been committed, or has failed.
+     *
+     * @param entry the claimed log entry
+     * @param id    the entry id in its binary column form
+     * @param ai    the stored analysis, or {@code null} if it could not be produced or stored
+     * @param error the failure, or {@code null} on success
+     */
+    private void completeAnalysis(LogEntry entry, byte[] id, AIAnalysis ai, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ClaimLostException) {
+            // the claim was released as stale or taken by another worker, which owns the entry now
+            return;
+        }
+        if (error != null) {
+            log.error("Error during async analysis for log {}", entry.getId(), error);
+            // Nothing was stored, so the entry can safely be retried
+            logEntryRepository.releaseClaim(id, AnalysisState.PENDING.name());
+            return;
+        }
+        try {
+            // The committer has already completed the entry in the database
+            entry.markAsAnalyzed(ai);
+
+            // Trigger DecisionEngine
+            decisionEngineService.evaluate(entry, ai);
+        } catch (Exception e) {
+            log.error("Error during decision evaluation for log {}", entry.getId(), e);
         }
     }
 
@@ -116,54 +255,70 @@ public class LogEntryServiceImpl implements LogEntryService {
     /**
      * Saves a raw log entry into the repository using an insert-ignore-duplicate strategy.
      * If an identical entry already exists it will not create a duplicate; the existing entry is returned if present.
+     * <p>
+     * Before storing, I parse the log level and assign the line to its mined template. The template is mined from the
+     * redacted line, so it never contains a secret. The template's count and its rate for the triage are only increased,
+     * and the line only added to the context window of its source, if the line was really stored, so re-reading a file
+     * does not inflate them.
      *
      * @param rawText  the raw log line text
      * @param sourceId the UUID of the log source
-     * @return the saved or existing LogEntry
+     * @return the saved LogEntry, marked as newly ingested, or the existing one
      */
     @Override
     @Transactional
     public LogEntry saveRawLog(String rawText, UUID sourceId) {
         LogEntry entry = new LogEntry(rawText, sourceId);
+        entry.setLevel(LogLevels.parse(rawText));
+        String redacted = redactor.redact(rawText);
+        entry.setTemplateId(logTemplateService.assignTemplate(redacted));
 
         logEntryRepository.insertIgnoreDuplicate(
-                uuidToBytes(entry.getId()),
-                uuidToBytes(entry.getSourceId()),
+                UuidBytes.toBytes(entry.getId()),
+                UuidBytes.toBytes(entry.getSourceId()),
                 entry.getTimestamp(),
                 entry.getRawText(),
                 entry.getLevel(),
                 entry.getIngestionTime(),
                 entry.isAnalyzed(),
-                entry.hasAnomaly()
+                entry.hasAnomaly(),
+                UuidBytes.toBytes(entry.getTemplateId())
         );
 
-        return logEntryRepository
+        LogEntry stored = logEntryRepository
                 .findBySourceIdAndRawText(sourceId, rawText)
                 .orElse(entry);
+        if (!stored.getId().equals(entry.getId())) return stored;
+        logTemplateService.recordOccurrence(entry.getTemplateId());
+        triageScorer.recordOccurrence(entry.getTemplateId());
+        contextWindow.record(entry, redacted);
+        return entry;
     }
 
     /**
-     * Converts a UUID to a 16-byte array representation suitable for binary storage.
-     *
-     * @param uuid the UUID to convert
-     * @return a 16-byte array representing the UUID
-     */
-    private static byte[] uuidToBytes(UUID uuid) {
-        ByteBuffer bb = ByteBuffer.allocate(16);
-        bb.putLong(uuid.getMostSignificantBits());
-        bb.putLong(uuid.getLeastSignificantBits());
-        return bb.array();
-    }
-
-    /**
-     * TODO:
-     * Triggers analysis on pending logs.
+     * Periodically re-dispatches entries that are still waiting for analysis.
      *
-     * Note: This method is a placeholder and currently not implemented.
+     * <p>Entries end up here when the scheduler was full, when a failed analysis was released,
+     * or when a worker died while holding a claim. I first return abandoned claims to PENDING,
+     * then submit a bounded batch of old pending entries. Each dispatched entry is still claimed
+     * atomically before it is analyzed, so concurrent sweeps in several instances are safe.</p>
      */
     @Override
+    @Scheduled(fixedDelayString = "${app.analysis.sweep-interval-ms:30000}",
+            initialDelayString = "${app.analysis.sweep-interval-ms:30000}")
     public void analyzePendingLogs() {
-        // to be implemented if needed
+        Instant now = Instant.now();
+        int released = logEntryRepository.releaseStaleClaims(now.minus(STALE_CLAIM_AFTER));
+        if (released > 0) {
+            log.info("Released {} abandoned analysis claims", released);
+        }
+
+        for (LogEntry entry : logEntryRepository.findPendingBefore(now.minus(PENDING_GRACE), SWEEP_BATCH_SIZE)) {
+            if (!submit(entry)) {
+                // scheduler is full; the remaining entries stay PENDING for the next sweep
+                return;
+            }
+        }
     }
 
     /**
@@ -190,6 +345,9 @@ public class LogEntryServiceImpl implements LogEntryService {
      */
     @Override
     public List<LogEntry> getLogs(LogFilter filter) {
+        if (filter != null && filter.templateId() != null) {
+            return logEntryRepository.findByTemplateIdOrderByIngestionTimeDesc(filter.templateId());
+        }
         return logEntryRepository.findAll();
     }
 
@@ -202,6 +360,9 @@ public class LogEntryServiceImpl implements LogEntryService {
      */
     @Override
     public Page<LogEntry> getLogsPageable(LogFilter filter, Pageable pageable) {
+        if (filter != null && filter.templateId() != null) {
+            return logEntryRepository.findByTemplateId(filter.templateId(), pageable);
+        }
         return logEntryRepository.findAll(pageable);
     }
 
@@ -213,8 +374,8 @@ public class LogEntryServiceImpl implements LogEntryService {
      * 1. I read the file line by line.
      * 2. I ignore empty or blank lines.
      * 3. I save each line as a raw LogEntry (using insert-ignore semantics to avoid duplicates).
-     * 4. I trigger asynchronous AI analysis for every stored log line.
-     * 5. If file access fails, I log the problem to stderr.
+     * 4. I trigger asynchronous AI analysis for every newly stored log line once the file is committed.
+     * 5. If file access fails, I log the problem.
      *
      * @param source   the LogSource containing metadata about where the file originates
      * @param filePath the path to the file whose contents should be ingested
@@ -234,14 +395,14 @@ public class LogEntryServiceImpl implements LogEntryService {
                 // If an identical entry already exists, the insertIgnoreDuplicate(...) logic prevents duplication.
                 LogEntry entry = saveRawLog(line, source.getId());
 
-                // I trigger the asynchronous AI analysis pipeline for this log line.
+                // I hand the line to the scheduler once this ingest transaction has committed, so the
+                // analysis runs on the aiExecutor in the order of its priority lane.
                 // This includes: AI analysis → persisting enriched entry → decision engine evaluation → optional alerts.
                 analyzeAsync(entry);
             }
         } catch (IOException e) {
             // I log the failure if reading the file was not possible
-            System.err.println("Failed to read file " + filePath + ": " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to read file {}", filePath, e);
         }
     }
 }
@@ -165,7 +165,7 @@ public class LogWatcherServiceImpl implements LogWatcherService {
         }
         // Try to save atomically (saveRawLog handles duplicates via DB constraint)
         LogEntry entry = logEntryService.saveRawLog(event.getLine(), sourceId);
-        // trigger async analysis (saveRawLog returns existing entry if duplicate)
+        // trigger async analysis (skipped for the existing entry saveRawLog returns for a duplicate)
         logEntryService.analyzeAsync(entry);
     }
 }
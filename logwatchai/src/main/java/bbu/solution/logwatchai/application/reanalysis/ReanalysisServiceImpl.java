@@ -0,0 +1,224 @@
+package bbu.solution.logwatchai.application.reanalysis;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysisService;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiReanalysisConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.reanalysis.CampaignStatus;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisCampaign;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisFilter;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisService;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
+import bbu.solution.logwatchai.infrastructure.persistence.reanalysis.ReanalysisCampaignRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs re-analysis campaigns in the background.
+ *
+ * <p>Every few seconds I look at the running campaigns. A campaign whose next chunk is due is
+ * leased in the database, so only one instance works on it at a time. I read the next chunk of
+ * matching entries after the campaign's cursor, ordered by id, and hand it to
+ * {@link AIAnalysisService#reanalyze}. When the chunk is done, the cursor and the counters move
+ * on in one UPDATE and the lease is released. A campaign without further entries is completed.</p>
+ *
+ * <p>The throughput is limited per campaign: after a chunk of n lines, the next one is due
+ * n / linesPerMinute minutes after its start. If a chunk fails, e.g. because the budget does not
+ * allow provider calls, the campaign is paused with the error and can be resumed later.</p>
+ *
+ * <p>If an instance dies during a chunk, its lease expires and the chunk is analyzed again, so
+ * its entries may get one more version than needed.</p>
+ */
+@Slf4j
+@Service
+public class ReanalysisServiceImpl implements ReanalysisService {
+
+    /** A chunk not finished within this time is considered abandoned. */
+    private static final Duration LEASE = Duration.ofMinutes(10);
+
+    /** Length of the last_error column. */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    /** Cursor before the first chunk: every id is greater. */
+    private static final byte[] FIRST_CURSOR = new byte[16];
+
+    private final ReanalysisCampaignRepository campaignRepository;
+    private final LogEntryRepository logEntryRepository;
+    private final AIAnalysisService aiAnalysisService;
+    private final AnalysisConfigProperties analysisConfig;
+
+    /** When the next chunk of a campaign may start, by campaign id; local to this instance. */
+    private final Map<UUID, Instant> nextChunkAt = new ConcurrentHashMap<>();
+
+    /**
+     * @param campaignRepository the repository of the campaigns
+     * @param logEntryRepository reads the matching entries chunk by chunk
+     * @param aiAnalysisService  analyzes the entries again and stores the new versions
+     * @param analysisConfig     null-safe access to the re-analysis limits
+     */
+    public ReanalysisServiceImpl(ReanalysisCampaignRepository campaignRepository,
+                                 LogEntryRepository logEntryRepository,
+                                 AIAnalysisService aiAnalysisService,
+                                 AnalysisConfigProperties analysisConfig) {
+        this.campaignRepository = campaignRepository;
+        this.logEntryRepository = logEntryRepository;
+        this.aiAnalysisService = aiAnalysisService;
+        this.analysisConfig = analysisConfig;
+    }
+
+    @Override
+    public ReanalysisCampaign start(String name, ReanalysisFilter filter, Integer linesPerMinute, boolean useCache) {
+        if (filter.from() == null) throw new IllegalArgumentException("A re-analysis needs the start of the period");
+        Instant now = Instant.now();
+        ReanalysisFilter resolved = new ReanalysisFilter(filter.severities(), filter.sourceId(), filter.from(),
+                filter.to() != null ? filter.to() : now);
+        if (!resolved.to().isAfter(resolved.from())) throw new IllegalArgumentException("The period of a re-analysis is empty");
+
+        AiReanalysisConfig config = analysisConfig.getReanalysis();
+        int rate = Math.clamp(linesPerMinute != null ? linesPerMinute : config.getLinesPerMinute(), 1, Math.max(1, config.getMaxLinesPerMinute()));
+        long total = logEntryRepository.countReanalysisCandidates(resolved.from(), resolved.to(),
+                sourceBytes(resolved.sourceId()), allSeverities(resolved.severities()), severityNames(resolved.severities()));
+        String campaignName = name != null && !name.isBlank() ? name.trim() : "Re-analysis of " + now.truncatedTo(ChronoUnit.SECONDS);
+
+        ReanalysisCampaign campaign = campaignRepository.save(new ReanalysisCampaign(campaignName, resolved, useCache, rate, total, now));
+        log.info("Started re-analysis campaign '{}' ({}) on {} entries at {} lines per minute",
+                campaignName, campaign.getId(), total, rate);
+        return campaign;
+    }
+
+    @Override
+    public ReanalysisCampaign pause(UUID id) {
+        require(id);
+        if (campaignRepository.pause(UuidBytes.toBytes(id), null) == 0) {
+            throw new IllegalStateException("Re-analysis campaign " + id + " is not running");
+        }
+        return require(id);
+    }
+
+    @Override
+    public ReanalysisCampaign resume(UUID id) {
+        require(id);
+        if (campaignRepository.resume(UuidBytes.toBytes(id), Instant.now()) == 0) {
+            throw new IllegalStateException("Re-analysis campaign " + id + " is not paused");
+        }
+        nextChunkAt.remove(id);
+        return require(id);
+    }
+
+    @Override
+    public ReanalysisCampaign cancel(UUID id) {
+        require(id);
+        if (campaignRepository.finish(UuidBytes.toBytes(id), CampaignStatus.CANCELLED.name(), Instant.now()) == 0) {
+            throw new IllegalStateException("Re-analysis campaign " + id + " is already finished");
+        }
+        nextChunkAt.remove(id);
+        return require(id);
+    }
+
+    @Override
+    public Optional<ReanalysisCampaign> getCampaign(UUID id) {
+        return campaignRepository.findById(id);
+    }
+
+    @Override
+    public List<ReanalysisCampaign> getCampaigns() {
+        return campaignRepository.findAllByOrderByCreatedAtDesc();
+    }
+
+    /**
+     * Starts the next chunk of every running campaign that is due.
+     */
+    @Scheduled(fixedDelayString = "${app.reanalysis.tick-interval-ms:5000}",
+            initialDelayString = "${app.reanalysis.tick-interval-ms:5000}")
+    public void runCampaigns() {
+        for (ReanalysisCampaign campaign : campaignRepository.findByStatus(CampaignStatus.RUNNING)) {
+            try {
+                step(campaign);
+            } catch (Exception e) {
+                log.warn("Re-analysis campaign {} could not start its next chunk: {}", campaign.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void step(ReanalysisCampaign campaign) {
+        UUID id = campaign.getId();
+        byte[] idBytes = UuidBytes.toBytes(id);
+        Instant now = Instant.now();
+        Instant due = nextChunkAt.get(id);
+        if (due != null && now.isBefore(due)) return;
+        if (campaignRepository.lease(idBytes, now, now.plus(LEASE)) == 0) return;
+
+        List<LogEntry> chunk;
+        try {
+            int size = Math.max(1, Math.min(analysisConfig.getReanalysis().getChunkSize(), campaign.getLinesPerMinute()));
+            chunk = logEntryRepository.findReanalysisChunk(
+                    campaign.getCursorId() != null ? UuidBytes.toBytes(campaign.getCursorId()) : FIRST_CURSOR,
+                    campaign.getFromTime(),
+                    campaign.getToTime(),
+                    sourceBytes(campaign.getSourceId()),
+                    allSeverities(campaign.getSeverities()),
+                    severityNames(campaign.getSeverities()),
+                    size);
+        } catch (RuntimeException e) {
+            campaignRepository.release(idBytes, errorText(e));
+            throw e;
+        }
+
+        if (chunk.isEmpty()) {
+            campaignRepository.finish(idBytes, CampaignStatus.COMPLETED.name(), now);
+            nextChunkAt.remove(id);
+            log.info("Re-analysis campaign '{}' ({}) completed", campaign.getName(), id);
+            return;
+        }
+
+        nextChunkAt.put(id, now.plusMillis(chunk.size() * 60_000L / campaign.getLinesPerMinute()));
+        byte[] cursor = UuidBytes.toBytes(chunk.getLast().getId());
+        aiAnalysisService.reanalyze(chunk, id, campaign.isUseCache()).whenComplete((result, error) -> {
+            if (error != null) {
+                String message = errorText(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                log.warn("Re-analysis campaign {} paused: {}", id, message);
+                campaignRepository.release(idBytes, message);
+                campaignRepository.pause(idBytes, message);
+                return;
+            }
+            campaignRepository.advance(idBytes, cursor, chunk.size(), result.replaced(), result.severityChanged());
+        });
+    }
+
+    private ReanalysisCampaign require(UUID id) {
+        return campaignRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Re-analysis campaign " + id + " not found"));
+    }
+
+    private static String errorText(Throwable error) {
+        String message = String.valueOf(error.getMessage());
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static byte[] sourceBytes(UUID sourceId) {
+        return sourceId != null ? UuidBytes.toBytes(sourceId) : null;
+    }
+
+    private static boolean allSeverities(List<Severity> severities) {
+        return severities == null || severities.isEmpty();
+    }
+
+    private static List<String> severityNames(List<Severity> severities) {
+        // the IN list must never be empty; it is not evaluated if every severity matches
+        return allSeverities(severities) ? List.of("") : severities.stream().map(Severity::name).toList();
+    }
+}
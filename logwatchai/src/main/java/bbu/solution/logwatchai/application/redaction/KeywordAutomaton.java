@@ -0,0 +1,123 @@
+package bbu.solution.logwatchai.application.redaction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over a set of ASCII keywords, matched case-insensitively.
+ *
+ * <p>I am built once into a complete transition table, so every input character costs one
+ * array lookup, however many keywords there are. A state reports all keywords that end at the
+ * current character, including those that are suffixes of longer ones. Characters outside of
+ * ASCII lead back to the start state.</p>
+ */
+final class KeywordAutomaton {
+
+    private static final int ALPHABET = 128;
+    private static final int[] NONE = new int[0];
+
+    private final int[][] transitions;
+    private final int[][] matches;
+    private final int[] lengths;
+
+    /**
+     * @param keywords the keywords; the index of a keyword is reported when it matches
+     */
+    KeywordAutomaton(List<String> keywords) {
+        lengths = new int[keywords.size()];
+        List<int[]> goTo = new ArrayList<>();
+        List<int[]> out = new ArrayList<>();
+        goTo.add(newRow());
+        out.add(NONE);
+
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id).toLowerCase(Locale.ROOT);
+            lengths[id] = keyword.length();
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ALPHABET) throw new IllegalArgumentException("Keyword is not ASCII: " + keywords.get(id));
+                if (goTo.get(state)[c] < 0) {
+                    goTo.get(state)[c] = goTo.size();
+                    goTo.add(newRow());
+                    out.add(NONE);
+                }
+                state = goTo.get(state)[c];
+            }
+            out.set(state, append(out.get(state), id));
+        }
+
+        // breadth-first: complete the table with the transitions of the failure states
+        int[] fail = new int[goTo.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = goTo.getFirst()[c];
+            if (next < 0) {
+                goTo.getFirst()[c] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = goTo.get(state)[c];
+                if (next < 0) {
+                    goTo.get(state)[c] = goTo.get(fail[state])[c];
+                } else {
+                    fail[next] = goTo.get(fail[state])[c];
+                    for (int id : out.get(fail[next])) out.set(next, append(out.get(next), id));
+                    queue.add(next);
+                }
+            }
+        }
+
+        transitions = goTo.toArray(int[][]::new);
+        matches = out.toArray(int[][]::new);
+    }
+
+    /**
+     * @param state the current state, 0 at the start
+     * @param c     the next input character
+     * @return the next state
+     */
+    int next(int state, char c) {
+        if (c >= ALPHABET) return 0;
+        if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+        return transitions[state][c];
+    }
+
+    /**
+     * @param state a state
+     * @return the indices of the keywords ending in this state, empty for most states
+     */
+    int[] matches(int state) {
+        return matches[state];
+    }
+
+    /**
+     * @param id the index of a keyword
+     * @return its length
+     */
+    int length(int id) {
+        return lengths[id];
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        for (int existing : ids) if (existing == id) return ids;
+        int[] extended = Arrays.copyOf(ids, ids.length + 1);
+        extended[ids.length] = id;
+        return extended;
+    }
+}
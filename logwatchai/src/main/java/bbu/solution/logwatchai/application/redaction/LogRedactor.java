@@ -0,0 +1,385 @@
+package bbu.solution.logwatchai.application.redaction;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.domain.appconfig.AiRedactionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Masks sensitive values in a log line before it is sent to a provider or mined into a template.
+ *
+ * <p>I scan every line once from left to right. All keywords and token prefixes of the enabled
+ * rule packs are compiled into one {@link KeywordAutomaton}, so looking for them costs one table
+ * lookup per character. The structured values are recognized by small matchers that only start
+ * at their trigger character and never look at a character twice:</p>
+ * <ul>
+ *     <li>{@code contact}: e-mail addresses, starting at the {@code @}, become {@code <EMAIL>},</li>
+ *     <li>{@code network}: IPv4 addresses with an optional port become {@code <IP>},</li>
+ *     <li>{@code payment}: 13 to 19 digit card numbers, plain or in groups of four, that pass
+ *         the Luhn check become {@code <CARD>},</li>
+ *     <li>{@code secrets}: the value after a key such as {@code password=} or {@code "token":},
+ *         the token after {@code Bearer} and tokens with a well-known API key prefix become
+ *         {@code <SECRET>}.</li>
+ * </ul>
+ *
+ * <p>The placeholders are the ones the {@link bbu.solution.logwatchai.domain.template.LogTemplateNormalizer}
+ * uses, so the redacted line is also the input of the template mining, and mined templates never
+ * contain a secret. A line without sensitive values is returned as the same instance.</p>
+ */
+@Slf4j
+@Component
+public class LogRedactor {
+
+    private static final String EMAIL = "<EMAIL>";
+    private static final String IP = "<IP>";
+    private static final String CARD = "<CARD>";
+    private static final String SECRET = "<SECRET>";
+
+    /** Keys whose value is masked. */
+    private static final List<String> SECRET_KEYS = List.of(
+            "password", "passwd", "pwd", "secret", "client_secret", "token", "access_token", "refresh_token",
+            "api_key", "apikey", "api-key", "access_key", "secret_key", "private_key", "authorization", "credentials");
+
+    /** Authorization schemes that are kept in front of the masked credential. */
+    private static final Set<String> SCHEMES = Set.of("bearer", "basic", "token", "digest");
+
+    private final boolean enabled;
+    private final boolean emails;
+    private final boolean ipAddresses;
+    private final boolean cards;
+    private final KeywordAutomaton automaton;
+    private final List<Trigger> triggers;
+
+    /**
+     * @param config null-safe access to the redaction configuration
+     */
+    @Autowired
+    public LogRedactor(AnalysisConfigProperties config) {
+        this(config.getRedaction());
+    }
+
+    /**
+     * @param config the redaction configuration
+     */
+    public LogRedactor(AiRedactionConfig config) {
+        Set<String> packs = config.getPacks() == null ? Set.of() : Set.copyOf(config.getPacks().stream()
+                .map(pack -> pack.trim().toLowerCase(Locale.ROOT))
+                .toList());
+        this.enabled = config.isEnabled();
+        this.emails = packs.contains("contact");
+        this.ipAddresses = packs.contains("network");
+        this.cards = packs.contains("payment");
+
+        List<Trigger> triggers = new ArrayList<>();
+        if (packs.contains("secrets")) {
+            SECRET_KEYS.forEach(key -> triggers.add(Trigger.ofKey(key)));
+            triggers.add(new Trigger("bearer ", false, 8, true));
+            triggers.add(new Trigger("akia", false, 16, false));
+            for (String prefix : List.of("ghp_", "gho_", "ghs_", "ghu_", "github_pat_", "sk-")) {
+                triggers.add(new Trigger(prefix, false, 20, false));
+            }
+            for (String prefix : List.of("xoxb-", "xoxp-", "xoxa-")) triggers.add(new Trigger(prefix, false, 10, false));
+            // JSON web tokens start with the encoded {"
+            triggers.add(new Trigger("eyj", false, 20, false));
+        }
+        addCustom(triggers, config.getKeywords(), true);
+        addCustom(triggers, config.getPrefixes(), false);
+
+        this.triggers = List.copyOf(triggers);
+        this.automaton = new KeywordAutomaton(this.triggers.stream().map(Trigger::text).toList());
+        log.info("Redaction {} with packs {} and {} keywords and prefixes", enabled ? "enabled" : "disabled", packs, triggers.size());
+    }
+
+    private static void addCustom(List<Trigger> triggers, List<String> values, boolean key) {
+        if (values == null) return;
+        for (String value : values) {
+            if (value == null || value.isBlank()) continue;
+            if (!value.chars().allMatch(c -> c < 128)) {
+                log.warn("Ignoring redaction {} '{}': only ASCII is supported", key ? "keyword" : "prefix", value);
+                continue;
+            }
+            triggers.add(key ? Trigger.ofKey(value.trim()) : new Trigger(value.trim(), false, 8, false));
+        }
+    }
+
+    /**
+     * Masks the sensitive values of a line.
+     *
+     * @param line the raw log line, may be null
+     * @return the line with every sensitive value replaced by its placeholder; the same instance
+     *         if nothing was masked or the redaction is disabled
+     */
+    public String redact(String line) {
+        if (!enabled || line == null || line.isEmpty()) return line;
+
+        Output out = new Output(line);
+        int n = line.length();
+        int state = 0;
+        int i = 0;
+        scan:
+        while (i < n) {
+            char c = line.charAt(i);
+
+            if (c == '@' && emails) {
+                int end = email(line, i, out);
+                if (end > 0) {
+                    i = end;
+                    state = 0;
+                    continue;
+                }
+            } else if (c >= '0' && c <= '9' && (ipAddresses || cards) && (i == 0 || !isWordOrDot(line.charAt(i - 1)))) {
+                // digits never belong to a keyword, so the whole number is consumed here
+                i = number(line, i, out);
+                state = 0;
+                continue;
+            }
+
+            state = automaton.next(state, c);
+            for (int id : automaton.matches(state)) {
+                int end = trigger(line, i - automaton.length(id) + 1, i + 1, triggers.get(id), out);
+                if (end > 0) {
+                    i = end;
+                    state = 0;
+                    continue scan;
+                }
+            }
+            i++;
+        }
+        return out.result();
+    }
+
+    /**
+     * Matches an e-mail address around the {@code @} at the given position.
+     *
+     * @return the end of the masked address, or -1
+     */
+    private static int email(String line, int at, Output out) {
+        int start = at;
+        while (start > out.copied && isLocalPart(line.charAt(start - 1))) start--;
+        if (start == at) return -1;
+
+        int end = at + 1;
+        while (end < line.length() && isDomain(line.charAt(end))) end++;
+        // a trailing dot ends the sentence, not the domain
+        while (end > at + 1 && (line.charAt(end - 1) == '.' || line.charAt(end - 1) == '-')) end--;
+        int lastDot = line.lastIndexOf('.', end - 1);
+        if (lastDot <= at + 1 || end - lastDot - 1 < 2) return -1;
+        for (int k = lastDot + 1; k < end; k++) if (!Character.isLetter(line.charAt(k))) return -1;
+
+        out.mask(start, end, EMAIL);
+        return end;
+    }
+
+    /**
+     * Consumes a number starting at the given position and masks it if it is an IPv4 address or
+     * a card number.
+     *
+     * @return the end of the consumed characters
+     */
+    private int number(String line, int start, Output out) {
+        if (ipAddresses) {
+            int end = ipv4(line, start);
+            if (end > 0) {
+                out.mask(start, end, IP);
+                return end;
+            }
+        }
+
+        int n = line.length();
+        int end = start;
+        int digits = 0;
+        int group = 0;
+        boolean grouped = false;
+        boolean regularGroups = true;
+        while (end < n) {
+            char c = line.charAt(end);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                group++;
+                end++;
+            } else if ((c == ' ' || c == '-') && end + 1 < n && isDigit(line.charAt(end + 1)) && digits < 19) {
+                if (group != 4) regularGroups = false;
+                grouped = true;
+                group = 0;
+                end++;
+            } else {
+                break;
+            }
+        }
+        if (cards && digits >= 13 && digits <= 19 && (!grouped || regularGroups)
+                && (end == n || !Character.isLetterOrDigit(line.charAt(end))) && luhn(line, start, end)) {
+            out.mask(start, end, CARD);
+            return end;
+        }
+        // without a match only the leading digits are consumed; the rest is scanned as usual
+        int digitsEnd = start;
+        while (digitsEnd < n && isDigit(line.charAt(digitsEnd))) digitsEnd++;
+        return digitsEnd;
+    }
+
+    /**
+     * @return the end of the IPv4 address with optional port starting at the given position, or -1
+     */
+    private static int ipv4(String line, int start) {
+        int n = line.length();
+        int i = start;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (i >= n || line.charAt(i) != '.') return -1;
+                i++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < n && isDigit(line.charAt(i)) && digits < 3) {
+                value = value * 10 + line.charAt(i) - '0';
+                digits++;
+                i++;
+            }
+            if (digits == 0 || value > 255) return -1;
+        }
+        if (i < n && (Character.isLetterOrDigit(line.charAt(i))
+                || line.charAt(i) == '.' && i + 1 < n && isDigit(line.charAt(i + 1)))) return -1;
+        if (i + 1 < n && line.charAt(i) == ':' && isDigit(line.charAt(i + 1))) {
+            int port = i + 1;
+            while (port < n && port - i <= 5 && isDigit(line.charAt(port))) port++;
+            if (port == n || !Character.isLetterOrDigit(line.charAt(port))) return port;
+        }
+        return i;
+    }
+
+    /**
+     * Masks the value after a key or the token starting with a prefix.
+     *
+     * @param start start of the matched keyword
+     * @param end   end of the matched keyword
+     * @return the end of the masked value, or -1 if the keyword is not followed by one
+     */
+    private static int trigger(String line, int start, int end, Trigger trigger, Output out) {
+        if (start < out.copied || start > 0 && Character.isLetterOrDigit(line.charAt(start - 1))) return -1;
+        return trigger.key() ? keyValue(line, end, out) : token(line, start, end, trigger, out);
+    }
+
+    private static int keyValue(String line, int keyEnd, Output out) {
+        int n = line.length();
+        int i = keyEnd;
+        if (i < n && (line.charAt(i) == '"' || line.charAt(i) == '\'')) i++;
+        while (i < n && line.charAt(i) == ' ') i++;
+        if (i >= n || line.charAt(i) != '=' && line.charAt(i) != ':') return -1;
+        i++;
+        while (i < n && line.charAt(i) == ' ') i++;
+
+        char quote = i < n && (line.charAt(i) == '"' || line.charAt(i) == '\'') ? line.charAt(i) : 0;
+        if (quote != 0) i++;
+        int valueStart = i;
+        int valueEnd = valueEnd(line, valueStart, quote);
+
+        // "Authorization: Bearer abc" keeps the scheme
+        if (quote == 0 && valueEnd < n && line.charAt(valueEnd) == ' '
+                && SCHEMES.contains(line.substring(valueStart, valueEnd).toLowerCase(Locale.ROOT))) {
+            valueStart = valueEnd + 1;
+            valueEnd = valueEnd(line, valueStart, quote);
+        }
+        if (valueEnd == valueStart) return -1;
+        out.mask(valueStart, valueEnd, SECRET);
+        return valueEnd;
+    }
+
+    private static int valueEnd(String line, int from, char quote) {
+        int i = from;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (quote != 0 ? c == quote : Character.isWhitespace(c) || ",;&\"'})]".indexOf(c) >= 0) break;
+            i++;
+        }
+        return i;
+    }
+
+    private static int token(String line, int start, int end, Trigger trigger, Output out) {
+        int i = end;
+        while (i < line.length() && isTokenChar(line.charAt(i))) i++;
+        if (i - end < trigger.minLength()) return -1;
+        out.mask(trigger.keepText() ? end : start, i, SECRET);
+        return i;
+    }
+
+    private static boolean luhn(String line, int start, int end) {
+        int sum = 0;
+        boolean twice = false;
+        for (int i = end - 1; i >= start; i--) {
+            char c = line.charAt(i);
+            if (!isDigit(c)) continue;
+            int digit = c - '0';
+            if (twice) {
+                digit *= 2;
+                if (digit > 9) digit -= 9;
+            }
+            sum += digit;
+            twice = !twice;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordOrDot(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_';
+    }
+
+    private static boolean isLocalPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomain(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '-';
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == '+' || c == '/' || c == '=';
+    }
+
+    /**
+     * A keyword of the automaton: either a key whose value is masked, or a token prefix.
+     *
+     * @param text      the keyword
+     * @param key       true for a key followed by {@code =} or {@code :} and the value
+     * @param minLength characters a token needs after its prefix
+     * @param keepText  whether the prefix stays in front of the masked token
+     */
+    private record Trigger(String text, boolean key, int minLength, boolean keepText) {
+        static Trigger ofKey(String text) {
+            return new Trigger(text, true, 1, true);
+        }
+    }
+
+    /**
+     * The redacted line, copied from the input only once the first value is masked.
+     */
+    private static final class Output {
+        private final String line;
+        private StringBuilder text;
+        private int copied;
+
+        private Output(String line) {
+            this.line = line;
+        }
+
+        private void mask(int start, int end, String placeholder) {
+            if (text == null) text = new StringBuilder(line.length());
+            text.append(line, copied, start).append(placeholder);
+            copied = end;
+        }
+
+        private String result() {
+            if (text == null) return line;
+            return text.append(line, copied, line.length()).toString();
+        }
+    }
+}
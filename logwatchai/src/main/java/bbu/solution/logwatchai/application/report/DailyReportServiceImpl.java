@@ -5,6 +5,9 @@ import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
 import bbu.solution.logwatchai.domain.alert.Alert;
 import bbu.solution.logwatchai.domain.log.LogEntry;
 import bbu.solution.logwatchai.domain.report.DailyReport;
+import bbu.solution.logwatchai.domain.template.LogTemplate;
+import bbu.solution.logwatchai.domain.template.LogTemplateNormalizer;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
 import bbu.solution.logwatchai.infrastructure.persistence.report.DailyReportRepository;
 import bbu.solution.logwatchai.infrastructure.persistence.alert.AlertRepository;
 import bbu.solution.logwatchai.infrastructure.persistence.analysis.AIAnalysisRepository;
@@ -38,6 +41,7 @@ public class DailyReportServiceImpl implements bbu.solution.logwatchai.domain.re
     private final LogEntryRepository logEntryRepository;
     private final AlertRepository alertRepository;
     private final AIAnalysisRepository aiAnalysisRepository;
+    private final LogTemplateService logTemplateService;
 
     @Autowired
     private final ObjectMapper mapper;
@@ -195,28 +199,47 @@ public class DailyReportServiceImpl implements bbu.solution.logwatchai.domain.re
     }
 
     /**
-     * Builds a list of the top most frequent log message fragments (up to 200 characters).
+     * Builds a list of the most frequent log templates.
      *
-     * <p>I aggregate messages globally across all sources and return the
-     * top 10 entries, each containing the message example and the frequency.</p>
+     * <p>I group the logs by their mined template, so lines that only differ in IDs, numbers
+     * or timestamps count as one issue. Entries ingested before template mining existed are
+     * grouped by their normalized text instead. I aggregate globally across all sources and
+     * return the top 10 groups, each containing the template, one example line and the frequency.</p>
      */
     private List<Map<String, Object>> buildTopIssues(List<LogEntry> logs) {
-        Map<String, Long> freq = new HashMap<>();
+        Map<Object, Long> freq = new HashMap<>();
+        Map<Object, String> examples = new HashMap<>();
         for (LogEntry l : logs) {
-            String key = l.getRawText() == null
-                    ? ""
-                    : (l.getRawText().length() > 200
-                    ? l.getRawText().substring(0, 200)
-                    : l.getRawText());
+            Object key = l.getTemplateId() != null
+                    ? l.getTemplateId()
+                    : LogTemplateNormalizer.normalize(l.getRawText());
             freq.merge(key, 1L, Long::sum);
+            examples.putIfAbsent(key, l.getRawText() == null ? "" : l.getRawText());
         }
 
-        return freq.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+        List<Map.Entry<Object, Long>> top = freq.entrySet().stream()
+                .sorted(Map.Entry.<Object, Long>comparingByValue().reversed())
                 .limit(10)
+                .toList();
+
+        Set<UUID> templateIds = top.stream()
+                .map(Map.Entry::getKey)
+                .filter(UUID.class::isInstance)
+                .map(UUID.class::cast)
+                .collect(Collectors.toSet());
+        Map<UUID, String> templates = logTemplateService.getTemplates(templateIds).stream()
+                .collect(Collectors.toMap(LogTemplate::getId, LogTemplate::getTemplate));
+
+        return top.stream()
                 .map(e -> {
                     Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("example", e.getKey());
+                    if (e.getKey() instanceof UUID templateId) {
+                        m.put("templateId", templateId.toString());
+                        m.put("template", templates.getOrDefault(templateId, LogTemplateNormalizer.normalize(examples.get(templateId))));
+                    } else {
+                        m.put("template", e.getKey());
+                    }
+                    m.put("example", examples.get(e.getKey()));
                     m.put("count", e.getValue());
                     return m;
                 })
@@ -63,6 +63,28 @@ public class RuleEvaluator {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Evaluates the rules that can be decided on a preliminary analysis.
+     *
+     * <p>A preliminary analysis only knows the severity and the anomaly score, so I skip every
+     * rule with text fragments; those are decided on the complete analysis.</p>
+     *
+     * @param analysis the preliminary analysis
+     * @return all rules without text fragments that match this analysis
+     */
+    public List<Rule> evaluatePreliminary(AIAnalysis analysis) {
+        return rules.stream()
+                .filter(rule -> rule.getTextContains() == null || rule.getTextContains().isEmpty())
+                .filter(rule -> {
+                    boolean match = rule.matches(analysis);
+                    if (match) {
+                        log.debug("Rule '{}' triggered on a preliminary analysis", rule.getName());
+                    }
+                    return match;
+                })
+                .collect(Collectors.toList());
+    }
+
     /**
      * Returns all rules that I currently manage.
      *
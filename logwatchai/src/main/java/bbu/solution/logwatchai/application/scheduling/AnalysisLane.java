@@ -0,0 +1,19 @@
+package bbu.solution.logwatchai.application.scheduling;
+
+/**
+ * Priority lanes of the {@link AnalysisScheduler}, from most to least urgent.
+ */
+public enum AnalysisLane {
+
+    /** FATAL lines and lines with a very high priority, e.g. errors of heavily weighted sources. */
+    CRITICAL,
+
+    /** ERROR lines and lines the triage considers clearly suspicious. */
+    HIGH,
+
+    /** WARN lines and lines just above the triage threshold. */
+    NORMAL,
+
+    /** Routine lines; they are dropped first when the scheduler is full. */
+    LOW
+}
@@ -0,0 +1,556 @@
+package bbu.solution.logwatchai.application.scheduling;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.domain.appconfig.AiSchedulingConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.logsource.LogSource;
+import bbu.solution.logwatchai.infrastructure.persistence.logsource.LogSourceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decides which waiting log line is analyzed next.
+ *
+ * <p>The aiExecutor alone works in arrival order, so during a flood of routine lines an ERROR
+ * line would wait behind all of them. I put every line into a priority lane instead, keyed by
+ * its parsed level, its triage score and the weight of its source, and hand lines to the
+ * aiExecutor only while fewer than {@code maxInFlight} analyses are running. The backlog
+ * therefore waits in the lanes, where a more important line overtakes it.</p>
+ *
+ * <p>Lanes with startable lines are served by smooth weighted round robin (by default
+ * CRITICAL:HIGH:NORMAL:LOW = 8:4:2:1). Within a lane every source has its own queue, and the
+ * sources take turns by deficit round robin: per round a source may start as many lines as its
+ * share. A source that already runs its {@code sourceMaxInFlight} analyses is skipped until one
+ * of them completes. A single chatty source therefore only slows itself down, and the latency of
+ * all other sources stays predictable no matter how many sources there are.</p>
+ *
+ * <p>A line that has waited longer than {@code maxWaitMs} is served before all others, so even
+ * the LOW lane keeps moving under a constant stream of errors. When {@code maxQueued} lines are
+ * waiting, the newest LOW line of the source with the most waiting LOW lines makes room for a
+ * more important one; lines I drop or reject were never claimed and stay pending for the sweep.
+ * A line I already hold, waiting or running, is not queued a second time, so the sweep does not
+ * fill the lanes with copies of the lines that are still waiting for their turn.</p>
+ *
+ * <p>The fair share covers the analysis stage: the claim, the provider call and the commit of
+ * the result. Ingest is not scheduled here. It runs on the watcher thread of the line's directory
+ * and does redaction, template mining, the occurrence count, the context window update and the
+ * insert, so files in the same directory share that thread and a chatty file delays its
+ * neighbours' ingest. Files in other directories only share the short template lock and the
+ * connection pool.</p>
+ *
+ * <p>Metrics per lane: {@code logwatchai.analysis.lane.queued}, {@code .dispatched},
+ * {@code .wait}, {@code .aged} (served because of their age) and {@code .shed}. Per source:
+ * {@code logwatchai.analysis.source.queued} and {@code logwatchai.analysis.source.inflight}.</p>
+ */
+@Component
+public class AnalysisScheduler {
+
+    private static final double CRITICAL_FROM = 0.85;
+    private static final double HIGH_FROM = 0.6;
+    private static final double NORMAL_FROM = 0.3;
+
+    /** Stands for entries without a source. */
+    private static final UUID NO_SOURCE = new UUID(0, 0);
+
+    private final AiSchedulingConfig config;
+    private final Function<UUID, LogSource> sources;
+    private final Executor executor;
+    private final MeterRegistry registry;
+    private final long maxWaitNanos;
+    private final int maxInFlight;
+    private final int maxQueued;
+
+    private final Map<AnalysisLane, Lane> lanes = new EnumMap<>(AnalysisLane.class);
+
+    /** Settings per source id; their counters are guarded by this. */
+    private final Map<UUID, SourceState> sourceStates = new ConcurrentHashMap<>();
+
+    /** Ids of the entries waiting in a lane or being analyzed. Guarded by this. */
+    private final Set<UUID> held = new HashSet<>();
+
+    /** Guarded by this. */
+    private int queued;
+    private int inFlight;
+
+    /**
+     * Creates the scheduler from the application configuration.
+     *
+     * @param analysisConfig null-safe access to the scheduling configuration
+     * @param logSourceRepository resolves source names and paths for the per-source settings
+     * @param aiExecutor the executor that runs the analyses
+     * @param registry the meter registry for the lane and source metrics
+     */
+    @Autowired
+    public AnalysisScheduler(AnalysisConfigProperties analysisConfig,
+                             LogSourceRepository logSourceRepository,
+                             @Qualifier("aiExecutor") Executor aiExecutor,
+                             MeterRegistry registry) {
+        this(analysisConfig.getScheduling(), id -> logSourceRepository.findById(id).orElse(null), aiExecutor, registry);
+    }
+
+    /**
+     * @param config   the scheduling configuration
+     * @param sources  looks up a log source by id, may return null
+     * @param executor the executor that runs the analyses
+     * @param registry the meter registry for the lane and source metrics
+     */
+    public AnalysisScheduler(AiSchedulingConfig config, Function<UUID, LogSource> sources,
+                             Executor executor, MeterRegistry registry) {
+        this.config = config;
+        this.sources = sources;
+        this.executor = executor;
+        this.registry = registry;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getMaxWaitMs()));
+        this.maxInFlight = Math.max(1, config.getMaxInFlight());
+        this.maxQueued = Math.max(1, config.getMaxQueued());
+
+        for (AnalysisLane lane : AnalysisLane.values()) {
+            Integer weight = config.getLaneWeights() == null ? null : config.getLaneWeights().get(lane.name());
+            lanes.put(lane, new Lane(lane, weight == null ? defaultWeight(lane) : Math.max(1, weight), registry));
+        }
+        Gauge.builder("logwatchai.analysis.inflight", this, AnalysisScheduler::getInFlight)
+                .description("Log lines being analyzed")
+                .register(registry);
+    }
+
+    /**
+     * Queues the analysis of a line in its lane.
+     *
+     * @param entry       the log entry
+     * @param triageScore the triage score of the entry
+     * @param task        starts the analysis and returns a future completed when it is done;
+     *                    it runs on the executor
+     * @return false if the line was not accepted and remains pending; true if it was queued or
+     *         is already waiting or running
+     */
+    public boolean submit(LogEntry entry, double triageScore, Supplier<CompletableFuture<?>> task) {
+        if (!config.isEnabled()) {
+            try {
+                executor.execute(task::get);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        SourceState source = sourceState(entry.getSourceId());
+        Lane lane = lanes.get(laneOf(entry, triageScore, source.weight));
+        synchronized (this) {
+            if (held.contains(entry.getId())) return true;
+            if (queued >= maxQueued && !shedLow(lane)) {
+                lane.shed.increment();
+                return false;
+            }
+            lane.add(source, new Job(lane.id, entry.getId(), source, task, System.nanoTime()));
+            held.add(entry.getId());
+            queued++;
+        }
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Determines the lane of a line: the higher of its level priority and triage score,
+     * multiplied by the weight of its source.
+     *
+     * @param entry       the log entry
+     * @param triageScore the triage score of the entry
+     * @return the lane the line waits in
+     */
+    public AnalysisLane laneOf(LogEntry entry, double triageScore) {
+        return laneOf(entry, triageScore, sourceState(entry.getSourceId()).weight);
+    }
+
+    private static AnalysisLane laneOf(LogEntry entry, double triageScore, double sourceWeight) {
+        double priority = Math.max(levelPriority(entry.getLevel()), triageScore) * sourceWeight;
+        if (priority >= CRITICAL_FROM) return AnalysisLane.CRITICAL;
+        if (priority >= HIGH_FROM) return AnalysisLane.HIGH;
+        if (priority >= NORMAL_FROM) return AnalysisLane.NORMAL;
+        return AnalysisLane.LOW;
+    }
+
+    /**
+     * @return the number of analyses currently running
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @param lane a lane
+     * @return the number of lines waiting in the lane
+     */
+    public synchronized int getQueued(AnalysisLane lane) {
+        Lane state = lanes.get(lane);
+        return state == null ? 0 : state.size;
+    }
+
+    /**
+     * @param sourceId a source id
+     * @return the number of lines of the source waiting in all lanes
+     */
+    public synchronized int getQueued(UUID sourceId) {
+        SourceState source = sourceStates.get(sourceId == null ? NO_SOURCE : sourceId);
+        return source == null ? 0 : source.queued;
+    }
+
+    /**
+     * Drops the newest LOW line of the source with the most waiting LOW lines, unless the new
+     * line is a LOW line itself. Called while holding the lock.
+     *
+     * @return true if room was made
+     */
+    private boolean shedLow(Lane incoming) {
+        Lane low = lanes.get(AnalysisLane.LOW);
+        if (incoming == low) return false;
+        LaneSource noisiest = null;
+        for (LaneSource candidate : low.ring) {
+            if (noisiest == null || candidate.jobs.size() > noisiest.jobs.size()) noisiest = candidate;
+        }
+        if (noisiest == null) return false;
+        Job dropped = noisiest.jobs.pollLast();
+        low.removed(noisiest, dropped);
+        held.remove(dropped.entryId);
+        low.shed.increment();
+        queued--;
+        return true;
+    }
+
+    /**
+     * Starts waiting analyses while there is capacity. If the executor rejects one, it goes back
+     * to the head of its source queue and is started with the next submission or completion.
+     */
+    private void dispatch() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                if (inFlight >= maxInFlight) return;
+                job = next(System.nanoTime());
+                if (job == null) return;
+                queued--;
+                inFlight++;
+                job.source.inFlight++;
+                Lane lane = lanes.get(job.lane);
+                lane.dispatched.increment();
+                lane.wait.record(System.nanoTime() - job.enqueuedNanos, TimeUnit.NANOSECONDS);
+            }
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    inFlight--;
+                    job.source.inFlight--;
+                    lanes.get(job.lane).addFirst(job);
+                    queued++;
+                }
+                return;
+            }
+        }
+    }
+
+    private void run(Job job) {
+        CompletableFuture<?> analysis;
+        try {
+            analysis = job.task.get();
+        } catch (RuntimeException e) {
+            analysis = CompletableFuture.failedFuture(e);
+        }
+        if (analysis == null) analysis = CompletableFuture.completedFuture(null);
+        analysis.whenComplete((result, error) -> release(job));
+    }
+
+    private void release(Job job) {
+        synchronized (this) {
+            inFlight--;
+            job.source.inFlight--;
+            held.remove(job.entryId);
+        }
+        dispatch();
+    }
+
+    /**
+     * Takes the line to start next: the startable line that has waited longest beyond
+     * {@code maxWaitMs}, otherwise the next line of the lane chosen by smooth weighted round robin
+     * among the lanes with startable lines. Called while holding the lock.
+     */
+    private Job next(long now) {
+        Lane agedLane = null;
+        LaneSource aged = null;
+        for (Lane lane : lanes.values()) {
+            for (LaneSource candidate : lane.ring) {
+                if (!candidate.source.canStart()) continue;
+                long enqueued = candidate.jobs.peekFirst().enqueuedNanos;
+                if (now - enqueued < maxWaitNanos) continue;
+                if (aged == null || enqueued < aged.jobs.peekFirst().enqueuedNanos) {
+                    aged = candidate;
+                    agedLane = lane;
+                }
+            }
+        }
+        if (aged != null) {
+            agedLane.aged.increment();
+            return agedLane.take(aged);
+        }
+
+        Lane best = null;
+        int total = 0;
+        for (Lane lane : lanes.values()) {
+            if (!lane.hasStartable()) continue;
+            lane.current += lane.weight;
+            total += lane.weight;
+            if (best == null || lane.current > best.current) best = lane;
+        }
+        if (best == null) return null;
+        best.current -= total;
+        return best.nextByDeficit();
+    }
+
+    /**
+     * Returns the settings of a source, resolving them from the configuration on first use.
+     * A source that could not be found yet, e.g. because it was created after its first line
+     * arrived, is looked up again until it is found. The lookup runs outside the scheduler lock.
+     */
+    private SourceState sourceState(UUID sourceId) {
+        UUID key = sourceId == null ? NO_SOURCE : sourceId;
+        SourceState state = sourceStates.computeIfAbsent(key, id -> new SourceState(sourceId == null ? null : sources.apply(sourceId), id));
+        if (sourceId != null && !state.resolved) {
+            LogSource source = sources.apply(sourceId);
+            if (source != null) {
+                synchronized (this) {
+                    state.apply(source);
+                }
+            }
+        }
+        return state;
+    }
+
+    private static double levelPriority(String level) {
+        if (level == null) return 0.1;
+        return switch (level) {
+            case "FATAL" -> 1.0;
+            case "ERROR" -> 0.7;
+            case "WARN" -> 0.4;
+            case "INFO" -> 0.1;
+            default -> 0.0;
+        };
+    }
+
+    private static int defaultWeight(AnalysisLane lane) {
+        return switch (lane) {
+            case CRITICAL -> 8;
+            case HIGH -> 4;
+            case NORMAL -> 2;
+            case LOW -> 1;
+        };
+    }
+
+    /**
+     * Returns the configured value of the first key that equals the source's name or is
+     * contained in its path.
+     */
+    private static <T> T match(Map<String, T> values, LogSource source) {
+        if (values == null || values.isEmpty() || source == null) return null;
+        String name = source.getName() == null ? "" : source.getName().toLowerCase(Locale.ROOT);
+        String path = source.getPath() == null ? "" : source.getPath().toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, T> value : values.entrySet()) {
+            String key = value.getKey().toLowerCase(Locale.ROOT);
+            if (name.equals(key) || path.contains(key)) return value.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * A line waiting for its analysis.
+     */
+    private record Job(AnalysisLane lane, UUID entryId, SourceState source, Supplier<CompletableFuture<?>> task, long enqueuedNanos) {}
+
+    /**
+     * Settings and counters of one source across all lanes. Guarded by the scheduler; the weight
+     * and the resolved flag are also read without the lock.
+     */
+    private final class SourceState {
+        private volatile double weight;
+        private volatile boolean resolved;
+        private int share;
+        private int maxInFlight;
+        private int queued;
+        private int inFlight;
+
+        private SourceState(LogSource source, UUID id) {
+            apply(source);
+
+            String tag = source != null && source.getName() != null ? source.getName() : id.toString();
+            Gauge.builder("logwatchai.analysis.source.queued", AnalysisScheduler.this, s -> s.getQueued(id))
+                    .description("Log lines of a source waiting for analysis")
+                    .tag("source", tag)
+                    .register(registry);
+            Gauge.builder("logwatchai.analysis.source.inflight", this, s -> s.inFlight)
+                    .description("Log lines of a source being analyzed")
+                    .tag("source", tag)
+                    .register(registry);
+        }
+
+        /**
+         * Takes the settings configured for the source; the defaults if it is null.
+         */
+        private void apply(LogSource source) {
+            Double weight = match(config.getSourceWeights(), source);
+            Integer share = match(config.getSourceShares(), source);
+            Integer limit = match(config.getSourceMaxInFlight(), source);
+            this.weight = weight == null ? 1.0 : Math.max(0.0, weight);
+            this.share = Math.max(1, share == null ? config.getDefaultSourceShare() : share);
+            this.maxInFlight = Math.max(1, limit == null ? config.getDefaultSourceMaxInFlight() : limit);
+            this.resolved = source != null;
+        }
+
+        private boolean canStart() {
+            return inFlight < maxInFlight;
+        }
+    }
+
+    /**
+     * The waiting lines of one source within one lane, with its deficit round robin credit.
+     */
+    private static final class LaneSource {
+        private final SourceState source;
+        private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+        private int deficit;
+
+        private LaneSource(SourceState source) {
+            this.source = source;
+        }
+    }
+
+    /**
+     * Waiting lines, round-robin state and metrics of one lane. Guarded by the scheduler.
+     */
+    private final class Lane {
+        private final AnalysisLane id;
+        private final int weight;
+        private int current;
+        private int size;
+
+        /** Sources with waiting lines in deficit round robin order. */
+        private final ArrayDeque<LaneSource> ring = new ArrayDeque<>();
+        private final Map<SourceState, LaneSource> bySource = new HashMap<>();
+
+        private final Counter dispatched;
+        private final Counter aged;
+        private final Counter shed;
+        private final Timer wait;
+
+        private Lane(AnalysisLane id, int weight, MeterRegistry registry) {
+            this.id = id;
+            this.weight = weight;
+            String tag = id.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("logwatchai.analysis.lane.queued", AnalysisScheduler.this, s -> s.getQueued(id))
+                    .description("Log lines waiting for analysis per lane")
+                    .tag("lane", tag)
+                    .register(registry);
+            this.dispatched = Counter.builder("logwatchai.analysis.lane.dispatched")
+                    .description("Log lines handed to the analysis per lane")
+                    .tag("lane", tag)
+                    .register(registry);
+            this.aged = Counter.builder("logwatchai.analysis.lane.aged")
+                    .description("Log lines served ahead of their turn because they waited too long")
+                    .tag("lane", tag)
+                    .register(registry);
+            this.shed = Counter.builder("logwatchai.analysis.lane.shed")
+                    .description("Log lines dropped or rejected because the scheduler was full; they stay pending")
+                    .tag("lane", tag)
+                    .register(registry);
+            this.wait = Timer.builder("logwatchai.analysis.lane.wait")
+                    .description("Time log lines waited in their lane")
+                    .tag("lane", tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        private void add(SourceState source, Job job) {
+            sourceQueue(source).jobs.addLast(job);
+            source.queued++;
+            size++;
+        }
+
+        private void addFirst(Job job) {
+            sourceQueue(job.source).jobs.addFirst(job);
+            job.source.queued++;
+            size++;
+        }
+
+        private LaneSource sourceQueue(SourceState source) {
+            LaneSource queue = bySource.get(source);
+            if (queue == null) {
+                queue = new LaneSource(source);
+                bySource.put(source, queue);
+                ring.addLast(queue);
+            }
+            return queue;
+        }
+
+        private boolean hasStartable() {
+            for (LaneSource queue : ring) {
+                if (queue.source.canStart()) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Deficit round robin with a cost of one per line: the source at the head gets its share
+         * as credit when its turn begins and keeps the turn until the credit is used up. Sources
+         * at their in-flight limit pass their turn.
+         */
+        private Job nextByDeficit() {
+            for (int i = ring.size(); i > 0; i--) {
+                LaneSource head = ring.peekFirst();
+                if (!head.source.canStart()) {
+                    head.deficit = 0;
+                    ring.addLast(ring.pollFirst());
+                    continue;
+                }
+                if (head.deficit <= 0) head.deficit = head.source.share;
+                head.deficit--;
+                Job job = take(head);
+                if (head.deficit <= 0 && !head.jobs.isEmpty()) ring.addLast(ring.pollFirst());
+                return job;
+            }
+            return null;
+        }
+
+        private Job take(LaneSource queue) {
+            Job job = queue.jobs.pollFirst();
+            removed(queue, job);
+            return job;
+        }
+
+        private void removed(LaneSource queue, Job job) {
+            job.source.queued--;
+            size--;
+            if (queue.jobs.isEmpty()) {
+                ring.remove(queue);
+                bySource.remove(queue.source);
+            }
+        }
+    }
+}
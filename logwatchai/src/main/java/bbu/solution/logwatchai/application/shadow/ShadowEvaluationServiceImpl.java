@@ -0,0 +1,330 @@
+package bbu.solution.logwatchai.application.shadow;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCircuitBreakers;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategyFactory;
+import bbu.solution.logwatchai.application.analysis.strategy.AsyncAiStrategy;
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.application.budget.BudgetLevel;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import bbu.solution.logwatchai.domain.appconfig.AiShadowConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.shadow.ShadowComparison;
+import bbu.solution.logwatchai.domain.shadow.ShadowEvaluationService;
+import bbu.solution.logwatchai.domain.shadow.ShadowSummary;
+import bbu.solution.logwatchai.infrastructure.persistence.shadow.ShadowComparisonRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sends a sample of the analyzed lines to a candidate strategy and stores its answers next to
+ * the primary ones.
+ *
+ * <p>The analysis service asks me for every line it sends to a provider whether the line is
+ * sampled. A line is sampled with the configured rate, as long as the candidate has made fewer
+ * than {@code maxPerMinute} calls in the current minute, fewer than {@code maxInFlight} calls
+ * are running and the AI budget is not running low. Everything else is skipped, never queued,
+ * so the shadow load cannot slow the primary pipeline.</p>
+ *
+ * <p>Once the primary analysis is done, the candidate gets the same prompt. Remote candidates
+ * answer without blocking a thread; blocking ones run on virtual threads of my own. The
+ * comparison — severity match, score difference, latency and cost of both — is stored when the
+ * candidate answers. The candidate's answer is never used by the pipeline.</p>
+ *
+ * <p>I count the comparisons in {@code logwatchai.ai.shadow.comparisons} by result and skipped
+ * samples in {@code logwatchai.ai.shadow.skipped} by reason.</p>
+ */
+@Slf4j
+@Service
+public class ShadowEvaluationServiceImpl implements ShadowEvaluationService {
+
+    private final AiShadowConfig config;
+    private final AiStrategy candidate;
+    private final AiBudgetService budget;
+    private final ShadowComparisonRepository repository;
+    private final MeterRegistry registry;
+    private final ExecutorService blockingCalls = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Semaphore inFlight;
+
+    /** Primary usage of the sampled prompts, by prompt instance. */
+    private final Map<String, Sample> pending = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /** Calls started in the current minute. Guarded by this. */
+    private long minute;
+    private int startedThisMinute;
+
+    /**
+     * Creates the shadow evaluation and builds the candidate strategy.
+     *
+     * @param analysisConfig provides the shadow configuration and the candidate's model entry
+     * @param httpTransport the shared HTTP transport
+     * @param circuitBreakers the circuit breakers of the strategies
+     * @param budget prices the calls and stops the sampling while the budget runs low
+     * @param repository stores the comparisons
+     * @param registry the meter registry for shadow metrics
+     */
+    public ShadowEvaluationServiceImpl(AnalysisConfigProperties analysisConfig,
+                                       AiHttpTransport httpTransport,
+                                       AiCircuitBreakers circuitBreakers,
+                                       AiBudgetService budget,
+                                       ShadowComparisonRepository repository,
+                                       MeterRegistry registry) {
+        this.config = analysisConfig.getShadow();
+        this.budget = budget;
+        this.repository = repository;
+        this.registry = registry;
+        this.inFlight = new Semaphore(Math.max(1, config.getMaxInFlight()));
+        this.candidate = config.isEnabled() ? buildCandidate(analysisConfig.getAi(), httpTransport, circuitBreakers, registry) : null;
+
+        if (config.isEnabled()) {
+            if (candidate == null) {
+                log.warn("Shadow evaluation enabled, but candidate '{}' is not an enabled model", config.getCandidate());
+            } else {
+                log.info("Shadow evaluation of '{}' on {}% of the analyzed lines, at most {} calls per minute",
+                        candidate.getName(), Math.round(config.getSampleRate() * 100), config.getMaxPerMinute());
+            }
+        }
+    }
+
+    private AiStrategy buildCandidate(AiConfig ai, AiHttpTransport transport, AiCircuitBreakers breakers, MeterRegistry registry) {
+        if (config.getCandidate() == null || ai.getModels() == null) return null;
+        List<AiModelEntry> entries = ai.getModels().stream()
+                .filter(entry -> entry != null && entry.isEnabled() && config.getCandidate().equals(entry.getName()))
+                .limit(1)
+                .toList();
+        AiConfig only = new AiConfig();
+        only.setModels(entries);
+        return AiStrategyFactory.buildStrategies(only, transport, breakers, registry).get(config.getCandidate());
+    }
+
+    /**
+     * @return the name of the candidate model entry, or null if the shadow evaluation is off;
+     *         this entry must not be used for the primary analysis
+     */
+    public String getCandidateName() {
+        return config.isEnabled() ? config.getCandidate() : null;
+    }
+
+    /**
+     * Decides whether a line is also sent to the candidate. A sampled line holds a slot until
+     * {@link #compare} or {@link #discard} is called for it.
+     *
+     * @param entry  the log entry about to be analyzed
+     * @param prompt the prompt the primary analysis sends; the same instance must be used
+     * @return the sample, or null if the line is not sampled
+     */
+    public Sample sample(LogEntry entry, String prompt) {
+        if (candidate == null || ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) return null;
+
+        if (budget.level(entry.getSourceId()) != BudgetLevel.NORMAL) {
+            skipped("budget");
+            return null;
+        }
+        if (!inFlight.tryAcquire()) {
+            skipped("in-flight");
+            return null;
+        }
+        synchronized (this) {
+            long current = System.currentTimeMillis() / 60_000;
+            if (current != minute) {
+                minute = current;
+                startedThisMinute = 0;
+            }
+            if (startedThisMinute >= config.getMaxPerMinute()) {
+                inFlight.release();
+                skipped("rate");
+                return null;
+            }
+            startedThisMinute++;
+        }
+
+        Sample sample = new Sample(entry, prompt);
+        pending.put(prompt, sample);
+        return sample;
+    }
+
+    /**
+     * Adds the cost of a primary provider call to the sample of its prompt, if any.
+     *
+     * @param strategy   the strategy that answered
+     * @param prompt     the prompt sent
+     * @param completion the answer with its reported token usage
+     */
+    public void onUsage(AiStrategy strategy, String prompt, AiCompletion completion) {
+        if (pending.isEmpty() || completion == null) return;
+        Sample sample = pending.get(prompt);
+        if (sample == null) return;
+        double cost = cost(strategy, prompt, completion);
+        synchronized (sample) {
+            sample.primaryCost += cost;
+        }
+    }
+
+    /**
+     * Releases a sample whose primary analysis failed; there is nothing to compare.
+     *
+     * @param sample the sample, may be null
+     */
+    public void discard(Sample sample) {
+        if (sample == null) return;
+        pending.remove(sample.prompt);
+        inFlight.release();
+    }
+
+    /**
+     * Sends the sampled prompt to the candidate and stores the comparison once it answers.
+     * Returns right away.
+     *
+     * @param sample          the sample, may be null
+     * @param primary         the primary analysis
+     * @param primaryStrategy identifies the primary producer
+     * @param parser          maps a response to an analysis of the line, or to null if it is not usable
+     */
+    public void compare(Sample sample, AIAnalysis primary, String primaryStrategy, Function<String, AIAnalysis> parser) {
+        if (sample == null) return;
+        pending.remove(sample.prompt);
+        long primaryLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sample.started);
+        double primaryCost;
+        synchronized (sample) {
+            primaryCost = sample.primaryCost;
+        }
+
+        long start = System.nanoTime();
+        invoke(sample.prompt).whenComplete((completion, error) -> {
+            try {
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                AIAnalysis answer = null;
+                double cost = 0.0;
+                String failure = null;
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    failure = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+                } else {
+                    budget.record(candidate, sample.prompt, completion, sample.sourceId);
+                    cost = cost(candidate, sample.prompt, completion);
+                    answer = parser.apply(completion.content());
+                    if (answer == null) failure = "Unusable response";
+                }
+
+                ShadowComparison comparison = new ShadowComparison(primaryStrategy, candidate.getName(), primary, answer,
+                        primaryLatency, latency, primaryCost, cost, failure);
+                repository.save(comparison);
+                Counter.builder("logwatchai.ai.shadow.comparisons")
+                        .description("Lines compared with the shadow candidate by result")
+                        .tags("candidate", candidate.getName(),
+                                "result", failure != null ? "failed" : comparison.isSeverityMatch() ? "match" : "mismatch")
+                        .register(registry)
+                        .increment();
+            } catch (DataAccessException e) {
+                log.warn("Could not store shadow comparison: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Shadow comparison failed: {}", e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private CompletableFuture<AiCompletion> invoke(String prompt) {
+        try {
+            if (candidate instanceof AsyncAiStrategy async) return async.analyzeAsync(prompt);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return AiCompletion.of(candidate.analyze(prompt));
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, blockingCalls);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private double cost(AiStrategy strategy, String prompt, AiCompletion completion) {
+        long promptTokens = completion.promptTokens();
+        long completionTokens = completion.completionTokens();
+        if (promptTokens + completionTokens == 0) {
+            promptTokens = prompt == null ? 0 : (prompt.length() + 3) / 4;
+            completionTokens = completion.content() == null ? 0 : (completion.content().length() + 3) / 4;
+        }
+        return budget.estimateCost(strategy.getName(), promptTokens, completionTokens);
+    }
+
+    private void skipped(String reason) {
+        Counter.builder("logwatchai.ai.shadow.skipped")
+                .description("Sampled lines not sent to the shadow candidate by reason")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ShadowSummary> getSummary(Instant since) {
+        return repository.summarize(since, config.getScoreTolerance());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<ShadowComparison> getComparisons(String candidateStrategy, Pageable pageable) {
+        return candidateStrategy == null || candidateStrategy.isBlank()
+                ? repository.findAllByOrderByCreatedAtDesc(pageable)
+                : repository.findByCandidateStrategyOrderByCreatedAtDesc(candidateStrategy, pageable);
+    }
+
+    /**
+     * Stops the threads of blocking candidate calls.
+     */
+    @PreDestroy
+    public void shutdown() {
+        blockingCalls.shutdownNow();
+    }
+
+    /**
+     * A line sent to the candidate, from the start of its primary analysis on.
+     */
+    public static final class Sample {
+        private final String prompt;
+        private final UUID sourceId;
+        private final long started = System.nanoTime();
+
+        /** Guarded by this. */
+        private double primaryCost;
+
+        private Sample(LogEntry entry, String prompt) {
+            this.prompt = prompt;
+            this.sourceId = entry.getSourceId();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package bbu.solution.logwatchai.application.template;
+
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.appconfig.TemplateMiningConfig;
+import bbu.solution.logwatchai.domain.template.DrainTemplateTree;
+import bbu.solution.logwatchai.domain.template.LogTemplate;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.template.LogTemplateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Template mining stage backed by a {@link DrainTemplateTree}.
+ *
+ * <p>I keep the parse tree in memory and assign lines under a short lock. New and changed
+ * templates as well as match counts are collected and written in one upsert per template
+ * by a periodic flush, so ingestion never waits for template bookkeeping in the database.</p>
+ *
+ * <p>On startup I restore the most recently seen templates, so template ids stay stable
+ * across restarts.</p>
+ */
+@Slf4j
+@Service
+public class LogTemplateServiceImpl implements LogTemplateService {
+
+    private final LogTemplateRepository repository;
+    private final int maxClusters;
+
+    /** Guarded by {@code this}. */
+    private final DrainTemplateTree tree;
+
+    /** Template changes and counts not yet flushed. Guarded by {@code this}. */
+    private Map<UUID, PendingUpdate> pending = new HashMap<>();
+
+    private final Counter createdTemplates;
+    private final Counter changedTemplates;
+
+    /**
+     * Creates the template miner.
+     *
+     * @param repository the repository storing templates and counts
+     * @param appConfigService provides the template mining configuration
+     * @param registry the meter registry for template metrics
+     */
+    public LogTemplateServiceImpl(LogTemplateRepository repository,
+                                  AppConfigService appConfigService,
+                                  MeterRegistry registry) {
+        AppConfig cfg = appConfigService.getConfig();
+        TemplateMiningConfig config = cfg == null || cfg.getTemplates() == null
+                ? new TemplateMiningConfig()
+                : cfg.getTemplates();
+
+        this.repository = repository;
+        this.maxClusters = config.getMaxClusters();
+        this.tree = new DrainTemplateTree(
+                config.getDepth(),
+                config.getSimilarityThreshold(),
+                config.getMaxChildren(),
+                config.getMaxClusters());
+
+        this.createdTemplates = Counter.builder("logwatchai.templates.created")
+                .description("Templates opened by the miner")
+                .register(registry);
+        this.changedTemplates = Counter.builder("logwatchai.templates.changed")
+                .description("Templates generalized by the miner")
+                .register(registry);
+        Gauge.builder("logwatchai.templates.size", this, s -> { synchronized (s) { return s.tree.size(); } })
+                .description("Templates held in memory by the miner")
+                .register(registry);
+    }
+
+    /**
+     * Restores the most recently seen templates into the parse tree.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            List<LogTemplate> recent = repository.findAllByOrderByLastSeenDesc(PageRequest.of(0, maxClusters));
+            synchronized (this) {
+                // oldest first, so the most recent templates end up as most recently used
+                for (int i = recent.size() - 1; i >= 0; i--) {
+                    LogTemplate t = recent.get(i);
+                    tree.restore(t.getId(), t.getTemplate(), t.getVersion(), t.getMatchCount());
+                }
+            }
+            log.info("Restored {} log templates", recent.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not restore log templates, starting with an empty tree: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID assignTemplate(String rawText) {
+        DrainTemplateTree.Match match = tree.add(rawText);
+        DrainTemplateTree.Cluster cluster = match.cluster();
+
+        if (match.created()) createdTemplates.increment();
+        if (match.changed()) changedTemplates.increment();
+        if (match.created() || match.changed()) {
+            pending.merge(cluster.getId(), PendingUpdate.of(cluster, 0), PendingUpdate::plus);
+        }
+        return cluster.getId();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void recordOccurrence(UUID templateId) {
+        DrainTemplateTree.Cluster cluster = tree.get(templateId);
+        if (cluster != null) {
+            cluster.countMatch();
+            pending.merge(templateId, PendingUpdate.of(cluster, 1), PendingUpdate::plus);
+        } else {
+            // evicted between assignment and storage, which only happens under heavy template churn;
+            // the count can only be kept while the template text is still waiting for the flush
+            pending.computeIfPresent(templateId, (id, p) -> p.plus(new PendingUpdate(p.template(), p.tokenCount(), p.version(), 1, Instant.now())));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getCurrentTemplate(UUID templateId) {
+        if (templateId == null) return Optional.empty();
+        synchronized (this) {
+            DrainTemplateTree.Cluster cluster = tree.get(templateId);
+            if (cluster != null) return Optional.of(cluster.getTemplate());
+        }
+        return repository.findById(templateId).map(LogTemplate::getTemplate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getOccurrences(UUID templateId) {
+        DrainTemplateTree.Cluster cluster = templateId == null ? null : tree.get(templateId);
+        return cluster == null ? 0 : cluster.getMatches();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<LogTemplate> getTopTemplates(int limit) {
+        return repository.findAllByOrderByMatchCountDesc(PageRequest.of(0, Math.max(1, limit)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<LogTemplate> getTemplates(Iterable<UUID> ids) {
+        return repository.findAllById(ids);
+    }
+
+    /**
+     * Writes new and changed templates and the collected counts to the database.
+     * Updates that fail are kept and retried with the next flush.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.templates.flush-interval-ms:10000}",
+            initialDelayString = "${app.templates.flush-interval-ms:10000}")
+    public void flush() {
+        Map<UUID, PendingUpdate> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        for (Map.Entry<UUID, PendingUpdate> e : batch.entrySet()) {
+            PendingUpdate p = e.getValue();
+            try {
+                repository.upsert(UuidBytes.toBytes(e.getKey()), p.template(), p.tokenCount(), p.version(), p.delta(), p.lastSeen());
+            } catch (DataAccessException ex) {
+                log.warn("Could not store log template {}: {}", e.getKey(), ex.getMessage());
+                synchronized (this) {
+                    pending.merge(e.getKey(), p, (newer, failed) -> failed.plus(newer));
+                }
+            }
+        }
+    }
+
+    /**
+     * Unflushed state of one template: its latest text and the number of matches since the last flush.
+     */
+    private record PendingUpdate(String template, int tokenCount, int version, long delta, Instant lastSeen) {
+
+        static PendingUpdate of(DrainTemplateTree.Cluster cluster, long delta) {
+            return new PendingUpdate(cluster.getTemplate(), cluster.getTokenCount(), cluster.getVersion(), delta, Instant.now());
+        }
+
+        /**
+         * Combines this update with a newer one: the newer text wins, counts add up.
+         */
+        PendingUpdate plus(PendingUpdate newer) {
+            return new PendingUpdate(newer.template, newer.tokenCount, newer.version, delta + newer.delta, newer.lastSeen);
+        }
+    }
+}
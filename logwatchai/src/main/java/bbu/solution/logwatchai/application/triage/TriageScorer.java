@@ -0,0 +1,256 @@
+package bbu.solution.logwatchai.application.triage;
+
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.analysis.SeverityUtil;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.appconfig.TriageConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.log.LogLevels;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fast in-process pre-triage that decides whether a line is worth an AI call.
+ *
+ * <p>I combine four cheap signals into a score between 0.0 and 1.0:</p>
+ * <ul>
+ *     <li>the parsed log level (ERROR and FATAL weigh most),</li>
+ *     <li>alert and benign keyword dictionaries,</li>
+ *     <li>the rarity of the line's template — new templates are interesting,</li>
+ *     <li>the deviation of the template's current rate from its usual rate, so a sudden burst of
+ *         an otherwise routine line is still escalated.</li>
+ * </ul>
+ * <p>Lines at or above the configured threshold go to an AI model, all others get a local analysis.
+ * This keeps the number of provider calls proportional to real incidents instead of raw log volume.
+ * While the AI budget runs low, the {@link AiBudgetService} raises the threshold — even if triage
+ * is disabled — so only the more suspicious lines still cost provider calls.</p>
+ *
+ * <p>Scoring has no side effects, so a line can be scored again when the sweep re-dispatches it.
+ * The rate of a template is fed once per stored line by {@link #recordOccurrence(UUID)}, and the
+ * triage metrics once per analysis by {@link #recordDecision(TriageResult)}.</p>
+ */
+@Slf4j
+@Component
+public class TriageScorer {
+
+    private static final double WEIGHT_ALERT_KEYWORD = 0.3;
+    private static final double WEIGHT_BENIGN_KEYWORD = -0.25;
+    private static final double WEIGHT_RARITY = 0.25;
+    private static final double WEIGHT_BURST = 0.25;
+
+    /** Smoothing factor of the per-template rate average. */
+    private static final double RATE_ALPHA = 0.3;
+
+    /** Upper bound of templates whose rate is tracked. */
+    private static final int MAX_TRACKED_TEMPLATES = 10_000;
+
+    private final LogTemplateService templateService;
+    private final TriageConfig config;
+    private final AiBudgetService budget;
+    private final List<String> alertKeywords;
+    private final List<String> benignKeywords;
+    private final long rateWindowMs;
+
+    /** Per-template rate state in least-recently-seen order. Guarded by itself. */
+    private final Map<UUID, RateState> rates = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, RateState> eldest) {
+            return size() > MAX_TRACKED_TEMPLATES;
+        }
+    };
+
+    private final Counter escalated;
+    private final Counter handledLocally;
+    private final DistributionSummary scores;
+
+    /**
+     * Creates the triage scorer.
+     *
+     * @param templateService provides template occurrence counts
+     * @param appConfigService provides the triage configuration
+     * @param budget raises the threshold while the AI budget runs low
+     * @param registry the meter registry for triage metrics
+     */
+    public TriageScorer(LogTemplateService templateService,
+                        AppConfigService appConfigService,
+                        AiBudgetService budget,
+                        MeterRegistry registry) {
+        AppConfig cfg = appConfigService.getConfig();
+        this.config = cfg == null || cfg.getTriage() == null ? new TriageConfig() : cfg.getTriage();
+        this.templateService = templateService;
+        this.budget = budget;
+        this.alertKeywords = lowerCase(config.getAlertKeywords());
+        this.benignKeywords = lowerCase(config.getBenignKeywords());
+        this.rateWindowMs = Math.max(1, config.getRateWindowSeconds()) * 1000;
+
+        this.escalated = Counter.builder("logwatchai.triage.decisions")
+                .description("Triage decisions by route")
+                .tag("route", "ai")
+                .register(registry);
+        this.handledLocally = Counter.builder("logwatchai.triage.decisions")
+                .description("Triage decisions by route")
+                .tag("route", "local")
+                .register(registry);
+        this.scores = DistributionSummary.builder("logwatchai.triage.score")
+                .description("Distribution of triage scores")
+                .register(registry);
+
+        log.info("Triage {} with threshold {}", config.isEnabled() ? "enabled" : "disabled", config.getThreshold());
+    }
+
+    /**
+     * Scores a single line. The line must already be recorded with {@link #recordOccurrence(UUID)}.
+     *
+     * @param entry the log entry to score
+     * @return the triage result; {@link TriageResult#escalate()} is always true if triage is disabled
+     *         and the AI budget is not running low
+     */
+    public TriageResult score(LogEntry entry) {
+        String level = entry.getLevel() != null ? entry.getLevel() : LogLevels.parse(entry.getRawText());
+        Severity severity = level == null ? Severity.INFO : SeverityUtil.valueOfOrNull(level);
+        List<String> reasons = new ArrayList<>();
+
+        double score = levelScore(level);
+        reasons.add("level " + (level == null ? "none" : level));
+
+        String text = entry.getRawText() == null ? "" : entry.getRawText().toLowerCase(Locale.ROOT);
+        String alert = firstContained(text, alertKeywords);
+        if (alert != null) {
+            score += WEIGHT_ALERT_KEYWORD;
+            reasons.add("keyword '" + alert + "'");
+        }
+        String benign = firstContained(text, benignKeywords);
+        if (benign != null) {
+            score += WEIGHT_BENIGN_KEYWORD;
+            reasons.add("routine keyword '" + benign.trim() + "'");
+        }
+
+        long seen = templateService.getOccurrences(entry.getTemplateId());
+        int rareBelow = Math.max(1, config.getRareTemplateCount());
+        if (seen < rareBelow) {
+            score += WEIGHT_RARITY * (1.0 - (double) seen / rareBelow);
+            reasons.add(seen <= 1 ? "new template" : "rare template (" + seen + "x)");
+        }
+
+        double burst = burst(entry.getTemplateId());
+        if (burst > 0) {
+            score += WEIGHT_BURST * burst;
+            reasons.add("rate burst");
+        }
+
+        score = Math.min(Math.max(score, 0.0), 1.0);
+        double threshold = budget.triageThreshold(entry.getSourceId(), config.isEnabled() ? config.getThreshold() : 0.0);
+        boolean escalate = score >= threshold;
+        return new TriageResult(score, severity, escalate, String.join(", ", reasons));
+    }
+
+    /**
+     * Base score of the log level.
+     */
+    private static double levelScore(String level) {
+        if (level == null) return 0.1;
+        return switch (level) {
+            case "FATAL" -> 0.7;
+            case "ERROR" -> 0.5;
+            case "WARN" -> 0.25;
+            case "INFO" -> 0.05;
+            default -> 0.0;
+        };
+    }
+
+    /**
+     * Records the triage decision of a line that is being analyzed in the triage metrics.
+     *
+     * @param triage the triage result the analysis follows
+     */
+    public void recordDecision(TriageResult triage) {
+        scores.record(triage.score());
+        (triage.escalate() ? escalated : handledLocally).increment();
+    }
+
+    /**
+     * Counts a newly stored line towards the rate of its template. Called once per line at ingestion.
+     *
+     * @param templateId the template of the line; lines without template are not tracked
+     */
+    public void recordOccurrence(UUID templateId) {
+        if (templateId == null) return;
+        long now = System.currentTimeMillis();
+
+        synchronized (rates) {
+            RateState state = rates.computeIfAbsent(templateId, id -> new RateState(now));
+            long elapsedWindows = (now - state.windowStart) / rateWindowMs;
+            if (elapsedWindows > 0) {
+                // fold the finished window into the average, empty windows decay it
+                state.average = RATE_ALPHA * state.count + (1 - RATE_ALPHA) * state.average;
+                for (long i = 1; i < Math.min(elapsedWindows, 20); i++) {
+                    state.average *= (1 - RATE_ALPHA);
+                }
+                state.windowStart += elapsedWindows * rateWindowMs;
+                state.count = 0;
+                state.warm = true;
+            }
+            state.count++;
+        }
+    }
+
+    /**
+     * Returns how strongly the current window exceeds the template's usual rate: 0.0 up to twice
+     * the average, 1.0 from six times the average. Nothing is recorded.
+     */
+    private double burst(UUID templateId) {
+        if (templateId == null) return 0.0;
+        long now = System.currentTimeMillis();
+
+        synchronized (rates) {
+            RateState state = rates.get(templateId);
+            // without a warm average, or once the window of the last line is over, there is no burst
+            if (state == null || !state.warm || now - state.windowStart >= rateWindowMs) return 0.0;
+            double ratio = state.count / Math.max(1.0, state.average);
+            return Math.min(Math.max((ratio - 2.0) / 4.0, 0.0), 1.0);
+        }
+    }
+
+    private static String firstContained(String text, List<String> keywords) {
+        for (String keyword : keywords) {
+            if (text.contains(keyword)) return keyword;
+        }
+        return null;
+    }
+
+    private static List<String> lowerCase(List<String> keywords) {
+        if (keywords == null) return List.of();
+        return keywords.stream()
+                .filter(k -> k != null && !k.isEmpty())
+                .map(k -> k.toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    /**
+     * Line count of the current window and the smoothed count of past windows of one template.
+     */
+    private static final class RateState {
+        private long windowStart;
+        private long count;
+        private double average;
+        private boolean warm;
+
+        private RateState(long windowStart) {
+            this.windowStart = windowStart;
+        }
+    }
+}
@@ -24,6 +24,14 @@ public interface AlertService {
      */
     Alert create(Alert alert);
 
+    /**
+     * Persists the changes of an existing alert, e.g. when a preliminary alert is completed.
+     *
+     * @param alert the changed {@link Alert}
+     * @return the persisted alert
+     */
+    Alert update(Alert alert);
+
     /**
      * Marks an alert as inactive (soft deactivation).
      *
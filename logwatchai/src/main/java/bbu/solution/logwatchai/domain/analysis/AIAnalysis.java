@@ -10,7 +10,9 @@ import java.util.UUID;
 
 /**
  * Represents the AI-generated analysis of a {@link LogEntry}.
- * Each log entry can have exactly one analysis result (1:1 relationship).
+ * Each log entry has exactly one current analysis result (1:1 relationship). When an entry is
+ * analyzed again, e.g. by a re-analysis campaign, the previous result is kept as an
+ * {@link AIAnalysisVersion} and I get the next version number.
  *
  * <p>Contains severity classification, anomaly scoring, categorization, and
  * descriptive metadata such as likely cause and recommended mitigation.</p>
@@ -66,6 +68,19 @@ public class AIAnalysis {
     @Column(name = "analyzed_at", nullable = false, updatable = false)
     private Instant analyzedAt = Instant.now();
 
+    /**
+     * 1 for the first analysis of the entry, increased whenever it is replaced.
+     */
+    @Column(nullable = false)
+    private int version = 1;
+
+    /**
+     * The re-analysis campaign that produced me, or null.
+     */
+    @Column(name = "campaign_id", columnDefinition = "BINARY(16)")
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID campaignId;
+
 
     // ==================== Constructors ====================
 
@@ -90,6 +105,41 @@ public class AIAnalysis {
     }
 
 
+    /**
+     * Creates a new, not yet persisted analysis with my content for another log entry.
+     * Used when several lines share one template and therefore one result.
+     *
+     * @param otherLogEntryId the entry the copy belongs to
+     * @return the copy
+     */
+    public AIAnalysis copyFor(UUID otherLogEntryId) {
+        return new AIAnalysis(otherLogEntryId, severity, category, summarizedIssue, likelyCause, recommendation, anomalyScore);
+    }
+
+
+    /**
+     * Makes me the successor of the current analysis of my entry.
+     *
+     * @param previous   the analysis I replace, or null if the entry had none
+     * @param campaignId the re-analysis campaign that produced me, or null
+     */
+    public void supersede(AIAnalysis previous, UUID campaignId) {
+        this.version = previous == null ? 1 : previous.version + 1;
+        this.campaignId = campaignId;
+    }
+
+    /**
+     * Gives me an id before I am inserted by plain JDBC, where Hibernate does not generate one.
+     * An id I already have is kept.
+     *
+     * @return my id
+     */
+    public UUID assignId() {
+        if (id == null) id = UUID.randomUUID();
+        return id;
+    }
+
+
     // ==================== Getters/Setters ====================
 
     public UUID getId() {
@@ -156,12 +206,21 @@ public class AIAnalysis {
         return analyzedAt;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public UUID getCampaignId() {
+        return campaignId;
+    }
+
 
     @Override
     public String toString() {
         return "AIAnalysis{" +
                 "id=" + id +
                 ", logEntryId=" + logEntryId +
+                ", version=" + version +
                 ", severity=" + severity +
                 ", anomalyScore=" + String.format("%.3f", anomalyScore) +
                 ", category='" + category + '\'' +
@@ -1,12 +1,15 @@
 package bbu.solution.logwatchai.domain.analysis;
 
 import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisResult;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service interface for managing and executing AI-based log analysis.
@@ -39,6 +42,68 @@ public interface AIAnalysisService {
      */
     AIAnalysis analyze(LogEntry entry);
 
+    /**
+     * Queues the given {@link LogEntry} for analysis together with other lines of the same source.
+     * <p>
+     * I use this on the hot ingest path: several lines share one provider request, and the
+     * returned future completes once the batch containing this entry has been analyzed. The
+     * analysis is not stored yet; the caller writes it together with the state of the entry.
+     * </p>
+     *
+     * @param entry the log entry I want to analyze
+     * @return a future completed with the resulting, not yet persisted {@link AIAnalysis}
+     */
+    CompletableFuture<AIAnalysis> analyzeBatched(LogEntry entry);
+
+    /**
+     * Analyzes several log entries with as few provider requests as possible.
+     *
+     * @param entries the log entries I want to analyze
+     * @return the resulting analyses, one per entry and in input order
+     */
+    List<AIAnalysis> analyzeBatch(List<LogEntry> entries);
+
+    /**
+     * Produces a local analysis for a line that the pre-triage did not escalate to an AI model.
+     * Like {@link #analyzeBatched(LogEntry)}, the analysis is not stored yet.
+     *
+     * @param entry the log entry I want to analyze
+     * @param triage the triage result of the entry
+     * @return the not yet persisted {@link AIAnalysis}
+     */
+    AIAnalysis analyzeLocally(LogEntry entry, TriageResult triage);
+
+    /**
+     * Builds the provider prompt of a single line, as it is sent in real time: redacted, compacted
+     * and with the context of the lines before it. Used for lines answered by a deferred batch.
+     *
+     * @param entry the log entry
+     * @return the prompt
+     */
+    String promptFor(LogEntry entry);
+
+    /**
+     * Turns the answer of a provider to the prompt of {@link #promptFor(LogEntry)} into an analysis.
+     * Like {@link #analyzeBatched(LogEntry)}, the analysis is not stored yet.
+     *
+     * @param entry    the log entry the answer belongs to
+     * @param strategy the name of the provider that answered
+     * @param content  the content of the answer
+     * @return the not yet persisted {@link AIAnalysis}, or null if the answer is unusable
+     */
+    AIAnalysis fromCompletion(LogEntry entry, String strategy, String content);
+
+    /**
+     * Analyzes already analyzed entries again through the regular analysis path and stores the
+     * results as new versions of their analyses. Used by re-analysis campaigns.
+     *
+     * @param entries the log entries I want to analyze again
+     * @param campaignId the campaign the new versions belong to
+     * @param useCache whether cached analyses of the current model are reused
+     * @return a future completed with the counts of replaced, skipped and changed analyses
+     */
+    CompletableFuture<ReanalysisResult> reanalyze(List<LogEntry> entries, UUID campaignId, boolean useCache);
+
     /**
      * Retrieves all stored AI analyses matching the provided filter criteria.
      * <p>
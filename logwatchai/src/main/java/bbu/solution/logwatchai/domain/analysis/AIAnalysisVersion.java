@@ -0,0 +1,97 @@
+package bbu.solution.logwatchai.domain.analysis;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents an analysis that has been replaced by a newer one of the same log entry.
+ * <p>
+ * I keep the id and the fields of the replaced {@link AIAnalysis}, so the results of a model or
+ * prompt change can be compared with what was stored before. I am never changed.
+ * </p>
+ */
+@Entity
+@Table(name = "ai_analysis_versions")
+public class AIAnalysisVersion {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    @Column(name = "log_entry_id", nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID logEntryId;
+
+    @Column(nullable = false, updatable = false)
+    private int version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20, updatable = false)
+    private Severity severity;
+
+    @Column(length = 100, updatable = false)
+    private String category;
+
+    @Column(name = "summarized_issue", columnDefinition = "TEXT", updatable = false)
+    private String summarizedIssue;
+
+    @Column(name = "likely_cause", columnDefinition = "TEXT", updatable = false)
+    private String likelyCause;
+
+    @Column(columnDefinition = "TEXT", updatable = false)
+    private String recommendation;
+
+    @Column(name = "anomaly_score", nullable = false, updatable = false)
+    private double anomalyScore;
+
+    @Column(name = "analyzed_at", nullable = false, updatable = false)
+    private Instant analyzedAt;
+
+    @Column(name = "campaign_id", columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID campaignId;
+
+    @Column(name = "superseded_at", nullable = false, updatable = false)
+    private Instant supersededAt;
+
+    protected AIAnalysisVersion() {
+        // for JPA
+    }
+
+    /**
+     * @param superseded   the analysis that is replaced
+     * @param supersededAt when it was replaced
+     */
+    public AIAnalysisVersion(AIAnalysis superseded, Instant supersededAt) {
+        this.id = superseded.getId();
+        this.logEntryId = superseded.getLogEntryId();
+        this.version = superseded.getVersion();
+        this.severity = superseded.getSeverity();
+        this.category = superseded.getCategory();
+        this.summarizedIssue = superseded.getSummarizedIssue();
+        this.likelyCause = superseded.getLikelyCause();
+        this.recommendation = superseded.getRecommendation();
+        this.anomalyScore = superseded.getAnomalyScore();
+        this.analyzedAt = superseded.getAnalyzedAt();
+        this.campaignId = superseded.getCampaignId();
+        this.supersededAt = supersededAt;
+    }
+
+    public UUID getId() { return id; }
+    public UUID getLogEntryId() { return logEntryId; }
+    public int getVersion() { return version; }
+    public Severity getSeverity() { return severity; }
+    public String getCategory() { return category; }
+    public String getSummarizedIssue() { return summarizedIssue; }
+    public String getLikelyCause() { return likelyCause; }
+    public String getRecommendation() { return recommendation; }
+    public double getAnomalyScore() { return anomalyScore; }
+    public Instant getAnalyzedAt() { return analyzedAt; }
+    public UUID getCampaignId() { return campaignId; }
+    public Instant getSupersededAt() { return supersededAt; }
+}
@@ -0,0 +1,130 @@
+package bbu.solution.logwatchai.domain.analysis;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents a reusable analysis result for a normalized log template.
+ * <p>
+ * Log lines that only differ in numbers, IDs, IPs or durations share the same template.
+ * Once one of them has been analyzed by a model, I keep the result here and hand out
+ * copies for all further lines with the same template until {@link #expiresAt} is reached.
+ * </p>
+ * <p>Each (template hash, model) pair exists at most once.</p>
+ */
+@Entity
+@Table(
+        name = "analysis_cache",
+        uniqueConstraints = @UniqueConstraint(name = "uq_analysis_cache_template_model", columnNames = {"template_hash", "model"}),
+        indexes = @Index(name = "idx_analysis_cache_expires_at", columnList = "expires_at")
+)
+public class AnalysisCacheEntry {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    @Column(name = "template_hash", nullable = false, length = 64, updatable = false)
+    private String templateHash;
+
+    /**
+     * Strategy name and provider model that produced the analysis, e.g. {@code openai:gpt-4o-mini}.
+     */
+    @Column(nullable = false, length = 150, updatable = false)
+    private String model;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String template;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Severity severity;
+
+    @Column(length = 100)
+    private String category;
+
+    @Column(columnDefinition = "TEXT")
+    private String summarizedIssue;
+
+    @Column(columnDefinition = "TEXT")
+    private String likelyCause;
+
+    @Column(columnDefinition = "TEXT")
+    private String recommendation;
+
+    @Column(name = "anomaly_score", nullable = false)
+    private double anomalyScore;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+
+    // ==================== Constructors ====================
+
+    public AnalysisCacheEntry() {
+    }
+
+    /**
+     * Creates a cache entry from a freshly produced analysis.
+     *
+     * @param templateHash hash of the normalized template
+     * @param model        strategy and model key
+     * @param template     the normalized template itself, kept for inspection
+     * @param analysis     the analysis to reuse
+     * @param expiresAt    end of the validity period
+     */
+    public AnalysisCacheEntry(String templateHash, String model, String template, AIAnalysis analysis, Instant expiresAt) {
+        this.id = UUID.randomUUID();
+        this.templateHash = templateHash;
+        this.model = model;
+        this.template = template;
+        this.severity = analysis.getSeverity();
+        this.category = analysis.getCategory();
+        this.summarizedIssue = analysis.getSummarizedIssue();
+        this.likelyCause = analysis.getLikelyCause();
+        this.recommendation = analysis.getRecommendation();
+        this.anomalyScore = analysis.getAnomalyScore();
+        this.expiresAt = expiresAt;
+    }
+
+
+    // ==================== Behaviour ====================
+
+    /**
+     * Creates a new, not yet persisted analysis for the given log entry carrying my cached content.
+     *
+     * @param logEntryId the entry the copy belongs to
+     * @return a new {@link AIAnalysis}
+     */
+    public AIAnalysis toAnalysis(UUID logEntryId) {
+        return new AIAnalysis(logEntryId, severity, category, summarizedIssue, likelyCause, recommendation, anomalyScore);
+    }
+
+    /**
+     * @param now the reference time
+     * @return true if the entry must no longer be used
+     */
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+
+
+    // ==================== Getters ====================
+
+    public UUID getId() { return id; }
+    public String getTemplateHash() { return templateHash; }
+    public String getModel() { return model; }
+    public String getTemplate() { return template; }
+    public Severity getSeverity() { return severity; }
+    public double getAnomalyScore() { return anomalyScore; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
@@ -0,0 +1,11 @@
+package bbu.solution.logwatchai.domain.analysis.events;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+
+/**
+ * Published as soon as the severity and anomaly score of a streamed analysis are known, before
+ * the rest of the answer has arrived. The analysis only carries these two fields and is never
+ * persisted; the complete analysis follows through the regular decision path.
+ */
+public record PreliminaryAnalysisEvent(LogEntry entry, AIAnalysis analysis) {}
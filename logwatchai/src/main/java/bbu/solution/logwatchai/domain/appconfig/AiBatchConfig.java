@@ -0,0 +1,30 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the micro-batching block of the AI configuration.
+ * I describe how many log lines may share a single provider request
+ * and how long a line may wait for companions before it is sent anyway.
+ */
+@Data
+public class AiBatchConfig {
+
+    /**
+     * Whether lines are collected into batches at all.
+     * If disabled, every line is sent to the provider on its own.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of log lines combined into one prompt.
+     * A value of 1 effectively disables batching.
+     */
+    private int maxSize = 10;
+
+    /**
+     * Maximum time in milliseconds the first line of a batch waits for more lines
+     * from the same source before the batch is flushed.
+     */
+    private long maxWaitMs = 500;
+}
@@ -0,0 +1,60 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the budget block of the AI configuration.
+ * I limit the tokens and the estimated cost of provider calls. As the budget is used up, the
+ * analysis degrades in steps instead of stopping: first the triage lets fewer lines through,
+ * then only cached analyses are reused, and finally the local analyzer answers every line.
+ * A limit of 0 means unlimited.
+ */
+@Data
+public class AiBudgetConfig {
+
+    /**
+     * Whether usage is limited. Usage is tracked in any case.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Tokens (prompt and completion) per day for all strategies together.
+     */
+    private long dailyTokenLimit = 0;
+
+    /**
+     * Estimated cost per day, in the currency of the model prices.
+     */
+    private double dailyCostLimit = 0.0;
+
+    /**
+     * Estimated cost per calendar month.
+     */
+    private double monthlyCostLimit = 0.0;
+
+    /**
+     * Tokens per day for a single log source, so one noisy source cannot use the whole budget.
+     */
+    private long sourceDailyTokenLimit = 0;
+
+    /**
+     * Used share of the budget (0.0 - 1.0) from which the triage threshold is raised.
+     */
+    private double tightenAt = 0.5;
+
+    /**
+     * Triage threshold while the budget is tight; lines below it get a local analysis.
+     */
+    private double tightenedThreshold = 0.6;
+
+    /**
+     * Used share from which no new provider calls are made; cached analyses are still reused
+     * and all other lines are answered by the local analyzer.
+     */
+    private double cacheOnlyAt = 0.8;
+
+    /**
+     * Used share from which every line is answered by the local analyzer.
+     */
+    private double localAt = 1.0;
+}
@@ -0,0 +1,29 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the analysis cache block of the AI configuration.
+ * I control how long an analysis of a normalized log template may be reused
+ * for further lines with the same template, and how many templates are kept in memory.
+ */
+@Data
+public class AiCacheConfig {
+
+    /**
+     * Whether analyses are reused for lines with an identical template.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of templates kept in the in-memory cache.
+     * The database copy is not bounded by this value.
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * Time-to-live of a cached analysis in minutes.
+     * After this period the template is sent to the provider again.
+     */
+    private long ttlMinutes = 1440;
+}
@@ -0,0 +1,42 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the circuit breaker block of the AI configuration.
+ * I describe when a failing model is taken out of rotation and how it is tried again.
+ * The values apply to every configured model; each model has its own breaker.
+ */
+@Data
+public class AiCircuitBreakerConfig {
+
+    /**
+     * Whether failing models are taken out of rotation at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of most recent calls the failure rate is computed from.
+     */
+    private int windowSize = 20;
+
+    /**
+     * Minimum number of calls in the window before the breaker may open.
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * Failure rate between 0.0 and 1.0 at which the breaker opens.
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * Time in milliseconds an open breaker rejects calls before it lets trial calls through.
+     */
+    private long openDurationMs = 30000;
+
+    /**
+     * Number of trial calls in the half-open state; all of them have to succeed to close the breaker.
+     */
+    private int halfOpenCalls = 3;
+}
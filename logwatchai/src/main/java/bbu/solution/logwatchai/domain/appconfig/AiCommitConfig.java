@@ -0,0 +1,29 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the commit block of the AI configuration.
+ * I describe how finished analyses are written: collected and stored as JDBC batches together
+ * with the state of their log entries, instead of one ORM round trip per line.
+ */
+@Data
+public class AiCommitConfig {
+
+    /**
+     * Whether analyses are collected into batches at all.
+     * If disabled, every analysis is written on its own on the thread that produced it.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of analyses written in one transaction.
+     */
+    private int maxBatch = 200;
+
+    /**
+     * Maximum time in milliseconds the first analysis of a batch waits for more before the
+     * batch is written anyway.
+     */
+    private long maxWaitMs = 50;
+}
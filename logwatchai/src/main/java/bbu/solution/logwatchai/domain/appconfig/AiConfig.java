@@ -15,4 +15,88 @@ public class AiConfig {
      * If empty or missing, no AI-based analysis is available.
      */
     private List<AiModelEntry> models;
+
+    /**
+     * Controls how log lines are combined into shared provider requests.
+     * If missing, I use the defaults of {@link AiBatchConfig}.
+     */
+    private AiBatchConfig batch;
+
+    /**
+     * Controls reuse of analyses for log lines sharing the same normalized template.
+     * If missing, I use the defaults of {@link AiCacheConfig}.
+     */
+    private AiCacheConfig cache;
+
+    /**
+     * Controls how several enabled models share the work (single, hedge, consensus).
+     * If missing, I use the defaults of {@link AiDispatchConfig}.
+     */
+    private AiDispatchConfig dispatch;
+
+    /**
+     * Controls when a failing model is skipped until it recovers.
+     * If missing, I use the defaults of {@link AiCircuitBreakerConfig}.
+     */
+    private AiCircuitBreakerConfig circuitBreaker;
+
+    /**
+     * Controls the order in which waiting log lines are analyzed.
+     * If missing, I use the defaults of {@link AiSchedulingConfig}.
+     */
+    private AiSchedulingConfig scheduling;
+
+    /**
+     * Controls the token and cost limits of provider calls.
+     * If missing, I use the defaults of {@link AiBudgetConfig}.
+     */
+    private AiBudgetConfig budget;
+
+    /**
+     * Controls when a line is escalated from the fast to the strong model tier.
+     * If missing, I use the defaults of {@link AiRoutingConfig}.
+     */
+    private AiRoutingConfig routing;
+
+    /**
+     * Controls the shadow evaluation of a candidate model.
+     * If missing, I use the defaults of {@link AiShadowConfig}.
+     */
+    private AiShadowConfig shadow;
+
+    /**
+     * Limits the size of the log text in prompts.
+     * If missing, I use the defaults of {@link AiPromptConfig}.
+     */
+    private AiPromptConfig prompt;
+
+    /**
+     * Controls which sensitive values are masked before lines reach a provider.
+     * If missing, I use the defaults of {@link AiRedactionConfig}.
+     */
+    private AiRedactionConfig redaction;
+
+    /**
+     * Bounds the window of preceding lines summarized into a prompt.
+     * If missing, I use the defaults of {@link AiContextConfig}.
+     */
+    private AiContextConfig context;
+
+    /**
+     * Limits the throughput of re-analysis campaigns.
+     * If missing, I use the defaults of {@link AiReanalysisConfig}.
+     */
+    private AiReanalysisConfig reanalysis;
+
+    /**
+     * Controls how finished analyses are written to the database.
+     * If missing, I use the defaults of {@link AiCommitConfig}.
+     */
+    private AiCommitConfig commit;
+
+    /**
+     * Defers the analysis of low-priority lines to offline provider batches.
+     * If missing, I use the defaults of {@link AiDeferredConfig}.
+     */
+    private AiDeferredConfig deferred;
 }
@@ -0,0 +1,42 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the context block of the AI configuration.
+ * I bound the window of preceding lines per source that is summarized into the prompt of a line,
+ * so the model sees what happened right before it, e.g. the warnings leading up to an error.
+ */
+@Data
+public class AiContextConfig {
+
+    /**
+     * Enables the context window. If disabled, a prompt only contains the analyzed line.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Lines kept per source; the oldest line is dropped first.
+     */
+    private int events = 50;
+
+    /**
+     * Bytes the stored lines of one source may take at most.
+     */
+    private int maxBytesPerSource = 16384;
+
+    /**
+     * Sources with a window; the source that was written to least recently is dropped first.
+     */
+    private int maxSources = 500;
+
+    /**
+     * Longest stored line in characters; longer lines keep their start.
+     */
+    private int maxLineChars = 240;
+
+    /**
+     * Distinct lines in the summary of a window; repeated lines count once.
+     */
+    private int maxSummaryLines = 12;
+}
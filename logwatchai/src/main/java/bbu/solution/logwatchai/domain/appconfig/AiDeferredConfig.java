@@ -0,0 +1,45 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Represents the deferred block of the AI configuration.
+ * I describe which escalated lines do not need a real-time answer and are analyzed in offline
+ * provider batches instead, so the real-time capacity stays with the lines that can raise alerts.
+ */
+@Data
+public class AiDeferredConfig {
+
+    /**
+     * Whether low-priority lines are deferred at all.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The model entry whose batch endpoint answers the deferred lines, by name. Only entries of
+     * the OpenAI API have one; without it, the lines are answered by the local analyzer.
+     */
+    private String provider;
+
+    /**
+     * The scheduling lanes whose lines are deferred.
+     */
+    private List<String> lanes = List.of("LOW", "NORMAL");
+
+    /**
+     * Maximum number of lines per provider batch.
+     */
+    private int maxBatch = 1000;
+
+    /**
+     * Maximum time in milliseconds the first line of a batch waits for more before the batch is sent.
+     */
+    private long maxWaitMs = 300_000;
+
+    /**
+     * The time the provider has to complete a batch, as the provider expects it.
+     */
+    private String completionWindow = "24h";
+}
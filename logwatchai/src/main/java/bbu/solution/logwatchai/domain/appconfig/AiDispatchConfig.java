@@ -0,0 +1,49 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the dispatch block of the AI configuration.
+ * I decide how the configured models share the work when more than one is enabled.
+ */
+@Data
+public class AiDispatchConfig {
+
+    /**
+     * How a prompt is sent to the enabled models, in their configured order:
+     * <ul>
+     *     <li>{@code single} — the first model is used; the next one only if it fails or its
+     *         circuit breaker is open,</li>
+     *     <li>{@code hedge} — the first model is called; if it has not answered after its usual
+     *         latency, the next one is called as well and the first valid answer wins,</li>
+     *     <li>{@code consensus} — all models are called in parallel and their severities and
+     *         anomaly scores are merged.</li>
+     * </ul>
+     */
+    private String mode = "single";
+
+    /**
+     * Latency quantile of a model after which the next model is called in hedge mode.
+     */
+    private double hedgeQuantile = 0.95;
+
+    /**
+     * Hedge delay in milliseconds while too few latencies of a model have been measured.
+     */
+    private long initialHedgeDelayMs = 3000;
+
+    /**
+     * Lower bound of the hedge delay in milliseconds.
+     */
+    private long minHedgeDelayMs = 200;
+
+    /**
+     * Upper bound of the hedge delay in milliseconds, so a slow model never sets the tail latency.
+     */
+    private long maxHedgeDelayMs = 10000;
+
+    /**
+     * Maximum number of models called in parallel in consensus mode.
+     */
+    private int maxConsensusModels = 3;
+}
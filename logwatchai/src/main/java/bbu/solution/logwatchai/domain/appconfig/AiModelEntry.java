@@ -32,4 +32,84 @@ public class AiModelEntry {
      * I assume the caller stores it securely and never logs it.
      */
     private String key;
+
+    /**
+     * Base URL of the provider API. If not set, the provider's public endpoint is used.
+     * Example: "https://api.openai.com/v1".
+     */
+    private String baseUrl;
+
+    /**
+     * Overall deadline of one analysis call in milliseconds, including all retries.
+     */
+    private long timeoutMs = 30000;
+
+    /**
+     * Number of retries after a transient failure (rate limit, server error, timeout).
+     */
+    private int maxRetries = 3;
+
+    /**
+     * Requests per minute the provider allows for this key. 0 disables the request limit.
+     */
+    private int requestsPerMinute;
+
+    /**
+     * Tokens (prompt and completion) per minute the provider allows for this key. 0 disables the token limit.
+     */
+    private int tokensPerMinute;
+
+    /**
+     * Number of concurrent calls I start with before adapting to the provider's responses.
+     */
+    private int initialConcurrency = 4;
+
+    /**
+     * Upper bound of concurrent calls, however well the provider keeps up.
+     */
+    private int maxConcurrency = 32;
+
+    /**
+     * Maximum concurrent HTTP requests to the endpoint of this entry (scheme, host and port),
+     * shared with all other entries on the same endpoint. Used by the self-hosted strategy.
+     */
+    private int endpointConcurrency = 4;
+
+    /**
+     * Whether concurrent prompts are combined into one request with a prompt array.
+     * Only enable this if the server accepts prompt arrays on its completions endpoint.
+     */
+    private boolean batchPrompts;
+
+    /**
+     * Maximum number of prompts combined into one request.
+     */
+    private int maxBatchPrompts = 8;
+
+    /**
+     * Time in milliseconds the first prompt waits for further prompts before the request is sent.
+     */
+    private long batchWindowMs = 20;
+
+    /**
+     * Price per million prompt tokens, used to estimate the cost for the budget.
+     */
+    private double inputCostPerMillion;
+
+    /**
+     * Price per million completion tokens, used to estimate the cost for the budget.
+     */
+    private double outputCostPerMillion;
+
+    /**
+     * Model tier for tiered routing: "fast" answers every line first, "strong" only the lines
+     * escalated by the routing rules. Ignored while routing is disabled.
+     */
+    private String tier = "fast";
+
+    /**
+     * Whether answers are requested as a stream, so the severity and anomaly score can be used
+     * before the rest of the answer has arrived. Used by the OpenAI strategy.
+     */
+    private boolean stream;
 }
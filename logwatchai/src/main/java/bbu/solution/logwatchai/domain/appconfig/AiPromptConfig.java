@@ -0,0 +1,33 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the prompt block of the AI configuration.
+ * I bound the size of the log text sent to a provider, so oversized lines such as JSON dumps
+ * and long stack traces do not drive up token usage and latency.
+ */
+@Data
+public class AiPromptConfig {
+
+    /**
+     * Estimated prompt tokens per provider call, including the instructions. The log text of a
+     * call is compacted until the whole prompt fits.
+     */
+    private int maxPromptTokens = 2000;
+
+    /**
+     * Longest single line in characters; longer lines keep their start and end.
+     */
+    private int maxLineChars = 1000;
+
+    /**
+     * Lines kept from the start of a multi-line entry that has to be shortened.
+     */
+    private int headLines = 20;
+
+    /**
+     * Lines kept from the end of a multi-line entry that has to be shortened.
+     */
+    private int tailLines = 10;
+}
@@ -0,0 +1,27 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the reanalysis block of the AI configuration.
+ * I bound how fast re-analysis campaigns work through the history, so they do not crowd out
+ * the analysis of new lines.
+ */
+@Data
+public class AiReanalysisConfig {
+
+    /**
+     * Lines per minute of a campaign that does not set its own limit.
+     */
+    private int linesPerMinute = 60;
+
+    /**
+     * Upper bound of the lines per minute a campaign may ask for.
+     */
+    private int maxLinesPerMinute = 600;
+
+    /**
+     * Lines read and analyzed together; a chunk is split into batches of the configured batch size.
+     */
+    private int chunkSize = 50;
+}
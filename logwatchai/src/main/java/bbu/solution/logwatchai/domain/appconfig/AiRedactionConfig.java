@@ -0,0 +1,39 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the redaction block of the AI configuration.
+ * I decide which sensitive values are masked before a line leaves the application
+ * in a prompt, and before its template is mined.
+ */
+@Data
+public class AiRedactionConfig {
+
+    /**
+     * Enables the redaction. If disabled, lines are sent and mined as they are.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Rule packs to apply: "contact" (e-mail addresses), "network" (IPv4 addresses),
+     * "payment" (card numbers passing the Luhn check) and "secrets" (values of keys such as
+     * password or token, bearer tokens and well-known API key formats).
+     */
+    private List<String> packs = new ArrayList<>(List.of("contact", "network", "payment", "secrets"));
+
+    /**
+     * Additional keys whose values are masked, e.g. "session_id" masks {@code session_id=abc}.
+     * Matched case-insensitively.
+     */
+    private List<String> keywords = new ArrayList<>();
+
+    /**
+     * Additional token prefixes; a token starting with one of them is masked as a whole,
+     * e.g. "glpat-" for GitLab access tokens. Matched case-insensitively.
+     */
+    private List<String> prefixes = new ArrayList<>();
+}
@@ -0,0 +1,32 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the routing block of the AI configuration.
+ * I decide when a line answered by the fast model tier is analyzed again by the strong tier.
+ * Models are assigned to a tier with {@code ai.models[].tier}.
+ */
+@Data
+public class AiRoutingConfig {
+
+    /**
+     * Enables tiered routing. If disabled, all enabled models form one tier as before.
+     */
+    private boolean enabled;
+
+    /**
+     * Lowest severity of the fast answer that is escalated to the strong tier.
+     */
+    private String escalateSeverity = "HIGH";
+
+    /**
+     * Lowest anomaly score of the fast answer that is escalated to the strong tier.
+     */
+    private double escalateScore = 0.7;
+
+    /**
+     * Whether a line is escalated when the fast tier gives no usable answer.
+     */
+    private boolean escalateOnFailure = true;
+}
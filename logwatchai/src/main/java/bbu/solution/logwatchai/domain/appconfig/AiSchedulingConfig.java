@@ -0,0 +1,78 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents the scheduling block of the AI configuration.
+ * I decide in which order waiting log lines are analyzed: every line is put into one of the
+ * priority lanes CRITICAL, HIGH, NORMAL and LOW, and the lanes are served by weight. Within a
+ * lane, the sources take turns according to their shares, so one chatty source cannot hold
+ * back all others.
+ */
+@Data
+public class AiSchedulingConfig {
+
+    /**
+     * Whether lines are scheduled by priority. If disabled, they are analyzed in arrival order.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of lines being analyzed at the same time. Further lines wait in their lane,
+     * so a line arriving later with a higher priority overtakes them.
+     */
+    private int maxInFlight = 32;
+
+    /**
+     * Maximum number of lines waiting in all lanes together. When full, the newest LOW line is
+     * dropped in favour of a more important one; dropped lines stay pending and are picked up
+     * by the background sweep.
+     */
+    private int maxQueued = 10_000;
+
+    /**
+     * A line waiting longer than this is served before all others, so lower lanes never starve.
+     */
+    private long maxWaitMs = 30_000;
+
+    /**
+     * Share of dispatches per lane while several lanes have waiting lines.
+     */
+    private Map<String, Integer> laneWeights = new LinkedHashMap<>(Map.of(
+            "CRITICAL", 8,
+            "HIGH", 4,
+            "NORMAL", 2,
+            "LOW", 1));
+
+    /**
+     * Priority factor per log source, keyed by source name or path, e.g. {@code payment: 1.5}.
+     * A key matches if the source's name equals it or its path contains it. Sources without
+     * a match have the factor 1.0.
+     */
+    private Map<String, Double> sourceWeights = new LinkedHashMap<>();
+
+    /**
+     * Lines a source may start per round within a lane, unless configured in {@link #sourceShares}.
+     */
+    private int defaultSourceShare = 1;
+
+    /**
+     * Lines per round by source name or path, matched like {@link #sourceWeights}.
+     * A source with share 3 gets three lines analyzed for every line of a source with share 1.
+     */
+    private Map<String, Integer> sourceShares = new LinkedHashMap<>();
+
+    /**
+     * Maximum analyses of one source running at the same time, unless configured in
+     * {@link #sourceMaxInFlight}. Keeps one source from taking all {@link #maxInFlight} slots.
+     */
+    private int defaultSourceMaxInFlight = 8;
+
+    /**
+     * Maximum running analyses by source name or path, matched like {@link #sourceWeights}.
+     */
+    private Map<String, Integer> sourceMaxInFlight = new LinkedHashMap<>();
+}
@@ -0,0 +1,43 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the shadow block of the AI configuration.
+ * I describe which candidate model is evaluated next to the primary analysis and how much
+ * traffic it may get.
+ */
+@Data
+public class AiShadowConfig {
+
+    /**
+     * Enables the shadow evaluation.
+     */
+    private boolean enabled;
+
+    /**
+     * Name of the candidate in {@code ai.models}. The entry must be enabled; it is then used
+     * for the shadow evaluation only and never for the primary analysis.
+     */
+    private String candidate;
+
+    /**
+     * Share of the analyzed lines that are also sent to the candidate.
+     */
+    private double sampleRate = 0.05;
+
+    /**
+     * Upper bound of candidate calls per minute.
+     */
+    private int maxPerMinute = 60;
+
+    /**
+     * Upper bound of candidate calls running at the same time. Sampled lines beyond it are skipped.
+     */
+    private int maxInFlight = 4;
+
+    /**
+     * Largest difference of the anomaly scores that still counts as agreement.
+     */
+    private double scoreTolerance = 0.15;
+}
@@ -31,6 +31,18 @@ public class AppConfig {
      */
     private AiConfig ai;
 
+    /**
+     * Controls how log lines are grouped into templates.
+     * If not configured, I use the built-in defaults.
+     */
+    private TemplateMiningConfig templates;
+
+    /**
+     * Controls the local pre-triage that decides which lines reach an AI model.
+     * If not configured, I use the built-in defaults.
+     */
+    private TriageConfig triage;
+
     /**
      * Defines the email address that receives generated reports.
      * If null, no report delivery via email is attempted.
@@ -0,0 +1,33 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+/**
+ * Represents the template mining block of the configuration.
+ * I control the shape and the memory bound of the parse tree that assigns
+ * every incoming log line to a template cluster.
+ */
+@Data
+public class TemplateMiningConfig {
+
+    /**
+     * Total depth of the parse tree. The first {@code depth - 2} tokens of a line
+     * are used to route it to its leaf.
+     */
+    private int depth = 4;
+
+    /**
+     * Minimum share of equal tokens (0.0 - 1.0) for a line to join an existing template.
+     */
+    private double similarityThreshold = 0.4;
+
+    /**
+     * Maximum number of token children per tree node.
+     */
+    private int maxChildren = 100;
+
+    /**
+     * Maximum number of templates kept in memory. The database keeps all of them.
+     */
+    private int maxClusters = 5000;
+}
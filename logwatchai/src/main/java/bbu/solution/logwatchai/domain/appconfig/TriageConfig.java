@@ -0,0 +1,50 @@
+package bbu.solution.logwatchai.domain.appconfig;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Represents the pre-triage block of the configuration.
+ * I decide which lines are worth an AI call: every line gets a cheap local score,
+ * and only lines at or above {@link #threshold} are sent to an AI model.
+ */
+@Data
+public class TriageConfig {
+
+    /**
+     * Whether lines are triaged at all. If disabled, every line is sent to the AI model.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Minimum triage score (0.0 - 1.0) for a line to be analyzed by an AI model.
+     * Lines below get a locally produced analysis.
+     */
+    private double threshold = 0.35;
+
+    /**
+     * Case-insensitive words that make a line more suspicious.
+     */
+    private List<String> alertKeywords = List.of(
+            "exception", "error", "failed", "failure", "timeout", "timed out", "refused",
+            "denied", "unauthorized", "forbidden", "unavailable", "unreachable", "outofmemory",
+            "out of memory", "deadlock", "panic", "corrupt", "crash", "killed", "fatal");
+
+    /**
+     * Case-insensitive words of routine lines, e.g. heartbeats and health checks.
+     */
+    private List<String> benignKeywords = List.of(
+            "heartbeat", "health check", "healthcheck", "status ok", " ok", "success",
+            "succeeded", "started", "completed", "ping");
+
+    /**
+     * Templates seen fewer times than this count as rare. A brand-new template scores highest.
+     */
+    private int rareTemplateCount = 20;
+
+    /**
+     * Length of the window used to compare a template's current rate with its usual rate.
+     */
+    private long rateWindowSeconds = 60;
+}
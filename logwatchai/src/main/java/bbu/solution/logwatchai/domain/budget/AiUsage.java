@@ -0,0 +1,79 @@
+package bbu.solution.logwatchai.domain.budget;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Represents the provider usage of one strategy for one log source on one day.
+ * <p>
+ * Token counts are taken from the usage reported by the provider, the cost is estimated from
+ * the prices configured for the model. Entries without a source use the all-zero UUID.
+ * </p>
+ * <p>I am written by the budget service only; counts are added up by periodic flushes, so
+ * several instances can share one row.</p>
+ */
+@Entity
+@Table(
+        name = "ai_usage",
+        uniqueConstraints = @UniqueConstraint(name = "uq_ai_usage_day_strategy_source", columnNames = {"day", "strategy", "source_id"})
+)
+public class AiUsage {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDate day;
+
+    @Column(nullable = false, length = 100, updatable = false)
+    private String strategy;
+
+    @Column(name = "source_id", nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID sourceId;
+
+    @Column(nullable = false)
+    private long calls;
+
+    @Column(name = "prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name = "completion_tokens", nullable = false)
+    private long completionTokens;
+
+    /**
+     * Estimated cost in the currency of the configured prices.
+     */
+    @Column(nullable = false)
+    private double cost;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+
+    // ==================== Constructors ====================
+
+    public AiUsage() {
+    }
+
+
+    // ==================== Getters ====================
+
+    public UUID getId() { return id; }
+    public LocalDate getDay() { return day; }
+    public String getStrategy() { return strategy; }
+    public UUID getSourceId() { return sourceId; }
+    public long getCalls() { return calls; }
+    public long getPromptTokens() { return promptTokens; }
+    public long getCompletionTokens() { return completionTokens; }
+    public long getTotalTokens() { return promptTokens + completionTokens; }
+    public double getCost() { return cost; }
+    public Instant getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,92 @@
+package bbu.solution.logwatchai.domain.deferred;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents a batch of low-priority log lines sent to a provider's batch endpoint, whose
+ * results arrive minutes or hours later.
+ * <p>
+ * My entries are in state DEFERRED and point to me, so the results can be reconciled into their
+ * analyses even after a restart. Besides the creation, I am only changed by conditional UPDATEs
+ * of the repository.
+ * </p>
+ */
+@Entity
+@Table(name = "deferred_batches")
+public class DeferredBatch {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    /**
+     * The name of the batch client, e.g. the configured model entry.
+     */
+    @Column(nullable = false, length = 100, updatable = false)
+    private String provider;
+
+    /**
+     * The id the provider assigned to the batch; null until it is submitted.
+     */
+    @Column(name = "provider_batch_id", length = 200)
+    private String providerBatchId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private DeferredBatchStatus status;
+
+    @Column(name = "line_count", nullable = false)
+    private int lineCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "submitted_at")
+    private Instant submittedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * Lines with a usable answer in the provider's results; the others were analyzed in real time.
+     */
+    @Column(name = "answered_lines", nullable = false)
+    private int answeredLines;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    protected DeferredBatch() {
+        // for JPA
+    }
+
+    /**
+     * Creates an open batch.
+     *
+     * @param provider the name of the batch client
+     * @param now      the creation time
+     */
+    public DeferredBatch(String provider, Instant now) {
+        this.id = UUID.randomUUID();
+        this.provider = provider;
+        this.status = DeferredBatchStatus.OPEN;
+        this.createdAt = now;
+    }
+
+    public UUID getId() { return id; }
+    public String getProvider() { return provider; }
+    public String getProviderBatchId() { return providerBatchId; }
+    public DeferredBatchStatus getStatus() { return status; }
+    public int getLineCount() { return lineCount; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public int getAnsweredLines() { return answeredLines; }
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,19 @@
+package bbu.solution.logwatchai.domain.deferred;
+
+/**
+ * Lifecycle state of a {@link DeferredBatch}.
+ */
+public enum DeferredBatchStatus {
+
+    /** Created; its entries are being moved into it and sent to the provider. */
+    OPEN,
+
+    /** Accepted by the provider; its results are polled until they are available. */
+    SUBMITTED,
+
+    /** Its results have been reconciled into the analyses of its entries. */
+    COMPLETED,
+
+    /** Could not be submitted or expired at the provider; its entries were handed back. */
+    FAILED
+}
@@ -0,0 +1,30 @@
+package bbu.solution.logwatchai.domain.log;
+
+/**
+ * Lifecycle state of a {@link LogEntry} within the analysis pipeline.
+ * <p>
+ * The state is stored in the database and is the single source of truth for
+ * which worker owns an entry. Workers move an entry from {@link #PENDING} to
+ * {@link #CLAIMED} with one atomic conditional UPDATE, so ownership works across
+ * threads and across application instances without any in-memory locking.
+ */
+public enum AnalysisState {
+
+    /** Ingested and waiting for a worker to claim it. */
+    PENDING,
+
+    /** Claimed by exactly one worker; the AI analysis is in progress. */
+    CLAIMED,
+
+    /**
+     * Waiting in a deferred provider batch, which may take hours; owned by that batch and
+     * therefore not released as an abandoned claim.
+     */
+    DEFERRED,
+
+    /** Analysis has been persisted and the entry is complete. */
+    DONE,
+
+    /** Analysis was persisted but the entry could not be completed; needs manual attention. */
+    FAILED
+}
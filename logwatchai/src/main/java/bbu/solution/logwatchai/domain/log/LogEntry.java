@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import org.hibernate.annotations.*;
 import org.hibernate.type.SqlTypes;
 
@@ -32,12 +33,19 @@ import java.util.UUID;
                 @Index(name = "idx_log_entries_ingestion_time", columnList = "ingestionTime DESC"),
                 @Index(name = "idx_log_entries_analyzed", columnList = "analyzed"),
                 @Index(name = "idx_log_entries_has_anomaly", columnList = "hasAnomaly"),
-                @Index(name = "idx_log_entries_level", columnList = "level")
+                @Index(name = "idx_log_entries_level", columnList = "level"),
+                @Index(name = "idx_log_entries_analysis_state", columnList = "analysisState, ingestionTime"),
+                @Index(name = "idx_log_entries_template_id", columnList = "templateId, ingestionTime")
         }
 )
 @DynamicUpdate
 public class LogEntry {
 
+    /**
+     * Anomaly score above which an analyzed entry counts as an anomaly.
+     */
+    public static final double ANOMALY_THRESHOLD = 0.7;
+
     /**
      * Unique identifier of the log entry.
      */
@@ -83,6 +91,22 @@ public class LogEntry {
     @Column(nullable = false)
     private boolean hasAnomaly = false;
 
+    /**
+     * Position of this entry in the analysis pipeline. Claimed atomically in the database,
+     * see {@link AnalysisState}.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private AnalysisState analysisState = AnalysisState.PENDING;
+
+    /**
+     * Identifier of the mined template this entry was assigned to at ingestion.
+     * Entries ingested before template mining existed have none.
+     */
+    @Column(columnDefinition = "BINARY(16)")
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID templateId;
+
     /**
      * Identifier of the log source this entry belongs to.
      */
@@ -105,6 +129,13 @@ public class LogEntry {
     @OneToOne(mappedBy = "logEntry", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private AIAnalysis analysis;
 
+    /**
+     * Whether this instance was created for a newly read line rather than loaded from the database.
+     * Not persisted.
+     */
+    @Transient
+    private boolean newlyIngested;
+
     /**
      * Default JPA constructor.
      */
@@ -124,6 +155,8 @@ public class LogEntry {
         this.sourceId = sourceId;
         this.analyzed = false;
         this.hasAnomaly = false;
+        this.analysisState = AnalysisState.PENDING;
+        this.newlyIngested = true;
     }
 
     /**
@@ -133,8 +166,9 @@ public class LogEntry {
      */
     public void markAsAnalyzed(AIAnalysis analysis) {
         this.analyzed = true;
+        this.analysisState = AnalysisState.DONE;
         this.analysis = analysis;
-        this.hasAnomaly = analysis != null && analysis.getAnomalyScore() > 0.7;
+        this.hasAnomaly = analysis != null && analysis.getAnomalyScore() > ANOMALY_THRESHOLD;
     }
 
     /**
@@ -142,6 +176,7 @@ public class LogEntry {
      */
     public void markAsAnalyzed() {
         this.analyzed = true;
+        this.analysisState = AnalysisState.DONE;
     }
 
     /**
@@ -166,6 +201,11 @@ public class LogEntry {
 
     public boolean isAnalyzed() { return analyzed; }
     public boolean hasAnomaly() { return hasAnomaly; }
+    public AnalysisState getAnalysisState() { return analysisState; }
+    public boolean isNewlyIngested() { return newlyIngested; }
+
+    public UUID getTemplateId() { return templateId; }
+    public void setTemplateId(UUID templateId) { this.templateId = templateId; }
 
     public UUID getSourceId() { return sourceId; }
     public AIAnalysis getAnalysis() { return analysis; }
@@ -178,8 +218,10 @@ public class LogEntry {
                 ", timestamp=" + timestamp +
                 ", level='" + level + '\'' +
                 ", sourceId=" + sourceId +
+                ", templateId=" + templateId +
                 ", analyzed=" + analyzed +
                 ", hasAnomaly=" + hasAnomaly +
+                ", analysisState=" + analysisState +
                 '}';
     }
 }
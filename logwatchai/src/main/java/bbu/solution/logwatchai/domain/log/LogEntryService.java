@@ -61,9 +61,9 @@ public interface LogEntryService {
     void analyzeAsync(LogEntry logEntry);
 
     /**
-     * TODO:
-     * Processes all pending, unanalyzed log entries and triggers
-     * AI-based analysis for each.
+     * Processes pending, unanalyzed log entries and triggers
+     * AI-based analysis for each. Abandoned analysis claims are
+     * returned to the pending state first.
      */
     void analyzePendingLogs();
 
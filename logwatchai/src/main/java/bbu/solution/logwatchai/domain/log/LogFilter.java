@@ -6,7 +6,7 @@ import java.util.UUID;
 /**
  * Immutable filter object used for querying log entries. This record groups
  * optional filter criteria such as source, date range, log level, text search,
- * and analysis status flags into a compact, type-safe structure.
+ * analysis status flags and the mined template into a compact, type-safe structure.
  * <p>
  * <b>Why a Java record is the better choice here:</b><br>
  * A {@code record} is ideal for filter objects because:
@@ -27,5 +27,6 @@ public record LogFilter(
         String level,
         String containsText,
         Boolean analyzedOnly,
-        Boolean hasAnomaly
+        Boolean hasAnomaly,
+        UUID templateId
 ) {}
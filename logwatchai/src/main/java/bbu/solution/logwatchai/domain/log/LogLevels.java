@@ -0,0 +1,45 @@
+package bbu.solution.logwatchai.domain.log;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility methods for extracting the log level from a raw log line.
+ */
+public final class LogLevels {
+
+    /**
+     * The first level keyword of a line wins; only the beginning of the line is searched,
+     * so words like "error" inside the message text are not mistaken for the level.
+     */
+    private static final Pattern LEVEL = Pattern.compile(
+            "\\b(TRACE|DEBUG|INFO|NOTICE|WARN|WARNING|ERROR|ERR|SEVERE|FATAL|CRITICAL|CRIT)\\b");
+
+    private static final int SEARCH_LIMIT = 120;
+
+    private LogLevels() {
+        // static utility class
+    }
+
+    /**
+     * Extracts the level of a log line.
+     *
+     * @param rawText the raw log line, may be null
+     * @return the normalized level (TRACE, DEBUG, INFO, WARN, ERROR or FATAL), or {@code null} if none is found
+     */
+    public static String parse(String rawText) {
+        if (rawText == null) return null;
+
+        Matcher m = LEVEL.matcher(rawText);
+        m.region(0, Math.min(rawText.length(), SEARCH_LIMIT));
+        if (!m.find()) return null;
+
+        return switch (m.group(1)) {
+            case "NOTICE" -> "INFO";
+            case "WARNING" -> "WARN";
+            case "ERR", "SEVERE" -> "ERROR";
+            case "CRITICAL", "CRIT" -> "FATAL";
+            default -> m.group(1);
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package bbu.solution.logwatchai.domain.reanalysis;
+
+/**
+ * Lifecycle state of a {@link ReanalysisCampaign}.
+ * <p>
+ * Every change of state is one conditional UPDATE in the database, so a campaign can be paused
+ * or cancelled from any instance while another one is working on it.
+ */
+public enum CampaignStatus {
+
+    /** Chunks of matching entries are analyzed one after the other. */
+    RUNNING,
+
+    /** Stopped after the current chunk; can be resumed where it stopped. */
+    PAUSED,
+
+    /** Stopped for good; the analyses replaced so far stay. */
+    CANCELLED,
+
+    /** Every matching entry has been analyzed again. */
+    COMPLETED
+}
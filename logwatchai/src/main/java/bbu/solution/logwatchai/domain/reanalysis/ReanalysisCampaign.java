@@ -0,0 +1,202 @@
+package bbu.solution.logwatchai.domain.reanalysis;
+
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Represents a job that analyzes a selection of already analyzed log entries again, e.g. after
+ * the model or the prompt has changed.
+ * <p>
+ * I walk through the matching entries in the order of their id, one chunk at a time. The id of
+ * the last entry of the finished chunks is my cursor, so a paused campaign, or one interrupted by
+ * a restart, continues right after it. The matching entries are counted once when I am created;
+ * entries ingested later are not part of me.
+ * </p>
+ * <p>Progress and state are only changed by conditional UPDATEs of the repository, never by
+ * saving a loaded instance, so concurrent changes of state are not lost.</p>
+ */
+@Entity
+@Table(name = "reanalysis_campaigns")
+public class ReanalysisCampaign {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    @Column(nullable = false, length = 200, updatable = false)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private CampaignStatus status;
+
+    /**
+     * Comma-separated severities of the filter; null for all.
+     */
+    @Column(length = 100, updatable = false)
+    private String severities;
+
+    @Column(name = "source_id", columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID sourceId;
+
+    @Column(name = "from_time", nullable = false, updatable = false)
+    private Instant fromTime;
+
+    @Column(name = "to_time", nullable = false, updatable = false)
+    private Instant toTime;
+
+    /**
+     * Whether lines whose template has a cached analysis of the current model take it from the cache.
+     */
+    @Column(name = "use_cache", nullable = false, updatable = false)
+    private boolean useCache;
+
+    @Column(name = "lines_per_minute", nullable = false, updatable = false)
+    private int linesPerMinute;
+
+    /**
+     * The id of the last entry analyzed; null before the first chunk.
+     */
+    @Column(name = "cursor_id", columnDefinition = "BINARY(16)")
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID cursorId;
+
+    @Column(name = "total_lines", nullable = false)
+    private long totalLines;
+
+    @Column(name = "processed_lines", nullable = false)
+    private long processedLines;
+
+    @Column(name = "replaced_lines", nullable = false)
+    private long replacedLines;
+
+    @Column(name = "changed_lines", nullable = false)
+    private long changedLines;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /**
+     * When the campaign was started or last resumed; the throughput is measured from here.
+     */
+    @Column(name = "resumed_at")
+    private Instant resumedAt;
+
+    @Column(name = "resumed_processed", nullable = false)
+    private long resumedProcessed;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * The instance working on a chunk holds the campaign until then.
+     */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    protected ReanalysisCampaign() {
+        // for JPA
+    }
+
+    /**
+     * Creates a running campaign.
+     *
+     * @param name           a name to recognize the campaign by
+     * @param filter         the selection of entries, its end already resolved
+     * @param useCache       whether cached analyses of the current model are reused
+     * @param linesPerMinute the maximum throughput
+     * @param totalLines     the number of matching entries
+     * @param now            the start of the campaign
+     */
+    public ReanalysisCampaign(String name, ReanalysisFilter filter, boolean useCache, int linesPerMinute, long totalLines, Instant now) {
+        this.id = UUID.randomUUID();
+        this.name = name;
+        this.status = CampaignStatus.RUNNING;
+        this.severities = filter.severities() == null || filter.severities().isEmpty()
+                ? null
+                : filter.severities().stream().map(Severity::name).collect(Collectors.joining(","));
+        this.sourceId = filter.sourceId();
+        this.fromTime = filter.from();
+        this.toTime = filter.to();
+        this.useCache = useCache;
+        this.linesPerMinute = linesPerMinute;
+        this.totalLines = totalLines;
+        this.createdAt = now;
+        this.resumedAt = now;
+    }
+
+    /**
+     * @return the severities of the filter, empty for all
+     */
+    public List<Severity> getSeverities() {
+        if (severities == null || severities.isBlank()) return List.of();
+        return Arrays.stream(severities.split(",")).map(Severity::valueOf).toList();
+    }
+
+    /**
+     * @return the share of the matching entries that has been processed, between 0.0 and 1.0
+     */
+    public double getProgress() {
+        if (status == CampaignStatus.COMPLETED) return 1.0;
+        return totalLines == 0 ? 0.0 : Math.min(1.0, (double) processedLines / totalLines);
+    }
+
+    /**
+     * @param now the current time
+     * @return the measured lines per minute since the campaign was started or resumed, 0 before the first chunk
+     */
+    public double getMeasuredLinesPerMinute(Instant now) {
+        long done = processedLines - resumedProcessed;
+        if (resumedAt == null || done <= 0) return 0.0;
+        long millis = Math.max(1, Duration.between(resumedAt, now).toMillis());
+        return done * 60_000.0 / millis;
+    }
+
+    /**
+     * Estimates when a running campaign is done: from the measured throughput, or from the
+     * configured one before the first chunk is finished.
+     *
+     * @param now the current time
+     * @return the estimated end, or null if the campaign is not running
+     */
+    public Instant getEstimatedCompletion(Instant now) {
+        if (status != CampaignStatus.RUNNING) return null;
+        long remaining = Math.max(0, totalLines - processedLines);
+        double rate = getMeasuredLinesPerMinute(now);
+        if (rate <= 0) rate = linesPerMinute;
+        return now.plusMillis((long) (remaining * 60_000.0 / rate));
+    }
+
+    public UUID getId() { return id; }
+    public String getName() { return name; }
+    public CampaignStatus getStatus() { return status; }
+    public UUID getSourceId() { return sourceId; }
+    public Instant getFromTime() { return fromTime; }
+    public Instant getToTime() { return toTime; }
+    public boolean isUseCache() { return useCache; }
+    public int getLinesPerMinute() { return linesPerMinute; }
+    public UUID getCursorId() { return cursorId; }
+    public long getTotalLines() { return totalLines; }
+    public long getProcessedLines() { return processedLines; }
+    public long getReplacedLines() { return replacedLines; }
+    public long getChangedLines() { return changedLines; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getResumedAt() { return resumedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public Instant getLeaseUntil() { return leaseUntil; }
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,22 @@
+package bbu.solution.logwatchai.domain.reanalysis;
+
+import bbu.solution.logwatchai.domain.analysis.Severity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Selects the analyzed log entries a re-analysis campaign works on.
+ *
+ * @param severities only entries whose current analysis has one of these severities; all if null or empty
+ * @param sourceId   only entries of this log source; all if null
+ * @param from       only entries ingested at or after this point in time; required
+ * @param to         only entries ingested before this point in time; the start of the campaign if null
+ */
+public record ReanalysisFilter(
+        List<Severity> severities,
+        UUID sourceId,
+        Instant from,
+        Instant to
+) {}
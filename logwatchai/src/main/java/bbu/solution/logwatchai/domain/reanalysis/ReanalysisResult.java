@@ -0,0 +1,14 @@
+package bbu.solution.logwatchai.domain.reanalysis;
+
+/**
+ * Outcome of analyzing one chunk of a re-analysis campaign again.
+ *
+ * @param replaced        entries whose analysis was replaced by a new version
+ * @param skipped         entries that kept their analysis because no usable new one was produced
+ * @param severityChanged replaced entries whose new severity differs from the previous one
+ */
+public record ReanalysisResult(
+        int replaced,
+        int skipped,
+        int severityChanged
+) {}
@@ -0,0 +1,67 @@
+package bbu.solution.logwatchai.domain.reanalysis;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service interface for re-analysis campaigns.
+ * <p>
+ * A campaign analyzes a selection of already analyzed log entries again, e.g. all HIGH and
+ * CRITICAL entries of the last seven days after a model change. The entries take the same path
+ * as new lines — batching, the analysis cache, rate limits and the budget — at a throughput the
+ * campaign limits. Every new result becomes the next version of the entry's analysis; the
+ * previous one is kept. No alerts are raised for re-analyzed entries.
+ * </p>
+ */
+public interface ReanalysisService {
+
+    /**
+     * Counts the matching entries and starts a campaign on them.
+     *
+     * @param name           a name to recognize the campaign by; generated if blank
+     * @param filter         the selection of entries
+     * @param linesPerMinute the maximum throughput, or null for the configured default
+     * @param useCache       whether cached analyses of the current model are reused
+     * @return the running campaign
+     */
+    ReanalysisCampaign start(String name, ReanalysisFilter filter, Integer linesPerMinute, boolean useCache);
+
+    /**
+     * Pauses a running campaign after its current chunk.
+     *
+     * @param id the campaign id
+     * @return the campaign
+     * @throws IllegalStateException if the campaign is not running
+     */
+    ReanalysisCampaign pause(UUID id);
+
+    /**
+     * Resumes a paused campaign after its last finished chunk.
+     *
+     * @param id the campaign id
+     * @return the campaign
+     * @throws IllegalStateException if the campaign is not paused
+     */
+    ReanalysisCampaign resume(UUID id);
+
+    /**
+     * Cancels a running or paused campaign. The analyses replaced so far stay.
+     *
+     * @param id the campaign id
+     * @return the campaign
+     * @throws IllegalStateException if the campaign is already finished
+     */
+    ReanalysisCampaign cancel(UUID id);
+
+    /**
+     * @param id the campaign id
+     * @return the campaign, if it exists
+     */
+    Optional<ReanalysisCampaign> getCampaign(UUID id);
+
+    /**
+     * @return all campaigns, newest first
+     */
+    List<ReanalysisCampaign> getCampaigns();
+}
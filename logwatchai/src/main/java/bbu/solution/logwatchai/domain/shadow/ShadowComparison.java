@@ -0,0 +1,163 @@
+package bbu.solution.logwatchai.domain.shadow;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents the answer of a candidate strategy to a line next to the primary analysis of it.
+ * <p>
+ * The primary analysis is stored as usual in {@code ai_analysis}; I keep a copy of the fields
+ * that are compared, so comparisons stay readable after the line has been analyzed again.
+ * The candidate answer is never used by the pipeline. If the candidate failed, its fields are
+ * empty and {@link #getCandidateError()} tells why.
+ * </p>
+ */
+@Entity
+@Table(name = "ai_shadow_comparisons")
+public class ShadowComparison {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    @Column(name = "log_entry_id", nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID logEntryId;
+
+    @Column(name = "primary_strategy", nullable = false, updatable = false)
+    private String primaryStrategy;
+
+    @Column(name = "candidate_strategy", nullable = false, length = 100, updatable = false)
+    private String candidateStrategy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "primary_severity", nullable = false, length = 20, updatable = false)
+    private Severity primarySeverity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "candidate_severity", length = 20, updatable = false)
+    private Severity candidateSeverity;
+
+    @Column(name = "primary_score", nullable = false, updatable = false)
+    private double primaryScore;
+
+    @Column(name = "candidate_score", updatable = false)
+    private Double candidateScore;
+
+    @Column(name = "primary_category", length = 100, updatable = false)
+    private String primaryCategory;
+
+    @Column(name = "candidate_category", length = 100, updatable = false)
+    private String candidateCategory;
+
+    @Column(name = "candidate_summary", columnDefinition = "TEXT", updatable = false)
+    private String candidateSummary;
+
+    @Column(name = "severity_match", nullable = false, updatable = false)
+    private boolean severityMatch;
+
+    /**
+     * Candidate score minus primary score; null if the candidate failed.
+     */
+    @Column(name = "score_delta", updatable = false)
+    private Double scoreDelta;
+
+    @Column(name = "primary_latency_ms", nullable = false, updatable = false)
+    private long primaryLatencyMs;
+
+    @Column(name = "candidate_latency_ms", nullable = false, updatable = false)
+    private long candidateLatencyMs;
+
+    @Column(name = "primary_cost", nullable = false, updatable = false)
+    private double primaryCost;
+
+    @Column(name = "candidate_cost", nullable = false, updatable = false)
+    private double candidateCost;
+
+    @Column(name = "candidate_error", length = 500, updatable = false)
+    private String candidateError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+
+    // ==================== Constructors ====================
+
+    public ShadowComparison() {
+    }
+
+    /**
+     * Creates a comparison.
+     *
+     * @param primaryStrategy    identifies the primary producer, as used in the analysis cache
+     * @param candidateStrategy  the name of the candidate strategy
+     * @param primary            the primary analysis
+     * @param candidate          the candidate analysis, or null if the candidate failed
+     * @param primaryLatencyMs   latency of the primary analysis
+     * @param candidateLatencyMs latency of the candidate call
+     * @param primaryCost        estimated cost of the primary calls
+     * @param candidateCost      estimated cost of the candidate call
+     * @param candidateError     why the candidate failed, or null
+     */
+    public ShadowComparison(String primaryStrategy,
+                            String candidateStrategy,
+                            AIAnalysis primary,
+                            AIAnalysis candidate,
+                            long primaryLatencyMs,
+                            long candidateLatencyMs,
+                            double primaryCost,
+                            double candidateCost,
+                            String candidateError) {
+        this.id = UUID.randomUUID();
+        this.logEntryId = primary.getLogEntryId();
+        this.primaryStrategy = primaryStrategy;
+        this.candidateStrategy = candidateStrategy;
+        this.primarySeverity = primary.getSeverity() == null ? Severity.INFO : primary.getSeverity();
+        this.primaryScore = primary.getAnomalyScore();
+        this.primaryCategory = primary.getCategory();
+        if (candidate != null) {
+            this.candidateSeverity = candidate.getSeverity();
+            this.candidateScore = candidate.getAnomalyScore();
+            this.candidateCategory = candidate.getCategory();
+            this.candidateSummary = candidate.getSummarizedIssue();
+            this.severityMatch = this.primarySeverity == candidate.getSeverity();
+            this.scoreDelta = candidate.getAnomalyScore() - primary.getAnomalyScore();
+        }
+        this.primaryLatencyMs = primaryLatencyMs;
+        this.candidateLatencyMs = candidateLatencyMs;
+        this.primaryCost = primaryCost;
+        this.candidateCost = candidateCost;
+        this.candidateError = candidateError == null || candidateError.length() <= 500 ? candidateError : candidateError.substring(0, 500);
+        this.createdAt = Instant.now();
+    }
+
+
+    // ==================== Getters ====================
+
+    public UUID getId() { return id; }
+    public UUID getLogEntryId() { return logEntryId; }
+    public String getPrimaryStrategy() { return primaryStrategy; }
+    public String getCandidateStrategy() { return candidateStrategy; }
+    public Severity getPrimarySeverity() { return primarySeverity; }
+    public Severity getCandidateSeverity() { return candidateSeverity; }
+    public double getPrimaryScore() { return primaryScore; }
+    public Double getCandidateScore() { return candidateScore; }
+    public String getPrimaryCategory() { return primaryCategory; }
+    public String getCandidateCategory() { return candidateCategory; }
+    public String getCandidateSummary() { return candidateSummary; }
+    public boolean isSeverityMatch() { return severityMatch; }
+    public Double getScoreDelta() { return scoreDelta; }
+    public long getPrimaryLatencyMs() { return primaryLatencyMs; }
+    public long getCandidateLatencyMs() { return candidateLatencyMs; }
+    public double getPrimaryCost() { return primaryCost; }
+    public double getCandidateCost() { return candidateCost; }
+    public String getCandidateError() { return candidateError; }
+    public Instant getCreatedAt() { return createdAt; }
+}
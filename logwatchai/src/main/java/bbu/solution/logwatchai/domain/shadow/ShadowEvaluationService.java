@@ -0,0 +1,35 @@
+package bbu.solution.logwatchai.domain.shadow;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Service interface for the shadow evaluation of candidate strategies.
+ * <p>
+ * A sample of the analyzed lines is also sent to a candidate strategy, off the analysis path.
+ * Its answers are stored next to the primary ones, so a cheaper or local model can be judged
+ * on live traffic before it replaces the current one.
+ * </p>
+ */
+public interface ShadowEvaluationService {
+
+    /**
+     * Aggregates agreement, latency and cost of the candidates.
+     *
+     * @param since the earliest comparison to include
+     * @return one summary per candidate
+     */
+    List<ShadowSummary> getSummary(Instant since);
+
+    /**
+     * Returns the stored comparisons, newest first.
+     *
+     * @param candidateStrategy only comparisons of this candidate, or null for all
+     * @param pageable the pageable settings
+     * @return a page of comparisons
+     */
+    Page<ShadowComparison> getComparisons(String candidateStrategy, Pageable pageable);
+}
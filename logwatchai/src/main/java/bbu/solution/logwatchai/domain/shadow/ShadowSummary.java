@@ -0,0 +1,45 @@
+package bbu.solution.logwatchai.domain.shadow;
+
+/**
+ * Aggregated comparisons of one candidate strategy.
+ *
+ * @param candidateStrategy  the name of the candidate strategy
+ * @param comparisons        number of compared lines
+ * @param failures           lines the candidate gave no usable answer for
+ * @param severityMatches    lines on which both agree on the severity
+ * @param scoreMatches       lines whose anomaly scores differ by at most the configured tolerance
+ * @param meanScoreDelta     mean absolute difference of the anomaly scores
+ * @param primaryLatencyMs   mean latency of the primary analysis
+ * @param candidateLatencyMs mean latency of the candidate
+ * @param primaryCost        total estimated cost of the primary analyses
+ * @param candidateCost      total estimated cost of the candidate
+ */
+public record ShadowSummary(
+        String candidateStrategy,
+        long comparisons,
+        long failures,
+        long severityMatches,
+        long scoreMatches,
+        Double meanScoreDelta,
+        Double primaryLatencyMs,
+        Double candidateLatencyMs,
+        Double primaryCost,
+        Double candidateCost
+) {
+
+    /**
+     * @return share of answered lines with the same severity, 0 if there are none
+     */
+    public double severityAgreement() {
+        long answered = comparisons - failures;
+        return answered == 0 ? 0.0 : (double) severityMatches / answered;
+    }
+
+    /**
+     * @return share of answered lines whose scores agree within the tolerance, 0 if there are none
+     */
+    public double scoreAgreement() {
+        long answered = comparisons - failures;
+        return answered == 0 ? 0.0 : (double) scoreMatches / answered;
+    }
+}
@@ -0,0 +1,252 @@
+package bbu.solution.logwatchai.domain.template;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Online log template miner based on the Drain algorithm (fixed-depth parse tree).
+ * <p>
+ * Every line is first normalized by {@link LogTemplateNormalizer} and split into tokens.
+ * The tree then routes it by token count and by its first {@code depth - 2} tokens to a leaf
+ * that holds a small list of clusters. The most similar cluster of that leaf absorbs the line
+ * if the share of equal tokens reaches the similarity threshold; differing positions become
+ * {@value #WILDCARD}. Otherwise the line opens a new cluster.
+ * </p>
+ * <p>
+ * The work per line only depends on the depth and on the leaf size, not on the number of
+ * lines seen so far. Memory is bounded: every inner node has at most {@code maxChildren}
+ * token children (further tokens share one wildcard child), and at most {@code maxClusters}
+ * clusters are kept — the least recently matched one is dropped first.
+ * </p>
+ * <p>I am not thread-safe; callers have to synchronize.</p>
+ */
+public final class DrainTemplateTree {
+
+    /** Token that stands for any value at this position. */
+    public static final String WILDCARD = "<*>";
+
+    private final int depth;
+    private final double similarityThreshold;
+    private final int maxChildren;
+    private final int maxClusters;
+
+    private final Node root = new Node();
+
+    /** All live clusters in least-recently-matched order. */
+    private final LinkedHashMap<UUID, Cluster> clusters = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param depth               total tree depth including root and token-count layer, at least 3
+     * @param similarityThreshold minimum share of equal tokens for a line to join a cluster
+     * @param maxChildren         maximum token children per inner node
+     * @param maxClusters         maximum clusters kept in memory
+     */
+    public DrainTemplateTree(int depth, double similarityThreshold, int maxChildren, int maxClusters) {
+        this.depth = Math.max(3, depth);
+        this.similarityThreshold = similarityThreshold;
+        this.maxChildren = Math.max(1, maxChildren);
+        this.maxClusters = Math.max(1, maxClusters);
+    }
+
+    /**
+     * Assigns a raw log line to a cluster, creating or generalizing clusters as needed.
+     *
+     * @param rawText the raw log line
+     * @return the cluster the line belongs to
+     */
+    public Match add(String rawText) {
+        String[] tokens = tokenize(LogTemplateNormalizer.normalize(rawText));
+        List<Cluster> leaf = leafFor(tokens);
+
+        Cluster best = null;
+        double bestSimilarity = -1;
+        int bestWildcards = -1;
+        for (Cluster cluster : leaf) {
+            double similarity = similarity(cluster.tokens, tokens);
+            int wildcards = cluster.wildcards();
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && wildcards > bestWildcards)) {
+                best = cluster;
+                bestSimilarity = similarity;
+                bestWildcards = wildcards;
+            }
+        }
+
+        if (best != null && bestSimilarity >= similarityThreshold) {
+            clusters.get(best.id); // refresh LRU position
+            boolean changed = best.merge(tokens);
+            return new Match(best, false, changed);
+        }
+
+        Cluster created = new Cluster(UUID.randomUUID(), tokens, 1, leaf);
+        register(created);
+        return new Match(created, true, false);
+    }
+
+    /**
+     * Re-inserts a previously persisted template, e.g. after a restart.
+     *
+     * @param id       the cluster id
+     * @param template the template text with {@value #WILDCARD} placeholders
+     * @param version  the template version
+     * @param matches  the number of lines already counted for the template
+     */
+    public void restore(UUID id, String template, int version, long matches) {
+        if (clusters.containsKey(id)) return;
+        String[] tokens = tokenize(template);
+        Cluster cluster = new Cluster(id, tokens, version, leafFor(tokens));
+        cluster.matches = matches;
+        register(cluster);
+    }
+
+    /**
+     * @param id the cluster id
+     * @return the cluster, or {@code null} if unknown or already evicted
+     */
+    public Cluster get(UUID id) {
+        return clusters.get(id);
+    }
+
+    /**
+     * @return the number of clusters currently held in memory
+     */
+    public int size() {
+        return clusters.size();
+    }
+
+    private void register(Cluster cluster) {
+        cluster.leaf.add(cluster);
+        clusters.put(cluster.id, cluster);
+        if (clusters.size() > maxClusters) {
+            Cluster eldest = clusters.values().iterator().next();
+            clusters.remove(eldest.id);
+            eldest.leaf.remove(eldest);
+        }
+    }
+
+    /**
+     * Walks the fixed-depth path of the given tokens and returns the cluster list of its leaf.
+     * Missing nodes are created on the way.
+     */
+    private List<Cluster> leafFor(String[] tokens) {
+        Node node = root.children.computeIfAbsent(String.valueOf(tokens.length), k -> new Node());
+
+        int tokenLayers = Math.min(depth - 2, tokens.length);
+        for (int i = 0; i < tokenLayers; i++) {
+            String token = isVariable(tokens[i]) ? WILDCARD : tokens[i];
+            Node child = node.children.get(token);
+            if (child == null) {
+                if (node.children.size() >= maxChildren) token = WILDCARD;
+                child = node.children.computeIfAbsent(token, k -> new Node());
+            }
+            node = child;
+        }
+        return node.clusters;
+    }
+
+    /**
+     * Share of positions where template and line carry the same constant token.
+     */
+    private static double similarity(String[] template, String[] tokens) {
+        if (tokens.length == 0) return 1.0;
+        int same = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (template[i].equals(tokens[i])) same++;
+        }
+        return (double) same / tokens.length;
+    }
+
+    /**
+     * Tokens that still contain digits or already are masks are unlikely to be constant,
+     * so they are not used for routing.
+     */
+    private static boolean isVariable(String token) {
+        if (token.startsWith("<") && token.endsWith(">")) return true;
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String text) {
+        return text.isBlank() ? new String[0] : text.trim().split(" +");
+    }
+
+    /**
+     * Inner node of the parse tree. Leaves only use {@link #clusters}.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Cluster> clusters = new ArrayList<>();
+    }
+
+    /**
+     * One log template together with the tree leaf it lives in.
+     */
+    public static final class Cluster {
+        private final UUID id;
+        private final String[] tokens;
+        private final List<Cluster> leaf;
+        private int version;
+        private long matches;
+
+        private Cluster(UUID id, String[] tokens, int version, List<Cluster> leaf) {
+            this.id = id;
+            this.tokens = tokens;
+            this.version = version;
+            this.leaf = leaf;
+        }
+
+        /**
+         * Replaces every position that differs from the line by a wildcard.
+         *
+         * @return true if the template changed
+         */
+        private boolean merge(String[] line) {
+            boolean changed = false;
+            for (int i = 0; i < tokens.length; i++) {
+                if (!tokens[i].equals(line[i]) && !WILDCARD.equals(tokens[i])) {
+                    tokens[i] = WILDCARD;
+                    changed = true;
+                }
+            }
+            if (changed) version++;
+            return changed;
+        }
+
+        /**
+         * Counts one stored line of this template.
+         */
+        public void countMatch() {
+            matches++;
+        }
+
+        private int wildcards() {
+            int count = 0;
+            for (String token : tokens) {
+                if (WILDCARD.equals(token)) count++;
+            }
+            return count;
+        }
+
+        public UUID getId() { return id; }
+        public int getVersion() { return version; }
+        public long getMatches() { return matches; }
+        public int getTokenCount() { return tokens.length; }
+        public String getTemplate() { return String.join(" ", tokens); }
+    }
+
+    /**
+     * Result of assigning a line.
+     *
+     * @param cluster the cluster the line belongs to
+     * @param created whether the line opened a new cluster
+     * @param changed whether the line generalized an existing template
+     */
+    public record Match(Cluster cluster, boolean created, boolean changed) {}
+}
@@ -0,0 +1,81 @@
+package bbu.solution.logwatchai.domain.template;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents a mined log template, i.e. a group of log lines that only differ in their variable parts.
+ * <p>
+ * The template text uses {@code <*>} for positions that vary between the grouped lines and the
+ * masks of {@link LogTemplateNormalizer} for well-known value types. Whenever the miner generalizes
+ * the template, its {@link #version} is increased.
+ * </p>
+ * <p>I am written by the template miner only; counts are flushed periodically.</p>
+ */
+@Entity
+@Table(
+        name = "log_templates",
+        indexes = {
+                @Index(name = "idx_log_templates_last_seen", columnList = "last_seen DESC"),
+                @Index(name = "idx_log_templates_match_count", columnList = "match_count DESC")
+        }
+)
+public class LogTemplate {
+
+    @Id
+    @Column(nullable = false, columnDefinition = "BINARY(16)", updatable = false)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private UUID id;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String template;
+
+    @Column(name = "token_count", nullable = false)
+    private int tokenCount;
+
+    @Column(nullable = false)
+    private int version;
+
+    /**
+     * Number of stored log entries assigned to this template.
+     */
+    @Column(name = "match_count", nullable = false)
+    private long matchCount;
+
+    @Column(name = "first_seen", nullable = false, updatable = false)
+    private Instant firstSeen;
+
+    @Column(name = "last_seen", nullable = false)
+    private Instant lastSeen;
+
+
+    // ==================== Constructors ====================
+
+    public LogTemplate() {
+    }
+
+
+    // ==================== Getters ====================
+
+    public UUID getId() { return id; }
+    public String getTemplate() { return template; }
+    public int getTokenCount() { return tokenCount; }
+    public int getVersion() { return version; }
+    public long getMatchCount() { return matchCount; }
+    public Instant getFirstSeen() { return firstSeen; }
+    public Instant getLastSeen() { return lastSeen; }
+
+    @Override
+    public String toString() {
+        return "LogTemplate{" +
+                "id=" + id +
+                ", template='" + template + '\'' +
+                ", version=" + version +
+                ", matchCount=" + matchCount +
+                '}';
+    }
+}
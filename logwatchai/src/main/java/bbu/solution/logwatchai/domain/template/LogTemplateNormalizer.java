@@ -0,0 +1,96 @@
+package bbu.solution.logwatchai.domain.template;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Utility methods for reducing a raw log line to its template.
+ * <p>
+ * I mask all tokens that typically vary between otherwise identical events —
+ * timestamps, UUIDs, IP addresses, e-mail addresses, hex values, quoted values,
+ * mixed identifiers and numbers — so that for example
+ * {@code GET /api/users/123 200 OK in 45ms} and {@code GET /api/users/987 200 OK in 3ms}
+ * both become {@code GET /api/users/<NUM> <NUM> OK in <NUM>ms}.
+ * </p>
+ * <p>
+ * Units directly attached to numbers (ms, s, GB, %) are kept, because they carry meaning
+ * for the analysis while the concrete value does not.
+ * </p>
+ */
+public final class LogTemplateNormalizer {
+
+    /**
+     * Masking rules in the order they are applied. More specific patterns must come first,
+     * e.g. a UUID would otherwise be shredded by the hex and number rules.
+     */
+    private static final List<Rule> RULES = List.of(
+            new Rule("\\b\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d+)?(?:Z|[+-]\\d{2}:?\\d{2})?", "<TS>"),
+            new Rule("\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b", "<UUID>"),
+            new Rule("\\b[\\w.+-]+@[\\w-]+(?:\\.[\\w-]+)+\\b", "<EMAIL>"),
+            new Rule("\\b(?:\\d{1,3}\\.){3}\\d{1,3}(?::\\d{1,5})?\\b", "<IP>"),
+            new Rule("\\b0x[0-9a-fA-F]+\\b", "<HEX>"),
+            new Rule("\\b(?=[0-9a-fA-F]*\\d)(?=[0-9a-fA-F]*[a-fA-F])[0-9a-fA-F]{8,}\\b", "<HEX>"),
+            new Rule("'[^']*'", "'<STR>'"),
+            new Rule("\"[^\"]*\"", "\"<STR>\""),
+            new Rule("\\b\\d+(?:[.,]\\d+)?(ms|us|ns|s|m|h|d|[kKmMgGtT]i?[bB]|B)\\b", "<NUM>$1"),
+            new Rule("\\b(?=\\w*\\d)(?=\\w*[A-Za-z])\\w{6,}\\b", "<ID>"),
+            new Rule("(?<![\\w<])[-+]?\\d+(?:[.,]\\d+)?", "<NUM>")
+    );
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private LogTemplateNormalizer() {
+        // static utility class
+    }
+
+    /**
+     * Converts a raw log line into its normalized template.
+     *
+     * @param rawText the raw log line, may be null
+     * @return the template with all variable tokens masked, never null
+     */
+    public static String normalize(String rawText) {
+        if (rawText == null) return "";
+
+        String template = rawText;
+        for (Rule rule : RULES) {
+            template = rule.apply(template);
+        }
+        return WHITESPACE.matcher(template).replaceAll(" ").trim();
+    }
+
+    /**
+     * Calculates a stable SHA-256 hex hash of the given template.
+     * I use it as a compact, fixed-length cache and lookup key.
+     *
+     * @param template the normalized template
+     * @return a 64 character lower-case hex string
+     */
+    public static String hash(String template) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(template.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A single precompiled masking rule. The replacement may reference capture groups.
+     */
+    private record Rule(Pattern pattern, String replacement) {
+
+        Rule(String regex, String replacement) {
+            this(Pattern.compile(regex), replacement);
+        }
+
+        String apply(String text) {
+            return pattern.matcher(text).replaceAll(replacement);
+        }
+    }
+}
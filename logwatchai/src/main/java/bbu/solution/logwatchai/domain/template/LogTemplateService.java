@@ -0,0 +1,65 @@
+package bbu.solution.logwatchai.domain.template;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service interface for the online template mining stage.
+ * <p>
+ * Every incoming log line is assigned to a template cluster before it is stored.
+ * Lines of one cluster share one analysis, and reports and APIs can group by cluster
+ * instead of by raw text.
+ * </p>
+ */
+public interface LogTemplateService {
+
+    /**
+     * Assigns a raw log line to its template, creating or generalizing templates as needed.
+     *
+     * @param rawText the raw log line
+     * @return the id of the template the line belongs to
+     */
+    UUID assignTemplate(String rawText);
+
+    /**
+     * Counts one stored occurrence of the given template. Duplicates that were not
+     * stored again must not be counted.
+     *
+     * @param templateId the template id returned by {@link #assignTemplate(String)}
+     */
+    void recordOccurrence(UUID templateId);
+
+    /**
+     * Returns the current text of a template. The text changes whenever the template is
+     * generalized, which makes it a suitable key for "analyze once per template version".
+     *
+     * @param templateId the template id, may be null
+     * @return the current template text, or empty if unknown
+     */
+    Optional<String> getCurrentTemplate(UUID templateId);
+
+    /**
+     * Returns how many stored lines have been assigned to a template so far.
+     *
+     * @param templateId the template id, may be null
+     * @return the number of lines, or 0 if the template is unknown or no longer held in memory
+     */
+    long getOccurrences(UUID templateId);
+
+    /**
+     * Returns the most frequent templates.
+     *
+     * @param limit the maximum number of templates
+     * @return templates, most frequent first
+     */
+    List<LogTemplate> getTopTemplates(int limit);
+
+    /**
+     * Retrieves the stored templates with the given ids.
+     *
+     * @param ids the template ids
+     * @return the stored templates; unknown ids are skipped
+     */
+    List<LogTemplate> getTemplates(Iterable<UUID> ids);
+}
@@ -0,0 +1,18 @@
+package bbu.solution.logwatchai.domain.triage;
+
+import bbu.solution.logwatchai.domain.analysis.Severity;
+
+/**
+ * Outcome of the local pre-triage of a single log line.
+ *
+ * @param score    cheap anomaly/priority score between 0.0 and 1.0
+ * @param severity severity derived from the parsed log level
+ * @param escalate whether the line is sent to an AI model
+ * @param reason   human-readable list of the signals that contributed to the score
+ */
+public record TriageResult(
+        double score,
+        Severity severity,
+        boolean escalate,
+        String reason
+) {}
@@ -2,8 +2,11 @@ package bbu.solution.logwatchai.infrastructure.api;
 
 import bbu.solution.logwatchai.domain.log.LogEntryService;
 import bbu.solution.logwatchai.domain.log.LogFilter;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
 import bbu.solution.logwatchai.infrastructure.api.dto.LogEntryDto;
+import bbu.solution.logwatchai.infrastructure.api.dto.LogTemplateDto;
 import bbu.solution.logwatchai.infrastructure.api.mapper.LogEntryMapper;
+import bbu.solution.logwatchai.infrastructure.api.mapper.LogTemplateMapper;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,7 +19,8 @@ import java.util.UUID;
 
 /**
  * REST controller providing access to log entries.
- * Supports filtered retrieval, pagination, and fetching single entries by ID.
+ * Supports filtered retrieval, pagination, fetching single entries by ID,
+ * and grouping entries by their mined template.
  */
 @RestController
 @RequestMapping("/api/logs")
@@ -24,16 +28,23 @@ public class LogEntryController {
 
     private final LogEntryService logEntryService;
     private final LogEntryMapper mapper;
+    private final LogTemplateService logTemplateService;
+    private final LogTemplateMapper templateMapper;
 
     /**
      * Creates a new LogEntryController instance.
      *
      * @param logEntryService the service responsible for retrieving log entries
      * @param mapper the mapper converting log entry entities to DTOs
+     * @param logTemplateService the service providing the mined templates
+     * @param templateMapper the mapper converting templates to DTOs
      */
-    public LogEntryController(LogEntryService logEntryService, LogEntryMapper mapper) {
+    public LogEntryController(LogEntryService logEntryService, LogEntryMapper mapper,
+                              LogTemplateService logTemplateService, LogTemplateMapper templateMapper) {
         this.logEntryService = logEntryService;
         this.mapper = mapper;
+        this.logTemplateService = logTemplateService;
+        this.templateMapper = templateMapper;
     }
 
     /**
@@ -46,6 +57,7 @@ public class LogEntryController {
      * @param containsText optional substring that must appear in the raw log text
      * @param analyzedOnly optional flag indicating whether only analyzed logs should be returned
      * @param hasAnomaly optional flag to filter logs containing anomalies
+     * @param templateId optional ID of a mined template; only its lines are returned
      * @return a list of LogEntryDto objects
      */
     @GetMapping
@@ -56,7 +68,8 @@ public class LogEntryController {
             @RequestParam(required = false) String level,
             @RequestParam(required = false) String containsText,
             @RequestParam(required = false) Boolean analyzedOnly,
-            @RequestParam(required = false) Boolean hasAnomaly
+            @RequestParam(required = false) Boolean hasAnomaly,
+            @RequestParam(required = false) UUID templateId
     ) {
         LogFilter filter = new LogFilter(
                 sourceId,
@@ -65,7 +78,8 @@ public class LogEntryController {
                 level,
                 containsText,
                 analyzedOnly,
-                hasAnomaly
+                hasAnomaly,
+                templateId
         );
 
         return logEntryService.getLogs(filter)
@@ -84,6 +98,7 @@ public class LogEntryController {
      * @param containsText optional substring that must appear in the raw log text
      * @param analyzedOnly optional flag indicating whether only analyzed logs should be returned
      * @param hasAnomaly optional flag to filter logs containing anomalies
+     * @param templateId optional ID of a mined template; only its lines are returned
      * @param pageable pagination configuration
      * @return a Page containing LogEntryDto items
      */
@@ -96,6 +111,7 @@ public class LogEntryController {
             @RequestParam(required = false) String containsText,
             @RequestParam(required = false) Boolean analyzedOnly,
             @RequestParam(required = false) Boolean hasAnomaly,
+            @RequestParam(required = false) UUID templateId,
             Pageable pageable
     ) {
         LogFilter filter = new LogFilter(
@@ -105,13 +121,29 @@ public class LogEntryController {
                 level,
                 containsText,
                 analyzedOnly,
-                hasAnomaly
+                hasAnomaly,
+                templateId
         );
 
         return logEntryService.getLogsPageable(filter, pageable)
                 .map(mapper::toDto);
     }
 
+    /**
+     * Retrieves the most frequent mined templates, i.e. the log entries grouped by template.
+     * The lines of one group can be fetched with the {@code templateId} filter.
+     *
+     * @param limit maximum number of templates
+     * @return a list of LogTemplateDto objects, most frequent first
+     */
+    @GetMapping("/templates")
+    public List<LogTemplateDto> getTemplates(@RequestParam(defaultValue = "50") int limit) {
+        return logTemplateService.getTopTemplates(limit)
+                .stream()
+                .map(templateMapper::toDto)
+                .toList();
+    }
+
     /**
      * Retrieves a single log entry by its unique identifier.
      *
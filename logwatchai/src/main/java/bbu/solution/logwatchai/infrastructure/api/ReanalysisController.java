@@ -0,0 +1,127 @@
+package bbu.solution.logwatchai.infrastructure.api;
+
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisFilter;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisService;
+import bbu.solution.logwatchai.infrastructure.api.dto.ReanalysisCampaignDto;
+import bbu.solution.logwatchai.infrastructure.api.mapper.ReanalysisMapper;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/reanalysis")
+public class ReanalysisController {
+
+    private final ReanalysisMapper mapper;
+    private final ReanalysisService reanalysisService;
+
+    /**
+     * Creates a new ReanalysisController.
+     *
+     * @param mapper the mapper used to convert campaigns into DTOs
+     * @param reanalysisService the service running re-analysis campaigns
+     */
+    public ReanalysisController(ReanalysisMapper mapper, ReanalysisService reanalysisService) {
+        this.mapper = mapper;
+        this.reanalysisService = reanalysisService;
+    }
+
+    /**
+     * Starts a campaign that analyzes the matching entries again.
+     *
+     * @param request the selection of entries and the limits of the campaign
+     * @return the running campaign
+     */
+    @PostMapping
+    public ReanalysisCampaignDto start(@RequestBody ReanalysisRequest request) {
+        ReanalysisFilter filter = new ReanalysisFilter(
+                request.severities() != null ? request.severities() : List.of(),
+                request.sourceId(),
+                request.from(),
+                request.to()
+        );
+        boolean useCache = request.useCache() == null || request.useCache();
+        return mapper.toDto(reanalysisService.start(request.name(), filter, request.linesPerMinute(), useCache));
+    }
+
+    /**
+     * Retrieves all campaigns, newest first.
+     *
+     * @return a list of ReanalysisCampaignDto objects
+     */
+    @GetMapping
+    public List<ReanalysisCampaignDto> getCampaigns() {
+        return reanalysisService.getCampaigns()
+                .stream()
+                .map(mapper::toDto)
+                .toList();
+    }
+
+    /**
+     * Retrieves a campaign with its progress and estimated completion.
+     *
+     * @param id the campaign ID
+     * @return the campaign as ReanalysisCampaignDto
+     */
+    @GetMapping("/{id}")
+    public ReanalysisCampaignDto getCampaign(@PathVariable UUID id) {
+        return reanalysisService.getCampaign(id)
+                .map(mapper::toDto)
+                .orElseThrow(() -> new RuntimeException("Re-analysis Campaign Not Found"));
+    }
+
+    /**
+     * Pauses a running campaign after its current chunk.
+     *
+     * @param id the campaign ID
+     * @return the paused campaign
+     */
+    @PostMapping("/{id}/pause")
+    public ReanalysisCampaignDto pause(@PathVariable UUID id) {
+        return mapper.toDto(reanalysisService.pause(id));
+    }
+
+    /**
+     * Resumes a paused campaign.
+     *
+     * @param id the campaign ID
+     * @return the running campaign
+     */
+    @PostMapping("/{id}/resume")
+    public ReanalysisCampaignDto resume(@PathVariable UUID id) {
+        return mapper.toDto(reanalysisService.resume(id));
+    }
+
+    /**
+     * Cancels a running or paused campaign; analyses replaced so far stay.
+     *
+     * @param id the campaign ID
+     * @return the cancelled campaign
+     */
+    @PostMapping("/{id}/cancel")
+    public ReanalysisCampaignDto cancel(@PathVariable UUID id) {
+        return mapper.toDto(reanalysisService.cancel(id));
+    }
+
+    /**
+     * Request payload for a new campaign.
+     *
+     * @param name an optional name of the campaign
+     * @param severities severities of the current analyses to re-analyze; empty or null for all
+     * @param sourceId an optional source filter
+     * @param from start of the period of the entries
+     * @param to optional end of the period, default now
+     * @param linesPerMinute optional maximum throughput, default from the configuration
+     * @param useCache whether cached analyses of the current model are reused, default true
+     */
+    public record ReanalysisRequest(String name,
+                                    List<Severity> severities,
+                                    UUID sourceId,
+                                    Instant from,
+                                    Instant to,
+                                    Integer linesPerMinute,
+                                    Boolean useCache) {}
+}
@@ -0,0 +1,60 @@
+package bbu.solution.logwatchai.infrastructure.api;
+
+import bbu.solution.logwatchai.domain.shadow.ShadowEvaluationService;
+import bbu.solution.logwatchai.infrastructure.api.dto.ShadowComparisonDto;
+import bbu.solution.logwatchai.infrastructure.api.dto.ShadowSummaryDto;
+import bbu.solution.logwatchai.infrastructure.api.mapper.ShadowMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/shadow")
+public class ShadowEvaluationController {
+
+    private final ShadowMapper mapper;
+    private final ShadowEvaluationService shadowEvaluationService;
+
+    /**
+     * Creates a new ShadowEvaluationController.
+     *
+     * @param mapper the mapper used to convert shadow results into DTOs
+     * @param shadowEvaluationService the service comparing a candidate model with the primary analysis
+     */
+    public ShadowEvaluationController(ShadowMapper mapper, ShadowEvaluationService shadowEvaluationService) {
+        this.mapper = mapper;
+        this.shadowEvaluationService = shadowEvaluationService;
+    }
+
+    /**
+     * Summarizes agreement, latency and cost of every candidate.
+     *
+     * @param since optional start of the evaluated period, default the last 24 hours
+     * @return one summary per candidate
+     */
+    @GetMapping("/summary")
+    public List<ShadowSummaryDto> getSummary(@RequestParam(required = false) Instant since) {
+        Instant from = since != null ? since : Instant.now().minus(Duration.ofHours(24));
+        return shadowEvaluationService.getSummary(from)
+                .stream()
+                .map(mapper::toDto)
+                .toList();
+    }
+
+    /**
+     * Retrieves the stored comparisons, newest first.
+     *
+     * @param candidate optional candidate name filter
+     * @param pageable pagination settings
+     * @return a page of ShadowComparisonDto objects
+     */
+    @GetMapping("/comparisons")
+    public Page<ShadowComparisonDto> getComparisons(@RequestParam(required = false) String candidate, Pageable pageable) {
+        return shadowEvaluationService.getComparisons(candidate, pageable)
+                .map(mapper::toDto);
+    }
+}
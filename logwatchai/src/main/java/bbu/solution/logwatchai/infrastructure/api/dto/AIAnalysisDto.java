@@ -21,6 +21,7 @@ import java.util.UUID;
  * @param recommendation recommended actions suggested by the AI
  * @param anomalyScore   probability score (0.0–1.0) indicating how anomalous the entry is
  * @param analyzedAt     timestamp at which the analysis was performed
+ * @param version        version of the entry's analysis; greater than 1 after a re-analysis
  */
 public record AIAnalysisDto(
         UUID id,
@@ -31,5 +32,6 @@ public record AIAnalysisDto(
         String likelyCause,
         String recommendation,
         double anomalyScore,
-        Instant analyzedAt
+        Instant analyzedAt,
+        int version
 ) {}
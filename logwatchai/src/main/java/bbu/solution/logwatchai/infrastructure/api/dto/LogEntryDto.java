@@ -17,6 +17,7 @@ import java.util.UUID;
  * @param hasAnomaly    indicates if anomaly detection flagged this entry
  * @param sourceId      ID of the log source associated with this entry
  * @param rawText       complete raw log text as ingested
+ * @param templateId    ID of the mined template this entry belongs to (if assigned)
  */
 public record LogEntryDto(
         UUID id,
@@ -26,5 +27,6 @@ public record LogEntryDto(
         boolean analyzed,
         boolean hasAnomaly,
         UUID sourceId,
-        String rawText
+        String rawText,
+        UUID templateId
 ) {}
@@ -0,0 +1,23 @@
+package bbu.solution.logwatchai.infrastructure.api.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object (DTO) representing a mined {@code LogTemplate} for API exposure.
+ *
+ * @param id         unique identifier of the template, usable as {@code templateId} filter
+ * @param template   template text; variable positions are shown as {@code <*>} or typed masks
+ * @param version    number of times the template has been generalized, starting at 1
+ * @param matchCount number of stored log entries assigned to the template
+ * @param firstSeen  timestamp of the first line with this template
+ * @param lastSeen   timestamp of the latest line with this template
+ */
+public record LogTemplateDto(
+        UUID id,
+        String template,
+        int version,
+        long matchCount,
+        Instant firstSeen,
+        Instant lastSeen
+) {}
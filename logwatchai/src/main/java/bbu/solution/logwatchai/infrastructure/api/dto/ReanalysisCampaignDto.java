@@ -0,0 +1,53 @@
+package bbu.solution.logwatchai.infrastructure.api.dto;
+
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.reanalysis.CampaignStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object (DTO) representing a re-analysis campaign and its progress.
+ *
+ * @param id                    unique identifier of the campaign
+ * @param name                  name of the campaign
+ * @param status                current state
+ * @param severities            severities of the current analyses that are re-analyzed; empty for all
+ * @param sourceId              source the entries come from; null for all sources
+ * @param from                  start of the period of the entries
+ * @param to                    end of the period of the entries
+ * @param useCache              whether cached analyses of the current model are reused
+ * @param linesPerMinute        configured maximum throughput
+ * @param totalLines            number of matching entries when the campaign was started
+ * @param processedLines        entries processed so far
+ * @param replacedLines         entries whose analysis was replaced by a new version
+ * @param changedLines          replaced entries whose severity changed
+ * @param progress              share of the matching entries processed, between 0.0 and 1.0
+ * @param measuredLinesPerMinute throughput measured since the campaign was started or resumed
+ * @param estimatedCompletion   estimated end of a running campaign; null otherwise
+ * @param createdAt             when the campaign was started
+ * @param finishedAt            when the campaign was completed or cancelled
+ * @param lastError             why the campaign was paused, if an error paused it
+ */
+public record ReanalysisCampaignDto(
+        UUID id,
+        String name,
+        CampaignStatus status,
+        List<Severity> severities,
+        UUID sourceId,
+        Instant from,
+        Instant to,
+        boolean useCache,
+        int linesPerMinute,
+        long totalLines,
+        long processedLines,
+        long replacedLines,
+        long changedLines,
+        double progress,
+        double measuredLinesPerMinute,
+        Instant estimatedCompletion,
+        Instant createdAt,
+        Instant finishedAt,
+        String lastError
+) {}
@@ -0,0 +1,49 @@
+package bbu.solution.logwatchai.infrastructure.api.dto;
+
+import bbu.solution.logwatchai.domain.analysis.Severity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object (DTO) representing one line analyzed by the primary and the candidate strategy.
+ *
+ * @param id                 unique identifier of the comparison
+ * @param logEntryId         the compared log entry
+ * @param primaryStrategy    producer of the primary analysis
+ * @param candidateStrategy  name of the candidate strategy
+ * @param primarySeverity    severity of the primary analysis
+ * @param candidateSeverity  severity of the candidate, null if it failed
+ * @param primaryScore       anomaly score of the primary analysis
+ * @param candidateScore     anomaly score of the candidate, null if it failed
+ * @param candidateCategory  category of the candidate
+ * @param candidateSummary   summarized issue of the candidate
+ * @param severityMatch      whether both severities are equal
+ * @param scoreDelta         candidate score minus primary score
+ * @param primaryLatencyMs   latency of the primary analysis
+ * @param candidateLatencyMs latency of the candidate
+ * @param primaryCost        estimated cost of the primary analysis
+ * @param candidateCost      estimated cost of the candidate
+ * @param candidateError     why the candidate failed, or null
+ * @param createdAt          when the comparison was stored
+ */
+public record ShadowComparisonDto(
+        UUID id,
+        UUID logEntryId,
+        String primaryStrategy,
+        String candidateStrategy,
+        Severity primarySeverity,
+        Severity candidateSeverity,
+        double primaryScore,
+        Double candidateScore,
+        String candidateCategory,
+        String candidateSummary,
+        boolean severityMatch,
+        Double scoreDelta,
+        long primaryLatencyMs,
+        long candidateLatencyMs,
+        double primaryCost,
+        double candidateCost,
+        String candidateError,
+        Instant createdAt
+) {}
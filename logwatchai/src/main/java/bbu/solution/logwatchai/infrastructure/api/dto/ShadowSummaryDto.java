@@ -0,0 +1,32 @@
+package bbu.solution.logwatchai.infrastructure.api.dto;
+
+/**
+ * Data Transfer Object (DTO) summarizing the shadow evaluation of one candidate strategy.
+ *
+ * @param candidateStrategy  name of the candidate strategy
+ * @param comparisons        number of compared lines
+ * @param failures           lines the candidate gave no usable answer for
+ * @param severityAgreement  share of answered lines with the same severity as the primary analysis
+ * @param scoreAgreement     share of answered lines whose anomaly score is within the tolerance
+ * @param meanScoreDelta     mean absolute difference of the anomaly scores
+ * @param primaryLatencyMs   mean latency of the primary analysis
+ * @param candidateLatencyMs mean latency of the candidate
+ * @param latencyDeltaMs     candidate latency minus primary latency; negative if the candidate is faster
+ * @param primaryCost        total estimated cost of the primary analyses of the compared lines
+ * @param candidateCost      total estimated cost of the candidate calls
+ * @param costDelta          candidate cost minus primary cost; negative if the candidate is cheaper
+ */
+public record ShadowSummaryDto(
+        String candidateStrategy,
+        long comparisons,
+        long failures,
+        double severityAgreement,
+        double scoreAgreement,
+        double meanScoreDelta,
+        double primaryLatencyMs,
+        double candidateLatencyMs,
+        double latencyDeltaMs,
+        double primaryCost,
+        double candidateCost,
+        double costDelta
+) {}
@@ -30,7 +30,8 @@ public class AIAnalysisMapper {
                 a.getLikelyCause(),
                 a.getRecommendation(),
                 a.getAnomalyScore(),
-                a.getAnalyzedAt()
+                a.getAnalyzedAt(),
+                a.getVersion()
         );
     }
 }
@@ -29,7 +29,8 @@ public class LogEntryMapper {
                 e.isAnalyzed(),
                 e.hasAnomaly(),
                 e.getSourceId(),
-                e.getRawText()
+                e.getRawText(),
+                e.getTemplateId()
         );
     }
 }
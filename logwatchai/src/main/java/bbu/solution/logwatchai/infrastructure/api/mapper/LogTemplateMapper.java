@@ -0,0 +1,29 @@
+package bbu.solution.logwatchai.infrastructure.api.mapper;
+
+import bbu.solution.logwatchai.domain.template.LogTemplate;
+import bbu.solution.logwatchai.infrastructure.api.dto.LogTemplateDto;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps {@link LogTemplate} domain entities into {@link LogTemplateDto} objects.
+ */
+@Component
+public class LogTemplateMapper {
+
+    /**
+     * Converts a {@link LogTemplate} entity to a {@link LogTemplateDto}.
+     *
+     * @param t the template to convert; must not be null
+     * @return a DTO representing the template
+     */
+    public LogTemplateDto toDto(LogTemplate t) {
+        return new LogTemplateDto(
+                t.getId(),
+                t.getTemplate(),
+                t.getVersion(),
+                t.getMatchCount(),
+                t.getFirstSeen(),
+                t.getLastSeen()
+        );
+    }
+}
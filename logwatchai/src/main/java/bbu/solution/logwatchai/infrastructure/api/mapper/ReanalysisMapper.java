@@ -0,0 +1,46 @@
+package bbu.solution.logwatchai.infrastructure.api.mapper;
+
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisCampaign;
+import bbu.solution.logwatchai.infrastructure.api.dto.ReanalysisCampaignDto;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Maps re-analysis campaigns into their DTOs.
+ */
+@Component
+public class ReanalysisMapper {
+
+    /**
+     * Converts a {@link ReanalysisCampaign} to a {@link ReanalysisCampaignDto} with its progress
+     * and the estimated completion as of now.
+     *
+     * @param c the campaign to convert; must not be null
+     * @return a DTO representing the campaign
+     */
+    public ReanalysisCampaignDto toDto(ReanalysisCampaign c) {
+        Instant now = Instant.now();
+        return new ReanalysisCampaignDto(
+                c.getId(),
+                c.getName(),
+                c.getStatus(),
+                c.getSeverities(),
+                c.getSourceId(),
+                c.getFromTime(),
+                c.getToTime(),
+                c.isUseCache(),
+                c.getLinesPerMinute(),
+                c.getTotalLines(),
+                c.getProcessedLines(),
+                c.getReplacedLines(),
+                c.getChangedLines(),
+                c.getProgress(),
+                c.getMeasuredLinesPerMinute(now),
+                c.getEstimatedCompletion(now),
+                c.getCreatedAt(),
+                c.getFinishedAt(),
+                c.getLastError()
+        );
+    }
+}
@@ -0,0 +1,74 @@
+package bbu.solution.logwatchai.infrastructure.api.mapper;
+
+import bbu.solution.logwatchai.domain.shadow.ShadowComparison;
+import bbu.solution.logwatchai.domain.shadow.ShadowSummary;
+import bbu.solution.logwatchai.infrastructure.api.dto.ShadowComparisonDto;
+import bbu.solution.logwatchai.infrastructure.api.dto.ShadowSummaryDto;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps shadow evaluation results into their DTOs.
+ */
+@Component
+public class ShadowMapper {
+
+    /**
+     * Converts a {@link ShadowSummary} to a {@link ShadowSummaryDto} with agreement rates and deltas.
+     *
+     * @param s the summary to convert; must not be null
+     * @return a DTO representing the summary
+     */
+    public ShadowSummaryDto toDto(ShadowSummary s) {
+        double primaryLatency = orZero(s.primaryLatencyMs());
+        double candidateLatency = orZero(s.candidateLatencyMs());
+        double primaryCost = orZero(s.primaryCost());
+        double candidateCost = orZero(s.candidateCost());
+        return new ShadowSummaryDto(
+                s.candidateStrategy(),
+                s.comparisons(),
+                s.failures(),
+                s.severityAgreement(),
+                s.scoreAgreement(),
+                orZero(s.meanScoreDelta()),
+                primaryLatency,
+                candidateLatency,
+                candidateLatency - primaryLatency,
+                primaryCost,
+                candidateCost,
+                candidateCost - primaryCost
+        );
+    }
+
+    /**
+     * Converts a {@link ShadowComparison} entity to a {@link ShadowComparisonDto}.
+     *
+     * @param c the comparison to convert; must not be null
+     * @return a DTO representing the comparison
+     */
+    public ShadowComparisonDto toDto(ShadowComparison c) {
+        return new ShadowComparisonDto(
+                c.getId(),
+                c.getLogEntryId(),
+                c.getPrimaryStrategy(),
+                c.getCandidateStrategy(),
+                c.getPrimarySeverity(),
+                c.getCandidateSeverity(),
+                c.getPrimaryScore(),
+                c.getCandidateScore(),
+                c.getCandidateCategory(),
+                c.getCandidateSummary(),
+                c.isSeverityMatch(),
+                c.getScoreDelta(),
+                c.getPrimaryLatencyMs(),
+                c.getCandidateLatencyMs(),
+                c.getPrimaryCost(),
+                c.getCandidateCost(),
+                c.getCandidateError(),
+                c.getCreatedAt()
+        );
+    }
+
+    private static double orZero(Double value) {
+        return value == null ? 0.0 : value;
+    }
+}
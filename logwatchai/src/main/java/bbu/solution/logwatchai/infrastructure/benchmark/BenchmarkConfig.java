@@ -0,0 +1,32 @@
+package bbu.solution.logwatchai.infrastructure.benchmark;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Beans of the {@code benchmark} profile.
+ * <p>
+ * Started with {@code --spring.profiles.active=benchmark}, the application runs a
+ * {@link MockLlmServer} next to itself and writes synthetic log lines into a watched file
+ * ({@link SyntheticLogGenerator}). Pointing the models of the external config at the mock
+ * ({@code baseUrl: http://127.0.0.1:8089/v1}) exercises the whole pipeline - batching, caching,
+ * dispatch, retries and the aiExecutor - under a reproducible provider, and the actuator
+ * metrics show the outcome.
+ */
+@Configuration
+@Profile("benchmark")
+public class BenchmarkConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "app.mock-llm")
+    public MockLlmProperties mockLlmProperties() {
+        return new MockLlmProperties();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public MockLlmServer mockLlmServer(MockLlmProperties mockLlmProperties) {
+        return new MockLlmServer(mockLlmProperties);
+    }
+}
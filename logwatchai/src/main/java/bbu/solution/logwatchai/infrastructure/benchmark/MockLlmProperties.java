@@ -0,0 +1,42 @@
+package bbu.solution.logwatchai.infrastructure.benchmark;
+
+import lombok.Data;
+
+/**
+ * Behaviour of the {@link MockLlmServer}, bound from {@code app.mock-llm.*} in the benchmark profile.
+ * Tests create and adjust instances directly.
+ */
+@Data
+public class MockLlmProperties {
+
+    /** TCP port of the server; 0 picks a free port. */
+    private int port = 8089;
+
+    /**
+     * Shape of the response latency: {@code fixed} (always {@link #latencyMs}),
+     * {@code uniform} (between {@link #latencyMs} and {@link #latencyMaxMs}) or
+     * {@code lognormal} (median {@link #latencyMs}, 99th percentile {@link #latencyMaxMs}).
+     */
+    private String latency = "lognormal";
+
+    /** Fixed latency, lower bound or median in milliseconds, depending on {@link #latency}. */
+    private long latencyMs = 800;
+
+    /** Upper bound or 99th percentile in milliseconds, depending on {@link #latency}. */
+    private long latencyMaxMs = 4000;
+
+    /** Share of requests answered with 429 Too Many Requests, between 0.0 and 1.0. */
+    private double rateLimitRate = 0.02;
+
+    /** Retry-After seconds sent with a 429; 0 sends no header. */
+    private int retryAfterSeconds = 1;
+
+    /** Share of requests answered with 500 Internal Server Error. */
+    private double serverErrorRate = 0.0;
+
+    /** Share of successful responses whose content is cut off in the middle of the JSON. */
+    private double malformedRate = 0.01;
+
+    /** Seed of the random source for latencies and injected failures. */
+    private long seed = 42;
+}
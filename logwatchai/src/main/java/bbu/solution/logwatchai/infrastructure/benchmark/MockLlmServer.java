@@ -0,0 +1,349 @@
+package bbu.solution.logwatchai.infrastructure.benchmark;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiPrompts;
+import bbu.solution.logwatchai.domain.log.LogLevels;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for an OpenAI-compatible provider, for tests and benchmarks without an API key.
+ *
+ * <p>I serve {@code POST /v1/chat/completions} and {@code POST /v1/completions} (prompt arrays)
+ * and behave like a real provider under load:</p>
+ * <ul>
+ *     <li>every response is delayed according to a fixed, uniform or log-normal latency,</li>
+ *     <li>a configurable share of requests gets 429 (with Retry-After) or 500,</li>
+ *     <li>a configurable share of responses carries JSON that is cut off,</li>
+ *     <li>the analysis content only depends on the log line, so the same prompt always gets
+ *         the same answer; latencies and injected failures come from a seeded random source.</li>
+ * </ul>
+ *
+ * <p>Single and batch prompts built by {@link AiPrompts} are answered with an object or an
+ * array with indices, respectively. Chat requests with {@code "stream": true} are answered with
+ * server-sent events: a quarter of the latency passes before the first event, the rest is spread
+ * over the content chunks, and the usage follows in the last event. Requests run on virtual
+ * threads, so a slow latency profile does not limit the number of concurrent requests.</p>
+ */
+@Slf4j
+public class MockLlmServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] CATEGORIES = {"application", "database", "network", "security", "resource"};
+    private static final int STREAM_CHUNK_CHARS = 16;
+
+    private final MockLlmProperties properties;
+    private final Random random;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+
+    /**
+     * @param properties the behaviour of the server
+     */
+    public MockLlmServer(MockLlmProperties properties) {
+        this.properties = properties;
+        this.random = new Random(properties.getSeed());
+    }
+
+    /**
+     * Binds the port and starts serving.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", properties.getPort()), 512);
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", exchange -> handle(exchange, false));
+        server.createContext("/v1/completions", exchange -> handle(exchange, true));
+        server.start();
+        log.info("Mock LLM server listening on {}", getBaseUrl());
+    }
+
+    /**
+     * @return the base URL to configure as {@code ai.models[].baseUrl}
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * @return the number of requests received so far
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of requests answered with 429
+     */
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    /**
+     * @return the number of requests answered with 500
+     */
+    public long getServerErrors() {
+        return serverErrors.get();
+    }
+
+    /**
+     * @return the number of responses sent with cut-off JSON
+     */
+    public long getMalformed() {
+        return malformed.get();
+    }
+
+    private void handle(HttpExchange exchange, boolean completions) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            JsonNode body = MAPPER.readTree(exchange.getRequestBody());
+            boolean streamed = !completions && body.path("stream").asBoolean(false);
+
+            long latency = sampleLatencyMs();
+            sleep(streamed ? latency / 4 : latency);
+
+            if (roll() < properties.getRateLimitRate()) {
+                rateLimited.incrementAndGet();
+                if (properties.getRetryAfterSeconds() > 0) {
+                    exchange.getResponseHeaders().add("Retry-After", String.valueOf(properties.getRetryAfterSeconds()));
+                }
+                send(exchange, 429, error("rate_limit_exceeded", "Rate limit reached for requests"));
+                return;
+            }
+            if (roll() < properties.getServerErrorRate()) {
+                serverErrors.incrementAndGet();
+                send(exchange, 500, error("server_error", "The server had an error while processing your request"));
+                return;
+            }
+
+            if (streamed) {
+                streamChat(exchange, body, latency - latency / 4);
+                return;
+            }
+            send(exchange, 200, completions ? completionsResponse(body) : chatResponse(body));
+        }
+    }
+
+    /**
+     * Answers a chat request as a stream of chunks, each delayed by its share of the latency.
+     */
+    private void streamChat(HttpExchange exchange, JsonNode body, long latency) throws IOException {
+        String prompt = userPrompt(body);
+        String content = maybeMalformed(answer(prompt));
+        String id = "chatcmpl-mock-" + requests.get();
+        String model = body.path("model").asText("mock");
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int chunks = Math.max(1, (content.length() + STREAM_CHUNK_CHARS - 1) / STREAM_CHUNK_CHARS);
+        for (int i = 0; i < chunks; i++) {
+            String piece = content.substring(i * STREAM_CHUNK_CHARS, Math.min(content.length(), (i + 1) * STREAM_CHUNK_CHARS));
+            ObjectNode chunk = chunk(id, model);
+            ((ObjectNode) chunk.withArray("choices").get(0)).putObject("delta").put("content", piece);
+            event(out, chunk.toString());
+            sleep(latency / chunks);
+        }
+
+        ObjectNode last = chunk(id, model);
+        ((ObjectNode) last.withArray("choices").get(0)).put("finish_reason", "stop").putObject("delta");
+        event(out, last.toString());
+        ObjectNode usage = chunk(id, model);
+        usage.putArray("choices");
+        usage(usage, prompt.length(), content.length());
+        event(out, usage.toString());
+        event(out, "[DONE]");
+    }
+
+    private static ObjectNode chunk(String id, String model) {
+        ObjectNode chunk = MAPPER.createObjectNode()
+                .put("id", id)
+                .put("object", "chat.completion.chunk")
+                .put("model", model);
+        chunk.putArray("choices").addObject().put("index", 0);
+        return chunk;
+    }
+
+    private static void event(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String userPrompt(JsonNode body) {
+        String prompt = "";
+        for (JsonNode message : body.path("messages")) {
+            if ("user".equals(message.path("role").asText())) prompt = message.path("content").asText("");
+        }
+        return prompt;
+    }
+
+    private ObjectNode chatResponse(JsonNode body) {
+        String prompt = userPrompt(body);
+        String content = maybeMalformed(answer(prompt));
+
+        ObjectNode response = MAPPER.createObjectNode()
+                .put("id", "chatcmpl-mock-" + requests.get())
+                .put("object", "chat.completion")
+                .put("model", body.path("model").asText("mock"));
+        response.putArray("choices").addObject()
+                .put("index", 0)
+                .put("finish_reason", "stop")
+                .putObject("message").put("role", "assistant").put("content", content);
+        usage(response, prompt.length(), content.length());
+        return response;
+    }
+
+    private ObjectNode completionsResponse(JsonNode body) {
+        ObjectNode response = MAPPER.createObjectNode()
+                .put("id", "cmpl-mock-" + requests.get())
+                .put("object", "text_completion")
+                .put("model", body.path("model").asText("mock"));
+        ArrayNode choices = response.putArray("choices");
+        JsonNode prompts = body.path("prompt").isArray() ? body.path("prompt") : MAPPER.createArrayNode().add(body.path("prompt"));
+
+        int promptChars = 0;
+        int completionChars = 0;
+        for (int i = 0; i < prompts.size(); i++) {
+            String prompt = prompts.get(i).asText("");
+            String text = maybeMalformed(answer(prompt));
+            choices.addObject().put("index", i).put("finish_reason", "stop").put("text", text);
+            promptChars += prompt.length();
+            completionChars += text.length();
+        }
+        usage(response, promptChars, completionChars);
+        return response;
+    }
+
+    /**
+     * Deterministic analysis of the lines of a prompt.
+     */
+    private String answer(String prompt) {
+        Map<Integer, String> logs = AiPrompts.extractLogs(prompt);
+        if (logs.containsKey(-1) || logs.isEmpty()) {
+            return analysis(logs.getOrDefault(-1, prompt)).toString();
+        }
+        ArrayNode items = MAPPER.createArrayNode();
+        logs.forEach((index, line) -> items.add(MAPPER.createObjectNode().put("index", index).setAll(analysis(line))));
+        return items.toString();
+    }
+
+    private ObjectNode analysis(String line) {
+        String level = LogLevels.parse(line);
+        String severity = level == null ? "INFO" : switch (level) {
+            case "FATAL", "ERROR" -> "ERROR";
+            case "WARN" -> "WARN";
+            default -> "INFO";
+        };
+        int hash = line.hashCode() & 0x7fffffff;
+        double base = switch (severity) {
+            case "ERROR" -> 0.6;
+            case "WARN" -> 0.3;
+            default -> 0.0;
+        };
+        double score = Math.round((base + (hash % 40) / 100.0) * 100) / 100.0;
+        String category = CATEGORIES[hash % CATEGORIES.length];
+
+        return MAPPER.createObjectNode()
+                .put("severity", severity)
+                .put("anomalyScore", Math.min(score, 1.0))
+                .put("category", category)
+                .put("summarizedIssue", "Mock analysis of a " + severity.toLowerCase(Locale.ROOT) + " line")
+                .put("likelyCause", "Deterministic mock cause #" + (hash % 1000))
+                .put("recommendation", "No real model was asked");
+    }
+
+    private String maybeMalformed(String content) {
+        if (roll() >= properties.getMalformedRate()) return content;
+        malformed.incrementAndGet();
+        return "```json\n" + content.substring(0, content.length() / 2);
+    }
+
+    private static void usage(ObjectNode response, int promptChars, int completionChars) {
+        int promptTokens = (promptChars + 3) / 4;
+        int completionTokens = (completionChars + 3) / 4;
+        response.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private static ObjectNode error(String code, String message) {
+        ObjectNode error = MAPPER.createObjectNode();
+        error.putObject("error").put("message", message).put("type", code).put("code", code);
+        return error;
+    }
+
+    private static void send(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Draws one latency from the configured distribution.
+     */
+    long sampleLatencyMs() {
+        long base = Math.max(0, properties.getLatencyMs());
+        long max = Math.max(base, properties.getLatencyMaxMs());
+        return switch (properties.getLatency().toLowerCase(Locale.ROOT)) {
+            case "fixed" -> base;
+            case "uniform" -> base + (long) (roll() * (max - base));
+            default -> {
+                // log-normal with the given median and 99th percentile (z = 2.326)
+                if (base == 0) yield 0;
+                double sigma = Math.log((double) max / base) / 2.326;
+                double gaussian;
+                synchronized (random) {
+                    gaussian = random.nextGaussian();
+                }
+                yield (long) (base * Math.exp(sigma * gaussian));
+            }
+        };
+    }
+
+    private double roll() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the server and its request threads.
+     */
+    @Override
+    public void close() {
+        if (server != null) server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,87 @@
+package bbu.solution.logwatchai.infrastructure.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Appends synthetic log lines to a file once per second in the {@code benchmark} profile.
+ * <p>
+ * The mix follows typical production logs: mostly INFO lines from a few templates, some WARN
+ * lines and a small share of ERROR lines with stack-trace style messages. Variable parts
+ * (ids, durations, hosts) change with every line, so template normalization and the cache see
+ * the same repetition they see in real traffic. The directory of the file has to be one of the
+ * watched paths.
+ */
+@Slf4j
+@Component
+@Profile("benchmark")
+public class SyntheticLogGenerator {
+
+    private static final String[] INFO = {
+            "INFO  [http-nio-8080-exec-%d] o.a.c.RequestLog - GET /api/orders/%d 200 %dms",
+            "INFO  [scheduler-%d] c.e.b.BillingJob - Processed batch %d with %d invoices",
+            "INFO  [main] c.e.s.SessionService - User u%d logged in from 10.0.%d.%d",
+    };
+    private static final String[] WARN = {
+            "WARN  [hikari-%d] c.z.h.p.HikariPool - Connection pool at %d%% capacity, %d waiting",
+            "WARN  [http-nio-8080-exec-%d] c.e.a.Gateway - Slow upstream response from svc-%d took %dms",
+    };
+    private static final String[] ERROR = {
+            "ERROR [http-nio-8080-exec-%d] c.e.o.OrderService - java.sql.SQLException: Deadlock found when trying to get lock; order %d retry %d",
+            "ERROR [worker-%d] c.e.p.PaymentClient - java.net.ConnectException: Connection refused to payments-%d:%d",
+            "ERROR [main] c.e.i.ImportJob - java.lang.OutOfMemoryError: Java heap space while importing file %d part %d",
+    };
+
+    private final Path file;
+    private final int linesPerSecond;
+    private final double warnRate;
+    private final double errorRate;
+    private final Random random;
+
+    public SyntheticLogGenerator(@Value("${app.benchmark.log-file:/tmp/logwatchai-benchmark/app.log}") String file,
+                                 @Value("${app.benchmark.lines-per-second:20}") int linesPerSecond,
+                                 @Value("${app.benchmark.warn-rate:0.15}") double warnRate,
+                                 @Value("${app.benchmark.error-rate:0.05}") double errorRate,
+                                 @Value("${app.mock-llm.seed:42}") long seed) {
+        this.file = Path.of(file);
+        this.linesPerSecond = linesPerSecond;
+        this.warnRate = warnRate;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Writes one second worth of lines.
+     */
+    @Scheduled(fixedRate = 1000, initialDelay = 5000)
+    public void writeLines() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < linesPerSecond; i++) {
+            sb.append(LocalDateTime.now()).append(' ').append(nextMessage()).append('\n');
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(file, sb, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Could not write synthetic log lines to {}", file, e);
+        }
+    }
+
+    private String nextMessage() {
+        double roll = random.nextDouble();
+        String[] templates = roll < errorRate ? ERROR : roll < errorRate + warnRate ? WARN : INFO;
+        String template = templates[random.nextInt(templates.length)];
+        return String.format(template, random.nextInt(16), random.nextInt(10_000), random.nextInt(2_000));
+    }
+}
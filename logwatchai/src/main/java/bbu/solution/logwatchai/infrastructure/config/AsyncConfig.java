@@ -1,5 +1,6 @@
 package bbu.solution.logwatchai.infrastructure.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -16,16 +17,25 @@ import java.util.concurrent.Executor;
 public class AsyncConfig {
 
     /**
-     * Creates a fixed thread pool executor used for AI-related asynchronous operations.
+     * Creates the thread pool executor used for AI-related asynchronous operations.
+     * <p>
+     * Its threads only claim entries, start their analysis and persist results; the
+     * AnalysisScheduler decides which waiting entry runs next. They do not bound the
+     * number of concurrent provider calls: HTTP calls are non-blocking, and each model adapts its
+     * own concurrency to the provider's rate limits (see GovernedAiStrategy).
+     * The sizes can be overridden under {@code app.ai-executor.*}, e.g. to compare settings in
+     * the benchmark profile.
      *
-     * @return an {@link Executor} instance backed by a thread pool of size 4
+     * @return an {@link Executor} instance backed by a thread pool of 3 to 9 threads by default
      */
     @Bean(name = "aiExecutor")
-    public Executor aiExecutor() {
+    public Executor aiExecutor(@Value("${app.ai-executor.core-size:3}") int coreSize,
+                               @Value("${app.ai-executor.max-size:9}") int maxSize,
+                               @Value("${app.ai-executor.queue-capacity:50}") int queueCapacity) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(3);
-        executor.setMaxPoolSize(9);
-        executor.setQueueCapacity(50);
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("AI-Executor-");
         executor.initialize();
         return executor;
@@ -0,0 +1,53 @@
+package bbu.solution.logwatchai.infrastructure.monitoring;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCircuitBreakers;
+import bbu.solution.logwatchai.application.analysis.strategy.CircuitBreaker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint {@code /actuator/aicircuits} that shows the circuit breaker of every AI strategy.
+ *
+ * <p>Each entry reports the state (CLOSED, OPEN, HALF_OPEN), the failure rate of the sliding
+ * window and the number of calls it was computed from.</p>
+ */
+@Component
+@Endpoint(id = "aicircuits")
+public class AiCircuitBreakerEndpoint {
+
+    private final AiCircuitBreakers breakers;
+
+    /**
+     * @param breakers the circuit breakers of all strategies
+     */
+    public AiCircuitBreakerEndpoint(AiCircuitBreakers breakers) {
+        this.breakers = breakers;
+    }
+
+    /**
+     * @return the breaker details by strategy name
+     */
+    @ReadOperation
+    public Map<String, BreakerState> circuits() {
+        Map<String, BreakerState> result = new LinkedHashMap<>();
+        breakers.getBreakers().forEach((name, breaker) -> result.put(name, BreakerState.of(breaker)));
+        return result;
+    }
+
+    /**
+     * Snapshot of one breaker.
+     *
+     * @param state       the breaker state
+     * @param failureRate the failure rate of the sliding window
+     * @param calls       the number of calls in the sliding window
+     */
+    public record BreakerState(CircuitBreaker.State state, double failureRate, int calls) {
+        static BreakerState of(CircuitBreaker breaker) {
+            return new BreakerState(breaker.getState(), breaker.getFailureRate(), breaker.getRecordedCalls());
+        }
+    }
+}
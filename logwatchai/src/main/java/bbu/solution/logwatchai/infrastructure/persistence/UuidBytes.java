@@ -0,0 +1,41 @@
+package bbu.solution.logwatchai.infrastructure.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Conversion helpers between {@link UUID} values and their BINARY(16) column representation.
+ * <p>
+ * Native queries cannot rely on Hibernate's type mapping, so every id passed to or read
+ * from such a query goes through this class.
+ */
+public final class UuidBytes {
+
+    private UuidBytes() {
+        // static utility class
+    }
+
+    /**
+     * Converts a UUID to a 16-byte array representation suitable for binary storage.
+     *
+     * @param uuid the UUID to convert
+     * @return a 16-byte array representing the UUID
+     */
+    public static byte[] toBytes(UUID uuid) {
+        ByteBuffer bb = ByteBuffer.allocate(16);
+        bb.putLong(uuid.getMostSignificantBits());
+        bb.putLong(uuid.getLeastSignificantBits());
+        return bb.array();
+    }
+
+    /**
+     * Converts a 16-byte array read from a BINARY(16) column back into a UUID.
+     *
+     * @param bytes the raw column value
+     * @return the corresponding UUID
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer bb = ByteBuffer.wrap(bytes);
+        return new UUID(bb.getLong(), bb.getLong());
+    }
+}
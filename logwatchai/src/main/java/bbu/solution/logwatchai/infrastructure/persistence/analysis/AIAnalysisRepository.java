@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,4 +26,12 @@ public interface AIAnalysisRepository extends JpaRepository<AIAnalysis, UUID>, J
      * @return a list of AIAnalysis entries analyzed after the given timestamp
      */
     List<AIAnalysis> findByAnalyzedAtAfterOrderByAnalyzedAtAsc(Instant since);
+
+    /**
+     * Retrieves the current analyses of the given log entries.
+     *
+     * @param logEntryIds the UUIDs of the log entries
+     * @return the analyses found, at most one per entry
+     */
+    List<AIAnalysis> findByLogEntryIdIn(Collection<UUID> logEntryIds);
 }
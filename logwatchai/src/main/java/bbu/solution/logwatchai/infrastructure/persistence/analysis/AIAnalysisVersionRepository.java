@@ -0,0 +1,23 @@
+package bbu.solution.logwatchai.infrastructure.persistence.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysisVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for the replaced analyses of log entries.
+ */
+@Repository
+public interface AIAnalysisVersionRepository extends JpaRepository<AIAnalysisVersion, UUID> {
+
+    /**
+     * Retrieves the replaced analyses of a log entry, newest first.
+     *
+     * @param logEntryId the UUID of the log entry
+     * @return the replaced analyses
+     */
+    List<AIAnalysisVersion> findByLogEntryIdOrderByVersionDesc(UUID logEntryId);
+}
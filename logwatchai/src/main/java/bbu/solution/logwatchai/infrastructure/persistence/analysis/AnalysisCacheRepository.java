@@ -0,0 +1,38 @@
+package bbu.solution.logwatchai.infrastructure.persistence.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AnalysisCacheEntry;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository interface for the persistent part of the template analysis cache.
+ */
+public interface AnalysisCacheRepository extends JpaRepository<AnalysisCacheEntry, UUID> {
+
+    /**
+     * Finds the cached analysis for a template and model.
+     *
+     * @param templateHash the SHA-256 hash of the normalized template
+     * @param model the strategy and model key
+     * @return an Optional containing the entry if present (it may already be expired)
+     */
+    Optional<AnalysisCacheEntry> findByTemplateHashAndModel(String templateHash, String model);
+
+    /**
+     * Removes all entries whose validity has ended.
+     *
+     * @param now the reference time
+     * @return the number of deleted entries
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AnalysisCacheEntry e WHERE e.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
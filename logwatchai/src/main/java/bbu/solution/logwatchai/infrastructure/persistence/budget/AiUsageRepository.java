@@ -0,0 +1,94 @@
+package bbu.solution.logwatchai.infrastructure.persistence.budget;
+
+import bbu.solution.logwatchai.domain.budget.AiUsage;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for the daily provider usage.
+ */
+@Repository
+public interface AiUsageRepository extends JpaRepository<AiUsage, UUID> {
+
+    /**
+     * Returns the usage of all strategies and sources on one day.
+     *
+     * @param day the day
+     * @return one entry per strategy and source
+     */
+    List<AiUsage> findByDay(LocalDate day);
+
+    /**
+     * Sums the estimated cost of a range of days.
+     *
+     * @param from the first day, inclusive
+     * @param to the last day, inclusive
+     * @return the total cost, 0 if there is no usage
+     */
+    @Query("SELECT COALESCE(SUM(u.cost), 0) FROM AiUsage u WHERE u.day >= :from AND u.day <= :to")
+    double sumCost(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Inserts the usage of a strategy and source or adds it to the stored values in one statement,
+     * so flushes of several instances never overwrite each other.
+     *
+     * @param id the row id as a byte array, derived from day, strategy and source
+     * @param day the day of the usage
+     * @param strategy the strategy name
+     * @param sourceId the source id as a byte array
+     * @param calls the number of calls since the last flush
+     * @param promptTokens the prompt tokens since the last flush
+     * @param completionTokens the completion tokens since the last flush
+     * @param cost the estimated cost since the last flush
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO ai_usage (
+            id,
+            day,
+            strategy,
+            source_id,
+            calls,
+            prompt_tokens,
+            completion_tokens,
+            cost,
+            updated_at
+        )
+        VALUES (
+            :id,
+            :day,
+            :strategy,
+            :sourceId,
+            :calls,
+            :promptTokens,
+            :completionTokens,
+            :cost,
+            CURRENT_TIMESTAMP(6)
+        )
+        ON DUPLICATE KEY UPDATE
+            calls             = calls + VALUES(calls),
+            prompt_tokens     = prompt_tokens + VALUES(prompt_tokens),
+            completion_tokens = completion_tokens + VALUES(completion_tokens),
+            cost              = cost + VALUES(cost),
+            updated_at        = VALUES(updated_at)
+        """, nativeQuery = true)
+    void add(
+            @Param("id") byte[] id,
+            @Param("day") LocalDate day,
+            @Param("strategy") String strategy,
+            @Param("sourceId") byte[] sourceId,
+            @Param("calls") long calls,
+            @Param("promptTokens") long promptTokens,
+            @Param("completionTokens") long completionTokens,
+            @Param("cost") double cost
+    );
+}
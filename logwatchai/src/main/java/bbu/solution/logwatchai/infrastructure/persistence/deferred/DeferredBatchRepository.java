@@ -0,0 +1,95 @@
+package bbu.solution.logwatchai.infrastructure.persistence.deferred;
+
+import bbu.solution.logwatchai.domain.deferred.DeferredBatch;
+import bbu.solution.logwatchai.domain.deferred.DeferredBatchStatus;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for deferred provider batches.
+ * <p>
+ * A change of state only succeeds from the expected state, so two instances polling the same
+ * batch reconcile it only once.
+ */
+@Repository
+public interface DeferredBatchRepository extends JpaRepository<DeferredBatch, UUID> {
+
+    /**
+     * @param status the state
+     * @return the batches in that state, oldest first
+     */
+    List<DeferredBatch> findByStatusOrderByCreatedAt(DeferredBatchStatus status);
+
+    /**
+     * Records that the provider accepted an open batch.
+     *
+     * @param id the UUID of the batch as a byte array
+     * @param providerBatchId the id assigned by the provider
+     * @param lineCount the lines sent
+     * @param now the current time
+     * @return 1 if the batch was open, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE deferred_batches
+           SET status = 'SUBMITTED',
+               provider_batch_id = :providerBatchId,
+               line_count = :lineCount,
+               submitted_at = :now
+         WHERE id = :id
+           AND status = 'OPEN'
+        """, nativeQuery = true)
+    int submitted(@Param("id") byte[] id,
+                  @Param("providerBatchId") String providerBatchId,
+                  @Param("lineCount") int lineCount,
+                  @Param("now") Instant now);
+
+    /**
+     * Finishes an open or submitted batch.
+     *
+     * @param id the UUID of the batch as a byte array
+     * @param status the final state, COMPLETED or FAILED
+     * @param answered the lines with a usable answer from the provider
+     * @param error the reason of a failure, or null
+     * @param now the current time
+     * @return 1 if the caller finished the batch, 0 if it was already finished
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE deferred_batches
+           SET status = :status,
+               answered_lines = :answered,
+               last_error = :error,
+               finished_at = :now
+         WHERE id = :id
+           AND status IN ('OPEN', 'SUBMITTED')
+        """, nativeQuery = true)
+    int finish(@Param("id") byte[] id,
+               @Param("status") String status,
+               @Param("answered") int answered,
+               @Param("error") String error,
+               @Param("now") Instant now);
+
+    /**
+     * Returns batches that stayed open, e.g. because their instance died while submitting them.
+     *
+     * @param createdBefore open batches created before this timestamp are considered abandoned
+     * @return the abandoned batches
+     */
+    @Query(value = """
+        SELECT * FROM deferred_batches
+         WHERE status = 'OPEN'
+           AND created_at < :createdBefore
+        """, nativeQuery = true)
+    List<DeferredBatch> findAbandoned(@Param("createdBefore") Instant createdBefore);
+}
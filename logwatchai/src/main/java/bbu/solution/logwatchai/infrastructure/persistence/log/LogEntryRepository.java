@@ -2,6 +2,8 @@ package bbu.solution.logwatchai.infrastructure.persistence.log;
 
 import bbu.solution.logwatchai.domain.log.LogEntry;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -61,6 +63,7 @@ public interface LogEntryRepository extends JpaRepository<LogEntry, UUID> {
      * @param ingestionTime the ingestion timestamp
      * @param analyzed whether the log entry has been analyzed
      * @param hasAnomaly whether the log entry contains an anomaly
+     * @param templateId the UUID of the mined template as a byte array, may be null
      */
     @Modifying
     @Transactional
@@ -73,7 +76,8 @@ public interface LogEntryRepository extends JpaRepository<LogEntry, UUID> {
             level,
             ingestion_time,
             analyzed,
-            has_anomaly
+            has_anomaly,
+            template_id
         )
         VALUES (
             :id,
@@ -83,7 +87,8 @@ public interface LogEntryRepository extends JpaRepository<LogEntry, UUID> {
             :level,
             :ingestionTime,
             :analyzed,
-            :hasAnomaly
+            :hasAnomaly,
+            :templateId
         )
         ON DUPLICATE KEY UPDATE id = id
         """, nativeQuery = true)
@@ -95,6 +100,219 @@ public interface LogEntryRepository extends JpaRepository<LogEntry, UUID> {
             @Param("level") String level,
             @Param("ingestionTime") Instant ingestionTime,
             @Param("analyzed") boolean analyzed,
-            @Param("hasAnomaly") boolean hasAnomaly
+            @Param("hasAnomaly") boolean hasAnomaly,
+            @Param("templateId") byte[] templateId
     );
+
+    /**
+     * Retrieves all entries assigned to the given template, newest first.
+     *
+     * @param templateId the UUID of the template
+     * @return the matching log entries
+     */
+    List<LogEntry> findByTemplateIdOrderByIngestionTimeDesc(UUID templateId);
+
+    /**
+     * Retrieves entries assigned to the given template page by page.
+     *
+     * @param templateId the UUID of the template
+     * @param pageable paging and sorting information
+     * @return a page of matching log entries
+     */
+    Page<LogEntry> findByTemplateId(UUID templateId, Pageable pageable);
+
+    /**
+     * Atomically claims a pending entry for analysis.
+     * <p>
+     * The conditional UPDATE is the lock: only one caller — in this or any other
+     * application instance — can move the row from PENDING to CLAIMED.
+     *
+     * @param id the UUID of the log entry as a byte array
+     * @param now the claim timestamp, used to detect abandoned claims
+     * @return 1 if the caller now owns the entry, 0 if it was already claimed or done
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE log_entries
+           SET analysis_state = 'CLAIMED',
+               claimed_at = :now
+         WHERE id = :id
+           AND analysis_state = 'PENDING'
+        """, nativeQuery = true)
+    int claimForAnalysis(@Param("id") byte[] id, @Param("now") Instant now);
+
+    /**
+     * Moves a claimed entry into the given terminal or retry state.
+     * Used to hand an entry back (PENDING) or park it (FAILED) after an error.
+     *
+     * @param id the UUID of the log entry as a byte array
+     * @param state the target state name
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE log_entries
+           SET analysis_state = :state,
+               claimed_at = NULL
+         WHERE id = :id
+           AND analysis_state = 'CLAIMED'
+        """, nativeQuery = true)
+    int releaseClaim(@Param("id") byte[] id, @Param("state") String state);
+
+    /**
+     * Returns claims that were never completed (e.g. the owning instance crashed) back to PENDING.
+     *
+     * @param claimedBefore claims older than this timestamp are considered abandoned
+     * @return the number of released entries
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE log_entries
+           SET analysis_state = 'PENDING',
+               claimed_at = NULL
+         WHERE analysis_state = 'CLAIMED'
+           AND claimed_at < :claimedBefore
+        """, nativeQuery = true)
+    int releaseStaleClaims(@Param("claimedBefore") Instant claimedBefore);
+
+    /**
+     * Finds the entries still waiting in a deferred provider batch.
+     *
+     * @param batchId the UUID of the deferred batch as a byte array
+     * @return the entries of the batch that are not complete yet
+     */
+    @Query(value = """
+        SELECT * FROM log_entries
+         WHERE deferred_batch_id = :batchId
+           AND analysis_state = 'DEFERRED'
+        """, nativeQuery = true)
+    List<LogEntry> findDeferred(@Param("batchId") byte[] batchId);
+
+    /**
+     * Hands the entries of a deferred batch that could not be submitted back to PENDING.
+     *
+     * @param batchId the UUID of the deferred batch as a byte array
+     * @return the number of released entries
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE log_entries
+           SET analysis_state = 'PENDING',
+               deferred_batch_id = NULL
+         WHERE deferred_batch_id = :batchId
+           AND analysis_state = 'DEFERRED'
+        """, nativeQuery = true)
+    int releaseDeferred(@Param("batchId") byte[] batchId);
+
+    /**
+     * Hands a single deferred entry back to PENDING, e.g. because its analysis could not be stored.
+     *
+     * @param id the UUID of the log entry as a byte array
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE log_entries
+           SET analysis_state = 'PENDING',
+               deferred_batch_id = NULL
+         WHERE id = :id
+           AND analysis_state = 'DEFERRED'
+        """, nativeQuery = true)
+    int releaseDeferredEntry(@Param("id") byte[] id);
+
+    /**
+     * Finds pending entries that were ingested before the given timestamp, oldest first.
+     * Used by the background sweep to pick up entries whose async submission was lost or rejected.
+     *
+     * @param ingestedBefore only entries ingested before this timestamp are returned
+     * @param limit maximum number of entries
+     * @return pending log entries, oldest first
+     */
+    @Query(value = """
+        SELECT * FROM log_entries
+         WHERE analysis_state = 'PENDING'
+           AND ingestion_time < :ingestedBefore
+         ORDER BY ingestion_time
+         LIMIT :limit
+        """, nativeQuery = true)
+    List<LogEntry> findPendingBefore(@Param("ingestedBefore") Instant ingestedBefore, @Param("limit") int limit);
+
+    /**
+     * Reads the next chunk of analyzed entries for a re-analysis campaign with a keyset cursor:
+     * the entries are ordered by id, and every chunk starts right after the last id of the previous one.
+     *
+     * @param after the id of the last entry of the previous chunk; 16 zero bytes for the first chunk
+     * @param from entries ingested at or after this timestamp
+     * @param to entries ingested before this timestamp
+     * @param sourceId the UUID of the source as a byte array, or null for all sources
+     * @param allSeverities whether entries of every severity match
+     * @param severities the severities of the current analysis that match, if not all do; never empty
+     * @param limit maximum number of entries
+     * @return the next matching entries, ordered by id
+     */
+    @Query(value = """
+        SELECT l.* FROM log_entries l
+          JOIN ai_analysis a ON a.log_entry_id = l.id
+         WHERE l.id > :after
+           AND l.analysis_state = 'DONE'
+           AND l.ingestion_time >= :from
+           AND l.ingestion_time < :to
+           AND (:sourceId IS NULL OR l.source_id = :sourceId)
+           AND (:allSeverities = TRUE OR a.severity IN (:severities))
+         ORDER BY l.id
+         LIMIT :limit
+        """, nativeQuery = true)
+    List<LogEntry> findReanalysisChunk(
+            @Param("after") byte[] after,
+            @Param("from") Instant from,
+            @Param("to") Instant to,
+            @Param("sourceId") byte[] sourceId,
+            @Param("allSeverities") boolean allSeverities,
+            @Param("severities") List<String> severities,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Counts the analyzed entries a re-analysis campaign with the given filter works on.
+     * The parameters are the ones of {@link #findReanalysisChunk}.
+     *
+     * @return the number of matching entries
+     */
+    @Query(value = """
+        SELECT COUNT(*) FROM log_entries l
+          JOIN ai_analysis a ON a.log_entry_id = l.id
+         WHERE l.analysis_state = 'DONE'
+           AND l.ingestion_time >= :from
+           AND l.ingestion_time < :to
+           AND (:sourceId IS NULL OR l.source_id = :sourceId)
+           AND (:allSeverities = TRUE OR a.severity IN (:severities))
+        """, nativeQuery = true)
+    long countReanalysisCandidates(
+            @Param("from") Instant from,
+            @Param("to") Instant to,
+            @Param("sourceId") byte[] sourceId,
+            @Param("allSeverities") boolean allSeverities,
+            @Param("severities") List<String> severities
+    );
+
+    /**
+     * Updates the anomaly flag of an entry after its analysis has been replaced.
+     *
+     * @param id the UUID of the log entry as a byte array
+     * @param hasAnomaly whether the new analysis flags an anomaly
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE log_entries
+           SET has_anomaly = :hasAnomaly
+         WHERE id = :id
+        """, nativeQuery = true)
+    int updateAnomaly(@Param("id") byte[] id, @Param("hasAnomaly") boolean hasAnomaly);
 }
@@ -0,0 +1,160 @@
+package bbu.solution.logwatchai.infrastructure.persistence.reanalysis;
+
+import bbu.solution.logwatchai.domain.reanalysis.CampaignStatus;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisCampaign;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for re-analysis campaigns.
+ * <p>
+ * Besides the creation, a campaign is only changed by the conditional UPDATEs below. A change of
+ * state only succeeds from the expected state, and the progress of a chunk is added to the
+ * counters, so the runner and the API never overwrite each other.
+ */
+@Repository
+public interface ReanalysisCampaignRepository extends JpaRepository<ReanalysisCampaign, UUID> {
+
+    /**
+     * @param status the state
+     * @return the campaigns in that state
+     */
+    List<ReanalysisCampaign> findByStatus(CampaignStatus status);
+
+    /**
+     * @return all campaigns, newest first
+     */
+    List<ReanalysisCampaign> findAllByOrderByCreatedAtDesc();
+
+    /**
+     * Takes the lease of a running campaign for its next chunk. Only one caller — in this or any
+     * other application instance — can hold it; an expired lease is taken over.
+     *
+     * @param id the UUID of the campaign as a byte array
+     * @param now the current time
+     * @param until the end of the lease
+     * @return 1 if the caller now holds the lease, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE reanalysis_campaigns
+           SET lease_until = :until
+         WHERE id = :id
+           AND status = 'RUNNING'
+           AND (lease_until IS NULL OR lease_until < :now)
+        """, nativeQuery = true)
+    int lease(@Param("id") byte[] id, @Param("now") Instant now, @Param("until") Instant until);
+
+    /**
+     * Records a finished chunk: moves the cursor, adds the counts and releases the lease.
+     *
+     * @param id the UUID of the campaign as a byte array
+     * @param cursor the id of the last entry of the chunk as a byte array
+     * @param processed the entries of the chunk
+     * @param replaced the entries whose analysis was replaced
+     * @param changed the replaced entries whose severity changed
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE reanalysis_campaigns
+           SET cursor_id = :cursor,
+               processed_lines = processed_lines + :processed,
+               replaced_lines = replaced_lines + :replaced,
+               changed_lines = changed_lines + :changed,
+               lease_until = NULL,
+               last_error = NULL
+         WHERE id = :id
+        """, nativeQuery = true)
+    int advance(@Param("id") byte[] id,
+                @Param("cursor") byte[] cursor,
+                @Param("processed") int processed,
+                @Param("replaced") int replaced,
+                @Param("changed") int changed);
+
+    /**
+     * Releases the lease without progress, e.g. after a failed chunk.
+     *
+     * @param id the UUID of the campaign as a byte array
+     * @param error the reason
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE reanalysis_campaigns
+           SET lease_until = NULL,
+               last_error = :error
+         WHERE id = :id
+        """, nativeQuery = true)
+    int release(@Param("id") byte[] id, @Param("error") String error);
+
+    /**
+     * Pauses a running campaign; with an error if the pause was caused by one.
+     *
+     * @param id the UUID of the campaign as a byte array
+     * @param error the reason, or null for a pause on request
+     * @return 1 if the campaign was running, 0 otherwise
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = """
+        UPDATE reanalysis_campaigns
+           SET status = 'PAUSED',
+               lease_until = NULL,
+               last_error = :error
+         WHERE id = :id
+           AND status = 'RUNNING'
+        """, nativeQuery = true)
+    int pause(@Param("id") byte[] id, @Param("error") String error);
+
+    /**
+     * Resumes a paused campaign; its throughput is measured anew from now on.
+     *
+     * @param id the UUID of the campaign as a byte array
+     * @param now the current time
+     * @return 1 if the campaign was paused, 0 otherwise
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = """
+        UPDATE reanalysis_campaigns
+           SET status = 'RUNNING',
+               resumed_at = :now,
+               resumed_processed = processed_lines,
+               last_error = NULL
+         WHERE id = :id
+           AND status = 'PAUSED'
+        """, nativeQuery = true)
+    int resume(@Param("id") byte[] id, @Param("now") Instant now);
+
+    /**
+     * Finishes a running or paused campaign.
+     *
+     * @param id the UUID of the campaign as a byte array
+     * @param status the final state, COMPLETED or CANCELLED
+     * @param now the current time
+     * @return 1 if the campaign was not finished yet, 0 otherwise
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = """
+        UPDATE reanalysis_campaigns
+           SET status = :status,
+               finished_at = :now,
+               lease_until = NULL
+         WHERE id = :id
+           AND status IN ('RUNNING', 'PAUSED')
+        """, nativeQuery = true)
+    int finish(@Param("id") byte[] id, @Param("status") String status, @Param("now") Instant now);
+}
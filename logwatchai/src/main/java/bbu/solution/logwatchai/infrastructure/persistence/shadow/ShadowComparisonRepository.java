@@ -0,0 +1,63 @@
+package bbu.solution.logwatchai.infrastructure.persistence.shadow;
+
+import bbu.solution.logwatchai.domain.shadow.ShadowComparison;
+import bbu.solution.logwatchai.domain.shadow.ShadowSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for the comparisons of the shadow evaluation.
+ */
+@Repository
+public interface ShadowComparisonRepository extends JpaRepository<ShadowComparison, UUID> {
+
+    /**
+     * Returns the comparisons of one candidate, newest first.
+     *
+     * @param candidateStrategy the candidate name
+     * @param pageable the pageable settings
+     * @return a page of comparisons
+     */
+    Page<ShadowComparison> findByCandidateStrategyOrderByCreatedAtDesc(String candidateStrategy, Pageable pageable);
+
+    /**
+     * Returns all comparisons, newest first.
+     *
+     * @param pageable the pageable settings
+     * @return a page of comparisons
+     */
+    Page<ShadowComparison> findAllByOrderByCreatedAtDesc(Pageable pageable);
+
+    /**
+     * Aggregates the comparisons since a point in time per candidate.
+     *
+     * @param since the earliest comparison to include
+     * @param tolerance the largest score difference that counts as agreement
+     * @return one summary per candidate
+     */
+    @Query("""
+        SELECT new bbu.solution.logwatchai.domain.shadow.ShadowSummary(
+            c.candidateStrategy,
+            COUNT(c),
+            SUM(CASE WHEN c.candidateError IS NOT NULL THEN 1 ELSE 0 END),
+            SUM(CASE WHEN c.severityMatch = true THEN 1 ELSE 0 END),
+            SUM(CASE WHEN c.scoreDelta IS NOT NULL AND ABS(c.scoreDelta) <= :tolerance THEN 1 ELSE 0 END),
+            AVG(ABS(c.scoreDelta)),
+            AVG(c.primaryLatencyMs),
+            AVG(c.candidateLatencyMs),
+            SUM(c.primaryCost),
+            SUM(c.candidateCost))
+        FROM ShadowComparison c
+        WHERE c.createdAt >= :since
+        GROUP BY c.candidateStrategy
+        """)
+    List<ShadowSummary> summarize(@Param("since") Instant since, @Param("tolerance") double tolerance);
+}
@@ -0,0 +1,84 @@
+package bbu.solution.logwatchai.infrastructure.persistence.template;
+
+import bbu.solution.logwatchai.domain.template.LogTemplate;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for mined log templates.
+ */
+@Repository
+public interface LogTemplateRepository extends JpaRepository<LogTemplate, UUID> {
+
+    /**
+     * Returns the most recently seen templates, used to warm up the miner after a restart.
+     *
+     * @param pageable limits the number of templates
+     * @return templates, most recently seen first
+     */
+    List<LogTemplate> findAllByOrderByLastSeenDesc(Pageable pageable);
+
+    /**
+     * Returns the most frequent templates.
+     *
+     * @param pageable limits the number of templates
+     * @return templates, most frequent first
+     */
+    List<LogTemplate> findAllByOrderByMatchCountDesc(Pageable pageable);
+
+    /**
+     * Inserts a template or updates its text, version and count in one statement.
+     * The count is added to the stored value, so several flushes never overwrite each other.
+     *
+     * @param id the template id as a byte array
+     * @param template the current template text
+     * @param tokenCount the number of tokens of the template
+     * @param version the current template version
+     * @param delta the number of new matches since the last flush
+     * @param lastSeen the time of the latest match
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO log_templates (
+            id,
+            template,
+            token_count,
+            version,
+            match_count,
+            first_seen,
+            last_seen
+        )
+        VALUES (
+            :id,
+            :template,
+            :tokenCount,
+            :version,
+            :delta,
+            :lastSeen,
+            :lastSeen
+        )
+        ON DUPLICATE KEY UPDATE
+            template    = VALUES(template),
+            version     = VALUES(version),
+            match_count = match_count + VALUES(match_count),
+            last_seen   = VALUES(last_seen)
+        """, nativeQuery = true)
+    void upsert(
+            @Param("id") byte[] id,
+            @Param("template") String template,
+            @Param("tokenCount") int tokenCount,
+            @Param("version") int version,
+            @Param("delta") long delta,
+            @Param("lastSeen") Instant lastSeen
+    );
+}
@@ -0,0 +1,15 @@
+-- V10__create_ai_usage_table.sql
+-- Tokens and estimated cost of provider calls per day, strategy and log source
+CREATE TABLE IF NOT EXISTS ai_usage (
+    id                  BINARY(16)   NOT NULL PRIMARY KEY,
+    day                 DATE         NOT NULL,
+    strategy            VARCHAR(100) NOT NULL,
+    source_id           BINARY(16)   NOT NULL,
+    calls               BIGINT       NOT NULL DEFAULT 0,
+    prompt_tokens       BIGINT       NOT NULL DEFAULT 0,
+    completion_tokens   BIGINT       NOT NULL DEFAULT 0,
+    cost                DOUBLE       NOT NULL DEFAULT 0.0,
+    updated_at          DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+
+    CONSTRAINT uq_ai_usage_day_strategy_source UNIQUE (day, strategy, source_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,30 @@
+-- V11__create_ai_shadow_comparisons_table.sql
+-- Answers of a candidate strategy next to the primary analysis of the same line
+CREATE TABLE IF NOT EXISTS ai_shadow_comparisons (
+    id                     BINARY(16)   NOT NULL PRIMARY KEY,
+    log_entry_id           BINARY(16)   NOT NULL,
+    primary_strategy       VARCHAR(255) NOT NULL,
+    candidate_strategy     VARCHAR(100) NOT NULL,
+    primary_severity       VARCHAR(20)  NOT NULL,
+    candidate_severity     VARCHAR(20),
+    primary_score          DOUBLE       NOT NULL,
+    candidate_score        DOUBLE,
+    primary_category       VARCHAR(100),
+    candidate_category     VARCHAR(100),
+    candidate_summary      TEXT,
+    severity_match         BOOLEAN      NOT NULL DEFAULT FALSE,
+    score_delta            DOUBLE,
+    primary_latency_ms     BIGINT       NOT NULL,
+    candidate_latency_ms   BIGINT       NOT NULL,
+    primary_cost           DOUBLE       NOT NULL DEFAULT 0.0,
+    candidate_cost         DOUBLE       NOT NULL DEFAULT 0.0,
+    candidate_error        VARCHAR(500),
+    created_at             DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+
+    CONSTRAINT fk_ai_shadow_log_entry
+    FOREIGN KEY (log_entry_id) REFERENCES log_entries(id)
+    ON DELETE CASCADE,
+
+    INDEX idx_ai_shadow_candidate_created (candidate_strategy, created_at DESC),
+    INDEX idx_ai_shadow_created (created_at DESC)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,53 @@
+-- V12__create_reanalysis_tables.sql
+-- Versioned analyses and campaigns that analyze selected history again.
+-- ai_analysis keeps the current analysis of an entry; a replaced analysis moves to
+-- ai_analysis_versions under its own id.
+ALTER TABLE ai_analysis
+    ADD COLUMN version     INT        NOT NULL DEFAULT 1,
+    ADD COLUMN campaign_id BINARY(16) NULL;
+
+CREATE TABLE IF NOT EXISTS ai_analysis_versions (
+    id                  BINARY(16)   NOT NULL PRIMARY KEY,
+    log_entry_id        BINARY(16)   NOT NULL,
+    version             INT          NOT NULL,
+    severity            VARCHAR(20)  NOT NULL,
+    category            VARCHAR(100),
+    summarized_issue    TEXT,
+    likely_cause        TEXT,
+    recommendation      TEXT,
+    anomaly_score       DOUBLE       NOT NULL DEFAULT 0.0,
+    analyzed_at         DATETIME(6)  NOT NULL,
+    campaign_id         BINARY(16)   NULL,
+    superseded_at       DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+
+    CONSTRAINT fk_ai_analysis_versions_log_entry
+    FOREIGN KEY (log_entry_id) REFERENCES log_entries(id)
+    ON DELETE CASCADE,
+
+    CONSTRAINT uq_ai_analysis_versions_entry_version UNIQUE (log_entry_id, version)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS reanalysis_campaigns (
+    id                  BINARY(16)   NOT NULL PRIMARY KEY,
+    name                VARCHAR(200) NOT NULL,
+    status              VARCHAR(16)  NOT NULL,
+    severities          VARCHAR(100) NULL,
+    source_id           BINARY(16)   NULL,
+    from_time           DATETIME(6)  NOT NULL,
+    to_time             DATETIME(6)  NOT NULL,
+    use_cache           BOOLEAN      NOT NULL DEFAULT TRUE,
+    lines_per_minute    INT          NOT NULL,
+    cursor_id           BINARY(16)   NULL,
+    total_lines         BIGINT       NOT NULL DEFAULT 0,
+    processed_lines     BIGINT       NOT NULL DEFAULT 0,
+    replaced_lines      BIGINT       NOT NULL DEFAULT 0,
+    changed_lines       BIGINT       NOT NULL DEFAULT 0,
+    created_at          DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    resumed_at          DATETIME(6)  NULL,
+    resumed_processed   BIGINT       NOT NULL DEFAULT 0,
+    finished_at         DATETIME(6)  NULL,
+    lease_until         DATETIME(6)  NULL,
+    last_error          VARCHAR(500) NULL,
+
+    INDEX idx_reanalysis_campaigns_status (status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
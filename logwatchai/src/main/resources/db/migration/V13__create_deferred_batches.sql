@@ -0,0 +1,22 @@
+-- V13__create_deferred_batches.sql
+-- Low-priority lines can be analyzed in deferred provider batches. An entry waiting in such a
+-- batch is in state DEFERRED and points to its batch; the stale-claim release does not touch it.
+ALTER TABLE log_entries
+    ADD COLUMN deferred_batch_id BINARY(16) NULL;
+
+CREATE INDEX idx_log_entries_deferred_batch ON log_entries (deferred_batch_id);
+
+CREATE TABLE IF NOT EXISTS deferred_batches (
+    id                  BINARY(16)   NOT NULL PRIMARY KEY,
+    provider            VARCHAR(100) NOT NULL,
+    provider_batch_id   VARCHAR(200) NULL,
+    status              VARCHAR(16)  NOT NULL,
+    line_count          INT          NOT NULL DEFAULT 0,
+    created_at          DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    submitted_at        DATETIME(6)  NULL,
+    finished_at         DATETIME(6)  NULL,
+    answered_lines      INT          NOT NULL DEFAULT 0,
+    last_error          VARCHAR(500) NULL,
+
+    INDEX idx_deferred_batches_status (status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,10 @@
+-- V7__add_log_entries_analysis_state.sql
+-- Database-level ownership of analysis work: a worker claims an entry with
+-- UPDATE ... SET analysis_state = 'CLAIMED' WHERE id = ? AND analysis_state = 'PENDING'
+ALTER TABLE log_entries
+    ADD COLUMN analysis_state VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    ADD COLUMN claimed_at     DATETIME(6) NULL;
+
+UPDATE log_entries SET analysis_state = 'DONE' WHERE analyzed = TRUE;
+
+CREATE INDEX idx_log_entries_analysis_state ON log_entries (analysis_state, ingestion_time);
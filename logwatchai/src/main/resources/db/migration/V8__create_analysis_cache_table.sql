@@ -0,0 +1,19 @@
+-- V8__create_analysis_cache_table.sql
+-- Reusable analyses per normalized log template and model
+CREATE TABLE IF NOT EXISTS analysis_cache (
+    id                  BINARY(16)   NOT NULL PRIMARY KEY,
+    template_hash       CHAR(64)     NOT NULL,
+    model               VARCHAR(150) NOT NULL,
+    template            TEXT         NOT NULL,
+    severity            VARCHAR(20)  NOT NULL,
+    category            VARCHAR(100),
+    summarized_issue    TEXT,
+    likely_cause        TEXT,
+    recommendation      TEXT,
+    anomaly_score       DOUBLE       NOT NULL DEFAULT 0.0,
+    created_at          DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    expires_at          DATETIME(6)  NOT NULL,
+
+    CONSTRAINT uq_analysis_cache_template_model UNIQUE (template_hash, model),
+    INDEX idx_analysis_cache_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
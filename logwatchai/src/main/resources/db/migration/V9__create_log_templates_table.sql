@@ -0,0 +1,19 @@
+-- V9__create_log_templates_table.sql
+-- Templates mined from incoming lines; every log entry references the template it was assigned to
+CREATE TABLE IF NOT EXISTS log_templates (
+    id              BINARY(16)   NOT NULL PRIMARY KEY,
+    template        TEXT         NOT NULL,
+    token_count     INT          NOT NULL,
+    version         INT          NOT NULL DEFAULT 1,
+    match_count     BIGINT       NOT NULL DEFAULT 0,
+    first_seen      DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    last_seen       DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+
+    INDEX idx_log_templates_last_seen (last_seen DESC),
+    INDEX idx_log_templates_match_count (match_count DESC)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+ALTER TABLE log_entries
+    ADD COLUMN template_id BINARY(16) NULL;
+
+CREATE INDEX idx_log_entries_template_id ON log_entries (template_id, ingestion_time);
@@ -0,0 +1,229 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCircuitBreakers;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.application.budget.BudgetLevel;
+import bbu.solution.logwatchai.application.context.SourceContextWindow;
+import bbu.solution.logwatchai.application.redaction.LogRedactor;
+import bbu.solution.logwatchai.application.shadow.ShadowEvaluationServiceImpl;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.analysis.events.PreliminaryAnalysisEvent;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiContextConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import bbu.solution.logwatchai.domain.appconfig.AiRedactionConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisResult;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.infrastructure.benchmark.MockLlmProperties;
+import bbu.solution.logwatchai.infrastructure.benchmark.MockLlmServer;
+import bbu.solution.logwatchai.infrastructure.persistence.analysis.AIAnalysisRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AIAnalysisServiceImplTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String SINGLE_ANSWER = """
+            {"severity":"LOW","anomalyScore":0.2,"category":"single","summarizedIssue":"single","likelyCause":"none","recommendation":"none"}""";
+
+    private final AppConfigService configService = mock(AppConfigService.class);
+    private final AIAnalysisRepository aiRepository = mock(AIAnalysisRepository.class);
+    private final AnalysisCache cache = mock(AnalysisCache.class);
+    private final AiBudgetService budget = mock(AiBudgetService.class);
+    private final ShadowEvaluationServiceImpl shadow = mock(ShadowEvaluationServiceImpl.class);
+    private final AnalysisVersionStore versions = mock(AnalysisVersionStore.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SourceContextWindow contextWindow = new SourceContextWindow(new AiContextConfig());
+    private final AiHttpTransport transport = new AiHttpTransport();
+    private MockLlmServer mockLlm;
+    private HttpServer scripted;
+    private AIAnalysisServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        when(budget.level(any())).thenReturn(BudgetLevel.NORMAL);
+        when(aiRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+        when(aiRepository.saveAll(anyList())).thenAnswer(call -> call.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.shutdown();
+        if (mockLlm != null) mockLlm.close();
+        if (scripted != null) scripted.stop(0);
+        transport.close();
+    }
+
+    private AIAnalysisServiceImpl service(String baseUrl, boolean stream) {
+        AiModelEntry entry = new AiModelEntry();
+        entry.setName("openai-http");
+        entry.setEnabled(true);
+        entry.setModel("mock-gpt");
+        entry.setKey("test");
+        entry.setBaseUrl(baseUrl);
+        entry.setMaxRetries(0);
+        entry.setStream(stream);
+        AiConfig ai = new AiConfig();
+        ai.setModels(List.of(entry));
+        AppConfig config = new AppConfig();
+        config.setAi(ai);
+        when(configService.getConfig()).thenReturn(config);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = new AIAnalysisServiceImpl(configService, new AnalysisConfigProperties(configService), aiRepository, cache,
+                mock(LogTemplateService.class), budget, shadow, new LogRedactor(new AiRedactionConfig()),
+                contextWindow, versions, transport, new AiCircuitBreakers(configService, registry), Runnable::run,
+                registry, eventPublisher);
+        return service;
+    }
+
+    /**
+     * Starts the streaming mock model and builds the service on it.
+     */
+    private AIAnalysisServiceImpl streamingService() throws IOException {
+        MockLlmProperties properties = new MockLlmProperties();
+        properties.setPort(0);
+        properties.setLatency("fixed");
+        properties.setLatencyMs(0);
+        properties.setRateLimitRate(0.0);
+        properties.setMalformedRate(0.0);
+        properties.setRetryAfterSeconds(0);
+        mockLlm = new MockLlmServer(properties);
+        mockLlm.start();
+        return service(mockLlm.getBaseUrl(), true);
+    }
+
+    /**
+     * Starts a model that gives the batch answer to batch prompts and a fixed answer to single
+     * prompts, and builds the service on it.
+     */
+    private AIAnalysisServiceImpl scriptedService(String batchAnswer, AtomicInteger singleCalls) throws IOException {
+        scripted = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        scripted.createContext("/v1/chat/completions", exchange -> {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            boolean batch = request.contains("Return the JSON array only.");
+            if (!batch) singleCalls.incrementAndGet();
+            ObjectNode response = MAPPER.createObjectNode();
+            response.putArray("choices").addObject().putObject("message").put("content", batch ? batchAnswer : SINGLE_ANSWER);
+            response.putObject("usage").put("prompt_tokens", 10).put("completion_tokens", 10);
+            byte[] body = MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        scripted.start();
+        return service("http://127.0.0.1:" + scripted.getAddress().getPort() + "/v1", false);
+    }
+
+    private static List<LogEntry> batchOfThree() {
+        UUID sourceId = UUID.randomUUID();
+        return List.of(
+                new LogEntry("ERROR disk full on /var", sourceId),
+                new LogEntry("WARN slow response from upstream", sourceId),
+                new LogEntry("INFO user logged in", sourceId));
+    }
+
+    private static String item(int index, String summary) {
+        return "{\"index\":" + index + ",\"severity\":\"HIGH\",\"anomalyScore\":0.9,\"category\":\"batch\","
+                + "\"summarizedIssue\":\"" + summary + "\",\"likelyCause\":\"x\",\"recommendation\":\"y\"}";
+    }
+
+    @Test
+    void testStreamedAnalysisPublishesPreliminaryAnalysis() throws Exception {
+        streamingService();
+        LogEntry entry = new LogEntry("ERROR db connection refused", UUID.randomUUID());
+
+        service.analyze(entry);
+
+        verify(eventPublisher).publishEvent(any(PreliminaryAnalysisEvent.class));
+        verify(shadow).sample(eq(entry), anyString());
+    }
+
+    @Test
+    void testAnalysisIsCachedPerContext() throws Exception {
+        streamingService();
+        UUID sourceId = UUID.randomUUID();
+        LogEntry first = new LogEntry("ERROR disk full on /var", sourceId);
+        Thread.sleep(5);
+        LogEntry second = new LogEntry("ERROR disk full on /var", sourceId);
+        contextWindow.record(first, first.getRawText());
+
+        service.analyze(first);
+        service.analyze(second);
+
+        verify(cache).lookup(eq("ERROR disk full on /var"), anyString(), eq(first.getId()));
+        verify(cache).store(eq("ERROR disk full on /var"), anyString(), any());
+        verify(cache).lookup(eq("ERROR disk full on /var\n\nPreceding lines:\n- ERROR disk full on /var"), anyString(), eq(second.getId()));
+        verify(cache).store(eq("ERROR disk full on /var\n\nPreceding lines:\n- ERROR disk full on /var"), anyString(), any());
+    }
+
+    @Test
+    void testReanalysisPublishesNoPreliminaryAnalysis() throws Exception {
+        streamingService();
+        LogEntry single = new LogEntry("ERROR db connection refused", UUID.randomUUID());
+        when(versions.replace(anyList(), any())).thenAnswer(call -> ((List<?>) call.getArgument(0)).size());
+
+        ReanalysisResult first = service.reanalyze(List.of(single), UUID.randomUUID(), false).get(10, TimeUnit.SECONDS);
+        ReanalysisResult second = service.reanalyze(batchOfThree(), UUID.randomUUID(), false).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, first.replaced());
+        assertEquals(3, second.replaced());
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(shadow, never()).sample(any(), anyString());
+    }
+
+    @Test
+    void testBatchItemsWithInvalidIndexAreAnalyzedAlone() throws Exception {
+        AtomicInteger singleCalls = new AtomicInteger();
+        scriptedService("[" + item(0, "first") + "," + item(1, "second") + "," + item(1, "second again") + ","
+                + item(2, "third") + "," + item(7, "unknown line") + "]", singleCalls);
+
+        List<AIAnalysis> analyses = service.analyzeBatch(batchOfThree());
+
+        assertEquals(List.of("first", "single", "third"), analyses.stream().map(AIAnalysis::getSummarizedIssue).toList());
+        assertEquals(Severity.LOW, analyses.get(1).getSeverity());
+        assertEquals(1, singleCalls.get(), "only the line with the duplicate index is analyzed again");
+    }
+
+    @Test
+    void testPartialBatchAnswerFallsBackToSingleAnalyses() throws Exception {
+        AtomicInteger singleCalls = new AtomicInteger();
+        scriptedService("[" + item(0, "first") + "]", singleCalls);
+        List<LogEntry> entries = batchOfThree();
+
+        List<AIAnalysis> analyses = service.analyzeBatch(entries);
+
+        assertEquals(List.of("first", "single", "single"), analyses.stream().map(AIAnalysis::getSummarizedIssue).toList());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(entries.get(i).getId(), analyses.get(i).getLogEntryId());
+        }
+        assertEquals(2, singleCalls.get());
+    }
+}
@@ -0,0 +1,93 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisBatcherTest {
+
+    /** The batches the batch function was called with. */
+    private final List<List<LogEntry>> batches = new CopyOnWriteArrayList<>();
+
+    private final Function<List<LogEntry>, CompletableFuture<List<AIAnalysis>>> analyzer = entries -> {
+        batches.add(List.copyOf(entries));
+        return CompletableFuture.completedFuture(entries.stream()
+                .map(entry -> new AIAnalysis(entry.getId(), Severity.LOW, "batch", entry.getRawText(), "x", "y", 0.1))
+                .toList());
+    };
+
+    private AnalysisBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) batcher.close();
+    }
+
+    @Test
+    void testFullBatchIsFlushedRightAway() throws Exception {
+        batcher = new AnalysisBatcher(2, 60_000, analyzer, Runnable::run);
+        UUID sourceId = UUID.randomUUID();
+        LogEntry first = new LogEntry("ERROR one", sourceId);
+        LogEntry other = new LogEntry("ERROR other source", UUID.randomUUID());
+        LogEntry second = new LogEntry("ERROR two", sourceId);
+
+        CompletableFuture<AIAnalysis> firstResult = batcher.submit(first);
+        CompletableFuture<AIAnalysis> otherResult = batcher.submit(other);
+        CompletableFuture<AIAnalysis> secondResult = batcher.submit(second);
+
+        assertEquals(List.of(List.of(first, second)), batches, "a batch holds the lines of one source");
+        assertEquals(first.getId(), firstResult.get(1, TimeUnit.SECONDS).getLogEntryId());
+        assertEquals(second.getId(), secondResult.get(1, TimeUnit.SECONDS).getLogEntryId());
+        assertFalse(otherResult.isDone(), "the batch of the other source waits for more lines");
+    }
+
+    @Test
+    void testOpenBatchIsFlushedAfterMaxWait() throws Exception {
+        batcher = new AnalysisBatcher(10, 50, analyzer, Runnable::run);
+        LogEntry entry = new LogEntry("WARN slow", UUID.randomUUID());
+
+        CompletableFuture<AIAnalysis> result = batcher.submit(entry);
+
+        assertEquals("WARN slow", result.get(5, TimeUnit.SECONDS).getSummarizedIssue());
+        assertEquals(List.of(List.of(entry)), batches);
+    }
+
+    @Test
+    void testRejectedBatchFailsItsEntries() {
+        batcher = new AnalysisBatcher(1, 60_000, analyzer, command -> {
+            throw new RejectedExecutionException("queue full");
+        });
+
+        CompletableFuture<AIAnalysis> result = batcher.submit(new LogEntry("ERROR rejected", UUID.randomUUID()));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void testFailedBatchFailsAllEntries() {
+        batcher = new AnalysisBatcher(2, 60_000,
+                entries -> CompletableFuture.failedFuture(new IllegalStateException("provider down")), Runnable::run);
+        UUID sourceId = UUID.randomUUID();
+
+        CompletableFuture<AIAnalysis> first = batcher.submit(new LogEntry("ERROR one", sourceId));
+        CompletableFuture<AIAnalysis> second = batcher.submit(new LogEntry("ERROR two", sourceId));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,136 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.AnalysisCacheEntry;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiCacheConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.template.LogTemplateNormalizer;
+import bbu.solution.logwatchai.infrastructure.persistence.analysis.AnalysisCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AnalysisCacheTest {
+
+    private static final String TEMPLATE = "ERROR disk full on <*>";
+    private static final String MODEL = "openai:mock-gpt";
+
+    private final AnalysisCacheRepository repository = mock(AnalysisCacheRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findByTemplateHashAndModel(anyString(), anyString())).thenReturn(Optional.empty());
+    }
+
+    private AnalysisCache cache(long ttlMinutes, int maxEntries) {
+        AiCacheConfig config = new AiCacheConfig();
+        config.setTtlMinutes(ttlMinutes);
+        config.setMaxEntries(maxEntries);
+        AiConfig ai = new AiConfig();
+        ai.setCache(config);
+        AppConfig appConfig = new AppConfig();
+        appConfig.setAi(ai);
+        AppConfigService configService = mock(AppConfigService.class);
+        when(configService.getConfig()).thenReturn(appConfig);
+        return new AnalysisCache(repository, new AnalysisConfigProperties(configService), registry);
+    }
+
+    private static AIAnalysis analysis(String summary) {
+        return new AIAnalysis(UUID.randomUUID(), Severity.HIGH, "disk", summary, "logs", "rotate", 0.8);
+    }
+
+    private double lookups(String result) {
+        return registry.counter("logwatchai.analysis.cache.lookups", "result", result).count();
+    }
+
+    @Test
+    void testStoredAnalysisIsReusedForAnotherEntry() {
+        AnalysisCache cache = cache(60, 10);
+        cache.store(TEMPLATE, MODEL, analysis("Disk full"));
+        UUID entryId = UUID.randomUUID();
+
+        AIAnalysis hit = cache.lookup(TEMPLATE, MODEL, entryId).orElseThrow();
+
+        assertEquals(entryId, hit.getLogEntryId());
+        assertEquals("Disk full", hit.getSummarizedIssue());
+        assertTrue(cache.lookup(TEMPLATE, "other:model", entryId).isEmpty(), "analyses are kept per model");
+        assertEquals(1.0, lookups("memory"));
+        verify(repository).save(any(AnalysisCacheEntry.class));
+    }
+
+    @Test
+    void testExpiredAnalysisIsNotReused() {
+        AnalysisCache cache = cache(0, 10);
+        cache.store(TEMPLATE, MODEL, analysis("Disk full"));
+
+        assertTrue(cache.lookup(TEMPLATE, MODEL, UUID.randomUUID()).isEmpty());
+        assertEquals(1.0, lookups("miss"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedTemplateIsEvicted() {
+        AnalysisCache cache = cache(60, 2);
+        cache.store("template a", MODEL, analysis("a"));
+        cache.store("template b", MODEL, analysis("b"));
+        cache.lookup("template a", MODEL, UUID.randomUUID());
+        cache.store("template c", MODEL, analysis("c"));
+
+        assertTrue(cache.lookup("template a", MODEL, UUID.randomUUID()).isPresent());
+        assertTrue(cache.lookup("template b", MODEL, UUID.randomUUID()).isEmpty(), "b was used least recently");
+        assertTrue(cache.lookup("template c", MODEL, UUID.randomUUID()).isPresent());
+        assertEquals(2.0, registry.get("logwatchai.analysis.cache.size").gauge().value());
+    }
+
+    @Test
+    void testDatabaseHitIsKeptInMemory() {
+        AnalysisCache cache = cache(60, 10);
+        String hash = LogTemplateNormalizer.hash(TEMPLATE);
+        AnalysisCacheEntry stored = new AnalysisCacheEntry(hash, MODEL, TEMPLATE, analysis("From another instance"),
+                Instant.now().plusSeconds(3600));
+        when(repository.findByTemplateHashAndModel(hash, MODEL)).thenReturn(Optional.of(stored));
+
+        assertEquals("From another instance", cache.lookup(TEMPLATE, MODEL, UUID.randomUUID()).orElseThrow().getSummarizedIssue());
+        assertTrue(cache.lookup(TEMPLATE, MODEL, UUID.randomUUID()).isPresent());
+
+        assertEquals(1.0, lookups("database"));
+        assertEquals(1.0, lookups("memory"));
+        verify(repository, times(1)).findByTemplateHashAndModel(hash, MODEL);
+    }
+
+    @Test
+    void testExpiredDatabaseEntryIsAMiss() {
+        AnalysisCache cache = cache(60, 10);
+        String hash = LogTemplateNormalizer.hash(TEMPLATE);
+        when(repository.findByTemplateHashAndModel(hash, MODEL)).thenReturn(Optional.of(new AnalysisCacheEntry(
+                hash, MODEL, TEMPLATE, analysis("Outdated"), Instant.now().minusSeconds(1))));
+
+        assertTrue(cache.lookup(TEMPLATE, MODEL, UUID.randomUUID()).isEmpty());
+        assertEquals(1.0, lookups("miss"));
+    }
+
+    @Test
+    void testHitRatioCountsBothLevels() {
+        AnalysisCache cache = cache(60, 10);
+        assertEquals(0.0, registry.get("logwatchai.analysis.cache.hit.ratio").gauge().value());
+
+        cache.lookup(TEMPLATE, MODEL, UUID.randomUUID());
+        cache.store(TEMPLATE, MODEL, analysis("Disk full"));
+        cache.lookup(TEMPLATE, MODEL, UUID.randomUUID());
+        cache.lookup(TEMPLATE, MODEL, UUID.randomUUID());
+        cache.lookup("unknown template", MODEL, UUID.randomUUID());
+
+        assertEquals(0.5, registry.get("logwatchai.analysis.cache.hit.ratio").gauge().value(), 1e-9);
+    }
+}
@@ -0,0 +1,130 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiCommitConfig;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AnalysisCommitterTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    /** Entries whose claim was released; the UPDATE does not match them. */
+    private final Set<UUID> released = new HashSet<>();
+    private final List<UUID> inserted = new ArrayList<>();
+    private AnalysisCommitter committer;
+
+    @SuppressWarnings("unchecked")
+    private AnalysisCommitter committer(int maxBatch, long maxWaitMs) {
+        // the statement setters run against a mocked statement, so binding errors surface like in a real batch
+        when(jdbc.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(call -> {
+                    String sql = call.getArgument(0);
+                    ParameterizedPreparedStatementSetter<Object> setter = call.getArgument(3);
+                    Collection<Object> items = call.getArgument(1);
+                    int[] counts = new int[items.size()];
+                    int i = 0;
+                    for (Object item : items) {
+                        // both statements bind the entry id as their second parameter
+                        byte[][] entryId = new byte[1][];
+                        PreparedStatement ps = mock(PreparedStatement.class);
+                        doAnswer(bind -> entryId[0] = bind.getArgument(1)).when(ps).setBytes(eq(2), any());
+                        setter.setValues(ps, item);
+                        UUID id = UuidBytes.fromBytes(entryId[0]);
+                        if (sql.startsWith("INSERT")) inserted.add(id);
+                        counts[i++] = released.contains(id) ? 0 : 1;
+                    }
+                    return new int[][] {counts};
+                });
+        AiCommitConfig config = new AiCommitConfig();
+        config.setMaxBatch(maxBatch);
+        config.setMaxWaitMs(maxWaitMs);
+        committer = new AnalysisCommitter(config, jdbc, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Runnable::run, new SimpleMeterRegistry());
+        return committer;
+    }
+
+    @AfterEach
+    void tearDown() {
+        committer.close();
+    }
+
+    private static AIAnalysis analysis(Severity severity) {
+        return new AIAnalysis(UUID.randomUUID(), severity, "disk", "summary", "cause", "fix", 0.8);
+    }
+
+    @Test
+    void testFullBatchIsWrittenInOneRoundTripPerStatement() throws Exception {
+        committer(3, 60_000);
+        AIAnalysis first = analysis(Severity.HIGH);
+
+        CompletableFuture<?> a = committer.commit(first);
+        CompletableFuture<?> b = committer.commit(analysis(Severity.LOW));
+        CompletableFuture<?> c = committer.commit(analysis(Severity.INFO));
+        CompletableFuture.allOf(a, b, c).get(5, TimeUnit.SECONDS);
+
+        verify(jdbc).batchUpdate(startsWith("INSERT INTO ai_analysis"), anyCollection(), eq(3), any());
+        verify(jdbc).batchUpdate(startsWith("UPDATE log_entries"), anyCollection(), eq(3), any());
+        assertEquals(3, inserted.size());
+        assertNotNull(first.getId(), "the insert assigns the id");
+    }
+
+    @Test
+    void testOpenBatchIsWrittenOnItsDeadline() throws Exception {
+        committer(100, 10);
+
+        committer.commit(analysis(Severity.HIGH)).get(5, TimeUnit.SECONDS);
+
+        verify(jdbc).batchUpdate(startsWith("INSERT"), anyCollection(), eq(1), any());
+    }
+
+    @Test
+    void testBadRowOnlyFailsItself() throws Exception {
+        committer(3, 60_000);
+
+        CompletableFuture<?> good = committer.commit(analysis(Severity.HIGH));
+        CompletableFuture<?> bad = committer.commit(analysis(null));
+        CompletableFuture<?> alsoGood = committer.commit(analysis(Severity.LOW));
+
+        good.get(5, TimeUnit.SECONDS);
+        alsoGood.get(5, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCompletionAfterTheClaimWasReleasedIsDropped() throws Exception {
+        committer(2, 60_000);
+        AIAnalysis late = analysis(Severity.HIGH);
+        AIAnalysis current = analysis(Severity.LOW);
+        released.add(late.getLogEntryId());
+
+        CompletableFuture<?> lateCommit = committer.commit(late);
+        CompletableFuture<?> currentCommit = committer.commit(current);
+
+        currentCommit.get(5, TimeUnit.SECONDS);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> lateCommit.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ClaimLostException.class, error.getCause());
+        assertEquals(List.of(current.getLogEntryId()), inserted, "only the analysis of the claimed entry is inserted");
+    }
+}
@@ -0,0 +1,95 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisResponseParserTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AnalysisResponseParser parser = new AnalysisResponseParser(registry);
+
+    private double count(String result) {
+        return registry.counter("logwatchai.analysis.parse", "strategy", "openai", "result", result).count();
+    }
+
+    private double repairs(String repair) {
+        return registry.counter("logwatchai.analysis.parse.repairs", "strategy", "openai", "repair", repair).count();
+    }
+
+    @Test
+    void testCleanAnswerIsReadAsIs() {
+        UUID id = UUID.randomUUID();
+
+        AIAnalysis ai = parser.parseSingle("openai", """
+                {"severity":"ERROR","anomalyScore":0.9,"category":"disk","summarizedIssue":"Disk full",
+                 "likelyCause":"logs","recommendation":"rotate","details":{"ignored":[1,2]}}""", id);
+
+        assertEquals(id, ai.getLogEntryId());
+        assertEquals(Severity.HIGH, ai.getSeverity());
+        assertEquals(0.9, ai.getAnomalyScore(), 1e-9);
+        assertEquals("Disk full", ai.getSummarizedIssue());
+        assertEquals(1.0, count("clean"));
+        assertEquals(0.0, count("repaired"));
+    }
+
+    @Test
+    void testProseFencesAndVariantsAreRepaired() {
+        AIAnalysis ai = parser.parseSingle("openai", """
+                Sure! Here is the analysis of {the line}:
+                ```json
+                {'severity': '**Severe**', anomaly_score: "85%", summary: 'Disk full',
+                 recommendation: ["rotate logs", "add space"],}
+                ```
+                Let me know if you need more.""", UUID.randomUUID());
+
+        assertEquals(Severity.HIGH, ai.getSeverity());
+        assertEquals(0.85, ai.getAnomalyScore(), 1e-9);
+        assertEquals("Disk full", ai.getSummarizedIssue());
+        assertEquals("rotate logs; add space", ai.getRecommendation());
+        assertEquals(1.0, count("repaired"));
+        for (String repair : List.of("extracted", "syntax", "key", "severity", "score", "value")) {
+            assertEquals(1.0, repairs(repair), repair);
+        }
+    }
+
+    @Test
+    void testTruncatedAnswerKeepsItsFields() {
+        AIAnalysis ai = parser.parseSingle("openai", "{\"severity\":\"WARN\",\"anomalyScore\":72,\"summarizedIssue\":\"Slow resp",
+                UUID.randomUUID());
+
+        assertEquals(Severity.MEDIUM, ai.getSeverity());
+        assertEquals(0.72, ai.getAnomalyScore(), 1e-9);
+        assertEquals(1.0, repairs("truncated"));
+    }
+
+    @Test
+    void testAnswerWithoutSeverityIsUnusable() {
+        assertNull(parser.parseSingle("openai", "I could not analyze this line.", UUID.randomUUID()));
+        assertNull(parser.parseSingle("openai", "{\"summary\":\"no idea\"}", UUID.randomUUID()));
+        assertEquals(2.0, count("failed"));
+    }
+
+    @Test
+    void testBatchIsUnwrappedAndKeepsItsIndices() {
+        List<AnalysisResponseParser.Fields> items = parser.parseBatch("openai", """
+                {"results": [
+                  {"index": "0", "severity": "INFO", "anomalyScore": 0.1},
+                  {"index": 1, "anomalyScore": 0.5},
+                  {"index": 2, "severity": "CRITICAL", "anomalyScore": "0.95"}
+                ]}""");
+
+        assertEquals(2, items.size(), "the item without a severity is left out");
+        assertEquals(0, items.get(0).index);
+        assertEquals(2, items.get(1).index);
+        assertEquals(Severity.CRITICAL, items.get(1).severity);
+        assertEquals(0.95, items.get(1).anomalyScore, 1e-9);
+        assertEquals(1.0, repairs("unwrapped"));
+    }
+}
@@ -0,0 +1,48 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EarlyFieldExtractorTest {
+
+    private final List<String> reported = new ArrayList<>();
+    private final EarlyFieldExtractor extractor =
+            new EarlyFieldExtractor((index, severity, score) -> reported.add(index + ":" + severity + ":" + score));
+
+    private void feed(String answer, int chunkSize) {
+        for (int i = 0; i < answer.length(); i += chunkSize) {
+            extractor.accept(answer.substring(i, Math.min(answer.length(), i + chunkSize)));
+        }
+    }
+
+    @Test
+    void testSingleAnswerIsReportedBeforeItIsComplete() {
+        String answer = "```json\n{\"severity\": \"HIGH\", \"anomalyScore\": 0.85, \"category\": \"database\", \"summarizedIssue\": \"pool";
+
+        feed(answer, 3);
+
+        assertEquals(List.of("-1:HIGH:0.85"), reported);
+    }
+
+    @Test
+    void testBatchItemsAreReportedOncePerIndex() {
+        String answer = "[{\"index\":0,\"severity\":\"LOW\",\"anomalyScore\":\"12%\",\"category\":\"a {b}\",\"extra\":{\"severity\":\"CRITICAL\"}},"
+                + "{\"severity\":\"CRITICAL\",\"anomalyScore\":0.9,\"index\":1,\"summarizedIssue\":\"quote \\\" , ]\"}]"
+                + "{\"index\":2,\"severity\":\"INFO\",\"anomalyScore\":0}";
+
+        feed(answer, 5);
+
+        assertEquals(List.of("0:LOW:0.12", "1:CRITICAL:0.9"), reported);
+    }
+
+    @Test
+    void testIncompleteFieldsAreNotReported() {
+        feed("{\"severity\":\"HIGH\",\"category\":\"x\",\"anomalyScore\":\"unknown\"}", 7);
+
+        assertTrue(reported.isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.AsyncAiStrategy;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiDispatchConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StrategyDispatcherTest {
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void testHedgeCallsBackupWhenPrimaryIsSlow() throws Exception {
+        FakeStrategy slow = new FakeStrategy("slow", new CompletableFuture<>());
+        FakeStrategy fast = new FakeStrategy("fast", CompletableFuture.completedFuture(AiCompletion.of("backup")));
+        StrategyDispatcher dispatcher = dispatcher("hedge", slow, fast);
+
+        String result = dispatcher.dispatch("prompt", AiCompletion::content, List::getFirst).get(5, TimeUnit.SECONDS);
+
+        assertEquals("backup", result);
+        assertEquals(1, slow.calls);
+        assertEquals(1, fast.calls);
+    }
+
+    @Test
+    void testHedgeFailsOverRightAwayOnUnusableAnswer() throws Exception {
+        FakeStrategy broken = new FakeStrategy("broken", CompletableFuture.completedFuture(AiCompletion.of("")));
+        FakeStrategy backup = new FakeStrategy("backup", CompletableFuture.completedFuture(AiCompletion.of("ok")));
+        StrategyDispatcher dispatcher = dispatcher("hedge", broken, backup);
+
+        CompletableFuture<String> result = dispatcher.dispatch("prompt",
+                c -> c.content().isEmpty() ? null : c.content(), List::getFirst);
+
+        assertEquals("ok", result.get(100, TimeUnit.MILLISECONDS), "backup must not wait for the hedge delay");
+    }
+
+    @Test
+    void testConsensusMergesSeverityByMajority(){
+        UUID id = UUID.randomUUID();
+        AIAnalysis merged = AnalysisConsensus.merge(List.of(
+                new AIAnalysis(id, Severity.MEDIUM, "db", "a", "b", "c", 0.4),
+                new AIAnalysis(id, Severity.HIGH, "db", "x", "y", "z", 0.8),
+                new AIAnalysis(id, Severity.HIGH, "net", "u", "v", "w", 0.9)));
+
+        assertEquals(Severity.HIGH, merged.getSeverity());
+        assertEquals("x", merged.getSummarizedIssue(), "text should come from the first agreeing analysis");
+        assertEquals(0.7, merged.getAnomalyScore(), 1e-9);
+    }
+
+    private StrategyDispatcher dispatcher(String mode, AiStrategy... strategies) {
+        AiDispatchConfig config = new AiDispatchConfig();
+        config.setMode(mode);
+        config.setInitialHedgeDelayMs(50);
+        config.setMinHedgeDelayMs(10);
+        return new StrategyDispatcher(List.of(strategies), config, transport, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Strategy that always answers with the same future.
+     */
+    private static final class FakeStrategy implements AsyncAiStrategy {
+        private final String name;
+        private final CompletableFuture<AiCompletion> answer;
+        private int calls;
+
+        private FakeStrategy(String name, CompletableFuture<AiCompletion> answer) {
+            this.name = name;
+            this.answer = answer;
+        }
+
+        @Override
+        public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+            calls++;
+            return answer;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public String getModel() { return "model"; }
+
+        @Override
+        public boolean isEnabled() { return true; }
+    }
+}
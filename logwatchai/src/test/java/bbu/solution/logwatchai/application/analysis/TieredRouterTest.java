@@ -0,0 +1,114 @@
+package bbu.solution.logwatchai.application.analysis;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.AsyncAiStrategy;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiDispatchConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiRoutingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredRouterTest {
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void testRoutineAnswerStaysOnFastTier() throws Exception {
+        FakeStrategy cheap = new FakeStrategy("cheap", "LOW:0.2");
+        FakeStrategy deep = new FakeStrategy("deep", "CRITICAL:0.9");
+
+        AIAnalysis ai = router(cheap, deep).analyze("prompt", null, TieredRouterTest::parse).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Severity.LOW, ai.getSeverity());
+        assertEquals(0, deep.calls);
+        assertEquals(1.0, registry.get("logwatchai.ai.routing.decisions").tag("route", "fast").counter().count());
+    }
+
+    @Test
+    void testHighSeverityOrScoreIsEscalated() throws Exception {
+        FakeStrategy deep = new FakeStrategy("deep", "CRITICAL:0.95");
+
+        AIAnalysis bySeverity = router(new FakeStrategy("cheap", "HIGH:0.1"), deep)
+                .analyze("prompt", null, TieredRouterTest::parse).get(5, TimeUnit.SECONDS);
+        AIAnalysis byScore = router(new FakeStrategy("cheap2", "LOW:0.8"), deep)
+                .analyze("prompt", null, TieredRouterTest::parse).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Severity.CRITICAL, bySeverity.getSeverity());
+        assertEquals(Severity.CRITICAL, byScore.getSeverity());
+        assertEquals(2, deep.calls);
+        assertEquals(1.0, registry.get("logwatchai.ai.routing.decisions").tags("route", "strong", "reason", "score").counter().count());
+    }
+
+    @Test
+    void testUnusableAnswerIsEscalatedAndFailedEscalationKeepsFastAnswer() throws Exception {
+        FakeStrategy deep = new FakeStrategy("deep", "MEDIUM:0.5");
+        AIAnalysis repaired = router(new FakeStrategy("cheap", "not json"), deep)
+                .analyze("prompt", null, TieredRouterTest::parse).get(5, TimeUnit.SECONDS);
+        assertEquals(Severity.MEDIUM, repaired.getSeverity());
+
+        AIAnalysis kept = router(new FakeStrategy("cheap2", "HIGH:0.9"), new FakeStrategy("broken", "not json"))
+                .analyze("prompt", null, TieredRouterTest::parse).get(5, TimeUnit.SECONDS);
+        assertEquals(Severity.HIGH, kept.getSeverity());
+    }
+
+    private TieredRouter router(AiStrategy fast, AiStrategy strong) {
+        return new TieredRouter(dispatcher(fast), dispatcher(strong), new AiRoutingConfig(), registry);
+    }
+
+    private StrategyDispatcher dispatcher(AiStrategy strategy) {
+        return new StrategyDispatcher(List.of(strategy), new AiDispatchConfig(), transport, registry);
+    }
+
+    /**
+     * Reads answers of the form "SEVERITY:score".
+     */
+    private static AIAnalysis parse(AiCompletion completion) {
+        String[] parts = completion.content().split(":");
+        if (parts.length != 2) return null;
+        return new AIAnalysis(UUID.randomUUID(), Severity.valueOf(parts[0]), "test", "summary", "cause", "none",
+                Double.parseDouble(parts[1]));
+    }
+
+    private static final class FakeStrategy implements AsyncAiStrategy {
+        private final String name;
+        private final String answer;
+        private int calls;
+
+        private FakeStrategy(String name, String answer) {
+            this.name = name;
+            this.answer = answer;
+        }
+
+        @Override
+        public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+            calls++;
+            return CompletableFuture.completedFuture(AiCompletion.of(answer));
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public String getModel() { return "model"; }
+
+        @Override
+        public boolean isEnabled() { return true; }
+    }
+}
@@ -0,0 +1,142 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiHttpTransportTest {
+
+    /**
+     * One scripted answer of the test endpoint.
+     */
+    private record Reply(int status, String retryAfter, long delayMs, String body) {
+        static Reply of(int status) {
+            return new Reply(status, null, 0, "{\"status\":" + status + "}");
+        }
+    }
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private Function<Duration, HttpRequest> request;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            Reply reply = replies.poll();
+            if (reply == null) reply = Reply.of(200);
+            if (reply.delayMs() > 0) {
+                try {
+                    Thread.sleep(reply.delayMs());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (reply.retryAfter() != null) exchange.getResponseHeaders().set("Retry-After", reply.retryAfter());
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // the client gave up waiting
+            }
+        });
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        request = remaining -> HttpRequest.newBuilder(endpoint)
+                .timeout(remaining)
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        transport.close();
+    }
+
+    private static AiProviderException failure(CompletableFuture<?> call) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> call.get(10, TimeUnit.SECONDS));
+        return assertInstanceOf(AiProviderException.class, e.getCause());
+    }
+
+    @Test
+    void testTransientFailuresAreRetried() throws Exception {
+        replies.add(Reply.of(503));
+        replies.add(new Reply(429, "0.05", 0, "slow down"));
+        List<AiProviderException> retried = new CopyOnWriteArrayList<>();
+
+        HttpResponse<String> response = transport.send(request, 3, Duration.ofSeconds(10), retried::add).get(10, TimeUnit.SECONDS);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(3, requests.get());
+        assertEquals(List.of(503, 429), retried.stream().map(AiProviderException::getStatusCode).toList());
+        assertTrue(retried.get(1).isRateLimited());
+        assertEquals(Duration.ofMillis(50), retried.get(1).getRetryAfter(), "Retry-After is read in seconds");
+    }
+
+    @Test
+    void testClientErrorIsNotRetried() {
+        replies.add(new Reply(401, null, 0, "invalid key"));
+
+        AiProviderException failure = failure(transport.send(request, 3, Duration.ofSeconds(10)));
+
+        assertEquals(401, failure.getStatusCode());
+        assertFalse(failure.isRetryable());
+        assertTrue(failure.getMessage().contains("invalid key"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testRetryAfterBeyondDeadlineFailsRightAway() {
+        replies.add(new Reply(429, "30", 0, "slow down"));
+        replies.add(new Reply(503, "Wed, 21 Oct 2026 07:28:00 GMT", 0, "maintenance"));
+
+        AiProviderException rateLimited = failure(transport.send(request, 3, Duration.ofSeconds(5)));
+        assertEquals(Duration.ofSeconds(30), rateLimited.getRetryAfter());
+        assertEquals(1, requests.get(), "no retry is scheduled after the deadline");
+
+        AiProviderException unavailable = failure(transport.send(request, 0, Duration.ofSeconds(5)));
+        assertEquals(503, unavailable.getStatusCode());
+        assertNull(unavailable.getRetryAfter(), "an HTTP date falls back to the regular backoff");
+    }
+
+    @Test
+    void testSlowResponseTimesOutAtTheDeadline() {
+        replies.add(new Reply(200, null, 2_000, "{}"));
+        long started = System.nanoTime();
+
+        AiProviderException failure = failure(transport.send(request, 3, Duration.ofMillis(300)));
+
+        assertEquals(0, failure.getStatusCode(), "a timeout has no status code");
+        assertTrue(failure.isRetryable());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1_500, "the call ends at its deadline");
+    }
+}
@@ -0,0 +1,37 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiStrategyFactoryTest {
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private AiStrategy provider(String name) {
+        AiModelEntry entry = new AiModelEntry();
+        entry.setName(name);
+        entry.setModel("gpt-4o-mini");
+        entry.setKey("test");
+        entry.setBaseUrl("http://127.0.0.1:8089/v1");
+        var factory = AiStrategyFactory.providerFor(entry, transport);
+        return factory == null ? null : factory.apply(failure -> {});
+    }
+
+    @Test
+    void testNamesSelectTheirClient() {
+        assertInstanceOf(OpenAiStrategy.class, provider("openai"), "existing openai entries keep the client library");
+        assertInstanceOf(OpenAiStrategy.class, provider("ChatGPT"));
+        assertInstanceOf(HttpOpenAiStrategy.class, provider("openai-http"));
+        assertInstanceOf(OpenAiCompatibleStrategy.class, provider("self-hosted"));
+        assertInstanceOf(PerplexityStrategy.class, provider("perplexity"));
+        assertNull(provider("openai-sdk"));
+    }
+}
@@ -0,0 +1,71 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiCircuitBreakerConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    void testBreakerOpensAtFailureRateAndRejectsCalls(){
+        CircuitBreaker breaker = new CircuitBreaker(config(60_000));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(), "open breaker must reject calls");
+    }
+
+    @Test
+    void testHalfOpenTrialsCloseTheBreaker(){
+        CircuitBreaker breaker = new CircuitBreaker(config(0));
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only the configured trial calls may pass");
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void testFailedTrialOpensTheBreakerAgain(){
+        CircuitBreaker breaker = new CircuitBreaker(config(0));
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        assertTrue(breaker.tryAcquire(), "zero open duration lets the next trial through");
+        breaker.onSuccess();
+        assertNotEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static AiCircuitBreakerConfig config(long openDurationMs) {
+        AiCircuitBreakerConfig config = new AiCircuitBreakerConfig();
+        config.setWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(0.5);
+        config.setOpenDurationMs(openDurationMs);
+        config.setHalfOpenCalls(2);
+        return config;
+    }
+}
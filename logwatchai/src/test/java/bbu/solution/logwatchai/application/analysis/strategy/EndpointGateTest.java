@@ -0,0 +1,56 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EndpointGateTest {
+
+    @Test
+    void testRequestsBeyondTheLimitWait() {
+        EndpointGate gate = new EndpointGate(2);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            results.add(gate.run(() -> call));
+        }
+
+        assertEquals(2, gate.getRunning());
+        assertEquals(1, gate.getWaiting());
+
+        calls.get(0).complete("first");
+        assertEquals("first", results.get(0).join());
+        assertEquals(2, gate.getRunning(), "the freed slot passes to the waiting request");
+        assertEquals(0, gate.getWaiting());
+
+        calls.get(1).complete("second");
+        calls.get(2).completeExceptionally(new IllegalStateException("provider down"));
+        assertTrue(results.get(2).isCompletedExceptionally());
+        assertEquals(0, gate.getRunning());
+    }
+
+    @Test
+    void testLongQueueOfFailingRequestsIsDrainedWithoutRecursion() {
+        EndpointGate gate = new EndpointGate(1);
+        CompletableFuture<String> blocking = new CompletableFuture<>();
+        gate.run(() -> blocking);
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            queued.add(gate.run(() -> {
+                throw new IllegalStateException("connection refused");
+            }));
+        }
+
+        blocking.complete("done");
+
+        assertTrue(queued.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+        assertEquals(0, gate.getRunning());
+        assertEquals(0, gate.getWaiting());
+    }
+}
@@ -0,0 +1,102 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GovernedAiStrategyTest {
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void testCallsBeyondTheConcurrencyLimitWaitInTheQueue(){
+        FakeProvider provider = new FakeProvider();
+        GovernedAiStrategy strategy = governed(entry(2, 0), provider);
+
+        CompletableFuture<AiCompletion> first = strategy.analyzeAsync("a");
+        strategy.analyzeAsync("b");
+        strategy.analyzeAsync("c");
+
+        assertEquals(2, provider.calls.size(), "only two calls may run at once");
+        assertEquals(1, strategy.getQueued());
+
+        provider.calls.getFirst().complete(AiCompletion.of("{}"));
+
+        assertTrue(first.isDone());
+        assertEquals(3, provider.calls.size(), "completed call should release its slot");
+        assertEquals(0, strategy.getQueued());
+    }
+
+    @Test
+    void testRateLimitHalvesTheConcurrencyLimit(){
+        FakeProvider provider = new FakeProvider();
+        GovernedAiStrategy strategy = governed(entry(8, 0), provider);
+
+        CompletableFuture<AiCompletion> call = strategy.analyzeAsync("a");
+        provider.calls.getFirst().completeExceptionally(new AiProviderException(429, "rate limited", null, null));
+
+        assertTrue(call.isCompletedExceptionally());
+        assertEquals(4, strategy.getConcurrencyLimit());
+    }
+
+    @Test
+    void testRequestsPerMinuteAreEnforced(){
+        FakeProvider provider = new FakeProvider();
+        GovernedAiStrategy strategy = governed(entry(8, 2), provider);
+
+        strategy.analyzeAsync("a");
+        strategy.analyzeAsync("b");
+        strategy.analyzeAsync("c");
+
+        assertEquals(2, provider.calls.size(), "third request exceeds the per-minute budget");
+        assertEquals(1, strategy.getQueued());
+    }
+
+    private GovernedAiStrategy governed(AiModelEntry entry, FakeProvider provider) {
+        return new GovernedAiStrategy(entry, retryListener -> provider, transport, new SimpleMeterRegistry());
+    }
+
+    private static AiModelEntry entry(int concurrency, int requestsPerMinute) {
+        AiModelEntry entry = new AiModelEntry();
+        entry.setName("fake");
+        entry.setInitialConcurrency(concurrency);
+        entry.setMaxConcurrency(concurrency);
+        entry.setRequestsPerMinute(requestsPerMinute);
+        return entry;
+    }
+
+    /**
+     * Provider whose calls stay open until the test completes them.
+     */
+    private static final class FakeProvider implements AsyncAiStrategy {
+        private final List<CompletableFuture<AiCompletion>> calls = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<AiCompletion> analyzeAsync(String prompt) {
+            CompletableFuture<AiCompletion> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        @Override
+        public String getName() { return "fake"; }
+
+        @Override
+        public String getModel() { return "fake-model"; }
+
+        @Override
+        public boolean isEnabled() { return true; }
+    }
+}
@@ -0,0 +1,54 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalStatisticalStrategyTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testErrorWithKeywordGetsCategoryAndSeverity() throws Exception {
+        LocalStatisticalStrategy strategy = new LocalStatisticalStrategy("local", null);
+
+        JsonNode result = mapper.readTree(strategy.analyze(
+                AiPrompts.single("2025-01-01 12:00:00 ERROR Deadlock found when trying to get lock")));
+
+        assertEquals("HIGH", result.path("severity").asText());
+        assertEquals("database", result.path("category").asText());
+        assertTrue(result.path("anomalyScore").asDouble() > 0.5);
+    }
+
+    @Test
+    void testBatchPromptIsAnsweredPerIndex() throws Exception {
+        LocalStatisticalStrategy strategy = new LocalStatisticalStrategy("local", null);
+
+        JsonNode result = mapper.readTree(strategy.analyze(AiPrompts.batch(List.of(
+                "INFO Request served in 12ms",
+                "FATAL java.lang.OutOfMemoryError: Java heap space"))));
+
+        assertTrue(result.isArray());
+        assertEquals(2, result.size());
+        assertEquals(0, result.get(0).path("index").asInt());
+        assertEquals("INFO", result.get(0).path("severity").asText());
+        assertEquals("CRITICAL", result.get(1).path("severity").asText());
+        assertEquals("resource", result.get(1).path("category").asText());
+    }
+
+    @Test
+    void testRepeatedTemplateScoresLowerThanNewOne() throws Exception {
+        LocalStatisticalStrategy strategy = new LocalStatisticalStrategy("local", null);
+        String prompt = AiPrompts.single("WARN Cache miss for key 4711");
+
+        double first = mapper.readTree(strategy.analyze(prompt)).path("anomalyScore").asDouble();
+        for (int i = 0; i < 30; i++) strategy.analyze(prompt);
+        double later = mapper.readTree(strategy.analyze(prompt)).path("anomalyScore").asDouble();
+
+        assertTrue(later < first, "a frequent template should look less anomalous than a new one");
+    }
+}
@@ -0,0 +1,85 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenAiCompatibleStrategyTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AiHttpTransport transport = new AiHttpTransport();
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/completions", exchange -> {
+            JsonNode body = mapper.readTree(exchange.getRequestBody());
+            requests.add(body);
+            ObjectNode response = mapper.createObjectNode();
+            ArrayNode choices = response.putArray("choices");
+            for (int i = 0; i < body.path("prompt").size(); i++) {
+                choices.addObject().put("index", i).put("text", "answer " + i);
+            }
+            byte[] bytes = mapper.writeValueAsBytes(response);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        transport.close();
+    }
+
+    @Test
+    void testConcurrentPromptsShareOneRequest() throws Exception {
+        AiModelEntry entry = new AiModelEntry();
+        entry.setName("self-hosted");
+        entry.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/");
+        entry.setBatchPrompts(true);
+        entry.setMaxBatchPrompts(3);
+        entry.setBatchWindowMs(5000);
+        OpenAiCompatibleStrategy strategy = new OpenAiCompatibleStrategy(entry, transport, failure -> {});
+
+        assertTrue(strategy.isEnabled(), "a base URL is enough, no key needed");
+
+        CompletableFuture<AiCompletion> a = strategy.analyzeAsync("first");
+        CompletableFuture<AiCompletion> b = strategy.analyzeAsync("second");
+        CompletableFuture<AiCompletion> c = strategy.analyzeAsync("third");
+
+        assertEquals("answer 0", a.get(5, TimeUnit.SECONDS).content());
+        assertEquals("answer 1", b.get(5, TimeUnit.SECONDS).content());
+        assertEquals("answer 2", c.get(5, TimeUnit.SECONDS).content());
+        assertEquals(1, requests.size(), "full batch should be sent as a single request");
+        assertTrue(requests.getFirst().path("prompt").get(1).asText().contains("second"));
+    }
+
+    @Test
+    void testEntriesOnTheSameEndpointShareOneGate() {
+        EndpointGate first = transport.gate(URI.create("http://inference:8000/v1/chat/completions"), 2);
+        EndpointGate second = transport.gate(URI.create("http://inference:8000/v1/completions"), 8);
+
+        assertSame(first, second);
+    }
+}
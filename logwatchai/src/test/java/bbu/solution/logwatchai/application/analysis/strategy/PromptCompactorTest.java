@@ -0,0 +1,66 @@
+package bbu.solution.logwatchai.application.analysis.strategy;
+
+import bbu.solution.logwatchai.domain.appconfig.AiPromptConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PromptCompactorTest {
+
+    private final AiPromptConfig config = new AiPromptConfig();
+
+    @Test
+    void testAnsiCodesAndRepeatedFramesAreRemoved() {
+        String raw = "\u001B[31mERROR\u001B[0m   request    failed\r\n"
+                + "java.lang.StackOverflowError\n"
+                + "\tat com.acme.Tree.walk(Tree.java:10)\n".repeat(50)
+                + "\tat com.acme.Main.main(Main.java:3)\n\n";
+
+        String compacted = new PromptCompactor(config).compact(raw);
+
+        assertEquals("""
+                ERROR request failed
+                java.lang.StackOverflowError
+                \tat com.acme.Tree.walk(Tree.java:10)
+                \t... [previous line repeated 49 more times]
+                \tat com.acme.Main.main(Main.java:3)""", compacted);
+    }
+
+    @Test
+    void testLongTraceKeepsHeadTailAndExceptionsWithinTheLimit() {
+        config.setMaxPromptTokens(400);
+        config.setHeadLines(3);
+        config.setTailLines(2);
+        List<String> lines = new ArrayList<>(List.of("ERROR job failed", "java.lang.IllegalStateException: no lock"));
+        for (int i = 0; i < 200; i++) lines.add("\tat com.acme.Step" + i + ".run(Step.java:" + i + ")");
+        lines.add(100, "Caused by: java.io.IOException: disk full");
+        lines.add("\t... 12 more");
+
+        String compacted = new PromptCompactor(config).compact(String.join("\n", lines));
+
+        assertTrue(AiPrompts.estimatePromptTokens(AiPrompts.single(compacted)) <= 400);
+        assertTrue(compacted.startsWith("ERROR job failed\njava.lang.IllegalStateException: no lock\n\tat com.acme.Step0"));
+        assertTrue(compacted.contains("Caused by: java.io.IOException: disk full"));
+        assertTrue(compacted.contains("lines omitted]"));
+        assertTrue(compacted.endsWith("\t... 12 more"));
+    }
+
+    @Test
+    void testBatchLinesShareTheBudgetOnOnePromptLine() {
+        config.setMaxPromptTokens(600);
+        String json = "INFO payload " + "{\"k\":\"v\"},".repeat(2000);
+
+        List<String> compacted = new PromptCompactor(config).compactBatch(List.of(json, "WARN slow\nsecond line", json));
+        String prompt = AiPrompts.batch(compacted);
+
+        assertTrue(AiPrompts.estimatePromptTokens(prompt) <= 600);
+        assertEquals("WARN slow | second line", compacted.get(1));
+        assertTrue(compacted.getFirst().startsWith("INFO payload {"));
+        assertEquals(3, AiPrompts.extractLogs(prompt).size());
+        // the instructions in front of the log text do not depend on the lines
+        assertTrue(prompt.startsWith(AiPrompts.batch(List.of()).substring(0, prompt.indexOf("[0] "))));
+    }
+}
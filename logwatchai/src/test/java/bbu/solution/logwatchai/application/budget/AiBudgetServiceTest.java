@@ -0,0 +1,130 @@
+package bbu.solution.logwatchai.application.budget;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiStrategy;
+import bbu.solution.logwatchai.application.analysis.strategy.LocalStatisticalStrategy;
+import bbu.solution.logwatchai.domain.appconfig.AiBudgetConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.infrastructure.persistence.budget.AiUsageRepository;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AiBudgetServiceTest {
+
+    private final UUID source = UUID.randomUUID();
+    private AiUsageRepository repository;
+    private AiBudgetConfig budget;
+    private AiStrategy openai;
+    private SimpleMeterRegistry registry;
+    private AiBudgetService service;
+
+    @BeforeEach
+    void setUp() {
+        budget = new AiBudgetConfig();
+        budget.setEnabled(true);
+        budget.setDailyTokenLimit(1000);
+
+        AiModelEntry model = new AiModelEntry();
+        model.setName("openai");
+        model.setInputCostPerMillion(1_000_000);
+        model.setOutputCostPerMillion(2_000_000);
+        AiConfig ai = new AiConfig();
+        ai.setModels(List.of(model));
+        ai.setBudget(budget);
+        AppConfig config = new AppConfig();
+        config.setAi(ai);
+        AppConfigService configService = mock(AppConfigService.class);
+        when(configService.getConfig()).thenReturn(config);
+
+        repository = mock(AiUsageRepository.class);
+        when(repository.findByDay(any())).thenReturn(List.of());
+        openai = mock(AiStrategy.class);
+        when(openai.getName()).thenReturn("openai");
+
+        registry = new SimpleMeterRegistry();
+        service = new AiBudgetService(new AnalysisConfigProperties(configService), repository, registry);
+    }
+
+    @Test
+    void testLevelGaugeLeavesTheLevelChangeToTheCaller() {
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        Logger logger = (Logger) LoggerFactory.getLogger(AiBudgetService.class);
+        logger.addAppender(appender);
+        try {
+            service.record(openai, "prompt", new AiCompletion("{}", 400, 100), source);
+
+            assertEquals(BudgetLevel.TIGHTENED.ordinal(), registry.get("logwatchai.ai.budget.level").gauge().value());
+            assertTrue(appender.list.isEmpty(), "reading the gauge logs nothing");
+
+            assertEquals(BudgetLevel.TIGHTENED, service.level(null));
+            assertEquals(1, appender.list.stream()
+                    .filter(event -> event.getFormattedMessage().contains("from NORMAL to TIGHTENED")).count());
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
+
+    @Test
+    void testLevelDegradesAsTokensAreUsed() {
+        assertEquals(BudgetLevel.NORMAL, service.level(source));
+
+        service.record(openai, "prompt", new AiCompletion("{}", 400, 100), source);
+        assertEquals(BudgetLevel.TIGHTENED, service.level(source));
+        assertEquals(0.6, service.triageThreshold(source, 0.3), 1e-9);
+        assertEquals(0.7, service.triageThreshold(source, 0.7), 1e-9);
+
+        service.record(openai, "prompt", new AiCompletion("{}", 300, 0), source);
+        assertEquals(BudgetLevel.CACHE_ONLY, service.level(source));
+
+        service.record(openai, "prompt", new AiCompletion("{}", 200, 0), source);
+        assertEquals(BudgetLevel.LOCAL, service.level(source));
+        assertEquals(1000, service.getDayTokens());
+        // 900 prompt tokens at 1.0 and 100 completion tokens at 2.0 per token
+        assertEquals(1100.0, service.getDayCost(), 1e-6);
+    }
+
+    @Test
+    void testSourceLimitOnlyDegradesThatSource() {
+        budget.setDailyTokenLimit(0);
+        budget.setSourceDailyTokenLimit(100);
+
+        service.record(openai, "prompt", new AiCompletion("{}", 90, 0), source);
+
+        assertEquals(BudgetLevel.CACHE_ONLY, service.level(source));
+        assertEquals(BudgetLevel.NORMAL, service.level(UUID.randomUUID()));
+        assertEquals(0.3, service.triageThreshold(UUID.randomUUID(), 0.3), 1e-9);
+    }
+
+    @Test
+    void testFlushStoresUsageAndSkipsLocalAnalyzer() {
+        service.record(new LocalStatisticalStrategy("local", null), "prompt", new AiCompletion("{}", 0, 0), source);
+        service.record(openai, "p".repeat(40), new AiCompletion("c".repeat(8), 0, 0), source);
+        service.flush();
+
+        // without reported usage the tokens are estimated from the text length
+        verify(repository).add(any(), any(), eq("openai"), any(), eq(1L), eq(10L), eq(2L), anyDouble());
+        verify(repository, never()).add(any(), any(), eq("local"), any(), anyLong(), anyLong(), anyLong(), anyDouble());
+        verify(repository, times(1)).add(any(), any(), anyString(), any(), anyLong(), anyLong(), anyLong(), anyDouble());
+    }
+}
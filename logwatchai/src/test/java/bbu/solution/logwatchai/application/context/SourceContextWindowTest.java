@@ -0,0 +1,62 @@
+package bbu.solution.logwatchai.application.context;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiPrompts;
+import bbu.solution.logwatchai.domain.appconfig.AiContextConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceContextWindowTest {
+
+    private final AiContextConfig config = new AiContextConfig();
+    private final UUID source = UUID.randomUUID();
+    private final UUID poolTemplate = UUID.randomUUID();
+
+    private LogEntry record(SourceContextWindow window, String text, UUID templateId) {
+        LogEntry entry = new LogEntry(text, source);
+        entry.setTemplateId(templateId);
+        window.record(entry, text);
+        return entry;
+    }
+
+    @Test
+    void testRepeatedLinesAreMergedAndLaterLinesLeftOut() {
+        SourceContextWindow window = new SourceContextWindow(config);
+        record(window, "INFO Started worker", UUID.randomUUID());
+        for (int i = 0; i < 30; i++) record(window, "WARN HikariPool-1 - Connection is not available, active=" + i, poolTemplate);
+        LogEntry error = record(window, "ERROR Could not open JPA EntityManager for transaction", UUID.randomUUID());
+        record(window, "INFO Retrying in 5s", UUID.randomUUID());
+
+        String summary = window.summarize(error);
+
+        assertEquals("""
+                - INFO Started worker
+                - 30x WARN HikariPool-1 - Connection is not available, active=29""", summary);
+        String prompt = AiPrompts.single(error.getRawText(), summary);
+        assertEquals(error.getRawText(), AiPrompts.extractLogs(prompt).get(-1));
+        assertEquals("", window.summarize(new LogEntry("ERROR other source", UUID.randomUUID())));
+    }
+
+    @Test
+    void testWindowIsBoundedByEventsAndBytes() {
+        config.setEvents(5);
+        config.setMaxBytesPerSource(100);
+        config.setMaxLineChars(20);
+        config.setMaxSummaryLines(3);
+        SourceContextWindow window = new SourceContextWindow(config);
+        for (int i = 0; i < 10; i++) record(window, "line " + i + " with a rather long text\n\tat a.B.c(B.java:1)", UUID.randomUUID());
+
+        String summary = window.summarize(new LogEntry("ERROR now", source));
+
+        // five lines of 24 bytes exceed the cap, so only four are left; one of them is not listed
+        assertEquals(List.of(
+                "- ... 1 earlier lines omitted",
+                "- line 7 with a rather ...",
+                "- line 8 with a rather ...",
+                "- line 9 with a rather ..."), summary.lines().toList());
+    }
+}
@@ -0,0 +1,89 @@
+package bbu.solution.logwatchai.application.decision;
+
+import bbu.solution.logwatchai.application.rules.RuleEvaluator;
+import bbu.solution.logwatchai.domain.alert.Alert;
+import bbu.solution.logwatchai.domain.alert.AlertService;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.analysis.events.PreliminaryAnalysisEvent;
+import bbu.solution.logwatchai.domain.decision.DecisionOutcome;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.rule.Rule;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DecisionEngineServiceImplTest {
+
+    private final RuleEvaluator ruleEvaluator = mock(RuleEvaluator.class);
+    private final AlertService alertService = mock(AlertService.class);
+    private final DecisionEngineServiceImpl engine =
+            new DecisionEngineServiceImpl(ruleEvaluator, alertService, mock(ApplicationEventPublisher.class));
+
+    private final LogEntry entry = new LogEntry("ERROR disk full", UUID.randomUUID());
+    private final AIAnalysis preliminary = new AIAnalysis(entry.getId(), Severity.HIGH, null, "Preliminary", null, null, 0.9);
+    private final AIAnalysis complete = new AIAnalysis(entry.getId(), Severity.HIGH, "disk", "Disk full", "logs", "rotate", 0.9);
+    private final Rule rule = new Rule("high", Severity.HIGH, null, null);
+
+    private Alert alert() {
+        Alert alert = mock(Alert.class);
+        when(alert.getId()).thenReturn(UUID.randomUUID());
+        return alert;
+    }
+
+    @Test
+    void testCompleteAnalysisUpdatesPreliminaryAlert() {
+        Alert saved = alert();
+        when(ruleEvaluator.evaluatePreliminary(preliminary)).thenReturn(List.of(rule));
+        when(ruleEvaluator.evaluate(complete)).thenReturn(List.of(rule));
+        when(alertService.create(any())).thenReturn(saved);
+        when(alertService.getAlertById(saved.getId())).thenReturn(Optional.of(saved));
+        when(alertService.update(saved)).thenReturn(saved);
+
+        engine.onPreliminaryAnalysis(new PreliminaryAnalysisEvent(entry, preliminary));
+        engine.onPreliminaryAnalysis(new PreliminaryAnalysisEvent(entry, preliminary));
+        DecisionOutcome outcome = engine.evaluate(entry, complete);
+
+        assertSame(saved, outcome.getAlert());
+        verify(alertService, times(1)).create(any());
+        verify(saved).setMessage("Disk full");
+    }
+
+    @Test
+    void testEvaluationDuringPreliminaryAlertCompletesIt() throws Exception {
+        Alert saved = alert();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ruleEvaluator.evaluatePreliminary(preliminary)).thenReturn(List.of(rule));
+        when(ruleEvaluator.evaluate(complete)).thenReturn(List.of());
+        when(alertService.create(any())).thenAnswer(call -> {
+            creating.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return saved;
+        });
+        when(alertService.getAlertById(saved.getId())).thenReturn(Optional.of(saved));
+
+        CompletableFuture<Void> alerting = CompletableFuture.runAsync(
+                () -> engine.onPreliminaryAnalysis(new PreliminaryAnalysisEvent(entry, preliminary)));
+        assertTrue(creating.await(5, TimeUnit.SECONDS));
+        CompletableFuture<DecisionOutcome> evaluating = CompletableFuture.supplyAsync(() -> engine.evaluate(entry, complete));
+        Thread.sleep(100);
+        assertFalse(evaluating.isDone(), "the evaluation waits for the preliminary alert being created");
+        release.countDown();
+
+        alerting.get(5, TimeUnit.SECONDS);
+        assertNull(evaluating.get(5, TimeUnit.SECONDS).getAlert());
+        verify(alertService, times(1)).create(any());
+        verify(alertService).deactivate(saved.getId());
+    }
+}
@@ -0,0 +1,172 @@
+package bbu.solution.logwatchai.application.deferred;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisCommitter;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.application.budget.BudgetLevel;
+import bbu.solution.logwatchai.application.scheduling.AnalysisLane;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysisService;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiDeferredConfig;
+import bbu.solution.logwatchai.domain.decision.DecisionEngineService;
+import bbu.solution.logwatchai.domain.deferred.DeferredBatch;
+import bbu.solution.logwatchai.domain.deferred.DeferredBatchStatus;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
+import bbu.solution.logwatchai.infrastructure.persistence.deferred.DeferredBatchRepository;
+import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DeferredAnalysisLaneTest {
+
+    private static final TriageResult ESCALATED = new TriageResult(0.6, Severity.MEDIUM, true, "level WARN");
+
+    private final DeferredBatchRepository batchRepository = mock(DeferredBatchRepository.class);
+    private final LogEntryRepository logEntryRepository = mock(LogEntryRepository.class);
+    private final AIAnalysisService aiAnalysisService = mock(AIAnalysisService.class);
+    private final AnalysisCommitter committer = mock(AnalysisCommitter.class);
+    private final DecisionEngineService decisionEngineService = mock(DecisionEngineService.class);
+    private final AiBudgetService budget = mock(AiBudgetService.class);
+    private DeferredAnalysisLane lane;
+
+    @BeforeEach
+    void setUp() {
+        when(batchRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+        when(batchRepository.finish(any(), anyString(), anyInt(), any(), any())).thenReturn(1);
+        when(aiAnalysisService.promptFor(any())).thenReturn("prompt");
+        when(committer.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(budget.level(any())).thenReturn(BudgetLevel.NORMAL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lane.close();
+    }
+
+    private DeferredAnalysisLane lane(DeferredBatchClient client, int maxBatch) {
+        AiDeferredConfig config = new AiDeferredConfig();
+        config.setEnabled(true);
+        config.setMaxBatch(maxBatch);
+        config.setMaxWaitMs(60_000);
+        lane = new DeferredAnalysisLane(config, client, batchRepository, logEntryRepository, mock(JdbcTemplate.class),
+                aiAnalysisService, committer, decisionEngineService, budget, new SimpleMeterRegistry());
+        return lane;
+    }
+
+    @Test
+    void testFullBatchIsSubmitted() {
+        lane(new LocalDeferredBatchClient(), 2);
+        LogEntry first = new LogEntry("WARN slow response", UUID.randomUUID());
+        LogEntry second = new LogEntry("WARN retrying", UUID.randomUUID());
+        when(logEntryRepository.findDeferred(any())).thenReturn(List.of(first, second));
+
+        assertTrue(lane.offer(first, ESCALATED, AnalysisLane.NORMAL));
+        assertTrue(lane.offer(first, ESCALATED, AnalysisLane.NORMAL), "a line offered again stays in its batch");
+        assertTrue(lane.offer(second, ESCALATED, AnalysisLane.LOW));
+
+        verify(batchRepository, timeout(5000)).submitted(any(), startsWith("local-"), eq(2), any());
+        verify(logEntryRepository, never()).releaseDeferred(any());
+    }
+
+    @Test
+    void testUrgentAndRoutineLinesStayInRealTime() {
+        lane(new LocalDeferredBatchClient(), 2);
+        LogEntry entry = new LogEntry("ERROR disk full", UUID.randomUUID());
+
+        assertFalse(lane.offer(entry, ESCALATED, AnalysisLane.HIGH));
+        assertFalse(lane.offer(entry, new TriageResult(0.1, Severity.LOW, false, "routine"), AnalysisLane.LOW));
+
+        when(budget.level(any())).thenReturn(BudgetLevel.CACHE_ONLY);
+        assertFalse(lane.offer(entry, ESCALATED, AnalysisLane.LOW), "the degraded modes take the regular path");
+    }
+
+    @Test
+    void testFinishedBatchIsReconciledWithRealTimeFallback() {
+        DeferredBatchClient client = mock(DeferredBatchClient.class);
+        when(client.getName()).thenReturn("openai");
+        lane(client, 100);
+        LogEntry answeredLine = new LogEntry("WARN slow response", UUID.randomUUID());
+        LogEntry missingLine = new LogEntry("WARN retrying", UUID.randomUUID());
+        AiCompletion completion = new AiCompletion("{\"severity\":\"MEDIUM\"}", 120, 40);
+        AIAnalysis parsed = new AIAnalysis(answeredLine.getId(), Severity.MEDIUM, "latency", "slow", "load", "scale", 0.4);
+        AIAnalysis realTime = new AIAnalysis(missingLine.getId(), Severity.LOW, "retry", "retry", "network", "none", 0.2);
+
+        when(batchRepository.findAbandoned(any())).thenReturn(List.of());
+        when(batchRepository.findByStatusOrderByCreatedAt(DeferredBatchStatus.SUBMITTED))
+                .thenReturn(List.of(new DeferredBatch("openai", Instant.now())));
+        when(client.poll(any())).thenReturn(CompletableFuture.completedFuture(
+                new DeferredBatchClient.Results(true, Map.of(answeredLine.getId().toString(), completion), null)));
+        when(logEntryRepository.findDeferred(any())).thenReturn(List.of(answeredLine, missingLine));
+        when(aiAnalysisService.fromCompletion(answeredLine, "openai", completion.content())).thenReturn(parsed);
+        when(aiAnalysisService.analyzeBatched(missingLine)).thenReturn(CompletableFuture.completedFuture(realTime));
+
+        lane.reconcile();
+
+        verify(batchRepository).finish(any(), eq("COMPLETED"), eq(1), isNull(), any());
+        verify(budget).record("openai", null, completion, answeredLine.getSourceId());
+        verify(committer).commit(parsed);
+        verify(committer).commit(realTime);
+        verify(decisionEngineService).evaluate(answeredLine, parsed);
+        verify(decisionEngineService).evaluate(missingLine, realTime);
+    }
+
+    @Test
+    void testSubmissionDoesNotWaitForTheProvider() {
+        DeferredBatchClient client = mock(DeferredBatchClient.class);
+        when(client.getName()).thenReturn("openai");
+        CompletableFuture<String> accepted = new CompletableFuture<>();
+        when(client.submit(any())).thenReturn(accepted);
+        lane(client, 2);
+        LogEntry first = new LogEntry("WARN slow response", UUID.randomUUID());
+        LogEntry second = new LogEntry("WARN retrying", UUID.randomUUID());
+        when(logEntryRepository.findDeferred(any())).thenReturn(List.of(first, second));
+
+        lane.offer(first, ESCALATED, AnalysisLane.NORMAL);
+        lane.offer(second, ESCALATED, AnalysisLane.NORMAL);
+
+        verify(client, timeout(5000)).submit(any());
+        verify(batchRepository, never()).submitted(any(), any(), anyInt(), any());
+
+        accepted.complete("batch_1");
+        verify(batchRepository).submitted(any(), eq("batch_1"), eq(2), any());
+    }
+
+    @Test
+    void testSlowPollDoesNotBlockTheScheduledThread() {
+        DeferredBatchClient client = mock(DeferredBatchClient.class);
+        when(client.getName()).thenReturn("openai");
+        lane(client, 100);
+        CompletableFuture<DeferredBatchClient.Results> poll = new CompletableFuture<>();
+        when(batchRepository.findAbandoned(any())).thenReturn(List.of());
+        when(batchRepository.findByStatusOrderByCreatedAt(DeferredBatchStatus.SUBMITTED))
+                .thenReturn(List.of(new DeferredBatch("openai", Instant.now())));
+        when(client.poll(any())).thenReturn(poll);
+        when(logEntryRepository.findDeferred(any())).thenReturn(List.of());
+
+        lane.reconcile();
+        lane.reconcile();
+
+        verify(client, times(1)).poll(any());
+        verify(batchRepository, never()).finish(any(), any(), anyInt(), any(), any());
+
+        poll.complete(new DeferredBatchClient.Results(true, Map.of(), null));
+        verify(batchRepository).finish(any(), eq("COMPLETED"), eq(0), isNull(), any());
+        lane.reconcile();
+        verify(client, times(2)).poll(any());
+    }
+}
@@ -0,0 +1,104 @@
+package bbu.solution.logwatchai.application.reanalysis;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysisService;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.reanalysis.CampaignStatus;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisCampaign;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisFilter;
+import bbu.solution.logwatchai.domain.reanalysis.ReanalysisResult;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
+import bbu.solution.logwatchai.infrastructure.persistence.reanalysis.ReanalysisCampaignRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReanalysisServiceImplTest {
+
+    private ReanalysisCampaignRepository campaigns;
+    private LogEntryRepository entries;
+    private AIAnalysisService analysis;
+    private ReanalysisServiceImpl service;
+    private ReanalysisCampaign campaign;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = new AppConfig();
+        config.setAi(new AiConfig());
+        AppConfigService configService = mock(AppConfigService.class);
+        when(configService.getConfig()).thenReturn(config);
+
+        campaigns = mock(ReanalysisCampaignRepository.class);
+        entries = mock(LogEntryRepository.class);
+        analysis = mock(AIAnalysisService.class);
+        service = new ReanalysisServiceImpl(campaigns, entries, analysis, new AnalysisConfigProperties(configService));
+
+        Instant now = Instant.now();
+        campaign = new ReanalysisCampaign("after model change",
+                new ReanalysisFilter(List.of(Severity.HIGH), null, now.minus(Duration.ofDays(7)), now), true, 60, 2, now);
+        when(campaigns.findByStatus(CampaignStatus.RUNNING)).thenReturn(List.of(campaign));
+        when(campaigns.lease(any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void testChunkAdvancesCursorAndNextChunkWaitsForRate() {
+        LogEntry first = new LogEntry("ERROR disk full", UUID.randomUUID());
+        LogEntry last = new LogEntry("ERROR disk still full", UUID.randomUUID());
+        when(entries.findReanalysisChunk(any(), any(), any(), isNull(), eq(false), eq(List.of("HIGH")), anyInt()))
+                .thenReturn(List.of(first, last));
+        when(analysis.reanalyze(any(), eq(campaign.getId()), eq(true)))
+                .thenReturn(CompletableFuture.completedFuture(new ReanalysisResult(2, 0, 1)));
+
+        service.runCampaigns();
+        service.runCampaigns();
+
+        verify(campaigns).advance(aryEq(UuidBytes.toBytes(campaign.getId())), aryEq(UuidBytes.toBytes(last.getId())), eq(2), eq(2), eq(1));
+        // two lines at 60 lines per minute: the next chunk is due in two seconds
+        verify(campaigns, times(1)).lease(any(), any(), any());
+    }
+
+    @Test
+    void testFailedChunkPausesCampaign() {
+        when(entries.findReanalysisChunk(any(), any(), any(), any(), anyBoolean(), any(), anyInt()))
+                .thenReturn(List.of(new LogEntry("ERROR disk full", UUID.randomUUID())));
+        when(analysis.reanalyze(any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("budget level is CACHE_ONLY")));
+
+        service.runCampaigns();
+
+        verify(campaigns).pause(any(), eq("budget level is CACHE_ONLY"));
+        verify(campaigns, never()).advance(any(), any(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testCampaignWithoutFurtherEntriesCompletes() {
+        when(entries.findReanalysisChunk(any(), any(), any(), any(), anyBoolean(), any(), anyInt())).thenReturn(List.of());
+
+        service.runCampaigns();
+
+        verify(campaigns).finish(any(), eq("COMPLETED"), any());
+        verifyNoInteractions(analysis);
+    }
+
+    @Test
+    void testEstimatedCompletionFallsBackToConfiguredRate() {
+        Instant now = Instant.now();
+        assertEquals(0.0, campaign.getProgress());
+        assertEquals(now.plusSeconds(2), campaign.getEstimatedCompletion(now));
+    }
+}
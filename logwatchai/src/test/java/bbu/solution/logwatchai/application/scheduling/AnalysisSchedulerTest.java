@@ -0,0 +1,188 @@
+package bbu.solution.logwatchai.application.scheduling;
+
+import bbu.solution.logwatchai.domain.appconfig.AiSchedulingConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.logsource.LogSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisSchedulerTest {
+
+    /** Executor that runs tasks only when the test asks for it. */
+    private final Queue<Runnable> executor = new ArrayDeque<>();
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<Void>> running = new ArrayList<>();
+
+    private AnalysisScheduler scheduler(AiSchedulingConfig config, LogSource source) {
+        return new AnalysisScheduler(config, id -> source, executor::add, new SimpleMeterRegistry());
+    }
+
+    private void submit(AnalysisScheduler scheduler, String level, String text) {
+        submit(scheduler, UUID.randomUUID(), level, text);
+    }
+
+    private void submit(AnalysisScheduler scheduler, UUID sourceId, String level, String text) {
+        LogEntry entry = new LogEntry(level + " " + text, sourceId);
+        entry.setLevel(level);
+        submit(scheduler, entry, text);
+    }
+
+    private boolean submit(AnalysisScheduler scheduler, LogEntry entry, String text) {
+        return scheduler.submit(entry, 0.0, () -> {
+            started.add(text);
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            running.add(done);
+            return done;
+        });
+    }
+
+    private void runExecutor() {
+        Runnable task;
+        while ((task = executor.poll()) != null) task.run();
+    }
+
+    @Test
+    void testErrorOvertakesWaitingRoutineLines() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setMaxInFlight(1);
+        AnalysisScheduler scheduler = scheduler(config, null);
+
+        submit(scheduler, "INFO", "first");
+        runExecutor();
+        for (int i = 0; i < 3; i++) submit(scheduler, "INFO", "heartbeat " + i);
+        submit(scheduler, "FATAL", "payment down");
+        assertEquals(3, scheduler.getQueued(AnalysisLane.LOW));
+        assertEquals(1, scheduler.getQueued(AnalysisLane.CRITICAL));
+
+        running.getFirst().complete(null);
+        runExecutor();
+
+        assertEquals(List.of("first", "payment down"), started);
+        assertEquals(1, scheduler.getInFlight());
+    }
+
+    @Test
+    void testLinesWaitingTooLongAreServedFirst() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setMaxInFlight(1);
+        config.setMaxWaitMs(0);
+        AnalysisScheduler scheduler = scheduler(config, null);
+
+        submit(scheduler, "INFO", "first");
+        runExecutor();
+        submit(scheduler, "INFO", "old heartbeat");
+        submit(scheduler, "ERROR", "new error");
+
+        running.getFirst().complete(null);
+        runExecutor();
+
+        assertEquals(List.of("first", "old heartbeat"), started);
+    }
+
+    @Test
+    void testSourceWeightRaisesTheLane() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setSourceWeights(Map.of("payment", 1.5));
+        LogSource payment = new LogSource();
+        payment.setName("payment-service");
+        payment.setPath("/var/log/payment/app.log");
+
+        LogEntry error = new LogEntry("ERROR card declined", UUID.randomUUID());
+        error.setLevel("ERROR");
+
+        assertEquals(AnalysisLane.HIGH, scheduler(config, null).laneOf(error, 0.6));
+        assertEquals(AnalysisLane.CRITICAL, scheduler(config, payment).laneOf(error, 0.6));
+    }
+
+    @Test
+    void testSourceCreatedAfterItsFirstLineGetsItsWeight() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setSourceWeights(Map.of("payment", 1.5));
+        LogSource payment = new LogSource();
+        payment.setName("payment-service");
+        payment.setPath("/var/log/payment/app.log");
+        LogSource[] stored = {null};
+        AnalysisScheduler scheduler = new AnalysisScheduler(config, id -> stored[0], executor::add, new SimpleMeterRegistry());
+
+        LogEntry error = new LogEntry("ERROR card declined", UUID.randomUUID());
+        error.setLevel("ERROR");
+        assertEquals(AnalysisLane.HIGH, scheduler.laneOf(error, 0.6));
+
+        stored[0] = payment;
+        assertEquals(AnalysisLane.CRITICAL, scheduler.laneOf(error, 0.6));
+    }
+
+    @Test
+    void testChattySourceTakesTurnsWithOthers() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setMaxInFlight(1);
+        AnalysisScheduler scheduler = scheduler(config, null);
+        UUID chatty = UUID.randomUUID();
+        UUID quiet = UUID.randomUUID();
+
+        for (int i = 0; i < 5; i++) submit(scheduler, chatty, "INFO", "chatty " + i);
+        submit(scheduler, quiet, "INFO", "quiet 0");
+        submit(scheduler, quiet, "INFO", "quiet 1");
+        assertEquals(4, scheduler.getQueued(chatty));
+
+        for (int i = 0; i < 4; i++) {
+            runExecutor();
+            running.get(i).complete(null);
+        }
+        runExecutor();
+
+        assertEquals(List.of("chatty 0", "chatty 1", "quiet 0", "chatty 2", "quiet 1"), started);
+    }
+
+    @Test
+    void testSourceInFlightLimit() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setDefaultSourceMaxInFlight(2);
+        AnalysisScheduler scheduler = scheduler(config, null);
+        UUID chatty = UUID.randomUUID();
+
+        for (int i = 0; i < 5; i++) submit(scheduler, chatty, "INFO", "chatty " + i);
+        submit(scheduler, "INFO", "other");
+        runExecutor();
+
+        assertEquals(List.of("chatty 0", "chatty 1", "other"), started);
+        assertEquals(3, scheduler.getQueued(chatty));
+    }
+
+    @Test
+    void testLinesAlreadyHeldAreNotQueuedAgain() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setMaxInFlight(1);
+        AnalysisScheduler scheduler = scheduler(config, null);
+        UUID source = UUID.randomUUID();
+        List<LogEntry> backlog = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            LogEntry entry = new LogEntry("INFO line " + i, source);
+            entry.setLevel("INFO");
+            backlog.add(entry);
+        }
+
+        for (int sweep = 0; sweep < 2; sweep++) {
+            for (LogEntry entry : backlog) assertTrue(submit(scheduler, entry, entry.getRawText()));
+            runExecutor();
+        }
+
+        assertEquals(List.of("INFO line 0"), started);
+        assertEquals(2, scheduler.getQueued(source));
+
+        running.getFirst().complete(null);
+        runExecutor();
+        assertTrue(submit(scheduler, backlog.getFirst(), "INFO line 0 again"));
+        assertEquals(2, scheduler.getQueued(source), "a finished line may be queued again");
+    }
+}
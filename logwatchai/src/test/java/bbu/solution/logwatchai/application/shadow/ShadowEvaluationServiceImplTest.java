@@ -0,0 +1,100 @@
+package bbu.solution.logwatchai.application.shadow;
+
+import bbu.solution.logwatchai.application.analysis.AnalysisConfigProperties;
+import bbu.solution.logwatchai.application.analysis.strategy.AiCircuitBreakers;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiPrompts;
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.application.budget.BudgetLevel;
+import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiModelEntry;
+import bbu.solution.logwatchai.domain.appconfig.AiShadowConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.shadow.ShadowComparison;
+import bbu.solution.logwatchai.infrastructure.persistence.shadow.ShadowComparisonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ShadowEvaluationServiceImplTest {
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+    private final AiShadowConfig shadow = new AiShadowConfig();
+    private ShadowComparisonRepository repository;
+    private AiBudgetService budget;
+    private ShadowEvaluationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        AiModelEntry local = new AiModelEntry();
+        local.setName("local");
+        local.setEnabled(true);
+        shadow.setEnabled(true);
+        shadow.setCandidate("local");
+        shadow.setSampleRate(1.0);
+        shadow.setMaxPerMinute(2);
+
+        AiConfig ai = new AiConfig();
+        ai.setModels(List.of(local));
+        ai.setShadow(shadow);
+        AppConfig config = new AppConfig();
+        config.setAi(ai);
+        AppConfigService configService = mock(AppConfigService.class);
+        when(configService.getConfig()).thenReturn(config);
+
+        repository = mock(ShadowComparisonRepository.class);
+        budget = mock(AiBudgetService.class);
+        when(budget.level(any())).thenReturn(BudgetLevel.NORMAL);
+        service = new ShadowEvaluationServiceImpl(new AnalysisConfigProperties(configService), transport,
+                mock(AiCircuitBreakers.class), budget, repository, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        transport.close();
+    }
+
+    @Test
+    void testCandidateAnswerIsStoredNextToPrimary() {
+        LogEntry entry = new LogEntry("ERROR connection refused by db-1", UUID.randomUUID());
+        String prompt = AiPrompts.single(entry.getRawText());
+        AIAnalysis primary = new AIAnalysis(UUID.randomUUID(), Severity.HIGH, "network", "summary", "cause", "fix", 0.8);
+
+        ShadowEvaluationServiceImpl.Sample sample = service.sample(entry, prompt);
+        assertNotNull(sample);
+        service.compare(sample, primary, "openai:gpt", content ->
+                new AIAnalysis(primary.getLogEntryId(), Severity.HIGH, "network", content, "cause", "fix", 0.7));
+
+        ArgumentCaptor<ShadowComparison> saved = ArgumentCaptor.forClass(ShadowComparison.class);
+        verify(repository).save(saved.capture());
+        assertEquals("local", saved.getValue().getCandidateStrategy());
+        assertTrue(saved.getValue().isSeverityMatch());
+        assertEquals(-0.1, saved.getValue().getScoreDelta(), 1e-9);
+        assertNull(saved.getValue().getCandidateError());
+    }
+
+    @Test
+    void testSamplingStopsAtRateLimitAndLowBudget() {
+        LogEntry entry = new LogEntry("ERROR disk full", UUID.randomUUID());
+        assertNotNull(service.sample(entry, "a"));
+        assertNotNull(service.sample(entry, "b"));
+        assertNull(service.sample(entry, "c"));
+
+        when(budget.level(any())).thenReturn(BudgetLevel.TIGHTENED);
+        assertNull(service.sample(entry, "d"));
+    }
+}
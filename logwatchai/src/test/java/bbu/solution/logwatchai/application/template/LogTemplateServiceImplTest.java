@@ -0,0 +1,147 @@
+package bbu.solution.logwatchai.application.template;
+
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.template.LogTemplate;
+import bbu.solution.logwatchai.infrastructure.persistence.UuidBytes;
+import bbu.solution.logwatchai.infrastructure.persistence.template.LogTemplateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LogTemplateServiceImplTest {
+
+    private final LogTemplateRepository repository = mock(LogTemplateRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private LogTemplateServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        AppConfigService configService = mock(AppConfigService.class);
+        when(configService.getConfig()).thenReturn(new AppConfig());
+        service = new LogTemplateServiceImpl(repository, configService, registry);
+    }
+
+    @Test
+    void testKnownTemplateIsFoundAndNewOneCreated() {
+        UUID first = service.assignTemplate("Connection to db-primary lost, retrying");
+        UUID second = service.assignTemplate("Connection to cache-node lost, retrying");
+        UUID other = service.assignTemplate("Disk /var is full");
+
+        assertEquals(first, second, "a similar line joins the existing template");
+        assertNotEquals(first, other);
+        assertEquals(Optional.of("Connection to <*> lost, retrying"), service.getCurrentTemplate(first));
+        assertEquals(2.0, registry.counter("logwatchai.templates.created").count());
+        assertEquals(1.0, registry.counter("logwatchai.templates.changed").count());
+        verify(repository, never()).upsert(any(), any(), anyInt(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void testFlushWritesOneUpsertPerTemplate() {
+        UUID id = service.assignTemplate("Connection to db-primary lost, retrying");
+        service.recordOccurrence(id);
+        service.recordOccurrence(service.assignTemplate("Connection to cache-node lost, retrying"));
+
+        service.flush();
+        service.flush();
+
+        assertEquals(2, service.getOccurrences(id));
+        verify(repository, times(1)).upsert(aryEq(UuidBytes.toBytes(id)), eq("Connection to <*> lost, retrying"),
+                anyInt(), eq(2), eq(2L), any(Instant.class));
+    }
+
+    @Test
+    void testConcurrentLinesOfOneTemplateShareIt() throws Exception {
+        int threads = 8;
+        int linesPerThread = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < linesPerThread; i++) {
+                        UUID id = service.assignTemplate("Payment declined by issuer bank");
+                        service.recordOccurrence(id);
+                        ids.add(id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) worker.get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        service.flush();
+
+        assertEquals(1, ids.size(), "concurrent inserts of one template open it once");
+        assertEquals(1.0, registry.counter("logwatchai.templates.created").count());
+        verify(repository, times(1)).upsert(any(), eq("Payment declined by issuer bank"),
+                anyInt(), anyInt(), eq((long) threads * linesPerThread), any());
+    }
+
+    @Test
+    void testFailedFlushIsRetriedWithLaterCounts() {
+        UUID id = service.assignTemplate("Job started");
+        service.recordOccurrence(id);
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .doNothing()
+                .when(repository).upsert(any(), any(), anyInt(), anyInt(), anyLong(), any());
+
+        service.flush();
+        service.recordOccurrence(id);
+        service.flush();
+
+        verify(repository).upsert(any(), eq("Job started"), anyInt(), anyInt(), eq(1L), any());
+        verify(repository).upsert(any(), eq("Job started"), anyInt(), anyInt(), eq(2L), any());
+    }
+
+    @Test
+    void testRestoredTemplateKeepsItsIdAndCount() {
+        UUID id = UUID.randomUUID();
+        LogTemplate stored = mock(LogTemplate.class);
+        when(stored.getId()).thenReturn(id);
+        when(stored.getTemplate()).thenReturn("User login failed for <*>");
+        when(stored.getVersion()).thenReturn(2);
+        when(stored.getMatchCount()).thenReturn(42L);
+        when(repository.findAllByOrderByLastSeenDesc(any())).thenReturn(List.of(stored));
+
+        service.warmUp();
+
+        assertEquals(id, service.assignTemplate("User login failed for carol"));
+        assertEquals(42, service.getOccurrences(id));
+    }
+
+    @Test
+    void testEvictedTemplateIsReadFromTheDatabase() {
+        UUID id = UUID.randomUUID();
+        LogTemplate stored = mock(LogTemplate.class);
+        when(stored.getTemplate()).thenReturn("Disk <*> is full");
+        when(repository.findById(id)).thenReturn(Optional.of(stored));
+
+        assertEquals(Optional.of("Disk <*> is full"), service.getCurrentTemplate(id));
+        assertEquals(0, service.getOccurrences(id));
+    }
+}
@@ -0,0 +1,115 @@
+package bbu.solution.logwatchai.application.triage;
+
+import bbu.solution.logwatchai.application.budget.AiBudgetService;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AppConfig;
+import bbu.solution.logwatchai.domain.appconfig.AppConfigService;
+import bbu.solution.logwatchai.domain.appconfig.TriageConfig;
+import bbu.solution.logwatchai.domain.log.LogEntry;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TriageScorerTest {
+
+    private final LogTemplateService templateService = mock(LogTemplateService.class);
+    private final AiBudgetService budget = mock(AiBudgetService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TriageConfig config = new TriageConfig();
+    private TriageScorer scorer;
+
+    @BeforeEach
+    void setUp() {
+        config.setRateWindowSeconds(1);
+        AppConfig appConfig = new AppConfig();
+        appConfig.setTriage(config);
+        AppConfigService configService = mock(AppConfigService.class);
+        when(configService.getConfig()).thenReturn(appConfig);
+        // well-known templates, so only the signals under test count
+        when(templateService.getOccurrences(any())).thenReturn(1_000L);
+        when(budget.triageThreshold(any(), anyDouble())).thenAnswer(call -> call.getArgument(1));
+        scorer = new TriageScorer(templateService, configService, budget, registry);
+    }
+
+    private static LogEntry line(String text, UUID templateId) {
+        LogEntry entry = new LogEntry(text, UUID.randomUUID());
+        entry.setTemplateId(templateId);
+        return entry;
+    }
+
+    @Test
+    void testLevelAndKeywordsAreWeighted() {
+        TriageResult error = scorer.score(line("ERROR connection refused", UUID.randomUUID()));
+        TriageResult info = scorer.score(line("INFO request served", UUID.randomUUID()));
+        TriageResult heartbeat = scorer.score(line("INFO heartbeat", UUID.randomUUID()));
+
+        assertEquals(0.8, error.score(), 1e-9, "level ERROR and an alert keyword");
+        assertEquals(Severity.HIGH, error.severity());
+        assertTrue(error.escalate());
+        assertEquals(0.05, info.score(), 1e-9);
+        assertFalse(info.escalate());
+        assertEquals(0.0, heartbeat.score(), 1e-9, "a routine keyword lowers the score");
+        assertTrue(heartbeat.reason().contains("routine keyword 'heartbeat'"));
+    }
+
+    @Test
+    void testNewTemplateIsRare() {
+        UUID templateId = UUID.randomUUID();
+        when(templateService.getOccurrences(templateId)).thenReturn(1L);
+
+        TriageResult result = scorer.score(line("INFO request served", templateId));
+
+        assertEquals(0.05 + 0.25 * (1.0 - 1.0 / 20), result.score(), 1e-9);
+        assertTrue(result.reason().contains("new template"));
+    }
+
+    @Test
+    void testBurstCountsOnlyAfterWarmUp() throws Exception {
+        UUID templateId = UUID.randomUUID();
+        LogEntry entry = line("INFO request served", templateId);
+
+        for (int i = 0; i < 8; i++) scorer.recordOccurrence(templateId);
+        assertEquals(0.05, scorer.score(entry).score(), 1e-9, "no usual rate yet to compare with");
+
+        // the next window folds 8 lines into the average: 0.3 * 8 = 2.4
+        Thread.sleep(1_100);
+        for (int i = 0; i < 20; i++) scorer.recordOccurrence(templateId);
+
+        TriageResult burst = scorer.score(entry);
+        assertEquals(0.05 + 0.25, burst.score(), 1e-9, "20 lines are more than six times the usual 2.4");
+        assertTrue(burst.reason().contains("rate burst"));
+        assertEquals(burst, scorer.score(entry), "scoring again records nothing");
+    }
+
+    @Test
+    void testEscalateThreshold() {
+        LogEntry warn = line("WARN upstream timeout", UUID.randomUUID());
+        assertTrue(scorer.score(warn).escalate(), "0.55 is above the threshold of 0.35");
+
+        when(budget.triageThreshold(any(), anyDouble())).thenReturn(0.6);
+        assertFalse(scorer.score(warn).escalate(), "the budget raised the threshold");
+
+        config.setEnabled(false);
+        when(budget.triageThreshold(any(), anyDouble())).thenAnswer(call -> call.getArgument(1));
+        assertTrue(scorer.score(line("DEBUG cache hit", UUID.randomUUID())).escalate(), "without triage every line escalates");
+    }
+
+    @Test
+    void testDecisionsAreCountedOnlyWhenRecorded() {
+        TriageResult result = scorer.score(line("ERROR disk full", UUID.randomUUID()));
+        assertEquals(0.0, registry.counter("logwatchai.triage.decisions", "route", "ai").count());
+
+        scorer.recordDecision(result);
+
+        assertEquals(1.0, registry.counter("logwatchai.triage.decisions", "route", "ai").count());
+        assertEquals(1, registry.summary("logwatchai.triage.score").count());
+    }
+}
@@ -1,16 +1,33 @@
 package bbu.solution.logwatchai.domain.log;
 
+import bbu.solution.logwatchai.application.analysis.AnalysisCommitter;
 import bbu.solution.logwatchai.application.log.LogEntryServiceImpl;
+import bbu.solution.logwatchai.application.context.SourceContextWindow;
+import bbu.solution.logwatchai.application.deferred.DeferredAnalysisLane;
+import bbu.solution.logwatchai.application.redaction.LogRedactor;
+import bbu.solution.logwatchai.application.scheduling.AnalysisScheduler;
+import bbu.solution.logwatchai.application.triage.TriageScorer;
 import bbu.solution.logwatchai.domain.analysis.AIAnalysis;
 import bbu.solution.logwatchai.domain.analysis.AIAnalysisService;
+import bbu.solution.logwatchai.domain.analysis.Severity;
+import bbu.solution.logwatchai.domain.appconfig.AiContextConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiRedactionConfig;
+import bbu.solution.logwatchai.domain.appconfig.AiSchedulingConfig;
 import bbu.solution.logwatchai.domain.decision.DecisionEngineService;
+import bbu.solution.logwatchai.domain.template.LogTemplateService;
+import bbu.solution.logwatchai.domain.triage.TriageResult;
 import bbu.solution.logwatchai.infrastructure.persistence.log.LogEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +38,9 @@ public class LogEntryServiceTest {
     private LogEntryRepository repository;
     private AIAnalysisService aiAnalysisService;
     private DecisionEngineService decisionEngineService;
+    private LogTemplateService logTemplateService;
+    private TriageScorer triageScorer;
+    private AnalysisCommitter committer;
     private LogEntryServiceImpl service;
 
     @BeforeEach
@@ -28,8 +48,20 @@ public class LogEntryServiceTest {
         repository = mock(LogEntryRepository.class);
         aiAnalysisService = mock(AIAnalysisService.class);
         decisionEngineService = mock(DecisionEngineService.class);
+        logTemplateService = mock(LogTemplateService.class);
+        triageScorer = mock(TriageScorer.class);
+        when(triageScorer.score(any())).thenReturn(new TriageResult(0.9, Severity.HIGH, true, "level ERROR"));
+        committer = mock(AnalysisCommitter.class);
+        when(committer.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
 
-        service = new LogEntryServiceImpl(repository, aiAnalysisService, decisionEngineService);
+        // analyses run on the calling thread, so the tests can check their outcome right away
+        service = service(new AnalysisScheduler(new AiSchedulingConfig(), id -> null, Runnable::run, new SimpleMeterRegistry()));
+    }
+
+    private LogEntryServiceImpl service(AnalysisScheduler scheduler) {
+        return new LogEntryServiceImpl(repository, aiAnalysisService, decisionEngineService, logTemplateService, triageScorer, scheduler,
+                new LogRedactor(new AiRedactionConfig()), new SourceContextWindow(new AiContextConfig()), committer,
+                mock(DeferredAnalysisLane.class));
     }
 
     @Test
@@ -50,17 +82,139 @@ public class LogEntryServiceTest {
         LogEntry entry = new LogEntry("Log for AI", UUID.randomUUID());
         AIAnalysis analysis = new AIAnalysis();
         analysis.setAnomalyScore(0.9);
-        when(repository.findById(entry.getId())).thenReturn(Optional.of(entry));
-        when(aiAnalysisService.analyze(entry)).thenReturn(analysis);
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(1);
+        when(aiAnalysisService.analyzeBatched(entry)).thenReturn(CompletableFuture.completedFuture(analysis));
 
         service.analyzeAsync(entry);
 
         assertTrue(entry.isAnalyzed());
         assertTrue(entry.hasAnomaly());
-        verify(repository).save(entry);
+        assertEquals(AnalysisState.DONE, entry.getAnalysisState());
+        verify(committer).commit(analysis);
+        verify(repository, never()).findById(any());
         verify(decisionEngineService).evaluate(entry, analysis);
     }
 
+    @Test
+    void testAnalyzeAsyncWaitsForTheIngestCommit() {
+        LogEntry entry = new LogEntry("ERROR inserted in an open transaction", UUID.randomUUID());
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(1);
+        when(aiAnalysisService.analyzeBatched(entry)).thenReturn(CompletableFuture.completedFuture(new AIAnalysis()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.analyzeAsync(entry);
+            verify(repository, never()).claimForAnalysis(any(), any(Instant.class));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(repository).claimForAnalysis(any(), any(Instant.class));
+        assertTrue(entry.isAnalyzed());
+    }
+
+    @Test
+    void testAnalyzeAsyncSkipsWhenClaimIsLost() {
+        LogEntry entry = new LogEntry("Log already claimed", UUID.randomUUID());
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(0);
+
+        service.analyzeAsync(entry);
+
+        assertFalse(entry.isAnalyzed());
+        verify(aiAnalysisService, never()).analyzeBatched(any());
+        verify(decisionEngineService, never()).evaluate(any(), any());
+    }
+
+    @Test
+    void testAnalyzeAsyncReleasesClaimOnFailure() {
+        LogEntry entry = new LogEntry("Log for broken AI", UUID.randomUUID());
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(1);
+        when(aiAnalysisService.analyzeBatched(entry)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("provider down")));
+
+        service.analyzeAsync(entry);
+
+        verify(repository).releaseClaim(any(), eq(AnalysisState.PENDING.name()));
+        verify(committer, never()).commit(any());
+    }
+
+    @Test
+    void testAnalyzeAsyncReleasesClaimWhenCommitFails() {
+        LogEntry entry = new LogEntry("Log for a full disk", UUID.randomUUID());
+        AIAnalysis analysis = new AIAnalysis();
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(1);
+        when(aiAnalysisService.analyzeBatched(entry)).thenReturn(CompletableFuture.completedFuture(analysis));
+        when(committer.commit(analysis)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("database down")));
+
+        service.analyzeAsync(entry);
+
+        assertFalse(entry.isAnalyzed());
+        verify(repository).releaseClaim(any(), eq(AnalysisState.PENDING.name()));
+        verify(decisionEngineService, never()).evaluate(any(), any());
+    }
+
+    @Test
+    void testAnalyzeAsyncKeepsRoutineLinesLocal() {
+        LogEntry entry = new LogEntry("INFO Service heartbeat OK", UUID.randomUUID());
+        TriageResult triage = new TriageResult(0.05, Severity.INFO, false, "level INFO, routine keyword 'heartbeat'");
+        AIAnalysis local = new AIAnalysis();
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(1);
+        when(triageScorer.score(entry)).thenReturn(triage);
+        when(aiAnalysisService.analyzeLocally(entry, triage)).thenReturn(local);
+
+        service.analyzeAsync(entry);
+
+        assertTrue(entry.isAnalyzed());
+        assertFalse(entry.hasAnomaly());
+        verify(aiAnalysisService, never()).analyzeBatched(any());
+        verify(committer).commit(local);
+        verify(decisionEngineService).evaluate(entry, local);
+    }
+
+    @Test
+    void testAnalyzeAsyncIgnoresStoredEntries() {
+        UUID sourceId = UUID.randomUUID();
+        String rawMsg = "ERROR disk full";
+        when(logTemplateService.assignTemplate(rawMsg)).thenReturn(UUID.randomUUID());
+        // a row loaded from the database, still waiting for the sweep
+        LogEntry stored = mock(LogEntry.class);
+        when(stored.getId()).thenReturn(UUID.randomUUID());
+        when(stored.getAnalysisState()).thenReturn(AnalysisState.PENDING);
+        when(repository.findBySourceIdAndRawText(sourceId, rawMsg)).thenReturn(Optional.of(stored));
+        LogEntry done = new LogEntry("ERROR already analyzed", sourceId);
+        done.markAsAnalyzed();
+
+        service.analyzeAsync(service.saveRawLog(rawMsg, sourceId));
+        service.analyzeAsync(new LogEntry());
+        service.analyzeAsync(done);
+
+        verify(triageScorer, never()).score(any());
+        verify(repository, never()).claimForAnalysis(any(), any());
+    }
+
+    @Test
+    void testSweepDoesNotQueueWaitingEntriesAgain() {
+        AiSchedulingConfig config = new AiSchedulingConfig();
+        config.setMaxInFlight(1);
+        AnalysisScheduler scheduler = new AnalysisScheduler(config, id -> null, Runnable::run, new SimpleMeterRegistry());
+        LogEntryServiceImpl sweeping = service(scheduler);
+        UUID sourceId = UUID.randomUUID();
+        List<LogEntry> backlog = List.of(new LogEntry("ERROR a", sourceId), new LogEntry("ERROR b", sourceId),
+                new LogEntry("ERROR c", sourceId));
+        when(repository.findPendingBefore(any(), anyInt())).thenReturn(backlog);
+        when(repository.claimForAnalysis(any(), any(Instant.class))).thenReturn(1);
+        // the first analysis keeps running, so the other entries wait in their lane
+        when(aiAnalysisService.analyzeBatched(any())).thenReturn(new CompletableFuture<>());
+
+        sweeping.analyzePendingLogs();
+        sweeping.analyzePendingLogs();
+
+        assertEquals(1, scheduler.getInFlight());
+        assertEquals(2, scheduler.getQueued(sourceId));
+        verify(repository, times(1)).claimForAnalysis(any(), any(Instant.class));
+    }
+
     @Test
     void testDoesLogEntryExistsBySourcveIdRawText(){
         UUID sourceId = UUID.randomUUID();
@@ -78,7 +232,9 @@ public class LogEntryServiceTest {
     void testSaveRawLog(){
         UUID sourceId = UUID.randomUUID();
         String rawMsg = "ERROR ERROR ERROR, World is burning!";
+        UUID templateId = UUID.randomUUID();
 
+        when(logTemplateService.assignTemplate(rawMsg)).thenReturn(templateId);
         when(repository.findBySourceIdAndRawText(sourceId, rawMsg)).thenReturn(Optional.empty());
 
         LogEntry result = service.saveRawLog(rawMsg, sourceId);
@@ -86,12 +242,30 @@ public class LogEntryServiceTest {
         assertNotNull(result, "LogEntry is not allowed to be null");
         assertEquals(rawMsg, result.getRawText(), "rawMsg should be the same");
         assertEquals(sourceId, result.getSourceId(), "sourceId should be the same");
+        assertEquals(templateId, result.getTemplateId(), "templateId should be assigned");
+        assertEquals("ERROR", result.getLevel(), "level should be parsed");
 
         verify(repository, times(1)).insertIgnoreDuplicate(
-                any(), any(), any(Instant.class), any(), any(), any(Instant.class), anyBoolean(), anyBoolean()        );
+                any(), any(), any(Instant.class), any(), any(), any(Instant.class), anyBoolean(), anyBoolean(), any()        );
 
         verify(repository, times(1)).findBySourceIdAndRawText(sourceId, rawMsg);
+        verify(logTemplateService, times(1)).recordOccurrence(templateId);
+
+    }
+
+    @Test
+    void testSaveRawLogDoesNotCountDuplicates(){
+        UUID sourceId = UUID.randomUUID();
+        String rawMsg = "WARN disk almost full";
+        LogEntry existing = new LogEntry(rawMsg, sourceId);
+
+        when(logTemplateService.assignTemplate(rawMsg)).thenReturn(UUID.randomUUID());
+        when(repository.findBySourceIdAndRawText(sourceId, rawMsg)).thenReturn(Optional.of(existing));
+
+        LogEntry result = service.saveRawLog(rawMsg, sourceId);
 
+        assertEquals(existing, result, "existing entry should be returned");
+        verify(logTemplateService, never()).recordOccurrence(any());
     }
 
 }
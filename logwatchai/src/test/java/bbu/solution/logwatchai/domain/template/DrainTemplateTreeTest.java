@@ -0,0 +1,68 @@
+package bbu.solution.logwatchai.domain.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrainTemplateTreeTest {
+
+    @Test
+    void testSimilarLinesJoinOneGeneralizedTemplate(){
+        DrainTemplateTree tree = new DrainTemplateTree(4, 0.4, 100, 100);
+
+        DrainTemplateTree.Match first = tree.add("Connection to db-primary lost, retrying");
+        DrainTemplateTree.Match second = tree.add("Connection to cache-node lost, retrying");
+
+        assertTrue(first.created(), "first line should open a template");
+        assertFalse(second.created(), "second line should join the template");
+        assertTrue(second.changed(), "template should be generalized");
+        assertEquals(first.cluster().getId(), second.cluster().getId());
+        assertEquals("Connection to <*> lost, retrying", second.cluster().getTemplate());
+        assertEquals(2, second.cluster().getVersion());
+
+        DrainTemplateTree.Match third = tree.add("Connection to queue lost, retrying");
+        assertFalse(third.changed(), "already generalized template should stay the same");
+    }
+
+    @Test
+    void testDifferentMessagesGetDifferentTemplates(){
+        DrainTemplateTree tree = new DrainTemplateTree(4, 0.4, 100, 100);
+
+        UUID a = tree.add("User login failed for alice").cluster().getId();
+        UUID b = tree.add("Disk /var is full").cluster().getId();
+        UUID c = tree.add("User login failed for bob").cluster().getId();
+
+        assertNotEquals(a, b);
+        assertEquals(a, c);
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    void testLeastRecentlyMatchedTemplateIsEvicted(){
+        DrainTemplateTree tree = new DrainTemplateTree(4, 0.4, 100, 2);
+
+        UUID first = tree.add("Job started").cluster().getId();
+        UUID second = tree.add("Cache cleared completely now").cluster().getId();
+        tree.add("Job started");
+        tree.add("Payment declined by issuer bank today please").cluster().getId();
+
+        assertEquals(2, tree.size());
+        assertNotNull(tree.get(first), "recently matched template should be kept");
+        assertNull(tree.get(second), "least recently matched template should be evicted");
+    }
+
+    @Test
+    void testRestoredTemplateKeepsItsId(){
+        DrainTemplateTree tree = new DrainTemplateTree(4, 0.4, 100, 100);
+        UUID id = UUID.randomUUID();
+        tree.restore(id, "Timeout after <NUM>ms calling <*>", 3, 10);
+
+        DrainTemplateTree.Match match = tree.add("Timeout after 30ms calling billing");
+
+        assertEquals(id, match.cluster().getId());
+        assertFalse(match.changed());
+        assertEquals(3, match.cluster().getVersion());
+    }
+}
@@ -0,0 +1,34 @@
+package bbu.solution.logwatchai.domain.template;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTemplateNormalizerTest {
+
+    @Test
+    void testLinesDifferingOnlyInValuesShareTemplate(){
+        String a = LogTemplateNormalizer.normalize("2024-05-01 10:15:30,123 ERROR Timeout after 45ms calling 10.0.0.12:8080 for user 42");
+        String b = LogTemplateNormalizer.normalize("2024-05-02 23:01:02,999 ERROR Timeout after 3ms calling 192.168.1.7:443 for user 1337");
+
+        assertEquals(a, b, "lines should have the same template");
+        assertEquals("<TS> ERROR Timeout after <NUM>ms calling <IP> for user <NUM>", a);
+        assertEquals(LogTemplateNormalizer.hash(a), LogTemplateNormalizer.hash(b), "hashes should be equal");
+    }
+
+    @Test
+    void testIdentifiersAreMasked(){
+        String template = LogTemplateNormalizer.normalize(
+                "Order 3f2504e0-4f89-11d3-9a0c-0305e82c3301 by john@example.com failed: 'card declined' (txn a1b2c3d4e5)");
+
+        assertEquals("Order <UUID> by <EMAIL> failed: '<STR>' (txn <HEX>)", template);
+    }
+
+    @Test
+    void testDifferentMessagesKeepDifferentTemplates(){
+        assertNotEquals(
+                LogTemplateNormalizer.normalize("Connection refused"),
+                LogTemplateNormalizer.normalize("Connection reset"));
+        assertEquals("", LogTemplateNormalizer.normalize(null), "null should become an empty template");
+    }
+}
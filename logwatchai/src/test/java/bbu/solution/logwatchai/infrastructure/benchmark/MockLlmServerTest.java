@@ -0,0 +1,119 @@
+package bbu.solution.logwatchai.infrastructure.benchmark;
+
+import bbu.solution.logwatchai.application.analysis.strategy.AiCompletion;
+import bbu.solution.logwatchai.application.analysis.strategy.AiHttpTransport;
+import bbu.solution.logwatchai.application.analysis.strategy.AiPrompts;
+import bbu.solution.logwatchai.application.analysis.strategy.AiProviderException;
+import bbu.solution.logwatchai.application.analysis.strategy.HttpOpenAiStrategy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MockLlmServerTest {
+
+    private final AiHttpTransport transport = new AiHttpTransport();
+    private MockLlmServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) server.close();
+        transport.close();
+    }
+
+    private MockLlmProperties properties() {
+        MockLlmProperties properties = new MockLlmProperties();
+        properties.setPort(0);
+        properties.setLatency("fixed");
+        properties.setLatencyMs(0);
+        properties.setRateLimitRate(0.0);
+        properties.setMalformedRate(0.0);
+        properties.setRetryAfterSeconds(0);
+        return properties;
+    }
+
+    private HttpOpenAiStrategy strategy(int maxRetries, List<AiProviderException> retries) throws IOException {
+        server.start();
+        return new HttpOpenAiStrategy("openai", "mock-gpt", "benchmark", server.getBaseUrl(),
+                Duration.ofSeconds(10), maxRetries, transport, retries::add);
+    }
+
+    @Test
+    void testSamePromptGetsSameAnswer() throws Exception {
+        server = new MockLlmServer(properties());
+        HttpOpenAiStrategy strategy = strategy(0, new CopyOnWriteArrayList<>());
+
+        String prompt = AiPrompts.batch(List.of("ERROR db connection refused", "INFO started"));
+        AiCompletion first = strategy.analyzeAsync(prompt).get(5, TimeUnit.SECONDS);
+        AiCompletion second = strategy.analyzeAsync(prompt).get(5, TimeUnit.SECONDS);
+
+        assertEquals(first.content(), second.content());
+        JsonNode items = new ObjectMapper().readTree(first.content());
+        assertEquals(2, items.size());
+        assertEquals("ERROR", items.get(0).path("severity").asText());
+        assertEquals(1, items.get(1).path("index").asInt());
+        assertTrue(first.promptTokens() > 0);
+    }
+
+    @Test
+    void testStreamedAnswerEqualsRegularAnswer() throws Exception {
+        server = new MockLlmServer(properties());
+        server.start();
+        HttpOpenAiStrategy regular = new HttpOpenAiStrategy("openai", "mock-gpt", "benchmark", server.getBaseUrl(),
+                Duration.ofSeconds(10), 0, transport, failure -> {});
+        HttpOpenAiStrategy streaming = new HttpOpenAiStrategy("openai", "mock-gpt", "benchmark", server.getBaseUrl(),
+                Duration.ofSeconds(10), 0, transport, failure -> {}, true);
+
+        String prompt = AiPrompts.single("ERROR db connection refused");
+        List<String> pieces = new CopyOnWriteArrayList<>();
+        AiCompletion streamed = streaming.analyzeStreaming(prompt, pieces::add).get(5, TimeUnit.SECONDS);
+        AiCompletion expected = regular.analyzeAsync(prompt).get(5, TimeUnit.SECONDS);
+
+        assertEquals(expected.content(), streamed.content());
+        assertEquals(streamed.content(), String.join("", pieces));
+        assertTrue(pieces.size() > 1);
+        assertTrue(pieces.getFirst().startsWith("{\"severity\""));
+        assertEquals(expected.promptTokens(), streamed.promptTokens());
+        assertEquals(expected.completionTokens(), streamed.completionTokens());
+    }
+
+    @Test
+    void testRateLimitsAreRetriedUntilExhausted() throws Exception {
+        MockLlmProperties properties = properties();
+        properties.setRateLimitRate(1.0);
+        server = new MockLlmServer(properties);
+        List<AiProviderException> retries = new CopyOnWriteArrayList<>();
+        HttpOpenAiStrategy strategy = strategy(2, retries);
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> strategy.analyzeAsync(AiPrompts.single("WARN slow")).get(10, TimeUnit.SECONDS));
+
+        AiProviderException cause = assertInstanceOf(AiProviderException.class, failure.getCause());
+        assertTrue(cause.isRateLimited());
+        assertEquals(2, retries.size());
+        assertEquals(3, server.getRateLimited());
+    }
+
+    @Test
+    void testMalformedResponsesAreInjected() throws Exception {
+        MockLlmProperties properties = properties();
+        properties.setMalformedRate(1.0);
+        server = new MockLlmServer(properties);
+        HttpOpenAiStrategy strategy = strategy(0, new CopyOnWriteArrayList<>());
+
+        AiCompletion completion = strategy.analyzeAsync(AiPrompts.single("ERROR boom")).get(5, TimeUnit.SECONDS);
+
+        assertTrue(completion.content().startsWith("```json"));
+        assertThrows(IOException.class, () -> new ObjectMapper().readTree(completion.content()));
+        assertEquals(1, server.getMalformed());
+    }
+}